@@ -0,0 +1,114 @@
+package cl.cesar.ApiRoute.bench;
+
+import cl.cesar.ApiRoute.api.BatchRouteResult;
+import cl.cesar.ApiRoute.api.RoutePair;
+import cl.cesar.ApiRoute.config.RouteProperties;
+import cl.cesar.ApiRoute.service.RouteService;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Un lote de consultas de /find-batch, sin caché. Con pares al azar cada origen es un grupo
+ * distinto; con un solo origen, el lote se resuelve con un único árbol de búsqueda.
+ * {@link #findEachPair()} resuelve los mismos pares con una consulta por par, para comparar.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class BatchBenchmark {
+
+    /** Cómo se eligen los pares del lote. */
+    public enum Pairing {
+        RANDOM, SAME_ORIGIN
+    }
+
+    @Param({"GRID", "HUB_AND_SPOKE", "RANDOM"})
+    public GraphGenerator.Shape shape;
+
+    @Param({"10000", "100000", "1000000"})
+    public int edges;
+
+    @Param({"RANDOM", "SAME_ORIGIN"})
+    public Pairing pairing;
+
+    @Param({"100"})
+    public int batchSize;
+
+    private RouteService service;
+    private List<RoutePair> pairs;
+
+    @Setup(Level.Trial)
+    public void setup() throws IOException {
+        RouteProperties properties = new RouteProperties();
+        properties.getCache().setMaxEntries(0);
+        properties.getSearch().setComputeThreads(0);
+        service = new RouteService(properties);
+
+        GraphGenerator generator = new GraphGenerator(shape, edges, GraphGenerator.DEFAULT_SEED);
+        Path file = generator.writeTo(Files.createTempFile("lotes-" + shape, ".csv"));
+        try {
+            service.loadFile(file, null);
+        } finally {
+            Files.delete(file);
+        }
+
+        pairs = generator.randomPairs(batchSize, GraphGenerator.DEFAULT_SEED + 1);
+        if (pairing == Pairing.SAME_ORIGIN) {
+            String origin = pairs.get(0).getOrigin();
+            List<RoutePair> sameOrigin = new ArrayList<>(batchSize);
+            for (RoutePair pair : pairs) {
+                if (!pair.getDestination().equals(origin)) {
+                    sameOrigin.add(new RoutePair(origin, pair.getDestination()));
+                }
+            }
+            pairs = sameOrigin;
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        service.shutdown();
+    }
+
+    @Benchmark
+    public List<BatchRouteResult> findBatch() {
+        List<CompletableFuture<BatchRouteResult>> futures = service.findFastestRoutes(pairs);
+        List<BatchRouteResult> results = new ArrayList<>(futures.size());
+        for (CompletableFuture<BatchRouteResult> future : futures) {
+            results.add(future.join());
+        }
+        return results;
+    }
+
+    @Benchmark
+    public int[] findEachPair() {
+        int[] times = new int[pairs.size()];
+        for (int i = 0; i < times.length; i++) {
+            RoutePair pair = pairs.get(i);
+            times[i] = service.findFastestRoute(pair.getOrigin(), pair.getDestination()).getTotalTime();
+        }
+        return times;
+    }
+}
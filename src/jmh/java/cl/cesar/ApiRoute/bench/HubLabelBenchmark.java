@@ -0,0 +1,124 @@
+package cl.cesar.ApiRoute.bench;
+
+import cl.cesar.ApiRoute.api.RoutePair;
+import cl.cesar.ApiRoute.config.RouteProperties;
+import cl.cesar.ApiRoute.model.CompactGraph;
+import cl.cesar.ApiRoute.routing.ContractionHierarchy;
+import cl.cesar.ApiRoute.routing.Dijkstra;
+import cl.cesar.ApiRoute.routing.HubLabels;
+import cl.cesar.ApiRoute.routing.PathResult;
+import cl.cesar.ApiRoute.service.GraphSnapshot;
+import cl.cesar.ApiRoute.service.RouteService;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Consultas punto a punto con etiquetas de hubs frente a las búsquedas que reemplazan: Dijkstra,
+ * la jerarquía de contracción, el cruce de etiquetas (solo el tiempo, como /time) y la ruta
+ * completa con etiquetas (como /find con HL). Los grafos son chicos porque cada prueba construye
+ * la jerarquía y las etiquetas.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class HubLabelBenchmark {
+
+    private static final int PAIRS = 1024;
+
+    @Param({"GRID", "RANDOM"})
+    public GraphGenerator.Shape shape;
+
+    @Param({"10000", "40000"})
+    public int edges;
+
+    private RouteService service;
+    private CompactGraph graph;
+    private ContractionHierarchy hierarchy;
+    private HubLabels labels;
+    private final int[] sources = new int[PAIRS];
+    private final int[] targets = new int[PAIRS];
+
+    /** Posición de cada hilo en la lista de pares. */
+    @State(Scope.Thread)
+    public static class Cursor {
+        int next;
+    }
+
+    @Setup(Level.Trial)
+    public void setup() throws IOException {
+        RouteProperties properties = new RouteProperties();
+        properties.getCache().setMaxEntries(0);
+        properties.getSearch().setComputeThreads(0);
+        properties.getSearch().setContractionHierarchies(true);
+        properties.getHubLabels().setEnabled(true);
+        properties.getHubLabels().setMaxBytes(0);
+        service = new RouteService(properties);
+
+        GraphGenerator generator = new GraphGenerator(shape, edges, GraphGenerator.DEFAULT_SEED);
+        Path file = generator.writeTo(Files.createTempFile("etiquetas-" + shape, ".csv"));
+        try {
+            service.loadFile(file, null);
+        } finally {
+            Files.delete(file);
+        }
+        GraphSnapshot snapshot = service.getSnapshot();
+        graph = snapshot.getGraph();
+        hierarchy = snapshot.getHierarchy().join();
+        labels = snapshot.getHubLabels().join();
+
+        List<RoutePair> pairs = generator.randomPairs(PAIRS, GraphGenerator.DEFAULT_SEED + 1);
+        for (int i = 0; i < PAIRS; i++) {
+            sources[i] = graph.idOf(pairs.get(i).getOrigin());
+            targets[i] = graph.idOf(pairs.get(i).getDestination());
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        service.shutdown();
+    }
+
+    @Benchmark
+    public PathResult dijkstra(Cursor cursor) {
+        int i = cursor.next++ & (PAIRS - 1);
+        return Dijkstra.shortestPath(graph, sources[i], targets[i]);
+    }
+
+    @Benchmark
+    public PathResult contractionHierarchy(Cursor cursor) {
+        int i = cursor.next++ & (PAIRS - 1);
+        return hierarchy.shortestPath(sources[i], targets[i]);
+    }
+
+    @Benchmark
+    public int hubLabelDistance(Cursor cursor) {
+        int i = cursor.next++ & (PAIRS - 1);
+        return labels.distance(sources[i], targets[i]);
+    }
+
+    @Benchmark
+    public PathResult hubLabelRoute(Cursor cursor) {
+        int i = cursor.next++ & (PAIRS - 1);
+        return labels.shortestPath(graph, sources[i], targets[i]);
+    }
+}
@@ -0,0 +1,68 @@
+package cl.cesar.ApiRoute.bench;
+
+import cl.cesar.ApiRoute.api.LoadResponse;
+import cl.cesar.ApiRoute.config.RouteProperties;
+import cl.cesar.ApiRoute.loader.LoadMode;
+import cl.cesar.ApiRoute.service.RouteService;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Carga completa de un CSV desde archivo: lectura, construcción del grafo, transpuesto,
+ * componentes y landmarks, hasta publicar el snapshot. Para conexiones por segundo, dividir
+ * {@code edges} por el puntaje.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+public class LoadBenchmark {
+
+    @Param({"GRID", "HUB_AND_SPOKE", "RANDOM"})
+    public GraphGenerator.Shape shape;
+
+    @Param({"10000", "100000", "1000000"})
+    public int edges;
+
+    @Param({"SEQUENTIAL", "PARALLEL"})
+    public LoadMode mode;
+
+    private Path file;
+    private RouteService service;
+
+    @Setup(Level.Trial)
+    public void setup() throws IOException {
+        file = new GraphGenerator(shape, edges, GraphGenerator.DEFAULT_SEED)
+                .writeTo(Files.createTempFile("carga-" + shape, ".csv"));
+        service = new RouteService(new RouteProperties());
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        service.shutdown();
+        Files.deleteIfExists(file);
+    }
+
+    @Benchmark
+    public LoadResponse load() throws IOException {
+        return service.loadFile(file, mode);
+    }
+}
@@ -0,0 +1,95 @@
+package cl.cesar.ApiRoute.bench;
+
+import cl.cesar.ApiRoute.api.RoutePair;
+import cl.cesar.ApiRoute.api.RouteResponse;
+import cl.cesar.ApiRoute.config.RouteProperties;
+import cl.cesar.ApiRoute.model.GraphStorage;
+import cl.cesar.ApiRoute.routing.RouteAlgorithm;
+import cl.cesar.ApiRoute.service.RouteService;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Consultas con Dijkstra sobre el grafo en arreglos del heap frente al grafo en segmentos fuera del
+ * heap ({@code routes.load.storage}), con los mismos grafos y pares que {@link QueryBenchmark}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SampleTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class OffHeapBenchmark {
+
+    private static final int PAIRS = 1024;
+
+    @Param({"GRID", "RANDOM"})
+    public GraphGenerator.Shape shape;
+
+    @Param({"100000", "1000000"})
+    public int edges;
+
+    @Param({"HEAP", "OFF_HEAP"})
+    public GraphStorage storage;
+
+    private RouteService service;
+    private final String[] origins = new String[PAIRS];
+    private final String[] destinations = new String[PAIRS];
+
+    /** Posición de cada hilo en la lista de pares. */
+    @State(Scope.Thread)
+    public static class Cursor {
+        int next;
+    }
+
+    @Setup(Level.Trial)
+    public void setup() throws IOException {
+        RouteProperties properties = new RouteProperties();
+        properties.getCache().setMaxEntries(0);
+        properties.getSearch().setComputeThreads(0);
+        properties.getLoad().setStorage(storage);
+        service = new RouteService(properties);
+
+        GraphGenerator generator = new GraphGenerator(shape, edges, GraphGenerator.DEFAULT_SEED);
+        Path file = generator.writeTo(Files.createTempFile("almacenamiento-" + shape, ".csv"));
+        try {
+            service.loadFile(file, null);
+        } finally {
+            Files.delete(file);
+        }
+
+        List<RoutePair> pairs = generator.randomPairs(PAIRS, GraphGenerator.DEFAULT_SEED + 1);
+        for (int i = 0; i < PAIRS; i++) {
+            origins[i] = pairs.get(i).getOrigin();
+            destinations[i] = pairs.get(i).getDestination();
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        service.shutdown();
+    }
+
+    @Benchmark
+    public RouteResponse find(Cursor cursor) {
+        int i = cursor.next++ & (PAIRS - 1);
+        return service.findFastestRoute(origins[i], destinations[i], RouteAlgorithm.DIJKSTRA);
+    }
+}
@@ -2,8 +2,10 @@ package cl.cesar.ApiRoute;
 
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.boot.context.properties.ConfigurationPropertiesScan;
 
 @SpringBootApplication
+@ConfigurationPropertiesScan
 public class ApiRouteApplication {
 
 	public static void main(String[] args) {
@@ -0,0 +1,93 @@
+package cl.cesar.ApiRoute.api;
+
+import java.util.List;
+
+import cl.cesar.ApiRoute.routing.AlternativeMode;
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import com.fasterxml.jackson.annotation.JsonPropertyOrder;
+
+/**
+ * DTO con las rutas alternativas entre dos ubicaciones, cada una con la forma de
+ * {@link RouteResponse} y en orden de tiempo.
+ * Formato: {"origen": "CP1", "destino": "R20", "modo": "YEN", "rutas": [{"ruta": [...], "tiempoTotal": x}, ...]}
+ */
+@JsonPropertyOrder({"origen", "destino", "modo", "rutas"})
+public class AlternativeRoutesResponse {
+
+    @JsonProperty("origen")
+    private String origin;
+
+    @JsonProperty("destino")
+    private String destination;
+
+    @JsonProperty("modo")
+    private AlternativeMode mode;
+
+    @JsonProperty("rutas")
+    private List<RouteResponse> routes;
+
+    @JsonIgnore
+    private int settledNodes;
+
+    @JsonIgnore
+    private long searchNanos;
+
+    public AlternativeRoutesResponse(String origin, String destination, AlternativeMode mode, List<RouteResponse> routes) {
+        this.origin = origin;
+        this.destination = destination;
+        this.mode = mode;
+        this.routes = routes;
+    }
+
+    public String getOrigin() {
+        return origin;
+    }
+
+    public String getDestination() {
+        return destination;
+    }
+
+    public AlternativeMode getMode() {
+        return mode;
+    }
+
+    /** Las rutas encontradas; vacía si no hay ruta o alguna ubicación no existe. */
+    public List<RouteResponse> getRoutes() {
+        return routes;
+    }
+
+    /** Nodos asentados entre todas las búsquedas de la consulta. */
+    public int getSettledNodes() {
+        return settledNodes;
+    }
+
+    /** Duración de las búsquedas en nanosegundos, sin la espera en el pool de cómputo. */
+    public long getSearchNanos() {
+        return searchNanos;
+    }
+
+    public void setOrigin(String origin) {
+        this.origin = origin;
+    }
+
+    public void setDestination(String destination) {
+        this.destination = destination;
+    }
+
+    public void setMode(AlternativeMode mode) {
+        this.mode = mode;
+    }
+
+    public void setRoutes(List<RouteResponse> routes) {
+        this.routes = routes;
+    }
+
+    public void setSettledNodes(int settledNodes) {
+        this.settledNodes = settledNodes;
+    }
+
+    public void setSearchNanos(long searchNanos) {
+        this.searchNanos = searchNanos;
+    }
+}
@@ -0,0 +1,30 @@
+package cl.cesar.ApiRoute.api;
+
+import java.util.List;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+/**
+ * DTO de la petición de rutas por lotes.
+ * Formato: {"pares": [{"origen": "CP1", "destino": "R20"}, ...]}
+ */
+public class BatchRouteRequest {
+
+    @JsonProperty("pares")
+    private List<RoutePair> pairs;
+
+    public BatchRouteRequest() {
+    }
+
+    public BatchRouteRequest(List<RoutePair> pairs) {
+        this.pairs = pairs;
+    }
+
+    public List<RoutePair> getPairs() {
+        return pairs;
+    }
+
+    public void setPairs(List<RoutePair> pairs) {
+        this.pairs = pairs;
+    }
+}
@@ -0,0 +1,68 @@
+package cl.cesar.ApiRoute.api;
+
+import java.util.List;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import com.fasterxml.jackson.annotation.JsonPropertyOrder;
+
+/**
+ * DTO con el resultado de un par de una consulta por lotes: la misma forma de
+ * {@link RouteResponse} más el par consultado y, si no hubo ruta, el motivo.
+ * Formato: {"origen": "CP1", "destino": "R20", "ruta": [...], "tiempoTotal": x}
+ */
+@JsonPropertyOrder({"origen", "destino", "ruta", "tiempoTotal", "error"})
+public class BatchRouteResult extends RouteResponse {
+
+    /** Error de un par cuya ubicación de origen o destino no existe en el grafo. */
+    public static final String UNKNOWN_LOCATION = "UBICACION_DESCONOCIDA";
+
+    /** Error de un par sin ruta entre sus ubicaciones. */
+    public static final String NO_ROUTE = "SIN_RUTA";
+
+    /** Error de un par cuya búsqueda falló de forma inesperada. */
+    public static final String SEARCH_FAILED = "ERROR_BUSQUEDA";
+
+    /** Error de un par cuya búsqueda superó el presupuesto configurado o no tuvo cupo como búsqueda pesada. */
+    public static final String SEARCH_ABORTED = "BUSQUEDA_INTERRUMPIDA";
+
+    @JsonProperty("origen")
+    private String origin;
+
+    @JsonProperty("destino")
+    private String destination;
+
+    @JsonProperty("error")
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    private String error;
+
+    public BatchRouteResult(String origin, String destination, List<String> route, int totalTime) {
+        super(route, totalTime);
+        this.origin = origin;
+        this.destination = destination;
+    }
+
+    public String getOrigin() {
+        return origin;
+    }
+
+    public String getDestination() {
+        return destination;
+    }
+
+    public String getError() {
+        return error;
+    }
+
+    public void setOrigin(String origin) {
+        this.origin = origin;
+    }
+
+    public void setDestination(String destination) {
+        this.destination = destination;
+    }
+
+    public void setError(String error) {
+        this.error = error;
+    }
+}
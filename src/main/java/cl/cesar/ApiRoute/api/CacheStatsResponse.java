@@ -0,0 +1,76 @@
+package cl.cesar.ApiRoute.api;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+/**
+ * DTO con las métricas del caché de rutas.
+ */
+public class CacheStatsResponse {
+
+    @JsonProperty("habilitado")
+    private boolean enabled;
+
+    @JsonProperty("capacidad")
+    private int capacity;
+
+    @JsonProperty("entradas")
+    private int entries;
+
+    @JsonProperty("aciertos")
+    private long hits;
+
+    @JsonProperty("fallos")
+    private long misses;
+
+    @JsonProperty("esperasCompartidas")
+    private long sharedWaits;
+
+    @JsonProperty("desalojos")
+    private long evictions;
+
+    public CacheStatsResponse(boolean enabled, int capacity, int entries, long hits, long misses,
+                              long sharedWaits, long evictions) {
+        this.enabled = enabled;
+        this.capacity = capacity;
+        this.entries = entries;
+        this.hits = hits;
+        this.misses = misses;
+        this.sharedWaits = sharedWaits;
+        this.evictions = evictions;
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public int getCapacity() {
+        return capacity;
+    }
+
+    public int getEntries() {
+        return entries;
+    }
+
+    public long getHits() {
+        return hits;
+    }
+
+    public long getMisses() {
+        return misses;
+    }
+
+    public long getSharedWaits() {
+        return sharedWaits;
+    }
+
+    public long getEvictions() {
+        return evictions;
+    }
+
+    /** Fracción de consultas respondidas sin buscar (aciertos y esperas compartidas). */
+    @JsonProperty("tasaAciertos")
+    public double getHitRate() {
+        long total = hits + sharedWaits + misses;
+        return total == 0 ? 0 : (double) (hits + sharedWaits) / total;
+    }
+}
@@ -0,0 +1,53 @@
+package cl.cesar.ApiRoute.api;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+/**
+ * DTO con el cambio de una conexión en una actualización incremental.
+ * Con tiempo, agrega la conexión o cambia su tiempo; sin tiempo, la elimina.
+ */
+public class ConnectionChange {
+
+    @JsonProperty("origen")
+    private String origin;
+
+    @JsonProperty("destino")
+    private String destination;
+
+    @JsonProperty("tiempo")
+    private Integer time;
+
+    public ConnectionChange() {
+    }
+
+    public ConnectionChange(String origin, String destination, Integer time) {
+        this.origin = origin;
+        this.destination = destination;
+        this.time = time;
+    }
+
+    public String getOrigin() {
+        return origin;
+    }
+
+    public String getDestination() {
+        return destination;
+    }
+
+    /** Tiempo de viaje nuevo, o null para eliminar la conexión. */
+    public Integer getTime() {
+        return time;
+    }
+
+    public void setOrigin(String origin) {
+        this.origin = origin;
+    }
+
+    public void setDestination(String destination) {
+        this.destination = destination;
+    }
+
+    public void setTime(Integer time) {
+        this.time = time;
+    }
+}
@@ -0,0 +1,30 @@
+package cl.cesar.ApiRoute.api;
+
+import java.util.List;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+/**
+ * DTO de la petición de actualización incremental de conexiones.
+ * Formato: {"cambios": [{"origen": "CP1", "destino": "R11", "tiempo": 90}, {"origen": "R11", "destino": "R12"}]}
+ */
+public class ConnectionChangesRequest {
+
+    @JsonProperty("cambios")
+    private List<ConnectionChange> changes;
+
+    public ConnectionChangesRequest() {
+    }
+
+    public ConnectionChangesRequest(List<ConnectionChange> changes) {
+        this.changes = changes;
+    }
+
+    public List<ConnectionChange> getChanges() {
+        return changes;
+    }
+
+    public void setChanges(List<ConnectionChange> changes) {
+        this.changes = changes;
+    }
+}
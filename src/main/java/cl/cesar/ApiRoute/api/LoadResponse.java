@@ -0,0 +1,280 @@
+package cl.cesar.ApiRoute.api;
+
+import java.util.List;
+import java.util.Map;
+
+import cl.cesar.ApiRoute.loader.DuplicatePolicy;
+import cl.cesar.ApiRoute.model.GraphStorage;
+import cl.cesar.ApiRoute.routing.NodeOrder;
+import cl.cesar.ApiRoute.routing.QueueKind;
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+/**
+ * DTO con el resultado de una carga de conexiones.
+ * Incluye el tamaño del grafo publicado, las filas descartadas, las conexiones repetidas
+ * colapsadas y la duración de cada fase.
+ */
+public class LoadResponse {
+
+    @JsonProperty("mensaje")
+    private String message;
+
+    @JsonProperty("version")
+    private long version;
+
+    @JsonProperty("modo")
+    private String mode;
+
+    @JsonProperty("combinada")
+    private boolean merged;
+
+    @JsonProperty("politicaRepetidas")
+    private DuplicatePolicy duplicatePolicy;
+
+    @JsonProperty("ordenNodos")
+    private NodeOrder nodeOrder;
+
+    @JsonProperty("almacenamiento")
+    private GraphStorage storage;
+
+    @JsonProperty("bytesFueraDelHeap")
+    private long offHeapBytes;
+
+    @JsonProperty("ubicaciones")
+    private int locations;
+
+    @JsonProperty("conexiones")
+    private int connections;
+
+    @JsonProperty("filasValidas")
+    private long validRows;
+
+    @JsonProperty("filasInvalidas")
+    private long invalidRows;
+
+    @JsonProperty("ejemplosInvalidos")
+    private List<String> invalidSamples;
+
+    @JsonProperty("aristasColapsadas")
+    private long collapsedEdges;
+
+    @JsonProperty("landmarks")
+    private int landmarks;
+
+    @JsonProperty("bytesLandmarks")
+    private long landmarkBytes;
+
+    @JsonProperty("componentes")
+    private int components;
+
+    @JsonProperty("componenteMayor")
+    private int largestComponent;
+
+    @JsonProperty("aristasEntreComponentes")
+    private int componentDagEdges;
+
+    @JsonProperty("cola")
+    private QueueKind queue;
+
+    @JsonProperty("errorSnapshot")
+    private String snapshotError;
+
+    @JsonProperty("fasesMs")
+    private Map<String, Long> phaseMillis;
+
+    @JsonProperty("tiempoTotalMs")
+    private long totalMillis;
+
+    public LoadResponse(String message) {
+        this.message = message;
+    }
+
+    public String getMessage() {
+        return message;
+    }
+
+    public long getVersion() {
+        return version;
+    }
+
+    public String getMode() {
+        return mode;
+    }
+
+    public boolean isMerged() {
+        return merged;
+    }
+
+    public DuplicatePolicy getDuplicatePolicy() {
+        return duplicatePolicy;
+    }
+
+    public NodeOrder getNodeOrder() {
+        return nodeOrder;
+    }
+
+    public GraphStorage getStorage() {
+        return storage;
+    }
+
+    /** Bytes reservados o mapeados fuera del heap para el grafo y su transpuesto; 0 en el heap. */
+    public long getOffHeapBytes() {
+        return offHeapBytes;
+    }
+
+    public int getLocations() {
+        return locations;
+    }
+
+    public int getConnections() {
+        return connections;
+    }
+
+    public long getValidRows() {
+        return validRows;
+    }
+
+    public long getInvalidRows() {
+        return invalidRows;
+    }
+
+    public List<String> getInvalidSamples() {
+        return invalidSamples;
+    }
+
+    public long getCollapsedEdges() {
+        return collapsedEdges;
+    }
+
+    public int getLandmarks() {
+        return landmarks;
+    }
+
+    public long getLandmarkBytes() {
+        return landmarkBytes;
+    }
+
+    public int getComponents() {
+        return components;
+    }
+
+    public int getLargestComponent() {
+        return largestComponent;
+    }
+
+    public int getComponentDagEdges() {
+        return componentDagEdges;
+    }
+
+    public QueueKind getQueue() {
+        return queue;
+    }
+
+    /**
+     * Motivo por el que no se escribió el snapshot de la carga (routes.snapshot.write-on-load);
+     * null si se escribió o no se pidió. El grafo se publica igual.
+     */
+    public String getSnapshotError() {
+        return snapshotError;
+    }
+
+    public Map<String, Long> getPhaseMillis() {
+        return phaseMillis;
+    }
+
+    public long getTotalMillis() {
+        return totalMillis;
+    }
+
+    public void setMessage(String message) {
+        this.message = message;
+    }
+
+    public void setVersion(long version) {
+        this.version = version;
+    }
+
+    public void setMode(String mode) {
+        this.mode = mode;
+    }
+
+    public void setMerged(boolean merged) {
+        this.merged = merged;
+    }
+
+    public void setDuplicatePolicy(DuplicatePolicy duplicatePolicy) {
+        this.duplicatePolicy = duplicatePolicy;
+    }
+
+    public void setNodeOrder(NodeOrder nodeOrder) {
+        this.nodeOrder = nodeOrder;
+    }
+
+    public void setStorage(GraphStorage storage) {
+        this.storage = storage;
+    }
+
+    public void setOffHeapBytes(long offHeapBytes) {
+        this.offHeapBytes = offHeapBytes;
+    }
+
+    public void setLocations(int locations) {
+        this.locations = locations;
+    }
+
+    public void setConnections(int connections) {
+        this.connections = connections;
+    }
+
+    public void setValidRows(long validRows) {
+        this.validRows = validRows;
+    }
+
+    public void setInvalidRows(long invalidRows) {
+        this.invalidRows = invalidRows;
+    }
+
+    public void setInvalidSamples(List<String> invalidSamples) {
+        this.invalidSamples = invalidSamples;
+    }
+
+    public void setCollapsedEdges(long collapsedEdges) {
+        this.collapsedEdges = collapsedEdges;
+    }
+
+    public void setLandmarks(int landmarks) {
+        this.landmarks = landmarks;
+    }
+
+    public void setLandmarkBytes(long landmarkBytes) {
+        this.landmarkBytes = landmarkBytes;
+    }
+
+    public void setComponents(int components) {
+        this.components = components;
+    }
+
+    public void setLargestComponent(int largestComponent) {
+        this.largestComponent = largestComponent;
+    }
+
+    public void setComponentDagEdges(int componentDagEdges) {
+        this.componentDagEdges = componentDagEdges;
+    }
+
+    public void setQueue(QueueKind queue) {
+        this.queue = queue;
+    }
+
+    public void setSnapshotError(String snapshotError) {
+        this.snapshotError = snapshotError;
+    }
+
+    public void setPhaseMillis(Map<String, Long> phaseMillis) {
+        this.phaseMillis = phaseMillis;
+    }
+
+    public void setTotalMillis(long totalMillis) {
+        this.totalMillis = totalMillis;
+    }
+}
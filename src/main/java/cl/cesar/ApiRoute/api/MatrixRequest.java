@@ -0,0 +1,42 @@
+package cl.cesar.ApiRoute.api;
+
+import java.util.List;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+/**
+ * DTO de la petición de matriz de tiempos de viaje.
+ * Formato: {"origenes": ["CP1", ...], "destinos": ["R20", ...]}
+ */
+public class MatrixRequest {
+
+    @JsonProperty("origenes")
+    private List<String> origins;
+
+    @JsonProperty("destinos")
+    private List<String> destinations;
+
+    public MatrixRequest() {
+    }
+
+    public MatrixRequest(List<String> origins, List<String> destinations) {
+        this.origins = origins;
+        this.destinations = destinations;
+    }
+
+    public List<String> getOrigins() {
+        return origins;
+    }
+
+    public List<String> getDestinations() {
+        return destinations;
+    }
+
+    public void setOrigins(List<String> origins) {
+        this.origins = origins;
+    }
+
+    public void setDestinations(List<String> destinations) {
+        this.destinations = destinations;
+    }
+}
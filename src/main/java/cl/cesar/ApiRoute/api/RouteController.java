@@ -1,42 +1,76 @@
 package cl.cesar.ApiRoute.api;
 
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.async.DeferredResult;
 import org.springframework.web.multipart.MultipartFile;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import cl.cesar.ApiRoute.loader.DuplicatePolicy;
+import cl.cesar.ApiRoute.loader.LoadMode;
+import cl.cesar.ApiRoute.routing.AlternativeMode;
+import cl.cesar.ApiRoute.routing.IsochroneDirection;
+import cl.cesar.ApiRoute.routing.RouteAlgorithm;
+import cl.cesar.ApiRoute.routing.SearchAbortedException;
+import cl.cesar.ApiRoute.service.Isochrone;
 import cl.cesar.ApiRoute.service.RouteService;
+import cl.cesar.ApiRoute.service.TravelTimeMatrix;
 
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
 import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
 
 @RestController
 @RequestMapping("/api/routes")
 public class RouteController {
 
     private final RouteService routeService;
+    private final ObjectMapper objectMapper;
 
     @Autowired
-    public RouteController(RouteService routeService) {
+    public RouteController(RouteService routeService, ObjectMapper objectMapper) {
         this.routeService = routeService;
+        this.objectMapper = objectMapper;
     }
 
     /**
      * Endpoint para cargar datos de conexiones a través de un archivo CSV.
      * Recibe un archivo y utiliza el RouteService para construir el grafo.
+     * Con merge=true las conexiones se agregan al grafo vigente en lugar de reemplazarlo, y
+     * duplicates indica qué hacer con las conexiones repetidas: KEEP, MIN, LATEST o REJECT.
+     * La respuesta incluye el tamaño del grafo, las aristas colapsadas y la duración de cada
+     * fase de la carga.
      *
      * Ejemplo de uso:
-     * POST /api/routes/load
-     * Con un archivo CSV adjunto llamado "file".
+     * POST /api/routes/load?mode=PARALLEL&merge=true&duplicates=LATEST
+     * Con un archivo CSV adjunto llamado "file". Los parámetros mode, merge y duplicates son opcionales.
      */
     @PostMapping("/load")
-    public ResponseEntity<String> loadData(@RequestParam("file") MultipartFile file) {
+    public ResponseEntity<?> loadData(
+            @RequestParam("file") MultipartFile file,
+            @RequestParam(required = false) LoadMode mode,
+            @RequestParam(defaultValue = "false") boolean merge,
+            @RequestParam(required = false) DuplicatePolicy duplicates) {
         if (file.isEmpty()) {
             return ResponseEntity.badRequest().body("Por favor, selecciona un archivo para cargar.");
         }
         try {
-            routeService.loadData(file);
-            return ResponseEntity.ok("Datos de rutas cargados correctamente.");
+            return ResponseEntity.ok(routeService.loadData(file, mode, merge, duplicates));
+        } catch (IllegalArgumentException e) {
+            // Conexiones repetidas con duplicates=REJECT: el grafo vigente no cambia
+            return ResponseEntity.badRequest().body(e.getMessage());
         } catch (IOException e) {
             // Manejo de errores en caso de problemas al leer el archivo
             return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
@@ -44,26 +78,469 @@ public class RouteController {
         }
     }
 
+    /**
+     * Endpoint para escribir el grafo vigente como snapshot binario en el archivo
+     * configurado en routes.snapshot.path. Al reiniciar, configurar routes.data.path
+     * con ese archivo permite arrancar sin volver a leer el CSV.
+     *
+     * Ejemplo de uso:
+     * POST /api/routes/snapshot
+     */
+    @PostMapping("/snapshot")
+    public ResponseEntity<?> writeSnapshot() {
+        if (!routeService.hasSnapshotPath()) {
+            return ResponseEntity.status(HttpStatus.CONFLICT)
+                    .body("No hay un archivo de snapshot configurado (routes.snapshot.path).");
+        }
+        try {
+            return ResponseEntity.ok(routeService.writeSnapshot());
+        } catch (IOException e) {
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
+                    .body("Error al escribir el snapshot: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Endpoint para aplicar un lote de cambios de conexiones sin volver a cargar el CSV.
+     * Cada cambio con tiempo agrega la conexión o cambia su tiempo; sin tiempo, la elimina.
+     * Las ubicaciones deben existir. El grafo se publica como una versión nueva y las rutas
+     * del caché que el cambio no puede afectar se conservan.
+     *
+     * Ejemplo de uso:
+     * PATCH /api/routes/connections
+     * {"cambios": [{"origen": "CP1", "destino": "R11", "tiempo": 90}, {"origen": "R11", "destino": "R12"}]}
+     */
+    @PatchMapping("/connections")
+    public ResponseEntity<?> updateConnections(@RequestBody ConnectionChangesRequest request) {
+        List<ConnectionChange> changes = request.getChanges() != null ? request.getChanges() : List.of();
+        return applyChanges(changes);
+    }
+
+    /**
+     * Endpoint para agregar una conexión o cambiar su tiempo de viaje.
+     *
+     * Ejemplo de uso:
+     * PUT /api/routes/connections
+     * {"origen": "CP1", "destino": "R11", "tiempo": 90}
+     */
+    @PutMapping("/connections")
+    public ResponseEntity<?> putConnection(@RequestBody ConnectionChange change) {
+        if (change.getTime() == null) {
+            return ResponseEntity.badRequest().body("Indica el tiempo de la conexión.");
+        }
+        return applyChanges(List.of(change));
+    }
+
+    /**
+     * Endpoint para eliminar una conexión (todas sus aristas, si estaba repetida).
+     *
+     * Ejemplo de uso:
+     * DELETE /api/routes/connections?origin=CP1&destination=R11
+     */
+    @DeleteMapping("/connections")
+    public ResponseEntity<?> deleteConnection(@RequestParam String origin, @RequestParam String destination) {
+        return applyChanges(List.of(new ConnectionChange(origin, destination, null)));
+    }
+
+    private ResponseEntity<?> applyChanges(List<ConnectionChange> changes) {
+        try {
+            return ResponseEntity.ok(routeService.updateConnections(changes));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(e.getMessage());
+        }
+    }
+
     /**
      * Endpoint para encontrar la ruta más rápida entre dos ubicaciones.
-     * Recibe el origen y el destino como parámetros de consulta.
+     * Recibe el origen y el destino como parámetros de consulta, y opcionalmente el
+     * algoritmo (DIJKSTRA, BIDIRECTIONAL, ALT, CH o HL). Las cabeceras X-Route-Algorithm y
+     * X-Route-Settled-Nodes indican el algoritmo usado y cuántos nodos asentó la búsqueda,
+     * y X-Route-Cache si la respuesta vino del caché (HIT) o de una búsqueda (MISS).
+     *
+     * La respuesta es asíncrona: mientras la búsqueda corre en el pool de cómputo, el hilo de
+     * la petición queda libre para atender otras. Si la petición vence o el cliente se
+     * desconecta, la búsqueda se abandona.
+     *
+     * maxSettledNodes y timeoutMs limitan la búsqueda por debajo de lo configurado. Si la
+     * búsqueda los supera, la respuesta es 422 con la cabecera X-Route-Budget (SETTLED_NODES
+     * o DEADLINE); si se vuelve pesada y no hay cupo para otra búsqueda pesada, es 503.
+     *
+     * Con la cabecera X-Route-Debug: true, la respuesta agrega X-Route-Search-Stats con el
+     * trabajo de la búsqueda: nodos asentados, aristas revisadas, entradas agregadas a la cola
+     * y duración en microsegundos.
      *
      * Ejemplo de uso:
-     * GET /api/routes/find?origin=CP1&destination=R20
+     * GET /api/routes/find?origin=CP1&destination=R20&algorithm=BIDIRECTIONAL&maxSettledNodes=50000&timeoutMs=200
      */
     @GetMapping("/find")
-    public ResponseEntity<RouteResponse> findFastestRoute(
+    public DeferredResult<ResponseEntity<?>> findFastestRoute(
             @RequestParam String origin,
-            @RequestParam String destination) {
+            @RequestParam String destination,
+            @RequestParam(required = false) RouteAlgorithm algorithm,
+            @RequestParam(required = false) Integer maxSettledNodes,
+            @RequestParam(required = false) Long timeoutMs,
+            @RequestHeader(value = "X-Route-Debug", defaultValue = "false") boolean debug) {
 
-        RouteResponse response = routeService.findFastestRoute(origin, destination);
+        DeferredResult<ResponseEntity<?>> result = new DeferredResult<>();
+        CompletableFuture<RouteResponse> search;
+        try {
+            search = routeService.findFastestRouteAsync(origin, destination, algorithm, maxSettledNodes,
+                    timeoutMs == null ? null : Duration.ofMillis(timeoutMs));
+        } catch (IllegalArgumentException e) {
+            result.setResult(ResponseEntity.badRequest().body(e.getMessage()));
+            return result;
+        }
+        // La búsqueda revisa el futuro en sus puntos de control: cancelarlo la detiene
+        result.onTimeout(() -> search.cancel(false));
+        result.onError(error -> search.cancel(false));
+        search.whenComplete((response, error) -> {
+            if (error instanceof SearchAbortedException aborted) {
+                result.setResult(abortedSearch(aborted));
+            } else if (error != null) {
+                result.setErrorResult(error);
+            } else if (response.getTotalTime() == -1) {
+                // Si el tiempo es -1, significa que no se encontró una ruta
+                result.setResult(withSearchHeaders(ResponseEntity.status(HttpStatus.NOT_FOUND), response, debug)
+                        .body(new RouteResponse(null, -1)));
+            } else {
+                result.setResult(withSearchHeaders(ResponseEntity.ok(), response, debug).body(response));
+            }
+        });
+        return result;
+    }
 
-        if (response.getTotalTime() == -1) {
-            // Si el tiempo es -1, significa que no se encontró una ruta
-            return ResponseEntity.status(HttpStatus.NOT_FOUND)
-                    .body(new RouteResponse(null, -1));
+    /**
+     * Endpoint para obtener solo el tiempo de viaje más corto entre dos ubicaciones, sin la ruta.
+     * Con las etiquetas de hubs listas (routes.hub-labels.enabled) responde sin búsqueda; si no,
+     * busca igual que /find, con el mismo presupuesto y las mismas respuestas 422 y 503.
+     * La cabecera X-Route-Algorithm indica HL o el algoritmo de la búsqueda. Si no hay ruta o
+     * alguna ubicación no existe, 404 con tiempoTotal -1.
+     *
+     * Ejemplo de uso:
+     * GET /api/routes/time?origin=CP1&destination=R20
+     */
+    @GetMapping("/time")
+    public DeferredResult<ResponseEntity<?>> findTravelTime(
+            @RequestParam String origin,
+            @RequestParam String destination,
+            @RequestParam(required = false) Integer maxSettledNodes,
+            @RequestParam(required = false) Long timeoutMs) {
+
+        DeferredResult<ResponseEntity<?>> result = new DeferredResult<>();
+        CompletableFuture<TravelTimeResponse> search;
+        try {
+            search = routeService.findTravelTimeAsync(origin, destination, maxSettledNodes,
+                    timeoutMs == null ? null : Duration.ofMillis(timeoutMs));
+        } catch (IllegalArgumentException e) {
+            result.setResult(ResponseEntity.badRequest().body(e.getMessage()));
+            return result;
         }
+        result.onTimeout(() -> search.cancel(false));
+        result.onError(error -> search.cancel(false));
+        search.whenComplete((response, error) -> {
+            if (error instanceof SearchAbortedException aborted) {
+                result.setResult(abortedSearch(aborted));
+            } else if (error != null) {
+                result.setErrorResult(error);
+            } else {
+                ResponseEntity.BodyBuilder builder = ResponseEntity.status(
+                        response.getTotalTime() == -1 ? HttpStatus.NOT_FOUND : HttpStatus.OK);
+                if (response.getAlgorithm() != null) {
+                    builder.header("X-Route-Algorithm", response.getAlgorithm().name());
+                }
+                result.setResult(builder.body(response));
+            }
+        });
+        return result;
+    }
+
+    /**
+     * 422 si la búsqueda superó su propio presupuesto, que no cambia al reintentar; 503 si no
+     * hubo cupo para otra búsqueda pesada o se canceló.
+     */
+    private static ResponseEntity<String> abortedSearch(SearchAbortedException aborted) {
+        ResponseEntity.BodyBuilder builder = aborted.isBudgetExceeded()
+                ? ResponseEntity.status(HttpStatus.UNPROCESSABLE_ENTITY)
+                : ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).header(HttpHeaders.RETRY_AFTER, "1");
+        return builder.header("X-Route-Budget", aborted.getReason().name())
+                .header("X-Route-Settled-Nodes", Integer.toString(aborted.getSettledNodes()))
+                .body(aborted.getMessage());
+    }
 
-        return ResponseEntity.ok(response);
+    /**
+     * Endpoint para obtener hasta k rutas alternativas entre dos ubicaciones, en orden de
+     * tiempo. Con mode=YEN (por defecto) son las k rutas sin ciclos más rápidas; con
+     * mode=PENALTY, rutas que comparten menos tramos entre sí. La cabecera
+     * X-Route-Settled-Nodes suma los nodos asentados por todas las búsquedas.
+     *
+     * maxSettledNodes y timeoutMs limitan el conjunto de búsquedas igual que en /find, con
+     * las mismas respuestas 422 y 503. Si no hay ruta o alguna ubicación no existe, 404.
+     *
+     * Ejemplo de uso:
+     * GET /api/routes/alternatives?origin=CP1&destination=R20&k=3&mode=PENALTY
+     */
+    @GetMapping("/alternatives")
+    public DeferredResult<ResponseEntity<?>> findAlternativeRoutes(
+            @RequestParam String origin,
+            @RequestParam String destination,
+            @RequestParam(defaultValue = "3") int k,
+            @RequestParam(required = false) AlternativeMode mode,
+            @RequestParam(required = false) Integer maxSettledNodes,
+            @RequestParam(required = false) Long timeoutMs) {
+
+        DeferredResult<ResponseEntity<?>> result = new DeferredResult<>();
+        CompletableFuture<AlternativeRoutesResponse> search;
+        try {
+            search = routeService.findAlternativeRoutesAsync(origin, destination, k, mode, maxSettledNodes,
+                    timeoutMs == null ? null : Duration.ofMillis(timeoutMs));
+        } catch (IllegalArgumentException e) {
+            result.setResult(ResponseEntity.badRequest().body(e.getMessage()));
+            return result;
+        }
+        result.onTimeout(() -> search.cancel(false));
+        result.onError(error -> search.cancel(false));
+        search.whenComplete((response, error) -> {
+            if (error instanceof SearchAbortedException aborted) {
+                result.setResult(abortedSearch(aborted));
+            } else if (error != null) {
+                result.setErrorResult(error);
+            } else {
+                HttpStatus status = response.getRoutes().isEmpty() ? HttpStatus.NOT_FOUND : HttpStatus.OK;
+                result.setResult(ResponseEntity.status(status)
+                        .header("X-Route-Settled-Nodes", Integer.toString(response.getSettledNodes()))
+                        .body(response));
+            }
+        });
+        return result;
+    }
+
+    /**
+     * Endpoint para encontrar las rutas más rápidas de muchos pares en una sola petición.
+     * Los pares con el mismo origen comparten un árbol de búsqueda y los grupos se resuelven
+     * en paralelo. La respuesta es un arreglo JSON con un elemento por par, en el orden de la
+     * petición, que se escribe a medida que los resultados están listos. Un par con una
+     * ubicación desconocida o sin ruta lleva tiempoTotal -1 y el campo error, sin afectar al resto.
+     *
+     * Ejemplo de uso:
+     * POST /api/routes/find/batch
+     * {"pares": [{"origen": "CP1", "destino": "R20"}, {"origen": "CP1", "destino": "R12"}]}
+     */
+    @PostMapping("/find/batch")
+    public ResponseEntity<StreamingResponseBody> findFastestRoutes(@RequestBody BatchRouteRequest request) {
+        List<RoutePair> pairs = request.getPairs() != null ? request.getPairs() : List.of();
+        List<CompletableFuture<BatchRouteResult>> results;
+        try {
+            results = routeService.findFastestRoutes(pairs);
+        } catch (IllegalArgumentException e) {
+            return streamingBadRequest(e.getMessage());
+        }
+
+        StreamingResponseBody body = out -> {
+            try (JsonGenerator json = objectMapper.getFactory().createGenerator(out)) {
+                json.writeStartArray();
+                for (CompletableFuture<BatchRouteResult> result : results) {
+                    if (!result.isDone()) {
+                        json.flush(); // Lo ya escrito sale mientras se espera el siguiente grupo
+                    }
+                    json.writeObject(result.join());
+                }
+                json.writeEndArray();
+            } catch (IOException | RuntimeException e) {
+                // Nadie leerá los pares pendientes: se cancelan para interrumpir sus búsquedas
+                results.forEach(result -> result.cancel(false));
+                throw e;
+            }
+        };
+        return ResponseEntity.ok().contentType(MediaType.APPLICATION_JSON).body(body);
+    }
+
+    /**
+     * Endpoint para calcular la matriz de tiempos de viaje entre orígenes y destinos, sin rutas.
+     * Cada origen se resuelve con una búsqueda de uno a muchos y las búsquedas corren en paralelo.
+     * La matriz se escribe fila por fila a medida que las búsquedas terminan, con -1 en los
+     * pares sin ruta o con una ubicación inexistente. Las filas cuya búsqueda superó su
+     * presupuesto o falló quedan en -1 y se listan en errores.
+     *
+     * Con Accept: application/octet-stream la respuesta es binaria: la cantidad de filas y de
+     * columnas y luego los tiempos fila por fila, todos como enteros de 32 bits big-endian.
+     *
+     * Ejemplo de uso:
+     * POST /api/routes/matrix
+     * {"origenes": ["CP1", "CP2"], "destinos": ["R11", "R20"]}
+     */
+    @PostMapping("/matrix")
+    public ResponseEntity<StreamingResponseBody> computeMatrix(
+            @RequestBody MatrixRequest request,
+            @RequestHeader(value = HttpHeaders.ACCEPT, required = false) String accept) {
+        List<String> origins = request.getOrigins() != null ? request.getOrigins() : List.of();
+        List<String> destinations = request.getDestinations() != null ? request.getDestinations() : List.of();
+        TravelTimeMatrix matrix;
+        try {
+            matrix = routeService.computeMatrix(origins, destinations);
+        } catch (IllegalArgumentException e) {
+            return streamingBadRequest(e.getMessage());
+        }
+
+        if (accept != null && MediaType.parseMediaTypes(accept).contains(MediaType.APPLICATION_OCTET_STREAM)) {
+            StreamingResponseBody body = out -> {
+                try {
+                    DataOutputStream data = new DataOutputStream(new BufferedOutputStream(out));
+                    data.writeInt(origins.size());
+                    data.writeInt(destinations.size());
+                    for (int i = 0; i < origins.size(); i++) {
+                        if (!matrix.isRowDone(i)) {
+                            data.flush();
+                        }
+                        for (int time : matrix.row(i)) {
+                            data.writeInt(time);
+                        }
+                    }
+                    data.flush();
+                } catch (IOException | RuntimeException e) {
+                    matrix.cancel();
+                    throw e;
+                }
+            };
+            return ResponseEntity.ok().contentType(MediaType.APPLICATION_OCTET_STREAM).body(body);
+        }
+
+        StreamingResponseBody body = out -> {
+            try (JsonGenerator json = objectMapper.getFactory().createGenerator(out)) {
+                json.writeStartObject();
+                json.writeObjectField("origenes", matrix.getOrigins());
+                json.writeObjectField("destinos", matrix.getDestinations());
+                json.writeObjectField("desconocidas", matrix.getUnknown());
+                json.writeArrayFieldStart("tiempoTotal");
+                for (int i = 0; i < origins.size(); i++) {
+                    if (!matrix.isRowDone(i)) {
+                        json.flush();
+                    }
+                    int[] row = matrix.row(i);
+                    json.writeArray(row, 0, row.length);
+                }
+                json.writeEndArray();
+                // Las filas ya terminaron: los errores se informan al final, sin esperar
+                json.writeArrayFieldStart("errores");
+                for (int i = 0; i < origins.size(); i++) {
+                    String error = matrix.error(i);
+                    if (error != null) {
+                        json.writeStartObject();
+                        json.writeStringField("origen", origins.get(i));
+                        json.writeStringField("error", error);
+                        json.writeEndObject();
+                    }
+                }
+                json.writeEndArray();
+                json.writeEndObject();
+            } catch (IOException | RuntimeException e) {
+                // Nadie leerá las filas pendientes: se cancelan para interrumpir sus búsquedas
+                matrix.cancel();
+                throw e;
+            }
+        };
+        return ResponseEntity.ok().contentType(MediaType.APPLICATION_JSON).body(body);
+    }
+
+    /**
+     * Endpoint para obtener todas las ubicaciones alcanzables desde una ubicación dentro de un
+     * tiempo máximo, o con direction=REVERSE, las ubicaciones desde las que se la alcanza.
+     * Las ubicaciones se escriben a medida que la búsqueda las asienta, en orden de tiempo
+     * creciente, sin reunir antes el conjunto completo. Si la búsqueda supera su presupuesto,
+     * la respuesta termina con las ubicaciones ya escritas y el campo error.
+     *
+     * Ejemplo de uso:
+     * GET /api/routes/isochrone?origin=CP1&maxTime=60&direction=REVERSE
+     */
+    @GetMapping("/isochrone")
+    public ResponseEntity<StreamingResponseBody> isochrone(
+            @RequestParam String origin,
+            @RequestParam int maxTime,
+            @RequestParam(required = false) IsochroneDirection direction) {
+        Isochrone isochrone;
+        try {
+            isochrone = routeService.isochrone(origin, maxTime, direction);
+        } catch (IllegalArgumentException e) {
+            return streamingBadRequest(e.getMessage());
+        }
+        if (isochrone == null) {
+            return ResponseEntity.status(HttpStatus.NOT_FOUND).build();
+        }
+
+        // La isócrona retiene el snapshot: se cierra aunque la escritura falle antes de recorrerla
+        StreamingResponseBody body = out -> {
+            try (isochrone; JsonGenerator json = objectMapper.getFactory().createGenerator(out)) {
+                json.writeStartObject();
+                json.writeStringField("origen", isochrone.getLocation());
+                json.writeNumberField("tiempoMaximo", isochrone.getMaxTime());
+                json.writeStringField("direccion", isochrone.getDirection().name());
+                json.writeArrayFieldStart("ubicaciones");
+                int[] count = new int[1];
+                String error = null;
+                try {
+                    isochrone.forEach((location, time) -> {
+                        try {
+                            json.writeStartObject();
+                            json.writeStringField("ubicacion", location);
+                            json.writeNumberField("tiempo", time);
+                            json.writeEndObject();
+                            count[0]++;
+                        } catch (IOException e) {
+                            throw new UncheckedIOException(e);
+                        }
+                    });
+                } catch (UncheckedIOException e) {
+                    throw e.getCause(); // El cliente cerró la conexión: se abandona la búsqueda
+                } catch (SearchAbortedException e) {
+                    // La respuesta ya comenzó: se cierra con las ubicaciones entregadas y el error
+                    error = BatchRouteResult.SEARCH_ABORTED;
+                }
+                json.writeEndArray();
+                json.writeNumberField("total", count[0]);
+                if (error != null) {
+                    json.writeStringField("error", error);
+                }
+                json.writeEndObject();
+            }
+        };
+        return ResponseEntity.ok().contentType(MediaType.APPLICATION_JSON).body(body);
+    }
+
+    /**
+     * Respuesta 400 con un mensaje de texto. El cuerpo también es un StreamingResponseBody
+     * para que Spring procese el tipo de retorno de los endpoints que transmiten su respuesta.
+     */
+    private static ResponseEntity<StreamingResponseBody> streamingBadRequest(String message) {
+        byte[] bytes = message.getBytes(StandardCharsets.UTF_8);
+        return ResponseEntity.badRequest()
+                .contentType(new MediaType(MediaType.TEXT_PLAIN, StandardCharsets.UTF_8))
+                .body(out -> out.write(bytes));
+    }
+
+    private static ResponseEntity.BodyBuilder withSearchHeaders(ResponseEntity.BodyBuilder builder, RouteResponse response,
+                                                                boolean debug) {
+        if (response.getAlgorithm() != null) {
+            builder.header("X-Route-Algorithm", response.getAlgorithm().name())
+                    .header("X-Route-Settled-Nodes", Integer.toString(response.getSettledNodes()))
+                    .header("X-Route-Cache", response.isCached() ? "HIT" : "MISS");
+            if (debug) {
+                builder.header("X-Route-Search-Stats", "settled=" + response.getSettledNodes()
+                        + "; relaxed=" + response.getRelaxedEdges()
+                        + "; pushes=" + response.getQueuePushes()
+                        + "; micros=" + response.getSearchNanos() / 1000);
+            }
+        }
+        return builder;
+    }
+
+    /**
+     * Endpoint con las métricas del caché de rutas: aciertos, fallos, esperas compartidas
+     * (consultas simultáneas que reutilizaron una búsqueda en curso) y desalojos.
+     *
+     * Ejemplo de uso:
+     * GET /api/routes/cache
+     */
+    @GetMapping("/cache")
+    public CacheStatsResponse getCacheStats() {
+        return routeService.getCacheStats();
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,39 @@
+package cl.cesar.ApiRoute.api;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+/**
+ * DTO con un par origen/destino de una consulta por lotes.
+ */
+public class RoutePair {
+
+    @JsonProperty("origen")
+    private String origin;
+
+    @JsonProperty("destino")
+    private String destination;
+
+    public RoutePair() {
+    }
+
+    public RoutePair(String origin, String destination) {
+        this.origin = origin;
+        this.destination = destination;
+    }
+
+    public String getOrigin() {
+        return origin;
+    }
+
+    public String getDestination() {
+        return destination;
+    }
+
+    public void setOrigin(String origin) {
+        this.origin = origin;
+    }
+
+    public void setDestination(String destination) {
+        this.destination = destination;
+    }
+}
@@ -1,12 +1,17 @@
 package cl.cesar.ApiRoute.api;
 
 import java.util.List;
+
+import cl.cesar.ApiRoute.routing.RouteAlgorithm;
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import com.fasterxml.jackson.annotation.JsonProperty;
 
 /**
  * DTO (Data Transfer Object) para la respuesta de la API.
  * Contiene la ruta más rápida y el tiempo total de viaje.
  * Formato de respuesta según especificación: {"ruta": [...], "tiempoTotal": x}
+ * El algoritmo usado y las estadísticas de la búsqueda no forman parte del cuerpo; el
+ * controlador los expone como cabeceras.
  */
 public class RouteResponse {
 
@@ -16,6 +21,24 @@ public class RouteResponse {
     @JsonProperty("tiempoTotal")
     private int totalTime;
 
+    @JsonIgnore
+    private RouteAlgorithm algorithm;
+
+    @JsonIgnore
+    private int settledNodes;
+
+    @JsonIgnore
+    private int relaxedEdges;
+
+    @JsonIgnore
+    private int queuePushes;
+
+    @JsonIgnore
+    private long searchNanos;
+
+    @JsonIgnore
+    private boolean cached;
+
     public RouteResponse(List<String> route, int totalTime) {
         this.route = route;
         this.totalTime = totalTime;
@@ -36,4 +59,56 @@ public class RouteResponse {
     public void setTotalTime(int totalTime) {
         this.totalTime = totalTime;
     }
+
+    public RouteAlgorithm getAlgorithm() {
+        return algorithm;
+    }
+
+    public int getSettledNodes() {
+        return settledNodes;
+    }
+
+    /** Aristas revisadas por la búsqueda; 0 si la respuesta no requirió buscar. */
+    public int getRelaxedEdges() {
+        return relaxedEdges;
+    }
+
+    /** Entradas agregadas a las colas de prioridad por la búsqueda. */
+    public int getQueuePushes() {
+        return queuePushes;
+    }
+
+    /** Duración de la búsqueda en nanosegundos, sin la espera en el pool de cómputo. */
+    public long getSearchNanos() {
+        return searchNanos;
+    }
+
+    /** Indica si la respuesta se obtuvo del caché de rutas sin realizar una búsqueda. */
+    public boolean isCached() {
+        return cached;
+    }
+
+    public void setAlgorithm(RouteAlgorithm algorithm) {
+        this.algorithm = algorithm;
+    }
+
+    public void setSettledNodes(int settledNodes) {
+        this.settledNodes = settledNodes;
+    }
+
+    public void setRelaxedEdges(int relaxedEdges) {
+        this.relaxedEdges = relaxedEdges;
+    }
+
+    public void setQueuePushes(int queuePushes) {
+        this.queuePushes = queuePushes;
+    }
+
+    public void setSearchNanos(long searchNanos) {
+        this.searchNanos = searchNanos;
+    }
+
+    public void setCached(boolean cached) {
+        this.cached = cached;
+    }
 }
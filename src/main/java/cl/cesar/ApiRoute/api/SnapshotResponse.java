@@ -0,0 +1,52 @@
+package cl.cesar.ApiRoute.api;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+/**
+ * DTO con el resultado de escribir un snapshot binario del grafo.
+ */
+public class SnapshotResponse {
+
+    @JsonProperty("mensaje")
+    private String message;
+
+    @JsonProperty("archivo")
+    private String path;
+
+    @JsonProperty("version")
+    private long version;
+
+    @JsonProperty("bytes")
+    private long bytes;
+
+    @JsonProperty("tiempoMs")
+    private long millis;
+
+    public SnapshotResponse(String message, String path, long version, long bytes, long millis) {
+        this.message = message;
+        this.path = path;
+        this.version = version;
+        this.bytes = bytes;
+        this.millis = millis;
+    }
+
+    public String getMessage() {
+        return message;
+    }
+
+    public String getPath() {
+        return path;
+    }
+
+    public long getVersion() {
+        return version;
+    }
+
+    public long getBytes() {
+        return bytes;
+    }
+
+    public long getMillis() {
+        return millis;
+    }
+}
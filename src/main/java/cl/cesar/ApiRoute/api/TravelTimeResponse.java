@@ -0,0 +1,67 @@
+package cl.cesar.ApiRoute.api;
+
+import cl.cesar.ApiRoute.routing.RouteAlgorithm;
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import com.fasterxml.jackson.annotation.JsonPropertyOrder;
+
+/**
+ * DTO con el tiempo de viaje más corto entre dos ubicaciones, sin la ruta.
+ * Formato: {"origen": "CP1", "destino": "R20", "tiempoTotal": 74}
+ * El algoritmo usado no forma parte del cuerpo; el controlador lo expone como cabecera.
+ */
+@JsonPropertyOrder({"origen", "destino", "tiempoTotal"})
+public class TravelTimeResponse {
+
+    @JsonProperty("origen")
+    private String origin;
+
+    @JsonProperty("destino")
+    private String destination;
+
+    @JsonProperty("tiempoTotal")
+    private int totalTime;
+
+    @JsonIgnore
+    private RouteAlgorithm algorithm;
+
+    public TravelTimeResponse(String origin, String destination, int totalTime) {
+        this.origin = origin;
+        this.destination = destination;
+        this.totalTime = totalTime;
+    }
+
+    public String getOrigin() {
+        return origin;
+    }
+
+    public void setOrigin(String origin) {
+        this.origin = origin;
+    }
+
+    public String getDestination() {
+        return destination;
+    }
+
+    public void setDestination(String destination) {
+        this.destination = destination;
+    }
+
+    /** Tiempo total, o -1 si no hay ruta o alguna ubicación no existe. */
+    public int getTotalTime() {
+        return totalTime;
+    }
+
+    public void setTotalTime(int totalTime) {
+        this.totalTime = totalTime;
+    }
+
+    /** HL si respondieron las etiquetas de hubs, el algoritmo de la búsqueda si no, o null sin buscar. */
+    public RouteAlgorithm getAlgorithm() {
+        return algorithm;
+    }
+
+    public void setAlgorithm(RouteAlgorithm algorithm) {
+        this.algorithm = algorithm;
+    }
+}
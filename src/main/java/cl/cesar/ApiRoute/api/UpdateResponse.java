@@ -0,0 +1,147 @@
+package cl.cesar.ApiRoute.api;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+/**
+ * DTO con el resultado de una actualización incremental de conexiones.
+ * Incluye cuántas conexiones cambiaron, el tamaño de la capa de cambios pendiente de
+ * compactar y cuántas rutas del caché siguieron siendo válidas en la versión nueva.
+ */
+public class UpdateResponse {
+
+    @JsonProperty("mensaje")
+    private String message;
+
+    @JsonProperty("version")
+    private long version;
+
+    @JsonProperty("agregadas")
+    private int added;
+
+    @JsonProperty("actualizadas")
+    private int updated;
+
+    @JsonProperty("eliminadas")
+    private int removed;
+
+    @JsonProperty("sinCambios")
+    private int unchanged;
+
+    @JsonProperty("noEncontradas")
+    private int notFound;
+
+    @JsonProperty("conexiones")
+    private int connections;
+
+    @JsonProperty("aristasDelta")
+    private int overlayEdges;
+
+    @JsonProperty("rutasConservadas")
+    private int keptRoutes;
+
+    @JsonProperty("mantenimientoPendiente")
+    private boolean maintenancePending;
+
+    @JsonProperty("tiempoMs")
+    private long millis;
+
+    public UpdateResponse(String message) {
+        this.message = message;
+    }
+
+    public String getMessage() {
+        return message;
+    }
+
+    public long getVersion() {
+        return version;
+    }
+
+    public void setVersion(long version) {
+        this.version = version;
+    }
+
+    public int getAdded() {
+        return added;
+    }
+
+    public void setAdded(int added) {
+        this.added = added;
+    }
+
+    public int getUpdated() {
+        return updated;
+    }
+
+    public void setUpdated(int updated) {
+        this.updated = updated;
+    }
+
+    public int getRemoved() {
+        return removed;
+    }
+
+    public void setRemoved(int removed) {
+        this.removed = removed;
+    }
+
+    public int getUnchanged() {
+        return unchanged;
+    }
+
+    public void setUnchanged(int unchanged) {
+        this.unchanged = unchanged;
+    }
+
+    /** Conexiones a eliminar que no existían. */
+    public int getNotFound() {
+        return notFound;
+    }
+
+    public void setNotFound(int notFound) {
+        this.notFound = notFound;
+    }
+
+    public int getConnections() {
+        return connections;
+    }
+
+    public void setConnections(int connections) {
+        this.connections = connections;
+    }
+
+    /** Aristas guardadas en la capa de cambios, pendientes de compactar. */
+    public int getOverlayEdges() {
+        return overlayEdges;
+    }
+
+    public void setOverlayEdges(int overlayEdges) {
+        this.overlayEdges = overlayEdges;
+    }
+
+    /** Rutas del caché traspasadas a la versión nueva porque el cambio no las afecta. */
+    public int getKeptRoutes() {
+        return keptRoutes;
+    }
+
+    public void setKeptRoutes(int keptRoutes) {
+        this.keptRoutes = keptRoutes;
+    }
+
+    /** Indica si quedó programada la compactación o la reconstrucción de índices en segundo plano. */
+    public boolean isMaintenancePending() {
+        return maintenancePending;
+    }
+
+    public void setMaintenancePending(boolean maintenancePending) {
+        this.maintenancePending = maintenancePending;
+    }
+
+    public long getMillis() {
+        return millis;
+    }
+
+    public void setMillis(long millis) {
+        this.millis = millis;
+    }
+}
@@ -0,0 +1,446 @@
+package cl.cesar.ApiRoute.config;
+
+import cl.cesar.ApiRoute.loader.DuplicatePolicy;
+import cl.cesar.ApiRoute.loader.LoadMode;
+import cl.cesar.ApiRoute.model.GraphStorage;
+import cl.cesar.ApiRoute.routing.NodeOrder;
+import cl.cesar.ApiRoute.routing.RouteAlgorithm;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+/**
+ * Configuración del servicio de rutas, bajo el prefijo {@code routes} de application.properties.
+ * Los valores por defecto son los que usa {@code new RouteService()} en las pruebas.
+ */
+@ConfigurationProperties(prefix = "routes")
+public class RouteProperties {
+
+    private final Load load = new Load();
+    private final Data data = new Data();
+    private final Snapshot snapshot = new Snapshot();
+    private final Search search = new Search();
+    private final Cache cache = new Cache();
+    private final Batch batch = new Batch();
+    private final Alternatives alternatives = new Alternatives();
+    private final HubLabels hubLabels = new HubLabels();
+    private final Updates updates = new Updates();
+
+    public Load getLoad() {
+        return load;
+    }
+
+    public Data getData() {
+        return data;
+    }
+
+    public Snapshot getSnapshot() {
+        return snapshot;
+    }
+
+    public Search getSearch() {
+        return search;
+    }
+
+    public Cache getCache() {
+        return cache;
+    }
+
+    public Batch getBatch() {
+        return batch;
+    }
+
+    public Updates getUpdates() {
+        return updates;
+    }
+
+    public Alternatives getAlternatives() {
+        return alternatives;
+    }
+
+    public HubLabels getHubLabels() {
+        return hubLabels;
+    }
+
+    /**
+     * Opciones de carga del CSV.
+     */
+    public static class Load {
+
+        /** Estrategia de lectura por defecto cuando la petición no indica una. */
+        private LoadMode mode = LoadMode.PARALLEL;
+
+        /** Hilos usados por la carga paralela. */
+        private int parallelism = Runtime.getRuntime().availableProcessors();
+
+        /** Tamaño aproximado en bytes de cada bloque de la carga paralela. */
+        private int chunkSize = 8 * 1024 * 1024;
+
+        /** Tratamiento de las conexiones repetidas cuando la petición no indica uno. */
+        private DuplicatePolicy duplicates = DuplicatePolicy.MIN;
+
+        /** Renumeración de los nodos por localidad después de construir el grafo. */
+        private NodeOrder reorder = NodeOrder.NONE;
+
+        /**
+         * Dónde vive el grafo publicado. Con OFF_HEAP los snapshots binarios se mapean sin
+         * copiarlos y los CSV se copian fuera del heap después de construir el grafo.
+         */
+        private GraphStorage storage = GraphStorage.HEAP;
+
+        public LoadMode getMode() {
+            return mode;
+        }
+
+        public void setMode(LoadMode mode) {
+            this.mode = mode;
+        }
+
+        public int getParallelism() {
+            return parallelism;
+        }
+
+        public void setParallelism(int parallelism) {
+            this.parallelism = parallelism;
+        }
+
+        public int getChunkSize() {
+            return chunkSize;
+        }
+
+        public void setChunkSize(int chunkSize) {
+            this.chunkSize = chunkSize;
+        }
+
+        public DuplicatePolicy getDuplicates() {
+            return duplicates;
+        }
+
+        public void setDuplicates(DuplicatePolicy duplicates) {
+            this.duplicates = duplicates;
+        }
+
+        public NodeOrder getReorder() {
+            return reorder;
+        }
+
+        public void setReorder(NodeOrder reorder) {
+            this.reorder = reorder;
+        }
+
+        public GraphStorage getStorage() {
+            return storage;
+        }
+
+        public void setStorage(GraphStorage storage) {
+            this.storage = storage;
+        }
+    }
+
+    /**
+     * Fuente de datos local que se carga al arrancar.
+     */
+    public static class Data {
+
+        /** Archivo CSV o snapshot binario a cargar al iniciar; vacío para arrancar sin grafo. */
+        private String path;
+
+        public String getPath() {
+            return path;
+        }
+
+        public void setPath(String path) {
+            this.path = path;
+        }
+    }
+
+    /**
+     * Snapshot binario del grafo congelado.
+     */
+    public static class Snapshot {
+
+        /** Archivo donde se escribe el snapshot; vacío para deshabilitar la escritura. */
+        private String path;
+
+        /** Si es true, se escribe un snapshot después de cada carga exitosa. */
+        private boolean writeOnLoad;
+
+        public String getPath() {
+            return path;
+        }
+
+        public void setPath(String path) {
+            this.path = path;
+        }
+
+        public boolean isWriteOnLoad() {
+            return writeOnLoad;
+        }
+
+        public void setWriteOnLoad(boolean writeOnLoad) {
+            this.writeOnLoad = writeOnLoad;
+        }
+    }
+
+    /**
+     * Opciones de las consultas de ruta.
+     */
+    public static class Search {
+
+        /** Algoritmo por defecto cuando la consulta no indica uno. */
+        private RouteAlgorithm algorithm = RouteAlgorithm.DIJKSTRA;
+
+        /**
+         * Landmarks calculados después de cada carga para la búsqueda ALT; 0 la deshabilita. Son
+         * dos búsquedas completas por landmark en cada carga y compactación, así que solo se
+         * calculan si se configuran.
+         */
+        private int landmarks = 0;
+
+        /** Si es true, después de cada carga se construye en segundo plano la jerarquía de contracción. */
+        private boolean contractionHierarchies;
+
+        /**
+         * Hilos de plataforma que ejecutan las búsquedas de /find, de modo que los hilos de las
+         * peticiones (virtuales o no) solo esperan; 0 busca en el hilo de la petición.
+         */
+        private int computeThreads = Runtime.getRuntime().availableProcessors();
+
+        /** Máximo de nodos asentados por búsqueda de /find; 0 sin límite. Una consulta puede pedir menos. */
+        private int maxSettledNodes;
+
+        /** Tiempo máximo de una búsqueda de /find, contado desde la petición; 0 sin límite. */
+        private Duration timeout = Duration.ZERO;
+
+        /** Nodos asentados a partir de los cuales una búsqueda se considera pesada. */
+        private int heavyAfterNodes = 100_000;
+
+        /**
+         * Búsquedas pesadas simultáneas; las que no tienen cupo se interrumpen con 503.
+         * 0 deshabilita el control de admisión.
+         */
+        private int maxHeavySearches = Math.max(1, Runtime.getRuntime().availableProcessors() / 2);
+
+        public RouteAlgorithm getAlgorithm() {
+            return algorithm;
+        }
+
+        public void setAlgorithm(RouteAlgorithm algorithm) {
+            this.algorithm = algorithm;
+        }
+
+        public int getLandmarks() {
+            return landmarks;
+        }
+
+        public void setLandmarks(int landmarks) {
+            this.landmarks = landmarks;
+        }
+
+        public boolean isContractionHierarchies() {
+            return contractionHierarchies;
+        }
+
+        public void setContractionHierarchies(boolean contractionHierarchies) {
+            this.contractionHierarchies = contractionHierarchies;
+        }
+
+        public int getComputeThreads() {
+            return computeThreads;
+        }
+
+        public void setComputeThreads(int computeThreads) {
+            this.computeThreads = computeThreads;
+        }
+
+        public int getMaxSettledNodes() {
+            return maxSettledNodes;
+        }
+
+        public void setMaxSettledNodes(int maxSettledNodes) {
+            this.maxSettledNodes = maxSettledNodes;
+        }
+
+        public Duration getTimeout() {
+            return timeout;
+        }
+
+        public void setTimeout(Duration timeout) {
+            this.timeout = timeout;
+        }
+
+        public int getHeavyAfterNodes() {
+            return heavyAfterNodes;
+        }
+
+        public void setHeavyAfterNodes(int heavyAfterNodes) {
+            this.heavyAfterNodes = heavyAfterNodes;
+        }
+
+        public int getMaxHeavySearches() {
+            return maxHeavySearches;
+        }
+
+        public void setMaxHeavySearches(int maxHeavySearches) {
+            this.maxHeavySearches = maxHeavySearches;
+        }
+    }
+
+    /**
+     * Caché de resultados de rutas.
+     */
+    public static class Cache {
+
+        /** Cantidad máxima de rutas guardadas; 0 deshabilita el caché. */
+        private int maxEntries = 10_000;
+
+        public int getMaxEntries() {
+            return maxEntries;
+        }
+
+        public void setMaxEntries(int maxEntries) {
+            this.maxEntries = maxEntries;
+        }
+    }
+
+    /**
+     * Consultas de rutas por lotes y matrices de tiempos.
+     */
+    public static class Batch {
+
+        /** Cantidad máxima de pares en una petición. */
+        private int maxPairs = 10_000;
+
+        /** Cantidad máxima de celdas (orígenes × destinos) de una matriz de tiempos. */
+        private long maxMatrixCells = 4_000_000;
+
+        /** Hilos que resuelven los grupos de un lote o las filas de una matriz en paralelo. */
+        private int parallelism = Runtime.getRuntime().availableProcessors();
+
+        public int getMaxPairs() {
+            return maxPairs;
+        }
+
+        public void setMaxPairs(int maxPairs) {
+            this.maxPairs = maxPairs;
+        }
+
+        public long getMaxMatrixCells() {
+            return maxMatrixCells;
+        }
+
+        public void setMaxMatrixCells(long maxMatrixCells) {
+            this.maxMatrixCells = maxMatrixCells;
+        }
+
+        public int getParallelism() {
+            return parallelism;
+        }
+
+        public void setParallelism(int parallelism) {
+            this.parallelism = parallelism;
+        }
+    }
+
+    /**
+     * Rutas alternativas.
+     */
+    public static class Alternatives {
+
+        /** Cantidad máxima de rutas que puede pedir una consulta. */
+        private int maxRoutes = 10;
+
+        /** Factor por el que se multiplica el tiempo de una conexión usada, en el modo PENALTY. */
+        private double penalty = 1.4;
+
+        public int getMaxRoutes() {
+            return maxRoutes;
+        }
+
+        public void setMaxRoutes(int maxRoutes) {
+            this.maxRoutes = maxRoutes;
+        }
+
+        public double getPenalty() {
+            return penalty;
+        }
+
+        /**
+         * @throws IllegalArgumentException Si el factor no es mayor que 1: las búsquedas
+         * siguientes no se separarían de las rutas ya encontradas.
+         */
+        public void setPenalty(double penalty) {
+            if (!(penalty > 1)) {
+                throw new IllegalArgumentException("El factor de penalización debe ser mayor que 1: " + penalty);
+            }
+            this.penalty = penalty;
+        }
+    }
+
+    /**
+     * Etiquetas de hubs para consultas de tiempo de viaje sin búsqueda.
+     */
+    public static class HubLabels {
+
+        /** Si es true, después de cada carga se construyen en segundo plano las etiquetas de hubs. */
+        private boolean enabled;
+
+        /** Máximo de bytes de las etiquetas; si la construcción lo supera, la versión queda sin etiquetas. 0 sin límite. */
+        private long maxBytes = 256L * 1024 * 1024;
+
+        /** Hilos que construyen las etiquetas. */
+        private int parallelism = Runtime.getRuntime().availableProcessors();
+
+        public boolean isEnabled() {
+            return enabled;
+        }
+
+        public void setEnabled(boolean enabled) {
+            this.enabled = enabled;
+        }
+
+        public long getMaxBytes() {
+            return maxBytes;
+        }
+
+        public void setMaxBytes(long maxBytes) {
+            this.maxBytes = maxBytes;
+        }
+
+        public int getParallelism() {
+            return parallelism;
+        }
+
+        public void setParallelism(int parallelism) {
+            this.parallelism = parallelism;
+        }
+    }
+
+    /**
+     * Actualizaciones incrementales de conexiones.
+     */
+    public static class Updates {
+
+        /** Cantidad máxima de cambios en una petición. */
+        private int maxChanges = 10_000;
+
+        /** Aristas en la capa de cambios a partir de las cuales se compacta el grafo en segundo plano. */
+        private int compactionThreshold = 50_000;
+
+        public int getMaxChanges() {
+            return maxChanges;
+        }
+
+        public void setMaxChanges(int maxChanges) {
+            this.maxChanges = maxChanges;
+        }
+
+        public int getCompactionThreshold() {
+            return compactionThreshold;
+        }
+
+        public void setCompactionThreshold(int compactionThreshold) {
+            this.compactionThreshold = compactionThreshold;
+        }
+    }
+}
@@ -0,0 +1,269 @@
+package cl.cesar.ApiRoute.loader;
+
+import cl.cesar.ApiRoute.model.CompactGraph;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * Lector de CSV a nivel de bytes para archivos con formato {@code loc_start;loc_end;time}.
+ *
+ * Lee el flujo en bloques grandes y busca {@code ;} y saltos de línea directamente sobre
+ * los bytes: el tiempo se convierte a entero en el mismo buffer y los nombres se internan
+ * en una {@link NameTable}, por lo que una ubicación ya vista no crea un {@code String} nuevo.
+ * Las filas inválidas (cantidad de campos distinta de tres, tiempo no numérico, negativo o
+ * fuera de rango) se cuentan y se muestrean en {@link ParseStats} en lugar de imprimirse.
+ *
+ * Una instancia acumula el resultado de una sola lectura y no es segura entre hilos.
+ */
+public final class CsvEdgeParser {
+
+    /** Tamaño del bloque de lectura del flujo de entrada. */
+    public static final int BUFFER_SIZE = 1 << 20;
+
+    private final NameTable names;
+    private final EdgeBuffer edges;
+    private final ParseStats stats;
+
+    public CsvEdgeParser() {
+        this(new NameTable(), new EdgeBuffer());
+    }
+
+    public CsvEdgeParser(NameTable names, EdgeBuffer edges) {
+        this(names, edges, new ParseStats());
+    }
+
+    /**
+     * Crea un parser sobre un resultado ya existente, por ejemplo la combinación
+     * de varios bloques leídos en paralelo.
+     */
+    public CsvEdgeParser(NameTable names, EdgeBuffer edges, ParseStats stats) {
+        this.names = names;
+        this.edges = edges;
+        this.stats = stats;
+    }
+
+    /**
+     * Lee el flujo completo. El flujo no se cierra.
+     * @param in El contenido del CSV.
+     * @throws IOException Si ocurre un error al leer el flujo.
+     */
+    public void parse(InputStream in) throws IOException {
+        byte[] buffer = new byte[BUFFER_SIZE];
+        int filled = 0;
+        int read;
+        while ((read = in.read(buffer, filled, buffer.length - filled)) != -1) {
+            filled += read;
+            int lastNewline = lastIndexOf(buffer, (byte) '\n', filled);
+            if (lastNewline < 0) {
+                if (filled == buffer.length) {
+                    // Una sola línea más larga que el buffer: se agranda y se sigue leyendo
+                    buffer = Arrays.copyOf(buffer, buffer.length * 2);
+                }
+                continue;
+            }
+            parseLines(buffer, 0, lastNewline + 1);
+            int remaining = filled - lastNewline - 1;
+            System.arraycopy(buffer, lastNewline + 1, buffer, 0, remaining);
+            filled = remaining;
+        }
+        parseLines(buffer, 0, filled);
+    }
+
+    /**
+     * Procesa todas las líneas contenidas en {@code bytes[from, to)}.
+     * La última línea puede no terminar en salto de línea.
+     * @param bytes Buffer con el contenido del CSV.
+     * @param from Inicio de la primera línea.
+     * @param to Fin (exclusivo) del rango a procesar.
+     */
+    public void parseLines(byte[] bytes, int from, int to) {
+        stats.addBytes(to - from);
+        int lineStart = from;
+        while (lineStart < to) {
+            int lineEnd = indexOf(bytes, (byte) '\n', lineStart, to);
+            if (lineEnd < 0) {
+                lineEnd = to;
+            }
+            parseLine(bytes, lineStart, lineEnd);
+            lineStart = lineEnd + 1;
+        }
+    }
+
+    private void parseLine(byte[] bytes, int start, int end) {
+        int firstSeparator = indexOf(bytes, (byte) ';', start, end);
+        if (firstSeparator < 0) {
+            if (trimStart(bytes, start, end) < end) {
+                // Las líneas en blanco se ignoran sin contarlas como inválidas
+                stats.addInvalidRow(decode(bytes, start, end));
+            }
+            return;
+        }
+        int secondSeparator = indexOf(bytes, (byte) ';', firstSeparator + 1, end);
+        if (secondSeparator < 0) {
+            stats.addInvalidRow(decode(bytes, start, end));
+            return;
+        }
+        int timeEnd = indexOf(bytes, (byte) ';', secondSeparator + 1, end);
+        if (timeEnd < 0) {
+            timeEnd = end;
+        } else if (!onlySeparators(bytes, timeEnd, end)) {
+            stats.addInvalidRow(decode(bytes, start, end));
+            return;
+        }
+
+        int time = parseTime(bytes, secondSeparator + 1, timeEnd);
+        if (time < 0) {
+            stats.addInvalidRow(decode(bytes, start, end));
+            return;
+        }
+
+        int startFrom = trimStart(bytes, start, firstSeparator);
+        int startTo = trimEnd(bytes, startFrom, firstSeparator);
+        int endFrom = trimStart(bytes, firstSeparator + 1, secondSeparator);
+        int endTo = trimEnd(bytes, endFrom, secondSeparator);
+        int source = names.intern(bytes, startFrom, startTo - startFrom);
+        int destination = names.intern(bytes, endFrom, endTo - endFrom);
+        edges.add(source, destination, time);
+        stats.addValidRow();
+    }
+
+    /**
+     * Convierte el campo de tiempo sin crear objetos intermedios.
+     * @return El tiempo, o -1 si el campo no es un entero no negativo representable en un int.
+     */
+    private static int parseTime(byte[] bytes, int from, int to) {
+        from = trimStart(bytes, from, to);
+        to = trimEnd(bytes, from, to);
+        if (from < to && bytes[from] == '+') {
+            from++;
+        }
+        if (from == to) {
+            return -1;
+        }
+        long value = 0;
+        for (int i = from; i < to; i++) {
+            int digit = bytes[i] - '0';
+            if (digit < 0 || digit > 9) {
+                return -1;
+            }
+            value = value * 10 + digit;
+            if (value > Integer.MAX_VALUE) {
+                return -1;
+            }
+        }
+        return (int) value;
+    }
+
+    private static boolean onlySeparators(byte[] bytes, int from, int to) {
+        to = trimEnd(bytes, from, to);
+        for (int i = from; i < to; i++) {
+            if (bytes[i] != ';') {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /** Avanza sobre los caracteres que {@link String#trim()} descartaría. */
+    private static int trimStart(byte[] bytes, int from, int to) {
+        while (from < to && (bytes[from] & 0xFF) <= ' ') {
+            from++;
+        }
+        return from;
+    }
+
+    private static int trimEnd(byte[] bytes, int from, int to) {
+        while (to > from && (bytes[to - 1] & 0xFF) <= ' ') {
+            to--;
+        }
+        return to;
+    }
+
+    private static int indexOf(byte[] bytes, byte value, int from, int to) {
+        for (int i = from; i < to; i++) {
+            if (bytes[i] == value) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private static int lastIndexOf(byte[] bytes, byte value, int to) {
+        for (int i = to - 1; i >= 0; i--) {
+            if (bytes[i] == value) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private static String decode(byte[] bytes, int from, int to) {
+        return new String(bytes, from, trimEnd(bytes, from, to) - from, StandardCharsets.UTF_8);
+    }
+
+    public NameTable getNames() {
+        return names;
+    }
+
+    public EdgeBuffer getEdges() {
+        return edges;
+    }
+
+    public ParseStats getStats() {
+        return stats;
+    }
+
+    /**
+     * Construye el grafo compacto con lo leído hasta ahora.
+     * @return El grafo en formato CSR.
+     */
+    public CompactGraph toGraph() {
+        return edges.toGraph(names.toArray());
+    }
+
+    /**
+     * Construye el grafo compacto tratando las conexiones repetidas según la política.
+     * Las aristas eliminadas se suman a {@link ParseStats#getCollapsedEdges()}.
+     * @param policy La política para las conexiones repetidas.
+     * @return El grafo en formato CSR.
+     * @throws IllegalArgumentException Si la política es {@link DuplicatePolicy#REJECT} y hay repetidas.
+     */
+    public CompactGraph toGraph(DuplicatePolicy policy) {
+        String[] table = names.toArray();
+        stats.addCollapsedEdges(edges.collapseDuplicates(table, policy));
+        return edges.toGraph(table);
+    }
+
+    /**
+     * Combina lo leído con las conexiones de un grafo existente. Las ubicaciones del grafo
+     * conservan su id y las nuevas se agregan a continuación en orden de aparición. Las
+     * conexiones del grafo van antes que las del CSV, de modo que con
+     * {@link DuplicatePolicy#LATEST} prevalece el tiempo del CSV.
+     * @param base El grafo existente.
+     * @return Un parser nuevo con el resultado combinado y las mismas estadísticas.
+     */
+    public CsvEdgeParser appendTo(CompactGraph base) {
+        int baseNodes = base.nodeCount();
+        NameTable merged = new NameTable(baseNodes + names.size());
+        for (int id = 0; id < baseNodes; id++) {
+            merged.intern(base.nameOf(id));
+        }
+        int[] remap = new int[names.size()];
+        for (int id = 0; id < remap.length; id++) {
+            remap[id] = merged.internFrom(names, id);
+        }
+        EdgeBuffer combined = new EdgeBuffer(base.edgeCount() + edges.size());
+        for (int u = 0; u < baseNodes; u++) {
+            for (int edge = base.edgeStart(u), end = base.edgeEnd(u); edge < end; edge++) {
+                combined.add(u, base.target(edge), base.weight(edge));
+            }
+        }
+        for (int i = 0; i < edges.size(); i++) {
+            combined.add(remap[edges.source(i)], remap[edges.destination(i)], edges.time(i));
+        }
+        return new CsvEdgeParser(merged, combined, stats);
+    }
+}
@@ -0,0 +1,17 @@
+package cl.cesar.ApiRoute.loader;
+
+/**
+ * Tratamiento de las conexiones repetidas (mismo origen y destino) durante una carga.
+ * Una arista paralela nunca acorta una ruta más que la más rápida del par, pero Dijkstra
+ * la relaja igual; colapsarlas achica las listas de adyacencia sin cambiar los tiempos.
+ */
+public enum DuplicatePolicy {
+    /** Conserva todas las aristas, como el grafo de objetos original. */
+    KEEP,
+    /** Conserva una arista por par con el menor tiempo; las rutas no cambian. */
+    MIN,
+    /** Conserva una arista por par con el tiempo de la última fila que la menciona. */
+    LATEST,
+    /** Rechaza la carga si algún par aparece más de una vez. */
+    REJECT
+}
@@ -0,0 +1,155 @@
+package cl.cesar.ApiRoute.loader;
+
+import cl.cesar.ApiRoute.model.CompactGraph;
+
+import java.util.Arrays;
+
+/**
+ * Lista creciente de aristas en arreglos primitivos paralelos (origen, destino, tiempo).
+ * Acumula las filas del CSV sin crear un objeto por conexión.
+ */
+public final class EdgeBuffer {
+
+    private int[] sources;
+    private int[] destinations;
+    private int[] times;
+    private int size;
+
+    public EdgeBuffer() {
+        this(1024);
+    }
+
+    public EdgeBuffer(int initialCapacity) {
+        int capacity = Math.max(16, initialCapacity);
+        sources = new int[capacity];
+        destinations = new int[capacity];
+        times = new int[capacity];
+    }
+
+    /**
+     * Envuelve arreglos ya llenos, sin copiarlos.
+     * @param sources Id de origen de cada arista.
+     * @param destinations Id de destino de cada arista.
+     * @param times Tiempo de viaje de cada arista.
+     * @param size Número de aristas válidas en los arreglos.
+     */
+    public EdgeBuffer(int[] sources, int[] destinations, int[] times, int size) {
+        this.sources = sources;
+        this.destinations = destinations;
+        this.times = times;
+        this.size = size;
+    }
+
+    public void add(int source, int destination, int time) {
+        if (size == sources.length) {
+            int capacity = Math.max(16, sources.length + (sources.length >> 1));
+            sources = Arrays.copyOf(sources, capacity);
+            destinations = Arrays.copyOf(destinations, capacity);
+            times = Arrays.copyOf(times, capacity);
+        }
+        sources[size] = source;
+        destinations[size] = destination;
+        times[size] = time;
+        size++;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public int source(int index) {
+        return sources[index];
+    }
+
+    public int destination(int index) {
+        return destinations[index];
+    }
+
+    public int time(int index) {
+        return times[index];
+    }
+
+    /**
+     * Elimina las aristas repetidas entre el mismo par de ubicaciones según la política.
+     * Cada par conserva la posición de su primera aparición y el resto de las aristas
+     * mantiene su orden, en tiempo lineal: las aristas se agrupan por origen con un
+     * ordenamiento por conteo estable y cada destino recuerda el último origen que lo vio.
+     * @param names Nombre de cada ubicación, indexado por id.
+     * @param policy La política a aplicar.
+     * @return La cantidad de aristas eliminadas.
+     * @throws IllegalArgumentException Si la política es {@link DuplicatePolicy#REJECT} y hay
+     * aristas repetidas; en ese caso el buffer no se modifica.
+     */
+    public int collapseDuplicates(String[] names, DuplicatePolicy policy) {
+        if (policy == DuplicatePolicy.KEEP || size < 2) {
+            return 0;
+        }
+        int nodeCount = names.length;
+        int[] start = new int[nodeCount + 1];
+        for (int i = 0; i < size; i++) {
+            start[sources[i] + 1]++;
+        }
+        for (int u = 0; u < nodeCount; u++) {
+            start[u + 1] += start[u];
+        }
+        int[] cursor = Arrays.copyOf(start, nodeCount);
+        int[] order = new int[size];
+        for (int i = 0; i < size; i++) {
+            order[cursor[sources[i]]++] = i;
+        }
+
+        int[] seenFrom = new int[nodeCount];
+        Arrays.fill(seenFrom, -1);
+        int[] kept = new int[nodeCount];
+        boolean[] dropped = new boolean[size];
+        int collapsed = 0;
+        int firstDuplicate = -1;
+        for (int u = 0; u < nodeCount; u++) {
+            for (int k = start[u]; k < start[u + 1]; k++) {
+                int i = order[k];
+                int target = destinations[i];
+                if (seenFrom[target] != u) {
+                    seenFrom[target] = u;
+                    kept[target] = i;
+                    continue;
+                }
+                dropped[i] = true;
+                if (collapsed++ == 0) {
+                    firstDuplicate = i;
+                }
+                if (policy == DuplicatePolicy.MIN) {
+                    times[kept[target]] = Math.min(times[kept[target]], times[i]);
+                } else if (policy == DuplicatePolicy.LATEST) {
+                    times[kept[target]] = times[i];
+                }
+            }
+        }
+        if (collapsed == 0) {
+            return 0;
+        }
+        if (policy == DuplicatePolicy.REJECT) {
+            throw new IllegalArgumentException("El archivo tiene " + collapsed + " conexiones repetidas, por ejemplo "
+                    + names[sources[firstDuplicate]] + " -> " + names[destinations[firstDuplicate]] + ".");
+        }
+
+        int write = 0;
+        for (int i = 0; i < size; i++) {
+            if (!dropped[i]) {
+                sources[write] = sources[i];
+                destinations[write] = destinations[i];
+                times[write++] = times[i];
+            }
+        }
+        size = write;
+        return collapsed;
+    }
+
+    /**
+     * Construye el grafo compacto con las aristas acumuladas.
+     * @param names Nombre de cada ubicación, indexado por id.
+     * @return El grafo en formato CSR.
+     */
+    public CompactGraph toGraph(String[] names) {
+        return CompactGraph.fromEdges(names, size, sources, destinations, times);
+    }
+}
@@ -0,0 +1,405 @@
+package cl.cesar.ApiRoute.loader;
+
+import cl.cesar.ApiRoute.model.CompactGraph;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.zip.CRC32C;
+
+/**
+ * Formato binario de snapshot del grafo congelado, para arrancar sin volver a leer el CSV.
+ *
+ * El archivo es little-endian y consta de una cabecera de 64 bytes seguida de las secciones
+ * offsets, destinos, pesos, offsets de nombres y bytes UTF-8 de los nombres, cada una alineada
+ * a 8 bytes. La cabecera guarda el largo y un CRC32C de todo el contenido posterior, de modo
+ * que un archivo truncado o corrupto se rechaza antes de publicar el grafo.
+ *
+ * Las secciones tienen el mismo formato que los arreglos de un grafo fuera del heap, por lo
+ * que {@link #map(Path)} usa el archivo mapeado directamente, sin copiarlo al heap.
+ */
+public final class GraphSnapshotFile {
+
+    /** Primeros bytes de todo snapshot: "RGSF" en little-endian. */
+    public static final int MAGIC = 0x46534752;
+
+    /** Versión del formato de archivo. */
+    public static final int FORMAT_VERSION = 1;
+
+    public static final int HEADER_BYTES = 64;
+
+    private static final int IO_BUFFER_BYTES = 1 << 20;
+    private static final long MAX_MAP_BYTES = 1L << 30;
+
+    private GraphSnapshotFile() {
+    }
+
+    /**
+     * Posición de cada sección dentro del archivo, calculada a partir de la cabecera.
+     */
+    public static final class Layout {
+
+        public final int nodeCount;
+        public final int edgeCount;
+        public final int weightBytes;
+        public final long nameBytes;
+        public final long offsetsPosition;
+        public final long targetsPosition;
+        public final long weightsPosition;
+        public final long nameOffsetsPosition;
+        public final long namesPosition;
+        public final long totalBytes;
+
+        Layout(int nodeCount, int edgeCount, int weightBytes, long nameBytes) {
+            this.nodeCount = nodeCount;
+            this.edgeCount = edgeCount;
+            this.weightBytes = weightBytes;
+            this.nameBytes = nameBytes;
+            this.offsetsPosition = HEADER_BYTES;
+            this.targetsPosition = align(offsetsPosition + 4L * (nodeCount + 1));
+            this.weightsPosition = align(targetsPosition + 4L * edgeCount);
+            this.nameOffsetsPosition = align(weightsPosition + (long) weightBytes * edgeCount);
+            this.namesPosition = align(nameOffsetsPosition + 4L * (nodeCount + 1));
+            this.totalBytes = align(namesPosition + nameBytes);
+        }
+
+        private static long align(long position) {
+            return (position + 7) & ~7L;
+        }
+    }
+
+    /**
+     * Resultado de leer un snapshot.
+     */
+    public static final class Loaded {
+
+        private final CompactGraph graph;
+        private final long graphVersion;
+        private final long bytes;
+
+        Loaded(CompactGraph graph, long graphVersion, long bytes) {
+            this.graph = graph;
+            this.graphVersion = graphVersion;
+            this.bytes = bytes;
+        }
+
+        public CompactGraph getGraph() {
+            return graph;
+        }
+
+        /** Versión que tenía el grafo en el proceso que escribió el snapshot. */
+        public long getGraphVersion() {
+            return graphVersion;
+        }
+
+        public long getBytes() {
+            return bytes;
+        }
+    }
+
+    /**
+     * Indica si el archivo comienza con la firma de un snapshot.
+     * @param path El archivo a revisar.
+     * @return true si es un snapshot binario; false si es otro tipo de archivo (por ejemplo un CSV).
+     * @throws IOException Si ocurre un error al leer el archivo.
+     */
+    public static boolean isSnapshot(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            ByteBuffer magic = ByteBuffer.allocate(4).order(ByteOrder.LITTLE_ENDIAN);
+            while (magic.hasRemaining() && channel.read(magic) != -1) {
+                // Se lee hasta completar los 4 bytes o llegar al final
+            }
+            return !magic.hasRemaining() && magic.getInt(0) == MAGIC;
+        }
+    }
+
+    /**
+     * Escribe el grafo en un snapshot. Se escribe primero a un archivo temporal que luego
+     * se mueve sobre el destino, para no dejar nunca un snapshot a medio escribir.
+     * @param graph El grafo congelado.
+     * @param graphVersion Versión del grafo que se guarda en la cabecera.
+     * @param path El archivo de destino.
+     * @return El tamaño del archivo escrito en bytes.
+     * @throws IOException Si ocurre un error al escribir.
+     */
+    public static long write(CompactGraph graph, long graphVersion, Path path) throws IOException {
+        int nodeCount = graph.nodeCount();
+        int edgeCount = graph.edgeCount();
+        byte[][] encodedNames = new byte[nodeCount][];
+        long nameBytes = 0;
+        for (int node = 0; node < nodeCount; node++) {
+            encodedNames[node] = graph.nameOf(node).getBytes(StandardCharsets.UTF_8);
+            nameBytes += encodedNames[node].length;
+        }
+        if (nameBytes > Integer.MAX_VALUE) {
+            throw new IOException("La tabla de nombres excede el máximo soportado por el formato");
+        }
+        Layout layout = new Layout(nodeCount, edgeCount, graph.hasNarrowWeights() ? 2 : 4, nameBytes);
+
+        Path parent = path.toAbsolutePath().getParent();
+        Files.createDirectories(parent);
+        Path temp = Files.createTempFile(parent, path.getFileName().toString(), ".tmp");
+        try {
+            try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.WRITE)) {
+                SectionWriter out = new SectionWriter(channel, HEADER_BYTES);
+                for (int node = 0; node <= nodeCount; node++) {
+                    out.putInt(node < nodeCount ? graph.edgeStart(node) : edgeCount);
+                }
+                out.padTo(layout.targetsPosition);
+                for (int edge = 0; edge < edgeCount; edge++) {
+                    out.putInt(graph.target(edge));
+                }
+                out.padTo(layout.weightsPosition);
+                for (int edge = 0; edge < edgeCount; edge++) {
+                    if (layout.weightBytes == 2) {
+                        out.putChar((char) graph.weight(edge));
+                    } else {
+                        out.putInt(graph.weight(edge));
+                    }
+                }
+                out.padTo(layout.nameOffsetsPosition);
+                int nameOffset = 0;
+                for (int node = 0; node <= nodeCount; node++) {
+                    out.putInt(nameOffset);
+                    if (node < nodeCount) {
+                        nameOffset += encodedNames[node].length;
+                    }
+                }
+                out.padTo(layout.namesPosition);
+                for (byte[] name : encodedNames) {
+                    out.putBytes(name);
+                }
+                out.padTo(layout.totalBytes);
+                long checksum = out.finish();
+
+                ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES).order(ByteOrder.LITTLE_ENDIAN);
+                header.putInt(MAGIC)
+                        .putInt(FORMAT_VERSION)
+                        .putLong(graphVersion)
+                        .putInt(nodeCount)
+                        .putInt(edgeCount)
+                        .putInt(layout.weightBytes)
+                        .putInt(0)
+                        .putLong(nameBytes)
+                        .putLong(layout.totalBytes - HEADER_BYTES)
+                        .putLong(checksum)
+                        .putLong(0);
+                header.flip();
+                writeFully(channel, header, 0);
+                channel.force(true);
+            }
+            Files.move(temp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+        return layout.totalBytes;
+    }
+
+    /**
+     * Lee un snapshot mapeándolo en memoria. Valida firma, versión de formato, tamaño y checksum
+     * antes de copiar las secciones a los arreglos del grafo.
+     * @param path El archivo del snapshot.
+     * @return El grafo leído y la versión guardada.
+     * @throws IOException Si el archivo no se puede leer, está truncado o su checksum no coincide.
+     */
+    public static Loaded read(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            long fileSize = channel.size();
+            Layout layout = readLayout(channel, path);
+            long graphVersion = verify(channel, path);
+
+            int nodeCount = layout.nodeCount;
+            int edgeCount = layout.edgeCount;
+            int[] offsets = new int[nodeCount + 1];
+            map(channel, layout.offsetsPosition, 4L * offsets.length).asIntBuffer().get(offsets);
+            int[] targets = new int[edgeCount];
+            map(channel, layout.targetsPosition, 4L * edgeCount).asIntBuffer().get(targets);
+            int[] nameOffsets = new int[nodeCount + 1];
+            map(channel, layout.nameOffsetsPosition, 4L * nameOffsets.length).asIntBuffer().get(nameOffsets);
+            byte[] nameBytes = new byte[(int) layout.nameBytes];
+            map(channel, layout.namesPosition, nameBytes.length).get(nameBytes);
+            String[] names = new String[nodeCount];
+            for (int node = 0; node < nodeCount; node++) {
+                names[node] = new String(nameBytes, nameOffsets[node], nameOffsets[node + 1] - nameOffsets[node], StandardCharsets.UTF_8);
+            }
+
+            CompactGraph graph;
+            if (layout.weightBytes == 2) {
+                char[] weights = new char[edgeCount];
+                map(channel, layout.weightsPosition, 2L * edgeCount).asCharBuffer().get(weights);
+                graph = new CompactGraph(names, offsets, targets, weights);
+            } else {
+                int[] weights = new int[edgeCount];
+                map(channel, layout.weightsPosition, 4L * edgeCount).asIntBuffer().get(weights);
+                graph = new CompactGraph(names, offsets, targets, weights);
+            }
+            return new Loaded(graph, graphVersion, fileSize);
+        } catch (IllegalArgumentException e) {
+            throw new IOException("Snapshot inconsistente: " + path, e);
+        }
+    }
+
+    /**
+     * Mapea un snapshot fuera del heap y lo usa como grafo sin copiar sus secciones. Valida
+     * firma, versión de formato, tamaño y checksum igual que {@link #read(Path)}. El archivo
+     * queda mapeado hasta que se suelta la última referencia de la memoria del grafo.
+     * @param path El archivo del snapshot.
+     * @return El grafo mapeado, cuya memoria pertenece a quien llama, y la versión guardada.
+     * @throws IOException Si el archivo no se puede leer, está truncado o su checksum no coincide.
+     */
+    public static Loaded map(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            long fileSize = channel.size();
+            Layout layout = readLayout(channel, path);
+            long graphVersion = verify(channel, path);
+            CompactGraph graph = CompactGraph.map(channel, layout.nodeCount, layout.edgeCount, layout.weightBytes,
+                    layout.offsetsPosition, layout.targetsPosition, layout.weightsPosition,
+                    layout.nameOffsetsPosition, layout.namesPosition, layout.nameBytes);
+            return new Loaded(graph, graphVersion, fileSize);
+        } catch (IllegalArgumentException e) {
+            throw new IOException("Snapshot inconsistente: " + path, e);
+        }
+    }
+
+    /**
+     * Compara el checksum de la cabecera con el del contenido.
+     * @return La versión del grafo guardada en la cabecera.
+     * @throws IOException Si el checksum no coincide.
+     */
+    private static long verify(FileChannel channel, Path path) throws IOException {
+        ByteBuffer header = map(channel, 0, HEADER_BYTES);
+        if (checksum(channel, HEADER_BYTES, channel.size()) != header.getLong(48)) {
+            throw new IOException("Checksum inválido en el snapshot " + path);
+        }
+        return header.getLong(8);
+    }
+
+    /**
+     * Lee y valida la cabecera: firma, versión de formato y tamaño esperado del archivo.
+     * @param channel Canal abierto sobre el snapshot.
+     * @param path Ruta del archivo, para los mensajes de error.
+     * @return La disposición de las secciones.
+     * @throws IOException Si la cabecera es inválida o el archivo está truncado.
+     */
+    public static Layout readLayout(FileChannel channel, Path path) throws IOException {
+        long fileSize = channel.size();
+        if (fileSize < HEADER_BYTES) {
+            throw new IOException("Snapshot truncado (sin cabecera completa): " + path);
+        }
+        ByteBuffer header = map(channel, 0, HEADER_BYTES);
+        if (header.getInt(0) != MAGIC) {
+            throw new IOException("El archivo no es un snapshot de grafo: " + path);
+        }
+        if (header.getInt(4) != FORMAT_VERSION) {
+            throw new IOException("Versión de formato de snapshot no soportada (" + header.getInt(4) + "): " + path);
+        }
+        int nodeCount = header.getInt(16);
+        int edgeCount = header.getInt(20);
+        int weightBytes = header.getInt(24);
+        long nameBytes = header.getLong(32);
+        long payloadBytes = header.getLong(40);
+        if (nodeCount < 0 || edgeCount < 0 || (weightBytes != 2 && weightBytes != 4)
+                || nameBytes < 0 || nameBytes > Integer.MAX_VALUE) {
+            throw new IOException("Cabecera de snapshot inválida: " + path);
+        }
+        Layout layout = new Layout(nodeCount, edgeCount, weightBytes, nameBytes);
+        if (payloadBytes != layout.totalBytes - HEADER_BYTES || fileSize != layout.totalBytes) {
+            throw new IOException("Snapshot truncado o con tamaño inesperado (" + fileSize + " bytes, se esperaban "
+                    + layout.totalBytes + "): " + path);
+        }
+        return layout;
+    }
+
+    private static long checksum(FileChannel channel, long from, long to) throws IOException {
+        CRC32C crc = new CRC32C();
+        for (long position = from; position < to; position += MAX_MAP_BYTES) {
+            crc.update(map(channel, position, Math.min(MAX_MAP_BYTES, to - position)));
+        }
+        return crc.getValue();
+    }
+
+    private static MappedByteBuffer map(FileChannel channel, long position, long size) throws IOException {
+        if (size > Integer.MAX_VALUE) {
+            throw new IOException("Sección de snapshot demasiado grande para mapearla: " + size + " bytes");
+        }
+        MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, position, size);
+        buffer.order(ByteOrder.LITTLE_ENDIAN);
+        return buffer;
+    }
+
+    private static void writeFully(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+        while (buffer.hasRemaining()) {
+            position += channel.write(buffer, position);
+        }
+    }
+
+    /**
+     * Escritura secuencial con buffer que calcula el CRC32C de todo lo escrito.
+     */
+    private static final class SectionWriter {
+
+        private final FileChannel channel;
+        private final ByteBuffer buffer = ByteBuffer.allocate(IO_BUFFER_BYTES).order(ByteOrder.LITTLE_ENDIAN);
+        private final CRC32C crc = new CRC32C();
+        private long position;
+
+        SectionWriter(FileChannel channel, long position) {
+            this.channel = channel;
+            this.position = position;
+        }
+
+        void putInt(int value) throws IOException {
+            ensure(4);
+            buffer.putInt(value);
+        }
+
+        void putChar(char value) throws IOException {
+            ensure(2);
+            buffer.putChar(value);
+        }
+
+        void putBytes(byte[] bytes) throws IOException {
+            int offset = 0;
+            while (offset < bytes.length) {
+                ensure(1);
+                int length = Math.min(buffer.remaining(), bytes.length - offset);
+                buffer.put(bytes, offset, length);
+                offset += length;
+            }
+        }
+
+        void padTo(long target) throws IOException {
+            while (position + buffer.position() < target) {
+                ensure(1);
+                buffer.put((byte) 0);
+            }
+        }
+
+        long finish() throws IOException {
+            flush();
+            return crc.getValue();
+        }
+
+        private void ensure(int bytes) throws IOException {
+            if (buffer.remaining() < bytes) {
+                flush();
+            }
+        }
+
+        private void flush() throws IOException {
+            buffer.flip();
+            crc.update(buffer.duplicate());
+            int length = buffer.remaining();
+            writeFully(channel, buffer, position);
+            position += length;
+            buffer.clear();
+        }
+    }
+}
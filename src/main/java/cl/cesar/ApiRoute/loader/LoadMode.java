@@ -0,0 +1,11 @@
+package cl.cesar.ApiRoute.loader;
+
+/**
+ * Estrategia de lectura del CSV durante una carga.
+ */
+public enum LoadMode {
+    /** Un solo hilo lee y procesa el flujo completo. */
+    SEQUENTIAL,
+    /** El archivo se divide en bloques alineados a líneas que se procesan en paralelo. */
+    PARALLEL
+}
@@ -0,0 +1,36 @@
+package cl.cesar.ApiRoute.loader;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Cronómetro de las fases de una carga. Cada llamada a {@link #mark(String)} registra
+ * el tiempo transcurrido desde la marca anterior bajo el nombre de la fase.
+ */
+public final class LoadTimings {
+
+    private final Map<String, Long> millis = new LinkedHashMap<>();
+    private final long start = System.nanoTime();
+    private long last = start;
+
+    /**
+     * Cierra la fase en curso.
+     * @param phase Nombre de la fase que termina.
+     */
+    public void mark(String phase) {
+        long now = System.nanoTime();
+        millis.merge(phase, (now - last) / 1_000_000, Long::sum);
+        last = now;
+    }
+
+    /** Tiempo total desde la creación del cronómetro, en milisegundos. */
+    public long totalMillis() {
+        return (System.nanoTime() - start) / 1_000_000;
+    }
+
+    /** Duración de cada fase en milisegundos, en el orden en que se registraron. */
+    public Map<String, Long> asMap() {
+        return Collections.unmodifiableMap(millis);
+    }
+}
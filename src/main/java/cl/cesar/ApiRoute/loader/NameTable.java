@@ -0,0 +1,162 @@
+package cl.cesar.ApiRoute.loader;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * Tabla de internado de nombres de ubicación indexada por porciones de bytes.
+ * Asigna ids densos en orden de primera aparición. Un nombre que ya está en la tabla
+ * se resuelve comparando bytes, sin decodificarlo ni crear un {@code String} nuevo.
+ */
+public final class NameTable {
+
+    private static final int EMPTY = -1;
+
+    private int[] slots;
+    private int mask;
+    private int[] hashes;
+    private int[] byteOffsets;
+    private int[] byteLengths;
+    private String[] names;
+    private byte[] pool;
+    private int poolSize;
+    private int size;
+
+    public NameTable() {
+        this(1024);
+    }
+
+    public NameTable(int expectedNames) {
+        int capacity = Integer.highestOneBit(Math.max(16, expectedNames * 2 - 1)) << 1;
+        slots = new int[capacity];
+        Arrays.fill(slots, EMPTY);
+        mask = capacity - 1;
+        int entries = Math.max(16, expectedNames);
+        hashes = new int[entries];
+        byteOffsets = new int[entries];
+        byteLengths = new int[entries];
+        names = new String[entries];
+        pool = new byte[entries * 8];
+    }
+
+    /**
+     * Calcula el hash de una porción de bytes, el mismo que usa la tabla internamente.
+     */
+    public static int hash(byte[] bytes, int offset, int length) {
+        int h = 0;
+        for (int i = offset, end = offset + length; i < end; i++) {
+            h = 31 * h + bytes[i];
+        }
+        // Mezcla final para repartir mejor los bits bajos usados por la máscara
+        h ^= h >>> 16;
+        h *= 0x85ebca6b;
+        return h ^ (h >>> 13);
+    }
+
+    /**
+     * Obtiene el id de un nombre, agregándolo si no existía.
+     * @param bytes Arreglo con el nombre codificado en UTF-8.
+     * @param offset Inicio del nombre en el arreglo.
+     * @param length Largo del nombre en bytes.
+     * @return El id denso del nombre.
+     */
+    public int intern(byte[] bytes, int offset, int length) {
+        return intern(bytes, offset, length, hash(bytes, offset, length));
+    }
+
+    /**
+     * Variante de {@link #intern(byte[], int, int)} con el hash ya calculado.
+     */
+    public int intern(byte[] bytes, int offset, int length, int hash) {
+        return intern(bytes, offset, length, hash, null);
+    }
+
+    private int intern(byte[] bytes, int offset, int length, int hash, String name) {
+        int slot = hash & mask;
+        while (true) {
+            int id = slots[slot];
+            if (id == EMPTY) {
+                return add(bytes, offset, length, hash, slot, name);
+            }
+            if (hashes[id] == hash && byteLengths[id] == length
+                    && Arrays.equals(pool, byteOffsets[id], byteOffsets[id] + length, bytes, offset, offset + length)) {
+                return id;
+            }
+            slot = (slot + 1) & mask;
+        }
+    }
+
+    /**
+     * Obtiene el id de un nombre ya decodificado, agregándolo si no existía.
+     * @param name El nombre de la ubicación.
+     * @return El id denso del nombre.
+     */
+    public int intern(String name) {
+        byte[] bytes = name.getBytes(StandardCharsets.UTF_8);
+        return intern(bytes, 0, bytes.length, hash(bytes, 0, bytes.length), name);
+    }
+
+    /**
+     * Interna un nombre de otra tabla reutilizando sus bytes, su hash y su {@code String}.
+     * @param other La tabla de origen.
+     * @param id El id del nombre en la tabla de origen.
+     * @return El id del nombre en esta tabla.
+     */
+    public int internFrom(NameTable other, int id) {
+        return intern(other.pool, other.byteOffsets[id], other.byteLengths[id], other.hashes[id], other.names[id]);
+    }
+
+    private int add(byte[] bytes, int offset, int length, int hash, int slot, String name) {
+        int id = size++;
+        if (id == names.length) {
+            int capacity = names.length + (names.length >> 1);
+            hashes = Arrays.copyOf(hashes, capacity);
+            byteOffsets = Arrays.copyOf(byteOffsets, capacity);
+            byteLengths = Arrays.copyOf(byteLengths, capacity);
+            names = Arrays.copyOf(names, capacity);
+        }
+        if (poolSize + length > pool.length) {
+            pool = Arrays.copyOf(pool, Math.max(poolSize + length, pool.length + (pool.length >> 1)));
+        }
+        System.arraycopy(bytes, offset, pool, poolSize, length);
+        hashes[id] = hash;
+        byteOffsets[id] = poolSize;
+        byteLengths[id] = length;
+        names[id] = name != null ? name : new String(bytes, offset, length, StandardCharsets.UTF_8);
+        poolSize += length;
+        slots[slot] = id;
+        if (size * 2 > slots.length) {
+            rehash();
+        }
+        return id;
+    }
+
+    private void rehash() {
+        slots = new int[slots.length << 1];
+        Arrays.fill(slots, EMPTY);
+        mask = slots.length - 1;
+        for (int id = 0; id < size; id++) {
+            int slot = hashes[id] & mask;
+            while (slots[slot] != EMPTY) {
+                slot = (slot + 1) & mask;
+            }
+            slots[slot] = id;
+        }
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public String nameOf(int id) {
+        return names[id];
+    }
+
+    /**
+     * Copia los nombres en un arreglo indexado por id.
+     * @return Un arreglo de tamaño {@link #size()}.
+     */
+    public String[] toArray() {
+        return Arrays.copyOf(names, size);
+    }
+}
@@ -0,0 +1,258 @@
+package cl.cesar.ApiRoute.loader;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * Carga paralela del CSV.
+ *
+ * El flujo se corta en bloques alineados a saltos de línea que se procesan en un
+ * {@link ForkJoinPool}, cada uno con su propia tabla de nombres y su propio buffer de aristas.
+ * Luego los bloques se combinan en orden: los nombres de cada bloque se internan en la tabla
+ * global siguiendo su orden de aparición, por lo que los ids resultantes son exactamente los
+ * de una lectura secuencial, sin importar cuántos hilos participaron.
+ */
+public final class ParallelCsvLoader {
+
+    /** Tamaño máximo de cada ventana de mapeo de un archivo local. */
+    private static final long MAX_WINDOW_BYTES = 1L << 30;
+
+    private final ForkJoinPool pool;
+    private final int chunkSize;
+
+    /**
+     * @param pool Pool donde se procesan los bloques.
+     * @param chunkSize Tamaño aproximado de cada bloque en bytes.
+     */
+    public ParallelCsvLoader(ForkJoinPool pool, int chunkSize) {
+        if (chunkSize <= 0) {
+            throw new IllegalArgumentException("El tamaño de bloque debe ser positivo: " + chunkSize);
+        }
+        this.pool = pool;
+        this.chunkSize = chunkSize;
+    }
+
+    /**
+     * Lee el flujo completo. El flujo no se cierra.
+     * @param in El contenido del CSV.
+     * @param timings Cronómetro donde se registran las fases "parse" y "merge".
+     * @return Un parser con la tabla de nombres, las aristas y las estadísticas combinadas.
+     * @throws IOException Si ocurre un error al leer el flujo.
+     */
+    public CsvEdgeParser load(InputStream in, LoadTimings timings) throws IOException {
+        List<ChunkTask> chunks = readChunks(in);
+        for (ChunkTask chunk : chunks) {
+            chunk.join();
+        }
+        timings.mark("parse");
+        CsvEdgeParser merged = merge(chunks);
+        timings.mark("merge");
+        return merged;
+    }
+
+    /**
+     * Lee un archivo local mapeándolo en memoria. Los cortes entre bloques se buscan
+     * directamente sobre el mapeo y cada tarea copia y procesa su propio bloque,
+     * de modo que también la lectura del archivo ocurre en paralelo.
+     * @param file El archivo CSV.
+     * @param timings Cronómetro donde se registran las fases "parse" y "merge".
+     * @return Un parser con la tabla de nombres, las aristas y las estadísticas combinadas.
+     * @throws IOException Si ocurre un error al leer el archivo.
+     */
+    public CsvEdgeParser load(Path file, LoadTimings timings) throws IOException {
+        List<ChunkTask> chunks = new ArrayList<>();
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long size = channel.size();
+            long position = 0;
+            while (position < size) {
+                long windowSize = Math.min(MAX_WINDOW_BYTES, size - position);
+                MappedByteBuffer window = channel.map(FileChannel.MapMode.READ_ONLY, position, windowSize);
+                int usable = (int) windowSize;
+                if (position + windowSize < size) {
+                    // La ventana debe terminar en un salto de línea; el resto pasa a la siguiente
+                    usable = lastNewline(window, usable) + 1;
+                    if (usable == 0) {
+                        throw new IOException("Línea de CSV demasiado larga en " + file);
+                    }
+                }
+                int start = 0;
+                while (start < usable) {
+                    int end = start + chunkSize >= usable ? usable : nextLineStart(window, start + chunkSize, usable);
+                    ChunkTask chunk = new ChunkTask(window.slice(start, end - start));
+                    chunks.add(chunk);
+                    pool.execute(chunk);
+                    start = end;
+                }
+                position += usable;
+            }
+            for (ChunkTask chunk : chunks) {
+                chunk.join();
+            }
+        }
+        timings.mark("parse");
+        CsvEdgeParser merged = merge(chunks);
+        timings.mark("merge");
+        return merged;
+    }
+
+    /**
+     * Lee el flujo en bloques y los envía al pool a medida que se completan.
+     * Se limita la cantidad de bloques pendientes para acotar la memoria usada.
+     */
+    private List<ChunkTask> readChunks(InputStream in) throws IOException {
+        List<ChunkTask> chunks = new ArrayList<>();
+        Deque<ChunkTask> pending = new ArrayDeque<>();
+        int maxPending = Math.max(2, pool.getParallelism() * 2);
+        byte[] carry = new byte[0];
+        boolean eof = false;
+        while (!eof) {
+            byte[] buffer = Arrays.copyOf(carry, carry.length + chunkSize);
+            int filled = carry.length + readFully(in, buffer, carry.length, chunkSize);
+            eof = filled < buffer.length;
+            int cut = eof ? filled : lastNewline(buffer, filled) + 1;
+            if (cut == 0) {
+                // Ninguna línea terminó en este bloque: se sigue acumulando
+                carry = buffer;
+                continue;
+            }
+            ChunkTask chunk = new ChunkTask(buffer, cut);
+            chunks.add(chunk);
+            pending.add(chunk);
+            pool.execute(chunk);
+            carry = Arrays.copyOfRange(buffer, cut, filled);
+            if (pending.size() >= maxPending) {
+                pending.poll().join();
+            }
+        }
+        return chunks;
+    }
+
+    private CsvEdgeParser merge(List<ChunkTask> chunks) {
+        NameTable names = new NameTable();
+        int[][] localToGlobal = new int[chunks.size()][];
+        int[] edgeOffsets = new int[chunks.size() + 1];
+        ParseStats stats = new ParseStats();
+        for (int c = 0; c < chunks.size(); c++) {
+            CsvEdgeParser part = chunks.get(c).getRawResult();
+            NameTable local = part.getNames();
+            int[] mapping = new int[local.size()];
+            for (int id = 0; id < mapping.length; id++) {
+                mapping[id] = names.internFrom(local, id);
+            }
+            localToGlobal[c] = mapping;
+            edgeOffsets[c + 1] = Math.addExact(edgeOffsets[c], part.getEdges().size());
+            stats.merge(part.getStats());
+        }
+
+        int edgeCount = edgeOffsets[chunks.size()];
+        int[] sources = new int[edgeCount];
+        int[] destinations = new int[edgeCount];
+        int[] times = new int[edgeCount];
+        List<ForkJoinTask<?>> remaps = new ArrayList<>(chunks.size());
+        for (int c = 0; c < chunks.size(); c++) {
+            EdgeBuffer edges = chunks.get(c).getRawResult().getEdges();
+            int[] mapping = localToGlobal[c];
+            int base = edgeOffsets[c];
+            remaps.add(pool.submit(new RecursiveAction() {
+                @Override
+                protected void compute() {
+                    for (int i = 0; i < edges.size(); i++) {
+                        sources[base + i] = mapping[edges.source(i)];
+                        destinations[base + i] = mapping[edges.destination(i)];
+                        times[base + i] = edges.time(i);
+                    }
+                }
+            }));
+        }
+        remaps.forEach(ForkJoinTask::join);
+        return new CsvEdgeParser(names, new EdgeBuffer(sources, destinations, times, edgeCount), stats);
+    }
+
+    private static int readFully(InputStream in, byte[] buffer, int offset, int length) throws IOException {
+        int total = 0;
+        while (total < length) {
+            int read = in.read(buffer, offset + total, length - total);
+            if (read == -1) {
+                break;
+            }
+            total += read;
+        }
+        return total;
+    }
+
+    private static int lastNewline(ByteBuffer bytes, int to) {
+        for (int i = to - 1; i >= 0; i--) {
+            if (bytes.get(i) == '\n') {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private static int nextLineStart(ByteBuffer bytes, int from, int to) {
+        for (int i = from; i < to; i++) {
+            if (bytes.get(i) == '\n') {
+                return i + 1;
+            }
+        }
+        return to;
+    }
+
+    private static int lastNewline(byte[] bytes, int to) {
+        for (int i = to - 1; i >= 0; i--) {
+            if (bytes[i] == '\n') {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Procesa un bloque de líneas completas, ya sea en memoria o como porción de un
+     * archivo mapeado. Suelta el buffer al terminar para que solo el resultado quede
+     * retenido hasta la combinación.
+     */
+    private static final class ChunkTask extends RecursiveTask<CsvEdgeParser> {
+
+        private byte[] bytes;
+        private ByteBuffer mapped;
+        private final int length;
+
+        ChunkTask(byte[] bytes, int length) {
+            this.bytes = bytes;
+            this.length = length;
+        }
+
+        ChunkTask(ByteBuffer mapped) {
+            this.mapped = mapped;
+            this.length = mapped.remaining();
+        }
+
+        @Override
+        protected CsvEdgeParser compute() {
+            if (bytes == null) {
+                bytes = new byte[length];
+                mapped.get(0, bytes);
+            }
+            CsvEdgeParser parser = new CsvEdgeParser(new NameTable(), new EdgeBuffer(length / 16));
+            parser.parseLines(bytes, 0, length);
+            bytes = null;
+            mapped = null;
+            return parser;
+        }
+    }
+}
@@ -0,0 +1,86 @@
+package cl.cesar.ApiRoute.loader;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Contadores de una lectura de CSV: filas válidas, filas descartadas, una muestra
+ * acotada de las líneas descartadas para diagnóstico y las aristas repetidas colapsadas.
+ */
+public final class ParseStats {
+
+    /** Máximo de líneas inválidas que se conservan como muestra. */
+    public static final int MAX_SAMPLES = 10;
+
+    private static final int MAX_SAMPLE_LENGTH = 200;
+
+    private long validRows;
+    private long invalidRows;
+    private long bytes;
+    private long collapsedEdges;
+    private final List<String> invalidSamples = new ArrayList<>();
+
+    void addValidRow() {
+        validRows++;
+    }
+
+    void addInvalidRow(String line) {
+        invalidRows++;
+        if (invalidSamples.size() < MAX_SAMPLES) {
+            invalidSamples.add(line.length() > MAX_SAMPLE_LENGTH ? line.substring(0, MAX_SAMPLE_LENGTH) + "..." : line);
+        }
+    }
+
+    void addBytes(long count) {
+        bytes += count;
+    }
+
+    void addCollapsedEdges(long count) {
+        collapsedEdges += count;
+    }
+
+    /**
+     * Suma los contadores de otra lectura, conservando las muestras en orden.
+     * @param other Estadísticas a acumular.
+     */
+    public void merge(ParseStats other) {
+        validRows += other.validRows;
+        invalidRows += other.invalidRows;
+        bytes += other.bytes;
+        collapsedEdges += other.collapsedEdges;
+        for (String sample : other.invalidSamples) {
+            if (invalidSamples.size() == MAX_SAMPLES) {
+                break;
+            }
+            invalidSamples.add(sample);
+        }
+    }
+
+    public long getValidRows() {
+        return validRows;
+    }
+
+    public long getInvalidRows() {
+        return invalidRows;
+    }
+
+    public long getBytes() {
+        return bytes;
+    }
+
+    /** Aristas repetidas eliminadas al construir el grafo. */
+    public long getCollapsedEdges() {
+        return collapsedEdges;
+    }
+
+    public List<String> getInvalidSamples() {
+        return Collections.unmodifiableList(invalidSamples);
+    }
+
+    @Override
+    public String toString() {
+        return "ParseStats{validRows=" + validRows + ", invalidRows=" + invalidRows + ", bytes=" + bytes
+                + ", collapsedEdges=" + collapsedEdges + '}';
+    }
+}
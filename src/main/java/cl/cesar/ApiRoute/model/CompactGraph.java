@@ -0,0 +1,560 @@
+package cl.cesar.ApiRoute.model;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Representación inmutable del grafo en formato CSR (compressed sparse row).
+ * Cada ubicación tiene un id entero denso; las aristas salientes del nodo {@code u}
+ * ocupan el rango {@code [edgeStart(u), edgeEnd(u))} de los arreglos de destinos y pesos.
+ *
+ * Los pesos se guardan en un {@code char[]} (16 bits sin signo) cuando todos caben en
+ * ese rango, que es el caso habitual de los CSV de tiempos de viaje; en caso contrario
+ * se usa un {@code int[]}.
+ *
+ * Las actualizaciones incrementales no modifican los arreglos: {@link #withReplacedEdges}
+ * crea una versión nueva que los comparte y agrega una capa con las aristas de los nodos
+ * modificados. Las aristas de esa capa usan índices a partir de las del CSR base, por
+ * lo que los recorridos por {@code edgeStart}/{@code edgeEnd} funcionan igual en ambos casos.
+ * {@link #compact()} vuelve a reunir todo en arreglos CSR contiguos.
+ *
+ * Los arreglos CSR y los nombres pueden vivir fuera del heap ({@link #toOffHeap()} y
+ * {@link #map}); en ese caso los campos de arreglos quedan en null, los métodos de acceso
+ * delegan en los segmentos y el grafo se puede leer mientras su {@link #memory()} esté abierta.
+ */
+public final class CompactGraph {
+
+    /** Grafo vacío, usado antes de la primera carga. */
+    public static final CompactGraph EMPTY = new CompactGraph(new String[0], new int[1], new int[0], new int[0]);
+
+    private static final int MAX_NARROW_WEIGHT = Character.MAX_VALUE;
+
+    private final String[] names;
+    private final Map<String, Integer> ids;
+    private final int[] offsets;
+    private final int[] targets;
+    private final char[] narrowWeights;
+    private final int[] wideWeights;
+    private final int maxWeight;
+    // Aristas reemplazadas por actualizaciones incrementales; null en un grafo sin cambios
+    private final EdgeOverlay overlay;
+    // Arreglos CSR y nombres fuera del heap; null en un grafo en el heap
+    private final OffHeapGraph offHeap;
+
+    /**
+     * Construye el grafo a partir de arreglos CSR ya ordenados por nodo de origen.
+     * @param names Nombre de cada ubicación, indexado por id.
+     * @param offsets Arreglo de tamaño {@code names.length + 1} con el inicio de cada rango de aristas.
+     * @param targets Id de destino de cada arista.
+     * @param weights Tiempo de viaje de cada arista.
+     */
+    public CompactGraph(String[] names, int[] offsets, int[] targets, int[] weights) {
+        checkArrays(names, offsets, targets, weights.length);
+        this.names = names;
+        this.offsets = offsets;
+        this.targets = targets;
+        this.ids = indexNames(names);
+
+        int max = 0;
+        int min = 0;
+        for (int w : weights) {
+            max = Math.max(max, w);
+            min = Math.min(min, w);
+        }
+        this.maxWeight = max;
+        this.overlay = null;
+        this.offHeap = null;
+        if (min >= 0 && max <= MAX_NARROW_WEIGHT) {
+            this.narrowWeights = new char[weights.length];
+            for (int i = 0; i < weights.length; i++) {
+                narrowWeights[i] = (char) weights[i];
+            }
+            this.wideWeights = null;
+        } else {
+            this.narrowWeights = null;
+            this.wideWeights = weights;
+        }
+    }
+
+    /**
+     * Construye el grafo con pesos ya reducidos a 16 bits, sin copiarlos.
+     * @param names Nombre de cada ubicación, indexado por id.
+     * @param offsets Arreglo de tamaño {@code names.length + 1} con el inicio de cada rango de aristas.
+     * @param targets Id de destino de cada arista.
+     * @param weights Tiempo de viaje de cada arista.
+     */
+    public CompactGraph(String[] names, int[] offsets, int[] targets, char[] weights) {
+        checkArrays(names, offsets, targets, weights.length);
+        this.names = names;
+        this.offsets = offsets;
+        this.targets = targets;
+        this.ids = indexNames(names);
+        this.narrowWeights = weights;
+        this.wideWeights = null;
+        int max = 0;
+        for (char w : weights) {
+            max = Math.max(max, w);
+        }
+        this.maxWeight = max;
+        this.overlay = null;
+        this.offHeap = null;
+    }
+
+    /**
+     * Constructor interno para grafos derivados que comparten nombres e índice con otro grafo.
+     */
+    private CompactGraph(String[] names, Map<String, Integer> ids, int[] offsets, int[] targets,
+                         char[] narrowWeights, int[] wideWeights, int maxWeight, EdgeOverlay overlay) {
+        this.names = names;
+        this.ids = ids;
+        this.offsets = offsets;
+        this.targets = targets;
+        this.narrowWeights = narrowWeights;
+        this.wideWeights = wideWeights;
+        this.maxWeight = maxWeight;
+        this.overlay = overlay;
+        this.offHeap = null;
+    }
+
+    /**
+     * Constructor interno para grafos fuera del heap, con una capa de actualizaciones opcional.
+     */
+    private CompactGraph(OffHeapGraph offHeap, int maxWeight, EdgeOverlay overlay) {
+        this.names = null;
+        this.ids = null;
+        this.offsets = null;
+        this.targets = null;
+        this.narrowWeights = null;
+        this.wideWeights = null;
+        this.maxWeight = maxWeight;
+        this.overlay = overlay;
+        this.offHeap = offHeap;
+    }
+
+    private static void checkArrays(String[] names, int[] offsets, int[] targets, int weightCount) {
+        if (offsets.length != names.length + 1 || targets.length != weightCount
+                || offsets[0] != 0 || offsets[names.length] != targets.length) {
+            throw new IllegalArgumentException("Arreglos CSR inconsistentes");
+        }
+    }
+
+    private static Map<String, Integer> indexNames(String[] names) {
+        Map<String, Integer> ids = new HashMap<>(Math.max(16, (int) (names.length / 0.75f) + 1));
+        for (int i = 0; i < names.length; i++) {
+            ids.put(names[i], i);
+        }
+        return ids;
+    }
+
+    /**
+     * Construye el grafo a partir de una lista de aristas en cualquier orden.
+     * Las aristas de cada nodo conservan el orden relativo en que aparecen en la lista.
+     * @param names Nombre de cada ubicación, indexado por id.
+     * @param edgeCount Número de aristas válidas en los arreglos.
+     * @param sources Id de origen de cada arista.
+     * @param destinations Id de destino de cada arista.
+     * @param times Tiempo de viaje de cada arista.
+     * @return El grafo compacto equivalente.
+     */
+    public static CompactGraph fromEdges(String[] names, int edgeCount, int[] sources, int[] destinations, int[] times) {
+        int nodeCount = names.length;
+        int[] offsets = new int[nodeCount + 1];
+        for (int i = 0; i < edgeCount; i++) {
+            offsets[sources[i] + 1]++;
+        }
+        for (int u = 0; u < nodeCount; u++) {
+            offsets[u + 1] += offsets[u];
+        }
+
+        // Ordenamiento por conteo estable: respeta el orden de aparición dentro de cada nodo
+        int[] cursor = Arrays.copyOf(offsets, nodeCount);
+        int[] targets = new int[edgeCount];
+        int[] weights = new int[edgeCount];
+        for (int i = 0; i < edgeCount; i++) {
+            int slot = cursor[sources[i]]++;
+            targets[slot] = destinations[i];
+            weights[slot] = times[i];
+        }
+        return new CompactGraph(names, offsets, targets, weights);
+    }
+
+    /**
+     * Construye el grafo transpuesto (todas las aristas invertidas), usado por las búsquedas
+     * hacia atrás. Comparte los nombres y el índice de nombres con este grafo; fuera del heap,
+     * también su memoria.
+     * Las aristas entrantes de cada nodo quedan en el orden de las aristas originales.
+     * @return Un grafo donde la arista {@code u -> v} de este grafo aparece como {@code v -> u}.
+     */
+    public CompactGraph transpose() {
+        if (offHeap != null) {
+            OffHeapGraph reverse = OffHeapGraph.transposeOf(this);
+            return new CompactGraph(reverse, reverse.maxWeight(), null);
+        }
+        int nodeCount = nodeCount();
+        int edgeCount = edgeCount();
+        int[] reverseOffsets = new int[nodeCount + 1];
+        for (int u = 0; u < nodeCount; u++) {
+            for (int edge = edgeStart(u), end = edgeEnd(u); edge < end; edge++) {
+                reverseOffsets[target(edge) + 1]++;
+            }
+        }
+        for (int u = 0; u < nodeCount; u++) {
+            reverseOffsets[u + 1] += reverseOffsets[u];
+        }
+        int[] cursor = Arrays.copyOf(reverseOffsets, nodeCount);
+        int[] reverseTargets = new int[edgeCount];
+        boolean narrow = narrowWeights != null && maxWeight <= MAX_NARROW_WEIGHT;
+        char[] reverseNarrow = narrow ? new char[edgeCount] : null;
+        int[] reverseWide = narrow ? null : new int[edgeCount];
+        for (int u = 0; u < nodeCount; u++) {
+            for (int edge = edgeStart(u), end = edgeEnd(u); edge < end; edge++) {
+                int slot = cursor[target(edge)]++;
+                reverseTargets[slot] = u;
+                if (narrow) {
+                    reverseNarrow[slot] = (char) weight(edge);
+                } else {
+                    reverseWide[slot] = weight(edge);
+                }
+            }
+        }
+        return new CompactGraph(names, ids, reverseOffsets, reverseTargets, reverseNarrow, reverseWide, maxWeight, null);
+    }
+
+    /**
+     * Crea una versión del grafo en la que las aristas salientes de algunos nodos se reemplazan
+     * por listas nuevas. No copia los arreglos de este grafo: la versión nueva los comparte y
+     * guarda aparte las aristas de los nodos modificados, junto con las de modificaciones
+     * anteriores que no se vuelven a reemplazar. El costo depende de las aristas modificadas
+     * acumuladas, no del tamaño del grafo.
+     * @param nodes Nodos cuyas aristas se reemplazan, sin repetir.
+     * @param nodeTargets Destinos de las aristas nuevas de cada nodo.
+     * @param nodeWeights Tiempos de viaje de las aristas nuevas de cada nodo, no negativos.
+     * @return El grafo con las aristas reemplazadas.
+     */
+    public CompactGraph withReplacedEdges(int[] nodes, int[][] nodeTargets, int[][] nodeWeights) {
+        int nodeCount = nodeCount();
+        if (nodeTargets.length != nodes.length || nodeWeights.length != nodes.length) {
+            throw new IllegalArgumentException("Listas de aristas inconsistentes");
+        }
+        Set<Integer> replaced = new HashSet<>();
+        for (int i = 0; i < nodes.length; i++) {
+            int node = nodes[i];
+            if (node < 0 || node >= nodeCount || !replaced.add(node) || nodeTargets[i].length != nodeWeights[i].length) {
+                throw new IllegalArgumentException("Nodo repetido, fuera de rango o con aristas inconsistentes: " + node);
+            }
+            for (int k = 0; k < nodeTargets[i].length; k++) {
+                if (nodeTargets[i][k] < 0 || nodeTargets[i][k] >= nodeCount || nodeWeights[i][k] < 0) {
+                    throw new IllegalArgumentException("Arista inválida desde el nodo " + node);
+                }
+            }
+        }
+
+        // Se conservan las modificaciones anteriores de los nodos que no se vuelven a reemplazar
+        int[] previous = overlay != null ? overlay.nodes() : new int[0];
+        int kept = 0;
+        for (int node : previous) {
+            if (!replaced.contains(node)) {
+                kept++;
+            }
+        }
+        int[] allNodes = new int[kept + nodes.length];
+        int[][] allTargets = new int[allNodes.length][];
+        int[][] allWeights = new int[allNodes.length][];
+        int size = 0;
+        for (int node : previous) {
+            if (!replaced.contains(node)) {
+                allNodes[size] = node;
+                allTargets[size] = overlay.targetsOf(node);
+                allWeights[size++] = overlay.weightsOf(node);
+            }
+        }
+        System.arraycopy(nodes, 0, allNodes, size, nodes.length);
+        System.arraycopy(nodeTargets, 0, allTargets, size, nodes.length);
+        System.arraycopy(nodeWeights, 0, allWeights, size, nodes.length);
+
+        EdgeOverlay next = new EdgeOverlay(nodeCount, allNodes, allTargets, allWeights);
+        // Cota superior: puede incluir el peso de aristas ya reemplazadas
+        int max = Math.max(maxWeight, next.maxWeight());
+        if (offHeap != null) {
+            return new CompactGraph(offHeap, max, next);
+        }
+        return new CompactGraph(names, ids, offsets, targets, narrowWeights, wideWeights, max, next);
+    }
+
+    /**
+     * Renumera los nodos para cambiar su ubicación en memoria: el nodo {@code u} pasa a tener
+     * el id {@code newId[u]}. Cada nombre se mueve con su nodo, de modo que {@link #idOf} y
+     * {@link #nameOf} siguen describiendo la misma ubicación y las rutas por nombre no cambian.
+     * Las aristas de cada nodo conservan su orden. El resultado no tiene capa de actualizaciones
+     * y queda en el heap aunque este grafo no lo esté.
+     * @param newId Permutación de {@code [0, nodeCount())}: el id nuevo de cada nodo.
+     * @return El grafo renumerado.
+     * @throws IllegalArgumentException Si {@code newId} no es una permutación de los ids.
+     */
+    public CompactGraph renumber(int[] newId) {
+        int nodeCount = nodeCount();
+        if (newId.length != nodeCount) {
+            throw new IllegalArgumentException("La permutación debe tener " + nodeCount + " ids: " + newId.length);
+        }
+        int[] oldId = new int[nodeCount];
+        Arrays.fill(oldId, -1);
+        for (int u = 0; u < nodeCount; u++) {
+            int id = newId[u];
+            if (id < 0 || id >= nodeCount || oldId[id] >= 0) {
+                throw new IllegalArgumentException("Permutación inválida en el nodo " + u + ": " + id);
+            }
+            oldId[id] = u;
+        }
+        String[] renamed = new String[nodeCount];
+        int[] renumberedOffsets = new int[nodeCount + 1];
+        int[] renumberedTargets = new int[edgeCount()];
+        int[] weights = new int[renumberedTargets.length];
+        int size = 0;
+        int max = 0;
+        for (int v = 0; v < nodeCount; v++) {
+            int u = oldId[v];
+            renamed[v] = nameOf(u);
+            for (int edge = edgeStart(u), end = edgeEnd(u); edge < end; edge++) {
+                renumberedTargets[size] = newId[target(edge)];
+                weights[size] = weight(edge);
+                max = Math.max(max, weights[size++]);
+            }
+            renumberedOffsets[v + 1] = size;
+        }
+        boolean narrow = hasNarrowWeights() && max <= MAX_NARROW_WEIGHT;
+        char[] renumberedNarrow = null;
+        if (narrow) {
+            renumberedNarrow = new char[size];
+            for (int i = 0; i < size; i++) {
+                renumberedNarrow[i] = (char) weights[i];
+            }
+        }
+        return new CompactGraph(renamed, indexNames(renamed), renumberedOffsets, renumberedTargets, renumberedNarrow,
+                narrow ? null : weights, max, null);
+    }
+
+    /**
+     * Reúne las aristas de la capa de actualizaciones y las del grafo base en arreglos CSR
+     * contiguos, sin capa. Conserva los ids y el orden de las aristas de cada nodo. Fuera del
+     * heap, el resultado ocupa una memoria nueva, como {@link #toOffHeap()}.
+     * @return Un grafo equivalente sin capa de actualizaciones, o este mismo si no la tiene.
+     */
+    public CompactGraph compact() {
+        if (overlay == null) {
+            return this;
+        }
+        if (offHeap != null) {
+            return toOffHeap();
+        }
+        int nodeCount = nodeCount();
+        int edgeCount = edgeCount();
+        int[] compactOffsets = new int[nodeCount + 1];
+        int[] compactTargets = new int[edgeCount];
+        int[] weights = new int[edgeCount];
+        int size = 0;
+        int max = 0;
+        for (int u = 0; u < nodeCount; u++) {
+            for (int edge = edgeStart(u), end = edgeEnd(u); edge < end; edge++) {
+                compactTargets[size] = target(edge);
+                weights[size] = weight(edge);
+                max = Math.max(max, weights[size++]);
+            }
+            compactOffsets[u + 1] = size;
+        }
+        boolean narrow = narrowWeights != null && max <= MAX_NARROW_WEIGHT;
+        char[] compactNarrow = null;
+        if (narrow) {
+            compactNarrow = new char[edgeCount];
+            for (int i = 0; i < edgeCount; i++) {
+                compactNarrow[i] = (char) weights[i];
+            }
+        }
+        return new CompactGraph(names, ids, compactOffsets, compactTargets, compactNarrow, narrow ? null : weights, max, null);
+    }
+
+    /**
+     * Copia el grafo, con su capa de actualizaciones ya aplicada, a una {@link GraphMemory}
+     * nueva fuera del heap. Los ids, los nombres y el orden de las aristas no cambian.
+     * Quien llama recibe la primera referencia de la memoria y debe soltarla con
+     * {@link GraphMemory#release()} cuando el grafo deja de usarse.
+     * @return El grafo equivalente fuera del heap.
+     * @throws IllegalArgumentException Si los nombres ocupan más de {@code Integer.MAX_VALUE} bytes.
+     */
+    public CompactGraph toOffHeap() {
+        OffHeapGraph copy = OffHeapGraph.copyOf(this);
+        return new CompactGraph(copy, copy.maxWeight(), null);
+    }
+
+    /**
+     * Mapea las secciones de un archivo en una {@link GraphMemory} nueva, sin copiarlas. Las
+     * secciones tienen el formato little-endian del snapshot binario: {@code nodeCount + 1}
+     * offsets y {@code edgeCount} destinos de 32 bits, pesos de 16 o 32 bits, {@code nodeCount + 1}
+     * inicios de nombre de 32 bits y los bytes UTF-8 de los nombres. Quien llama recibe la
+     * primera referencia de la memoria.
+     * @param channel Canal abierto sobre el archivo; puede cerrarse después.
+     * @param weightBytes Bytes por peso: 2 o 4.
+     * @return El grafo mapeado.
+     * @throws IOException Si el archivo no se puede mapear.
+     * @throws IllegalArgumentException Si las secciones son inconsistentes.
+     */
+    public static CompactGraph map(FileChannel channel, int nodeCount, int edgeCount, int weightBytes,
+                                   long offsetsPosition, long targetsPosition, long weightsPosition,
+                                   long nameOffsetsPosition, long namesPosition, long nameBytes) throws IOException {
+        OffHeapGraph mapped = OffHeapGraph.map(channel, nodeCount, edgeCount, weightBytes, offsetsPosition,
+                targetsPosition, weightsPosition, nameOffsetsPosition, namesPosition, nameBytes);
+        return new CompactGraph(mapped, mapped.maxWeight(), null);
+    }
+
+    /** Indica si los arreglos del grafo viven fuera del heap. */
+    public boolean isOffHeap() {
+        return offHeap != null;
+    }
+
+    /** Memoria fuera del heap del grafo, compartida con su transpuesto; null si vive en el heap. */
+    public GraphMemory memory() {
+        return offHeap != null ? offHeap.memory() : null;
+    }
+
+    OffHeapGraph offHeap() {
+        return offHeap;
+    }
+
+    public int nodeCount() {
+        return offHeap != null ? offHeap.nodeCount() : names.length;
+    }
+
+    /** Aristas del CSR base: las de la capa usan índices a partir de este valor. */
+    private int baseEdgeCount() {
+        return offHeap != null ? offHeap.edgeCount() : targets.length;
+    }
+
+    public int edgeCount() {
+        if (overlay == null) {
+            return baseEdgeCount();
+        }
+        int hidden = 0;
+        for (int node : overlay.nodes()) {
+            hidden += offHeap != null ? offHeap.edgeEnd(node) - offHeap.edgeStart(node) : offsets[node + 1] - offsets[node];
+        }
+        return baseEdgeCount() - hidden + overlay.edgeCount();
+    }
+
+    /** Aristas guardadas en la capa de actualizaciones incrementales (0 si no tiene). */
+    public int overlayEdgeCount() {
+        return overlay == null ? 0 : overlay.edgeCount();
+    }
+
+    /** Nodos cuyas aristas reemplazó alguna actualización incremental. */
+    public int overlayNodeCount() {
+        return overlay == null ? 0 : overlay.nodeCount();
+    }
+
+    /**
+     * Indica si este grafo y otro leen el mismo CSR base, como una versión creada con
+     * {@link #withReplacedEdges} y el grafo del que salió.
+     */
+    public boolean sharesEdgeArraysWith(CompactGraph other) {
+        if (offHeap != null || other.offHeap != null) {
+            return offHeap == other.offHeap;
+        }
+        return offsets == other.offsets && targets == other.targets
+                && narrowWeights == other.narrowWeights && wideWeights == other.wideWeights;
+    }
+
+    /**
+     * Obtiene el id denso de una ubicación.
+     * @param name El nombre de la ubicación.
+     * @return El id, o -1 si la ubicación no existe.
+     */
+    public int idOf(String name) {
+        if (offHeap != null) {
+            return offHeap.idOf(name);
+        }
+        Integer id = ids.get(name);
+        return id == null ? -1 : id;
+    }
+
+    /** Nombre de una ubicación; fuera del heap se decodifica en cada llamada. */
+    public String nameOf(int id) {
+        return offHeap != null ? offHeap.nameOf(id) : names[id];
+    }
+
+    /** Primer índice de arista saliente del nodo. */
+    public int edgeStart(int node) {
+        if (overlay != null && overlay.isPatched(node)) {
+            return baseEdgeCount() + overlay.start(node);
+        }
+        return offHeap != null ? offHeap.edgeStart(node) : offsets[node];
+    }
+
+    /** Índice siguiente a la última arista saliente del nodo. */
+    public int edgeEnd(int node) {
+        if (overlay != null && overlay.isPatched(node)) {
+            return baseEdgeCount() + overlay.end(node);
+        }
+        return offHeap != null ? offHeap.edgeEnd(node) : offsets[node + 1];
+    }
+
+    public int target(int edge) {
+        if (offHeap != null) {
+            return edge < offHeap.edgeCount() ? offHeap.target(edge) : overlay.target(edge - offHeap.edgeCount());
+        }
+        return edge < targets.length ? targets[edge] : overlay.target(edge - targets.length);
+    }
+
+    public int weight(int edge) {
+        if (offHeap != null) {
+            return edge < offHeap.edgeCount() ? offHeap.weight(edge) : overlay.weight(edge - offHeap.edgeCount());
+        }
+        if (edge >= targets.length) {
+            return overlay.weight(edge - targets.length);
+        }
+        return narrowWeights != null ? narrowWeights[edge] : wideWeights[edge];
+    }
+
+    /** Indica si los pesos del grafo base se guardan en 16 bits. */
+    public boolean hasNarrowWeights() {
+        return offHeap != null ? offHeap.isNarrow() : narrowWeights != null;
+    }
+
+    /**
+     * Mayor tiempo de viaje presente en el grafo (0 si no hay aristas). Con actualizaciones
+     * incrementales es una cota superior, que puede incluir aristas ya reemplazadas.
+     */
+    public int maxWeight() {
+        return maxWeight;
+    }
+
+    /**
+     * Estimación del tamaño en heap de los arreglos y del índice de nombres.
+     * Considera cabeceras de objeto de 16 bytes y referencias comprimidas de 4 bytes.
+     * Fuera del heap solo cuenta la capa de actualizaciones; los segmentos están en {@link #memory()}.
+     * @return Bytes aproximados ocupados por el grafo.
+     */
+    public long estimatedBytes() {
+        if (offHeap != null) {
+            return 64L + (overlay != null ? overlay.estimatedBytes() : 0);
+        }
+        long bytes = 16L + 4L * offsets.length + 16L + 4L * targets.length;
+        bytes += narrowWeights != null ? 16L + 2L * narrowWeights.length : 16L + 4L * wideWeights.length;
+        bytes += 16L + 4L * names.length;
+        bytes += overlay != null ? overlay.estimatedBytes() : 0;
+        // HashMap: tabla + un nodo (32 bytes) y un Integer (16 bytes) por entrada
+        bytes += 16L + 4L * Integer.highestOneBit(Math.max(1, names.length) * 2) + 48L * names.length;
+        for (String name : names) {
+            bytes += 24L + 16L + name.length();
+        }
+        return bytes;
+    }
+
+    @Override
+    public String toString() {
+        return "CompactGraph{nodes=" + nodeCount() + ", edges=" + edgeCount() + ", maxWeight=" + maxWeight
+                + (overlay != null ? ", overlayEdges=" + overlay.edgeCount() : "") + (offHeap != null ? ", offHeap" : "") + '}';
+    }
+}
@@ -0,0 +1,133 @@
+package cl.cesar.ApiRoute.model;
+
+import java.util.Arrays;
+
+/**
+ * Aristas salientes de los nodos modificados por actualizaciones incrementales, superpuestas
+ * a los arreglos CSR de un {@link CompactGraph} sin copiarlos.
+ *
+ * Cada nodo modificado tiene su lista completa de aristas en los arreglos propios de esta
+ * capa; sus aristas originales quedan ocultas. Un bit por nodo responde en O(1) si un nodo
+ * está modificado, de modo que los nodos sin cambios, que son casi todos, no consultan la
+ * tabla hash que ubica el rango de cada nodo modificado.
+ */
+final class EdgeOverlay {
+
+    private final long[] patched;
+    private final int[] nodes;
+    // Tabla con direccionamiento abierto: nodo + 1 en keys (0 = libre) y su rango en starts/ends
+    private final int[] keys;
+    private final int[] starts;
+    private final int[] ends;
+    private final int mask;
+    private final int shift;
+    private final int[] targets;
+    private final int[] weights;
+    private final int maxWeight;
+
+    /**
+     * @param nodeCount Cantidad de nodos del grafo.
+     * @param nodes Nodos modificados, sin repetir.
+     * @param nodeTargets Destinos de las aristas de cada nodo modificado.
+     * @param nodeWeights Tiempos de las aristas de cada nodo modificado.
+     */
+    EdgeOverlay(int nodeCount, int[] nodes, int[][] nodeTargets, int[][] nodeWeights) {
+        this.patched = new long[(nodeCount + 63) >>> 6];
+        this.nodes = nodes;
+        int capacity = Integer.highestOneBit(Math.max(2, nodes.length) * 2 - 1) << 1;
+        this.keys = new int[capacity];
+        this.starts = new int[capacity];
+        this.ends = new int[capacity];
+        this.mask = capacity - 1;
+        this.shift = 32 - Integer.numberOfTrailingZeros(capacity);
+
+        int edgeCount = 0;
+        for (int[] list : nodeTargets) {
+            edgeCount += list.length;
+        }
+        this.targets = new int[edgeCount];
+        this.weights = new int[edgeCount];
+        int size = 0;
+        int max = 0;
+        for (int i = 0; i < nodes.length; i++) {
+            int node = nodes[i];
+            patched[node >>> 6] |= 1L << node;
+            int slot = probe(node);
+            keys[slot] = node + 1;
+            starts[slot] = size;
+            System.arraycopy(nodeTargets[i], 0, targets, size, nodeTargets[i].length);
+            System.arraycopy(nodeWeights[i], 0, weights, size, nodeWeights[i].length);
+            for (int w : nodeWeights[i]) {
+                max = Math.max(max, w);
+            }
+            size += nodeTargets[i].length;
+            ends[slot] = size;
+        }
+        this.maxWeight = max;
+    }
+
+    /** Posición del nodo en la tabla, o la posición libre donde corresponde insertarlo. */
+    private int probe(int node) {
+        int slot = (node * 0x9E3779B9) >>> shift; // Hash multiplicativo, tomando los bits altos
+        while (keys[slot] != 0 && keys[slot] != node + 1) {
+            slot = (slot + 1) & mask;
+        }
+        return slot;
+    }
+
+    boolean isPatched(int node) {
+        return (patched[node >>> 6] & 1L << node) != 0;
+    }
+
+    /** Inicio de las aristas de un nodo modificado, relativo a los arreglos de esta capa. */
+    int start(int node) {
+        return starts[probe(node)];
+    }
+
+    /** Fin de las aristas de un nodo modificado, relativo a los arreglos de esta capa. */
+    int end(int node) {
+        return ends[probe(node)];
+    }
+
+    int target(int edge) {
+        return targets[edge];
+    }
+
+    int weight(int edge) {
+        return weights[edge];
+    }
+
+    /** Nodos modificados, en el orden en que se agregaron a la capa. */
+    int[] nodes() {
+        return nodes;
+    }
+
+    int nodeCount() {
+        return nodes.length;
+    }
+
+    int edgeCount() {
+        return targets.length;
+    }
+
+    int maxWeight() {
+        return maxWeight;
+    }
+
+    /** Destinos de las aristas de un nodo modificado. */
+    int[] targetsOf(int node) {
+        int slot = probe(node);
+        return Arrays.copyOfRange(targets, starts[slot], ends[slot]);
+    }
+
+    /** Tiempos de las aristas de un nodo modificado. */
+    int[] weightsOf(int node) {
+        int slot = probe(node);
+        return Arrays.copyOfRange(weights, starts[slot], ends[slot]);
+    }
+
+    long estimatedBytes() {
+        return 16L + 8L * patched.length + 16L + 4L * nodes.length + 3 * (16L + 4L * keys.length)
+                + 2 * (16L + 4L * targets.length);
+    }
+}
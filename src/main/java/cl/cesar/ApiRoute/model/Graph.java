@@ -1,19 +1,21 @@
 package cl.cesar.ApiRoute.model;
 
-import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
 
 /**
  * Representa el grafo de ubicaciones y conexiones.
  * Utiliza un mapa para almacenar las ubicaciones de forma eficiente.
+ * Funciona como constructor mutable: una vez cargado se congela en un {@link CompactGraph}.
  */
 public class Graph {
 
     private Map<String, Location> locations;
 
     public Graph() {
-        this.locations = new HashMap<>();
+        this.locations = new LinkedHashMap<>();
     }
 
     /**
@@ -62,6 +64,57 @@ public class Graph {
         this.locations.clear();
     }
 
+    /**
+     * Congela el grafo en su representación CSR compacta.
+     * Los ids se asignan en el orden en que cada ubicación apareció por primera vez,
+     * y las aristas de cada ubicación conservan su orden de inserción.
+     * @return Un {@link CompactGraph} inmutable con el mismo contenido.
+     */
+    public CompactGraph freeze() {
+        int nodeCount = locations.size();
+        String[] names = new String[nodeCount];
+        Map<Location, Integer> ids = new LinkedHashMap<>(nodeCount * 2);
+        int edgeCount = 0;
+        for (Location location : locations.values()) {
+            names[ids.size()] = location.getName();
+            ids.put(location, ids.size());
+            edgeCount += location.getConnections().size();
+        }
+
+        int[] offsets = new int[nodeCount + 1];
+        int[] targets = new int[edgeCount];
+        int[] weights = new int[edgeCount];
+        int edge = 0;
+        int node = 0;
+        for (Location location : locations.values()) {
+            List<Connection> connections = location.getConnections();
+            for (Connection connection : connections) {
+                targets[edge] = ids.get(connection.getDestination());
+                weights[edge] = connection.getTime();
+                edge++;
+            }
+            offsets[++node] = edge;
+        }
+        return new CompactGraph(names, offsets, targets, weights);
+    }
+
+    /**
+     * Estimación del tamaño en heap del grafo de objetos (mapa, ubicaciones, listas y conexiones).
+     * Usa los mismos supuestos que {@link CompactGraph#estimatedBytes()} para poder compararlos.
+     * @return Bytes aproximados ocupados por el grafo.
+     */
+    public long estimatedBytes() {
+        // LinkedHashMap: tabla + una entrada de 40 bytes por ubicación
+        long bytes = 56L + 4L * Integer.highestOneBit(Math.max(1, locations.size()) * 2) + 40L * locations.size();
+        for (Location location : locations.values()) {
+            int connections = location.getConnections().size();
+            // Location + String + ArrayList + arreglo interno (capacidad aproximada) + Connections
+            bytes += 24L + 24L + 16L + location.getName().length() + 24L
+                    + 16L + 4L * (connections + connections / 2) + 24L * connections;
+        }
+        return bytes;
+    }
+
     @Override
     public String toString() {
         StringBuilder sb = new StringBuilder();
@@ -0,0 +1,112 @@
+package cl.cesar.ApiRoute.model;
+
+import java.io.IOException;
+import java.lang.foreign.Arena;
+import java.lang.foreign.MemorySegment;
+import java.nio.channels.FileChannel;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Memoria fuera del heap de un grafo y de su transpuesto: un {@link Arena} compartido que
+ * contiene los segmentos reservados y, si el grafo viene de un snapshot, el archivo mapeado.
+ *
+ * El arena se cierra, y la memoria se libera o se desmapea, al soltar la última referencia,
+ * sin esperar al recolector de basura. Quien crea el grafo recibe la primera referencia; el
+ * servicio la suelta cuando publica una versión que ya no usa esta memoria, y cada consulta
+ * toma la suya con {@link #retain()} mientras lee el grafo. Así la versión anterior se libera
+ * apenas terminan las consultas que la estaban usando.
+ */
+public final class GraphMemory {
+
+    // Bytes de todas las memorias abiertas, incluidas las que esperan a sus últimas consultas
+    private static final AtomicLong OPEN_BYTES = new AtomicLong();
+    private static final AtomicInteger OPEN_COUNT = new AtomicInteger();
+
+    private final Arena arena = Arena.ofShared();
+    private final AtomicInteger references = new AtomicInteger(1);
+    private final AtomicLong bytes = new AtomicLong();
+    private volatile boolean mapped;
+
+    GraphMemory() {
+        OPEN_COUNT.incrementAndGet();
+    }
+
+    /** Reserva un segmento alineado a 8 bytes e inicializado en cero. */
+    MemorySegment allocate(long size) {
+        MemorySegment segment = arena.allocate(size, 8);
+        bytes.addAndGet(size);
+        OPEN_BYTES.addAndGet(size);
+        return segment;
+    }
+
+    /** Mapea un archivo completo, de solo lectura, hasta que se cierre esta memoria. */
+    MemorySegment map(FileChannel channel) throws IOException {
+        long size = channel.size();
+        MemorySegment segment = channel.map(FileChannel.MapMode.READ_ONLY, 0, size, arena);
+        mapped = true;
+        bytes.addAndGet(size);
+        OPEN_BYTES.addAndGet(size);
+        return segment;
+    }
+
+    /**
+     * Toma una referencia para leer el grafo.
+     * @return true si la memoria sigue abierta; false si ya se liberó y no debe leerse.
+     */
+    public boolean retain() {
+        int count;
+        do {
+            count = references.get();
+            if (count <= 0) {
+                return false;
+            }
+        } while (!references.compareAndSet(count, count + 1));
+        return true;
+    }
+
+    /**
+     * Suelta una referencia. La última cierra el arena: desde ese momento cualquier lectura
+     * del grafo falla con {@link IllegalStateException}.
+     */
+    public void release() {
+        int count = references.decrementAndGet();
+        if (count == 0) {
+            arena.close();
+            OPEN_BYTES.addAndGet(-bytes.get());
+            OPEN_COUNT.decrementAndGet();
+        } else if (count < 0) {
+            throw new IllegalStateException("La memoria del grafo ya se había liberado");
+        }
+    }
+
+    /** Indica si la memoria sigue abierta. */
+    public boolean isOpen() {
+        return references.get() > 0;
+    }
+
+    /** Indica si la memoria incluye un snapshot mapeado. */
+    public boolean isMapped() {
+        return mapped;
+    }
+
+    /** Bytes reservados o mapeados en esta memoria. */
+    public long byteSize() {
+        return bytes.get();
+    }
+
+    /** Bytes fuera del heap de todas las memorias de grafos aún abiertas en el proceso. */
+    public static long openBytes() {
+        return OPEN_BYTES.get();
+    }
+
+    /** Memorias de grafos aún abiertas: una por versión vigente o en uso por alguna consulta. */
+    public static int openCount() {
+        return OPEN_COUNT.get();
+    }
+
+    @Override
+    public String toString() {
+        return "GraphMemory{bytes=" + bytes.get() + ", mapped=" + mapped + ", references=" + references.get() + '}';
+    }
+}
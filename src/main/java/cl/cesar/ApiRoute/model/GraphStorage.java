@@ -0,0 +1,15 @@
+package cl.cesar.ApiRoute.model;
+
+/**
+ * Dónde vive el grafo publicado después de cada carga.
+ */
+public enum GraphStorage {
+    /** Arreglos del heap de Java, con nombres como {@code String}. */
+    HEAP,
+    /**
+     * Segmentos fuera del heap (API Foreign Function & Memory), reservados en un arena o
+     * mapeados desde el snapshot binario. El heap no crece con el tamaño del grafo y la
+     * memoria de una versión reemplazada se libera apenas terminan sus consultas.
+     */
+    OFF_HEAP
+}
@@ -0,0 +1,215 @@
+package cl.cesar.ApiRoute.model;
+
+import java.io.IOException;
+import java.lang.foreign.Arena;
+import java.lang.foreign.MemorySegment;
+import java.lang.foreign.ValueLayout;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+
+/**
+ * Arreglos CSR de un grafo en segmentos fuera del heap (API Foreign Function & Memory), con
+ * el mismo formato que las secciones del snapshot binario: offsets y destinos como enteros de
+ * 32 bits y pesos de 16 o 32 bits, todo little-endian. Por eso un snapshot puede mapearse y
+ * usarse sin copiarlo. Un grafo y su transpuesto comparten la tabla de nombres y la
+ * {@link GraphMemory} que los contiene.
+ *
+ * {@link CompactGraph} delega en esta clase cuando el grafo vive fuera del heap, de modo que
+ * las búsquedas recorren ambos de la misma forma.
+ */
+final class OffHeapGraph {
+
+    static final ValueLayout.OfInt INT = ValueLayout.JAVA_INT.withOrder(ByteOrder.LITTLE_ENDIAN);
+    static final ValueLayout.OfChar CHAR = ValueLayout.JAVA_CHAR.withOrder(ByteOrder.LITTLE_ENDIAN);
+
+    private final GraphMemory memory;
+    private final OffHeapNames names;
+    private final MemorySegment offsets;
+    private final MemorySegment targets;
+    private final MemorySegment weights;
+    private final boolean narrow;
+    private final int nodeCount;
+    private final int edgeCount;
+    private final int maxWeight;
+
+    private OffHeapGraph(GraphMemory memory, OffHeapNames names, MemorySegment offsets, MemorySegment targets,
+                         MemorySegment weights, boolean narrow, int maxWeight) {
+        this.memory = memory;
+        this.names = names;
+        this.offsets = offsets;
+        this.targets = targets;
+        this.weights = weights;
+        this.narrow = narrow;
+        this.nodeCount = (int) (offsets.byteSize() / 4) - 1;
+        this.edgeCount = (int) (targets.byteSize() / 4);
+        this.maxWeight = maxWeight;
+        if (nodeCount < 0 || offsets.getAtIndex(INT, 0) != 0 || offsets.getAtIndex(INT, nodeCount) != edgeCount
+                || weights.byteSize() != (narrow ? 2L : 4L) * edgeCount) {
+            throw new IllegalArgumentException("Arreglos CSR inconsistentes");
+        }
+    }
+
+    /**
+     * Copia un grafo, incluida su capa de actualizaciones, a una memoria nueva. Las aristas
+     * de cada nodo conservan su orden.
+     */
+    static OffHeapGraph copyOf(CompactGraph graph) {
+        GraphMemory memory = new GraphMemory();
+        try {
+            int nodeCount = graph.nodeCount();
+            int edgeCount = graph.edgeCount();
+            boolean narrow = graph.hasNarrowWeights() && graph.maxWeight() <= Character.MAX_VALUE;
+            MemorySegment offsets = memory.allocate(4L * (nodeCount + 1));
+            MemorySegment targets = memory.allocate(4L * edgeCount);
+            MemorySegment weights = memory.allocate((narrow ? 2L : 4L) * edgeCount);
+            int size = 0;
+            int max = 0;
+            for (int u = 0; u < nodeCount; u++) {
+                offsets.setAtIndex(INT, u, size);
+                for (int edge = graph.edgeStart(u), end = graph.edgeEnd(u); edge < end; edge++) {
+                    int weight = graph.weight(edge);
+                    targets.setAtIndex(INT, size, graph.target(edge));
+                    setWeight(weights, narrow, size++, weight);
+                    max = Math.max(max, weight);
+                }
+            }
+            offsets.setAtIndex(INT, nodeCount, size);
+            OffHeapGraph source = graph.offHeap();
+            OffHeapNames names = source != null ? source.names.copyTo(memory) : OffHeapNames.copyOf(graph, memory);
+            return new OffHeapGraph(memory, names, offsets, targets, weights, narrow, max);
+        } catch (RuntimeException | OutOfMemoryError e) {
+            memory.release();
+            throw e;
+        }
+    }
+
+    /**
+     * Construye el transpuesto de un grafo fuera del heap en su misma memoria, compartiendo
+     * la tabla de nombres. Las aristas entrantes de cada nodo quedan en el orden de las originales.
+     */
+    static OffHeapGraph transposeOf(CompactGraph graph) {
+        OffHeapGraph base = graph.offHeap();
+        int nodeCount = graph.nodeCount();
+        int edgeCount = graph.edgeCount();
+        boolean narrow = graph.hasNarrowWeights() && graph.maxWeight() <= Character.MAX_VALUE;
+        MemorySegment reverseOffsets = base.memory.allocate(4L * (nodeCount + 1));
+        MemorySegment reverseTargets = base.memory.allocate(4L * edgeCount);
+        MemorySegment reverseWeights = base.memory.allocate((narrow ? 2L : 4L) * edgeCount);
+        for (int u = 0; u < nodeCount; u++) {
+            for (int edge = graph.edgeStart(u), end = graph.edgeEnd(u); edge < end; edge++) {
+                long slot = graph.target(edge) + 1L;
+                reverseOffsets.setAtIndex(INT, slot, reverseOffsets.getAtIndex(INT, slot) + 1);
+            }
+        }
+        for (int u = 0; u < nodeCount; u++) {
+            reverseOffsets.setAtIndex(INT, u + 1, reverseOffsets.getAtIndex(INT, u + 1) + reverseOffsets.getAtIndex(INT, u));
+        }
+        int max = 0;
+        // El cursor de cada nodo solo se usa aquí: se reserva aparte y se libera al terminar
+        try (Arena scratch = Arena.ofConfined()) {
+            MemorySegment cursor = scratch.allocate(4L * nodeCount, 8);
+            cursor.copyFrom(reverseOffsets.asSlice(0, 4L * nodeCount));
+            for (int u = 0; u < nodeCount; u++) {
+                for (int edge = graph.edgeStart(u), end = graph.edgeEnd(u); edge < end; edge++) {
+                    int v = graph.target(edge);
+                    int slot = cursor.getAtIndex(INT, v);
+                    cursor.setAtIndex(INT, v, slot + 1);
+                    int weight = graph.weight(edge);
+                    reverseTargets.setAtIndex(INT, slot, u);
+                    setWeight(reverseWeights, narrow, slot, weight);
+                    max = Math.max(max, weight);
+                }
+            }
+        }
+        return new OffHeapGraph(base.memory, base.names, reverseOffsets, reverseTargets, reverseWeights, narrow, max);
+    }
+
+    /**
+     * Mapea un archivo con las secciones CSR y de nombres en el formato del snapshot binario.
+     * @param channel Canal abierto sobre el archivo; puede cerrarse después, el mapeo sigue vigente.
+     * @param weightBytes 2 o 4.
+     * @throws IOException Si el archivo no se puede mapear.
+     * @throws IllegalArgumentException Si las secciones son inconsistentes.
+     */
+    static OffHeapGraph map(FileChannel channel, int nodeCount, int edgeCount, int weightBytes,
+                            long offsetsPosition, long targetsPosition, long weightsPosition,
+                            long nameOffsetsPosition, long namesPosition, long nameBytes) throws IOException {
+        GraphMemory memory = new GraphMemory();
+        try {
+            MemorySegment file = memory.map(channel);
+            boolean narrow = weightBytes == 2;
+            MemorySegment weights = file.asSlice(weightsPosition, (long) weightBytes * edgeCount);
+            int max = 0;
+            for (long edge = 0; edge < edgeCount; edge++) {
+                max = Math.max(max, narrow ? weights.getAtIndex(CHAR, edge) : weights.getAtIndex(INT, edge));
+            }
+            OffHeapNames names = new OffHeapNames(memory, file.asSlice(nameOffsetsPosition, 4L * (nodeCount + 1)),
+                    file.asSlice(namesPosition, nameBytes), nodeCount);
+            return new OffHeapGraph(memory, names, file.asSlice(offsetsPosition, 4L * (nodeCount + 1)),
+                    file.asSlice(targetsPosition, 4L * edgeCount), weights, narrow, max);
+        } catch (RuntimeException | IOException e) {
+            memory.release();
+            throw e;
+        }
+    }
+
+    private static void setWeight(MemorySegment weights, boolean narrow, long index, int weight) {
+        if (narrow) {
+            weights.setAtIndex(CHAR, index, (char) weight);
+        } else {
+            weights.setAtIndex(INT, index, weight);
+        }
+    }
+
+    int edgeStart(int node) {
+        return offsets.getAtIndex(INT, node);
+    }
+
+    int edgeEnd(int node) {
+        return offsets.getAtIndex(INT, node + 1L);
+    }
+
+    int target(int edge) {
+        return targets.getAtIndex(INT, edge);
+    }
+
+    int weight(int edge) {
+        return narrow ? weights.getAtIndex(CHAR, edge) : weights.getAtIndex(INT, edge);
+    }
+
+    int idOf(String name) {
+        return names.idOf(name);
+    }
+
+    String nameOf(int id) {
+        if (id < 0 || id >= nodeCount) {
+            throw new ArrayIndexOutOfBoundsException(id);
+        }
+        return names.nameOf(id);
+    }
+
+    int nodeCount() {
+        return nodeCount;
+    }
+
+    int edgeCount() {
+        return edgeCount;
+    }
+
+    int maxWeight() {
+        return maxWeight;
+    }
+
+    boolean isNarrow() {
+        return narrow;
+    }
+
+    GraphMemory memory() {
+        return memory;
+    }
+
+    /** Bytes de los arreglos CSR de este sentido, sin la tabla de nombres compartida. */
+    long byteSize() {
+        return offsets.byteSize() + targets.byteSize() + weights.byteSize();
+    }
+}
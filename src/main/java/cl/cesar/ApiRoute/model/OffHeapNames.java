@@ -0,0 +1,149 @@
+package cl.cesar.ApiRoute.model;
+
+import java.lang.foreign.MemorySegment;
+import java.lang.foreign.ValueLayout;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Tabla de nombres de ubicación fuera del heap: los bytes UTF-8 de todos los nombres, el
+ * inicio de cada uno por id (como las secciones de nombres del snapshot binario) y una tabla
+ * hash de direccionamiento abierto que resuelve un nombre a su id comparando bytes.
+ *
+ * No guarda objetos {@code String}: {@link #nameOf} decodifica el nombre en cada llamada,
+ * lo que solo ocurre al armar una respuesta.
+ */
+final class OffHeapNames {
+
+    private static final int EMPTY = -1;
+
+    private final MemorySegment offsets;
+    private final MemorySegment bytes;
+    private final MemorySegment slots;
+    private final int mask;
+    private final int count;
+
+    /**
+     * @param memory Memoria donde se reserva la tabla hash.
+     * @param offsets {@code count + 1} enteros little-endian con el inicio de cada nombre.
+     * @param bytes Bytes UTF-8 de los nombres, uno tras otro.
+     * @param count Cantidad de nombres.
+     */
+    OffHeapNames(GraphMemory memory, MemorySegment offsets, MemorySegment bytes, int count) {
+        if (offsets.byteSize() != 4L * (count + 1) || offsets.getAtIndex(OffHeapGraph.INT, 0) != 0
+                || offsets.getAtIndex(OffHeapGraph.INT, count) != bytes.byteSize()) {
+            throw new IllegalArgumentException("Tabla de nombres inconsistente");
+        }
+        this.offsets = offsets;
+        this.bytes = bytes;
+        this.count = count;
+        int capacity = Integer.highestOneBit(Math.max(16, count * 2 - 1)) << 1;
+        this.slots = memory.allocate(4L * capacity);
+        this.mask = capacity - 1;
+        slots.fill((byte) 0xFF); // Todos los enteros en EMPTY
+        for (int id = 0; id < count; id++) {
+            int slot = hash(bytes, start(id), end(id)) & mask;
+            while (slots.getAtIndex(OffHeapGraph.INT, slot) != EMPTY) {
+                slot = (slot + 1) & mask;
+            }
+            slots.setAtIndex(OffHeapGraph.INT, slot, id);
+        }
+    }
+
+    private OffHeapNames(MemorySegment offsets, MemorySegment bytes, MemorySegment slots, int count) {
+        this.offsets = offsets;
+        this.bytes = bytes;
+        this.slots = slots;
+        this.mask = (int) (slots.byteSize() / 4) - 1;
+        this.count = count;
+    }
+
+    /**
+     * Codifica los nombres de un grafo en una memoria nueva.
+     * @throws IllegalArgumentException Si los nombres ocupan más de {@code Integer.MAX_VALUE} bytes.
+     */
+    static OffHeapNames copyOf(CompactGraph graph, GraphMemory memory) {
+        int count = graph.nodeCount();
+        long total = 0;
+        for (int id = 0; id < count; id++) {
+            total += graph.nameOf(id).getBytes(StandardCharsets.UTF_8).length;
+        }
+        if (total > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("La tabla de nombres excede " + Integer.MAX_VALUE + " bytes");
+        }
+        MemorySegment offsets = memory.allocate(4L * (count + 1));
+        MemorySegment bytes = memory.allocate(total);
+        int position = 0;
+        for (int id = 0; id < count; id++) {
+            byte[] name = graph.nameOf(id).getBytes(StandardCharsets.UTF_8);
+            offsets.setAtIndex(OffHeapGraph.INT, id, position);
+            MemorySegment.copy(name, 0, bytes, ValueLayout.JAVA_BYTE, position, name.length);
+            position += name.length;
+        }
+        offsets.setAtIndex(OffHeapGraph.INT, count, position);
+        return new OffHeapNames(memory, offsets, bytes, count);
+    }
+
+    /** Copia la tabla completa, incluida la tabla hash, a otra memoria. */
+    OffHeapNames copyTo(GraphMemory memory) {
+        return new OffHeapNames(copy(offsets, memory), copy(bytes, memory), copy(slots, memory), count);
+    }
+
+    private static MemorySegment copy(MemorySegment source, GraphMemory memory) {
+        MemorySegment target = memory.allocate(source.byteSize());
+        target.copyFrom(source);
+        return target;
+    }
+
+    /**
+     * @return El id del nombre, o -1 si no existe.
+     */
+    int idOf(String name) {
+        if (name == null) {
+            return -1;
+        }
+        byte[] key = name.getBytes(StandardCharsets.UTF_8);
+        MemorySegment keySegment = MemorySegment.ofArray(key);
+        int slot = hash(keySegment, 0, key.length) & mask;
+        while (true) {
+            int id = slots.getAtIndex(OffHeapGraph.INT, slot);
+            if (id == EMPTY) {
+                return -1;
+            }
+            long start = start(id);
+            long end = end(id);
+            if (end - start == key.length && MemorySegment.mismatch(bytes, start, end, keySegment, 0, key.length) == -1) {
+                return id;
+            }
+            slot = (slot + 1) & mask;
+        }
+    }
+
+    String nameOf(int id) {
+        return new String(bytes.asSlice(start(id), end(id) - start(id)).toArray(ValueLayout.JAVA_BYTE),
+                StandardCharsets.UTF_8);
+    }
+
+    private long start(int id) {
+        return offsets.getAtIndex(OffHeapGraph.INT, id);
+    }
+
+    private long end(int id) {
+        return offsets.getAtIndex(OffHeapGraph.INT, id + 1);
+    }
+
+    /** Hash de una porción de bytes, con la misma mezcla final que la tabla de nombres de la carga. */
+    private static int hash(MemorySegment segment, long from, long to) {
+        int h = 0;
+        for (long i = from; i < to; i++) {
+            h = 31 * h + segment.get(ValueLayout.JAVA_BYTE, i);
+        }
+        h ^= h >>> 16;
+        h *= 0x85ebca6b;
+        return h ^ (h >>> 13);
+    }
+
+    /** Bytes de los nombres, sus inicios y la tabla hash. */
+    long byteSize() {
+        return offsets.byteSize() + bytes.byteSize() + slots.byteSize();
+    }
+}
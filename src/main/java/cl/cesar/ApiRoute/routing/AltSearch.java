@@ -0,0 +1,103 @@
+package cl.cesar.ApiRoute.routing;
+
+import cl.cesar.ApiRoute.model.CompactGraph;
+
+/**
+ * Búsqueda A* punto a punto con cotas de landmarks (ALT).
+ *
+ * La cola se ordena por {@code tiempo + cota}, donde la cota es el máximo de las
+ * desigualdades triangulares de {@link Landmarks}. Esa cota es consistente, por lo que cada
+ * nodo se asienta una sola vez y la ruta es tan óptima como la de Dijkstra; solo cambia el
+ * orden de exploración, que se inclina hacia el destino. Los nodos desde los que las tablas
+ * prueban que no se llega al destino se descartan sin expandirlos.
+ */
+public final class AltSearch {
+
+    private AltSearch() {
+    }
+
+    /**
+     * Encuentra la ruta más rápida entre dos nodos.
+     * @param graph El grafo.
+     * @param landmarks Tablas de landmarks calculadas sobre {@code graph}.
+     * @param source Id del origen.
+     * @param target Id del destino.
+     * @return La ruta y su tiempo total, o un resultado no encontrado.
+     */
+    public static PathResult shortestPath(CompactGraph graph, Landmarks landmarks, int source, int target) {
+        return shortestPath(graph, landmarks, source, target, SearchBudget.UNLIMITED);
+    }
+
+    /**
+     * Encuentra la ruta más rápida entre dos nodos dentro de un presupuesto.
+     * @param graph El grafo.
+     * @param landmarks Tablas de landmarks calculadas sobre {@code graph}.
+     * @param source Id del origen.
+     * @param target Id del destino.
+     * @param budget Límites de la búsqueda.
+     * @return La ruta y su tiempo total, o un resultado no encontrado.
+     * @throws SearchAbortedException Si la búsqueda supera el presupuesto.
+     */
+    public static PathResult shortestPath(CompactGraph graph, Landmarks landmarks, int source, int target,
+                                          SearchBudget budget) {
+        // La cota de cada nodo se guarda como valor auxiliar la primera vez que se alcanza
+        SearchState state = SearchState.forward(graph.nodeCount());
+        // Cada entrada empaqueta ((tiempo + cota) << 32 | nodo)
+        LongHeap heap = state.heap();
+        int settled = 0;
+        int relaxed = 0;
+        int pushes = 1;
+
+        int sourceBound = landmarks.lowerBound(source, target);
+        if (sourceBound == Landmarks.UNREACHABLE) {
+            return PathResult.notFound(0, RouteAlgorithm.ALT);
+        }
+        int checkpoint = budget.start();
+        state.setAux(source, sourceBound);
+        state.update(source, 0, -1);
+        heap.add((long) sourceBound << 32 | source);
+
+        while (!heap.isEmpty()) {
+            long entry = heap.poll();
+            int current = (int) entry;
+            int currentTime = (int) (entry >>> 32) - state.aux(current);
+            if (currentTime > state.time(current)) {
+                continue; // Entrada obsoleta
+            }
+            settled++;
+            if (current == target) {
+                break;
+            }
+            if (settled == checkpoint) {
+                checkpoint = budget.checkpoint(settled);
+            }
+
+            int start = graph.edgeStart(current);
+            int end = graph.edgeEnd(current);
+            relaxed += end - start;
+            for (int edge = start; edge < end; edge++) {
+                int neighbor = graph.target(edge);
+                int newTime = currentTime + graph.weight(edge);
+                if (newTime >= state.time(neighbor)) {
+                    continue;
+                }
+                int bound = state.aux(neighbor);
+                if (bound < 0) {
+                    bound = landmarks.lowerBound(neighbor, target);
+                    state.setAux(neighbor, bound);
+                }
+                if (bound == Landmarks.UNREACHABLE) {
+                    continue; // Desde este vecino no se llega al destino
+                }
+                state.update(neighbor, newTime, current);
+                heap.add(((long) newTime + bound) << 32 | neighbor);
+                pushes++;
+            }
+        }
+
+        if (state.time(target) == SearchState.UNREACHED) {
+            return PathResult.notFound(settled, relaxed, pushes, RouteAlgorithm.ALT);
+        }
+        return new PathResult(state.pathTo(target), state.time(target), settled, relaxed, pushes, RouteAlgorithm.ALT);
+    }
+}
@@ -0,0 +1,15 @@
+package cl.cesar.ApiRoute.routing;
+
+/**
+ * Forma de calcular las rutas alternativas entre dos ubicaciones.
+ */
+public enum AlternativeMode {
+    /** Las K rutas sin ciclos más rápidas, en orden de tiempo (algoritmo de Yen). */
+    YEN,
+    /**
+     * Rutas que se separan de las ya encontradas: cada ruta encarece sus conexiones para la
+     * búsqueda siguiente. Las rutas comparten menos tramos que las de YEN, que suelen diferir
+     * en un solo desvío corto, pero no son necesariamente las K más rápidas.
+     */
+    PENALTY
+}
@@ -0,0 +1,61 @@
+package cl.cesar.ApiRoute.routing;
+
+import java.util.List;
+
+/**
+ * Resultado de una búsqueda de rutas alternativas en ids de nodo, antes de traducirlo a nombres.
+ * Las estadísticas suman el trabajo de todas las búsquedas que la componen.
+ */
+public final class AlternativeRoutes {
+
+    private final List<int[]> paths;
+    private final List<Integer> distances;
+    private final int settledNodes;
+    private final int relaxedEdges;
+    private final int queuePushes;
+    private final AlternativeMode mode;
+
+    public AlternativeRoutes(List<int[]> paths, List<Integer> distances, int settledNodes, int relaxedEdges,
+                             int queuePushes, AlternativeMode mode) {
+        this.paths = paths;
+        this.distances = distances;
+        this.settledNodes = settledNodes;
+        this.relaxedEdges = relaxedEdges;
+        this.queuePushes = queuePushes;
+        this.mode = mode;
+    }
+
+    /** Cantidad de rutas encontradas; 0 si no hay ruta. */
+    public int size() {
+        return paths.size();
+    }
+
+    /** Ids de la ruta {@code index} desde el origen hasta el destino. */
+    public int[] path(int index) {
+        return paths.get(index);
+    }
+
+    /** Tiempo total de la ruta {@code index}, sin penalizaciones. */
+    public int distance(int index) {
+        return distances.get(index);
+    }
+
+    /** Nodos asentados entre todas las búsquedas. */
+    public int getSettledNodes() {
+        return settledNodes;
+    }
+
+    /** Aristas revisadas entre todas las búsquedas. */
+    public int getRelaxedEdges() {
+        return relaxedEdges;
+    }
+
+    /** Entradas agregadas a las colas entre todas las búsquedas. */
+    public int getQueuePushes() {
+        return queuePushes;
+    }
+
+    public AlternativeMode getMode() {
+        return mode;
+    }
+}
@@ -0,0 +1,142 @@
+package cl.cesar.ApiRoute.routing;
+
+import cl.cesar.ApiRoute.model.CompactGraph;
+
+import java.util.Arrays;
+
+/**
+ * Dijkstra bidireccional punto a punto: una búsqueda hacia adelante desde el origen
+ * sobre el grafo y otra hacia atrás desde el destino sobre el grafo transpuesto.
+ *
+ * En cada paso se expande el lado cuya cola tiene el menor tiempo mínimo. Cada vez que una
+ * relajación alcanza un nodo ya visto por el otro lado se actualiza la mejor ruta conocida
+ * {@code mu}; la búsqueda termina cuando la suma de los mínimos de ambas colas es mayor o
+ * igual que {@code mu}, criterio que garantiza que {@code mu} es el tiempo óptimo.
+ */
+public final class BidirectionalDijkstra {
+
+    private static final int INFINITY = SearchState.UNREACHED;
+
+    private BidirectionalDijkstra() {
+    }
+
+    /**
+     * Encuentra la ruta más rápida entre dos nodos, con la cola elegida según el peso máximo del grafo.
+     * @param forward El grafo.
+     * @param backward El grafo transpuesto de {@code forward}.
+     * @param source Id del origen.
+     * @param target Id del destino.
+     * @return La ruta y su tiempo total, o un resultado no encontrado.
+     */
+    public static PathResult shortestPath(CompactGraph forward, CompactGraph backward, int source, int target) {
+        return shortestPath(forward, backward, source, target, QueueKind.forMaxWeight(forward.maxWeight()));
+    }
+
+    /**
+     * Encuentra la ruta más rápida entre dos nodos con un tipo de cola dado.
+     * @param forward El grafo.
+     * @param backward El grafo transpuesto de {@code forward}.
+     * @param source Id del origen.
+     * @param target Id del destino.
+     * @param queueKind La cola de prioridad de cada lado.
+     * @return La ruta y su tiempo total, o un resultado no encontrado.
+     */
+    public static PathResult shortestPath(CompactGraph forward, CompactGraph backward, int source, int target,
+                                          QueueKind queueKind) {
+        return shortestPath(forward, backward, source, target, queueKind, SearchBudget.UNLIMITED);
+    }
+
+    /**
+     * Encuentra la ruta más rápida entre dos nodos dentro de un presupuesto, que cuenta los
+     * nodos asentados por ambos lados.
+     * @param forward El grafo.
+     * @param backward El grafo transpuesto de {@code forward}.
+     * @param source Id del origen.
+     * @param target Id del destino.
+     * @param queueKind La cola de prioridad de cada lado.
+     * @param budget Límites de la búsqueda.
+     * @return La ruta y su tiempo total, o un resultado no encontrado.
+     * @throws SearchAbortedException Si la búsqueda supera el presupuesto.
+     */
+    public static PathResult shortestPath(CompactGraph forward, CompactGraph backward, int source, int target,
+                                          QueueKind queueKind, SearchBudget budget) {
+        if (source == target) {
+            return new PathResult(new int[]{source}, 0, 1, RouteAlgorithm.BIDIRECTIONAL);
+        }
+        SearchState forwardState = SearchState.forward(forward.nodeCount());
+        SearchState backwardState = SearchState.backward(forward.nodeCount());
+        // Cada entrada empaqueta (tiempo << 32 | nodo) para ordenar por tiempo
+        SearchQueue forwardQueue = forwardState.queue(queueKind, forward.maxWeight());
+        SearchQueue backwardQueue = backwardState.queue(queueKind, backward.maxWeight());
+
+        forwardState.update(source, 0, -1);
+        backwardState.update(target, 0, -1);
+        forwardQueue.add(source);
+        backwardQueue.add(target);
+
+        long best = INFINITY;
+        int meeting = -1;
+        int settled = 0;
+        int relaxed = 0;
+        int pushes = 2;
+        int checkpoint = budget.start();
+        while (!forwardQueue.isEmpty() && !backwardQueue.isEmpty()) {
+            long forwardMin = forwardQueue.peek() >>> 32;
+            long backwardMin = backwardQueue.peek() >>> 32;
+            if (forwardMin + backwardMin >= best) {
+                break; // Ninguna ruta aún no vista puede mejorar la mejor conocida
+            }
+
+            boolean expandForward = forwardMin <= backwardMin;
+            CompactGraph graph = expandForward ? forward : backward;
+            SearchState state = expandForward ? forwardState : backwardState;
+            SearchState other = expandForward ? backwardState : forwardState;
+            SearchQueue queue = expandForward ? forwardQueue : backwardQueue;
+
+            long entry = queue.poll();
+            int current = (int) entry;
+            int currentTime = (int) (entry >>> 32);
+            if (currentTime > state.time(current)) {
+                continue; // Entrada obsoleta
+            }
+            settled++;
+            if (settled == checkpoint) {
+                checkpoint = budget.checkpoint(settled);
+            }
+
+            int start = graph.edgeStart(current);
+            int end = graph.edgeEnd(current);
+            relaxed += end - start;
+            for (int edge = start; edge < end; edge++) {
+                int neighbor = graph.target(edge);
+                int newTime = currentTime + graph.weight(edge);
+                if (newTime < state.time(neighbor)) {
+                    state.update(neighbor, newTime, current);
+                    queue.add(((long) newTime << 32) | neighbor);
+                    pushes++;
+                }
+                int otherTime = other.time(neighbor);
+                if (otherTime != INFINITY && (long) state.time(neighbor) + otherTime < best) {
+                    best = (long) state.time(neighbor) + otherTime;
+                    meeting = neighbor;
+                }
+            }
+        }
+
+        if (meeting < 0) {
+            return PathResult.notFound(settled, relaxed, pushes, RouteAlgorithm.BIDIRECTIONAL);
+        }
+        // Origen -> encuentro por los predecesores hacia adelante, encuentro -> destino por los de atrás
+        int[] head = forwardState.pathTo(meeting);
+        int tailLength = 0;
+        for (int step = backwardState.predecessor(meeting); step != -1; step = backwardState.predecessor(step)) {
+            tailLength++;
+        }
+        int[] path = Arrays.copyOf(head, head.length + tailLength);
+        int index = head.length;
+        for (int step = backwardState.predecessor(meeting); step != -1; step = backwardState.predecessor(step)) {
+            path[index++] = step;
+        }
+        return new PathResult(path, (int) best, settled, relaxed, pushes, RouteAlgorithm.BIDIRECTIONAL);
+    }
+}
@@ -0,0 +1,276 @@
+package cl.cesar.ApiRoute.routing;
+
+import cl.cesar.ApiRoute.model.CompactGraph;
+
+import java.util.Arrays;
+
+/**
+ * Índice de componentes fuertemente conexas del grafo, usado para descartar en O(1)
+ * consultas que no tienen ruta.
+ *
+ * Las componentes se calculan con el algoritmo de Tarjan en versión iterativa, con pilas
+ * explícitas, por lo que un grafo profundo (por ejemplo una cadena de millones de nodos)
+ * no agota la pila del hilo. Tarjan numera cada componente al terminarla, y una componente
+ * termina después de todas las que alcanza: si hay ruta de {@code s} a {@code t}, entonces
+ * {@code componente(t) <= componente(s)}. Ese orden topológico es la primera etiqueta.
+ *
+ * Sobre el grafo de componentes (la condensación, un DAG) se agregan etiquetas de intervalo
+ * al estilo GRAIL: en cada recorrido en profundidad, cada componente recibe su número en
+ * postorden y el menor número de sus descendientes. Si {@code a} alcanza a {@code b}, el
+ * intervalo de {@code b} está contenido en el de {@code a}; cada recorrido visita los hijos en
+ * otro orden, de modo que las etiquetas descartan pares distintos. Las etiquetas solo pueden
+ * equivocarse en un sentido: {@link #mayReach(int, int)} falso prueba que no hay ruta, y
+ * verdadero obliga a buscar.
+ */
+public final class ComponentIndex {
+
+    /** Recorridos del DAG con etiquetas de intervalo. */
+    private static final int TRAVERSALS = 2;
+
+    private final int[] component;
+    private final int componentCount;
+    private final int largestSize;
+    private final int dagEdgeCount;
+    // Por recorrido: menor postorden alcanzable y postorden propio de cada componente
+    private final int[][] low;
+    private final int[][] post;
+
+    private ComponentIndex(int[] component, int componentCount, int largestSize, int dagEdgeCount,
+                           int[][] low, int[][] post) {
+        this.component = component;
+        this.componentCount = componentCount;
+        this.largestSize = largestSize;
+        this.dagEdgeCount = dagEdgeCount;
+        this.low = low;
+        this.post = post;
+    }
+
+    /**
+     * Calcula las componentes, la condensación y sus etiquetas de alcanzabilidad.
+     * @param graph El grafo.
+     * @return El índice de componentes.
+     */
+    public static ComponentIndex compute(CompactGraph graph) {
+        int nodeCount = graph.nodeCount();
+        int[] component = new int[nodeCount];
+        int componentCount = tarjan(graph, component);
+
+        int[] sizes = new int[componentCount];
+        for (int v = 0; v < nodeCount; v++) {
+            sizes[component[v]]++;
+        }
+        int largest = 0;
+        for (int size : sizes) {
+            largest = Math.max(largest, size);
+        }
+
+        // Condensación en CSR, sin aristas repetidas entre el mismo par de componentes
+        int[] offsets = new int[componentCount + 1];
+        int[] targets = condense(graph, component, componentCount, offsets);
+        int[][] low = new int[TRAVERSALS][];
+        int[][] post = new int[TRAVERSALS][];
+        for (int k = 0; k < TRAVERSALS; k++) {
+            low[k] = new int[componentCount];
+            post[k] = new int[componentCount];
+            label(offsets, targets, componentCount, k % 2 == 1, low[k], post[k]);
+        }
+        return new ComponentIndex(component, componentCount, largest, targets.length, low, post);
+    }
+
+    /**
+     * Tarjan iterativo. Escribe en {@code component} el número de componente de cada nodo,
+     * en orden de término.
+     * @return La cantidad de componentes.
+     */
+    private static int tarjan(CompactGraph graph, int[] component) {
+        int nodeCount = graph.nodeCount();
+        int[] index = new int[nodeCount];
+        int[] low = new int[nodeCount];
+        int[] nextEdge = new int[nodeCount];
+        int[] sccStack = new int[nodeCount];
+        int[] callStack = new int[nodeCount];
+        Arrays.fill(index, -1);
+        Arrays.fill(component, -1);
+        int counter = 0;
+        int sccTop = 0;
+        int componentCount = 0;
+
+        for (int root = 0; root < nodeCount; root++) {
+            if (index[root] >= 0) {
+                continue;
+            }
+            int callTop = 0;
+            index[root] = low[root] = counter++;
+            nextEdge[root] = graph.edgeStart(root);
+            sccStack[sccTop++] = root;
+            callStack[callTop++] = root;
+
+            while (callTop > 0) {
+                int v = callStack[callTop - 1];
+                if (nextEdge[v] < graph.edgeEnd(v)) {
+                    int w = graph.target(nextEdge[v]++);
+                    if (index[w] < 0) {
+                        // Equivale a la llamada recursiva sobre w
+                        index[w] = low[w] = counter++;
+                        nextEdge[w] = graph.edgeStart(w);
+                        sccStack[sccTop++] = w;
+                        callStack[callTop++] = w;
+                    } else if (component[w] < 0) {
+                        low[v] = Math.min(low[v], index[w]); // w sigue en la pila de Tarjan
+                    }
+                    continue;
+                }
+                // Todas las aristas de v procesadas: retorno de la llamada
+                callTop--;
+                if (callTop > 0) {
+                    int parent = callStack[callTop - 1];
+                    low[parent] = Math.min(low[parent], low[v]);
+                }
+                if (low[v] == index[v]) {
+                    int w;
+                    do {
+                        w = sccStack[--sccTop];
+                        component[w] = componentCount;
+                    } while (w != v);
+                    componentCount++;
+                }
+            }
+        }
+        return componentCount;
+    }
+
+    private static int[] condense(CompactGraph graph, int[] component, int componentCount, int[] offsets) {
+        int nodeCount = graph.nodeCount();
+        // Nodos agrupados por componente, para recorrer las aristas de cada componente juntas
+        int[] memberStart = new int[componentCount + 1];
+        for (int v = 0; v < nodeCount; v++) {
+            memberStart[component[v] + 1]++;
+        }
+        for (int c = 0; c < componentCount; c++) {
+            memberStart[c + 1] += memberStart[c];
+        }
+        int[] cursor = Arrays.copyOf(memberStart, componentCount);
+        int[] members = new int[nodeCount];
+        for (int v = 0; v < nodeCount; v++) {
+            members[cursor[component[v]]++] = v;
+        }
+
+        int[] seenBy = new int[componentCount];
+        Arrays.fill(seenBy, -1);
+        int[] targets = new int[16];
+        int size = 0;
+        for (int c = 0; c < componentCount; c++) {
+            offsets[c] = size;
+            for (int m = memberStart[c]; m < memberStart[c + 1]; m++) {
+                int v = members[m];
+                for (int edge = graph.edgeStart(v), end = graph.edgeEnd(v); edge < end; edge++) {
+                    int d = component[graph.target(edge)];
+                    if (d != c && seenBy[d] != c) {
+                        seenBy[d] = c;
+                        if (size == targets.length) {
+                            targets = Arrays.copyOf(targets, size * 2);
+                        }
+                        targets[size++] = d;
+                    }
+                }
+            }
+        }
+        offsets[componentCount] = size;
+        return Arrays.copyOf(targets, size);
+    }
+
+    /**
+     * Recorrido en profundidad iterativo del DAG desde cada componente aún no visitada.
+     * Asigna el postorden de cada componente y el menor postorden entre sus descendientes.
+     */
+    private static void label(int[] offsets, int[] targets, int componentCount, boolean reverseChildren,
+                              int[] low, int[] post) {
+        int[] nextSlot = new int[componentCount];
+        boolean[] visited = new boolean[componentCount];
+        int[] stack = new int[componentCount];
+        int order = 0;
+        // Las raíces se toman de mayor a menor número, que en Tarjan son las fuentes primero
+        for (int root = componentCount - 1; root >= 0; root--) {
+            if (visited[root]) {
+                continue;
+            }
+            int top = 0;
+            stack[top++] = root;
+            visited[root] = true;
+            nextSlot[root] = 0;
+            low[root] = Integer.MAX_VALUE;
+            while (top > 0) {
+                int c = stack[top - 1];
+                int degree = offsets[c + 1] - offsets[c];
+                if (nextSlot[c] < degree) {
+                    int slot = nextSlot[c]++;
+                    int child = targets[reverseChildren ? offsets[c + 1] - 1 - slot : offsets[c] + slot];
+                    if (!visited[child]) {
+                        visited[child] = true;
+                        nextSlot[child] = 0;
+                        low[child] = Integer.MAX_VALUE;
+                        stack[top++] = child;
+                    } else {
+                        low[c] = Math.min(low[c], low[child]); // Ya etiquetada: el DAG no tiene ciclos
+                    }
+                    continue;
+                }
+                top--;
+                post[c] = order++;
+                low[c] = Math.min(low[c], post[c]);
+                if (top > 0) {
+                    int parent = stack[top - 1];
+                    low[parent] = Math.min(low[parent], low[c]);
+                }
+            }
+        }
+    }
+
+    /**
+     * Indica si puede existir una ruta entre dos nodos.
+     * @param source Id del origen.
+     * @param target Id del destino.
+     * @return false solo si está probado que no hay ruta; true si hay que buscar.
+     */
+    public boolean mayReach(int source, int target) {
+        int from = component[source];
+        int to = component[target];
+        if (from == to) {
+            return true;
+        }
+        if (to > from) {
+            return false; // Tarjan termina antes las componentes alcanzables
+        }
+        for (int k = 0; k < TRAVERSALS; k++) {
+            if (low[k][to] < low[k][from] || post[k][to] > post[k][from]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /** Número de la componente fuertemente conexa del nodo. */
+    public int component(int node) {
+        return component[node];
+    }
+
+    /** Cantidad de componentes fuertemente conexas. */
+    public int count() {
+        return componentCount;
+    }
+
+    /** Cantidad de nodos de la componente más grande. */
+    public int largestSize() {
+        return largestSize;
+    }
+
+    /** Aristas de la condensación, sin repetir pares de componentes. */
+    public int dagEdgeCount() {
+        return dagEdgeCount;
+    }
+
+    /** Bytes aproximados ocupados por el índice. */
+    public long estimatedBytes() {
+        return 16L + 4L * component.length + TRAVERSALS * 2 * (16L + 4L * componentCount);
+    }
+}
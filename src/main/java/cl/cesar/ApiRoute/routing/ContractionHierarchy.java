@@ -0,0 +1,563 @@
+package cl.cesar.ApiRoute.routing;
+
+import cl.cesar.ApiRoute.model.CompactGraph;
+
+import java.util.Arrays;
+
+/**
+ * Jerarquía de contracción (Contraction Hierarchies) del grafo compacto.
+ *
+ * En el preprocesamiento los nodos se contraen uno a uno en orden de importancia: al
+ * contraer {@code v}, para cada par {@code u -> v -> w} se agrega un atajo {@code u -> w}
+ * salvo que una búsqueda de testigo encuentre un camino igual o más corto que evite
+ * {@code v}. La importancia se estima con la diferencia de aristas (atajos que agregaría
+ * menos aristas que elimina) más la cantidad de vecinos ya contraídos, y se actualiza de
+ * forma perezosa al extraer cada nodo de la cola.
+ *
+ * Una consulta es un Dijkstra bidireccional que solo sube de rango: hacia adelante desde el
+ * origen por aristas hacia nodos de mayor rango, y hacia atrás desde el destino por aristas
+ * que llegan desde nodos de mayor rango. Los nodos del núcleo sin contraer comparten el rango
+ * máximo y sus aristas internas se recorren en ambos sentidos. Cada atajo recuerda las dos aristas que reemplaza,
+ * de modo que la ruta encontrada se desempaqueta en las aristas originales.
+ *
+ * La instancia es inmutable después de construirse y segura entre hilos.
+ */
+public final class ContractionHierarchy {
+
+    /** Nodos asentados como máximo por cada búsqueda de testigo al contraer. */
+    private static final int WITNESS_SETTLE_LIMIT = 200;
+
+    /** Límite más corto usado solo para estimar la prioridad de un nodo. */
+    private static final int ESTIMATE_SETTLE_LIMIT = 40;
+
+    /**
+     * Prioridad a partir de la cual se deja de contraer. En grafos sin jerarquía natural
+     * (por ejemplo conexiones entre pares aleatorios) los últimos nodos forman un núcleo denso
+     * cuya contracción domina el preprocesamiento; esos nodos quedan sin contraer y las
+     * consultas los recorren con un Dijkstra bidireccional común.
+     */
+    private static final int CORE_PRIORITY = 100;
+
+    private static final int INFINITY = SearchState.UNREACHED;
+
+    private final int nodeCount;
+    private final int[] rank;
+    private final int originalEdgeCount;
+
+    // Todas las aristas de la jerarquía: originales (sin hijos) y atajos
+    private final int[] edgeFrom;
+    private final int[] edgeTo;
+    private final int[] childFirst;
+    private final int[] childSecond;
+
+    // Aristas hacia nodos de mayor rango (o dentro del núcleo), en formato CSR por nodo de origen
+    private final int[] upOffsets;
+    private final int[] upTargets;
+    private final int[] upWeights;
+    private final int[] upEdges;
+
+    // Aristas que llegan desde nodos de mayor rango (o dentro del núcleo), en formato CSR por nodo de destino
+    private final int[] downOffsets;
+    private final int[] downSources;
+    private final int[] downWeights;
+    private final int[] downEdges;
+
+    private ContractionHierarchy(int nodeCount, int[] rank, int originalEdgeCount, Builder edges) {
+        this.nodeCount = nodeCount;
+        this.rank = rank;
+        this.originalEdgeCount = originalEdgeCount;
+        int edgeCount = edges.size;
+        this.edgeFrom = Arrays.copyOf(edges.from, edgeCount);
+        this.edgeTo = Arrays.copyOf(edges.to, edgeCount);
+        this.childFirst = Arrays.copyOf(edges.first, edgeCount);
+        this.childSecond = Arrays.copyOf(edges.second, edgeCount);
+
+        this.upOffsets = new int[nodeCount + 1];
+        this.downOffsets = new int[nodeCount + 1];
+        for (int e = 0; e < edgeCount; e++) {
+            if (rank[edgeTo[e]] >= rank[edgeFrom[e]]) {
+                upOffsets[edgeFrom[e] + 1]++;
+            }
+            if (rank[edgeFrom[e]] >= rank[edgeTo[e]]) {
+                downOffsets[edgeTo[e] + 1]++;
+            }
+        }
+        for (int v = 0; v < nodeCount; v++) {
+            upOffsets[v + 1] += upOffsets[v];
+            downOffsets[v + 1] += downOffsets[v];
+        }
+        int upCount = upOffsets[nodeCount];
+        int downCount = downOffsets[nodeCount];
+        this.upTargets = new int[upCount];
+        this.upWeights = new int[upCount];
+        this.upEdges = new int[upCount];
+        this.downSources = new int[downCount];
+        this.downWeights = new int[downCount];
+        this.downEdges = new int[downCount];
+        int[] upCursor = Arrays.copyOf(upOffsets, nodeCount);
+        int[] downCursor = Arrays.copyOf(downOffsets, nodeCount);
+        for (int e = 0; e < edgeCount; e++) {
+            if (rank[edgeTo[e]] >= rank[edgeFrom[e]]) {
+                int slot = upCursor[edgeFrom[e]]++;
+                upTargets[slot] = edgeTo[e];
+                upWeights[slot] = edges.weight[e];
+                upEdges[slot] = e;
+            }
+            if (rank[edgeFrom[e]] >= rank[edgeTo[e]]) {
+                int slot = downCursor[edgeTo[e]]++;
+                downSources[slot] = edgeFrom[e];
+                downWeights[slot] = edges.weight[e];
+                downEdges[slot] = e;
+            }
+        }
+    }
+
+    /**
+     * Contrae todos los nodos del grafo.
+     * @param graph El grafo.
+     * @return La jerarquía lista para consultas.
+     */
+    public static ContractionHierarchy build(CompactGraph graph) {
+        Builder builder = new Builder(graph);
+        int[] rank = builder.contractAll();
+        return new ContractionHierarchy(graph.nodeCount(), rank, builder.originalEdgeCount, builder);
+    }
+
+    /**
+     * Encuentra la ruta más rápida entre dos nodos.
+     * @param source Id del origen.
+     * @param target Id del destino.
+     * @return La ruta desempaquetada en nodos originales y su tiempo total, o un resultado no encontrado.
+     */
+    public PathResult shortestPath(int source, int target) {
+        return shortestPath(source, target, SearchBudget.UNLIMITED);
+    }
+
+    /**
+     * Encuentra la ruta más rápida entre dos nodos dentro de un presupuesto, que cuenta los
+     * nodos asentados por ambas búsquedas ascendentes.
+     * @param source Id del origen.
+     * @param target Id del destino.
+     * @param budget Límites de la búsqueda.
+     * @return La ruta desempaquetada en nodos originales y su tiempo total, o un resultado no encontrado.
+     * @throws SearchAbortedException Si la búsqueda supera el presupuesto.
+     */
+    public PathResult shortestPath(int source, int target, SearchBudget budget) {
+        if (source == target) {
+            return new PathResult(new int[]{source}, 0, 1, RouteAlgorithm.CH);
+        }
+        SearchState forwardState = SearchState.forward(nodeCount);
+        SearchState backwardState = SearchState.backward(nodeCount);
+        // Cada entrada empaqueta (tiempo << 32 | nodo); el predecesor es la arista de llegada
+        LongHeap forwardQueue = forwardState.heap();
+        LongHeap backwardQueue = backwardState.heap();
+        forwardState.update(source, 0, -1);
+        backwardState.update(target, 0, -1);
+        forwardQueue.add(source);
+        backwardQueue.add(target);
+
+        long best = INFINITY;
+        int meeting = -1;
+        int settled = 0;
+        int relaxed = 0;
+        int pushes = 2;
+        int checkpoint = budget.start();
+        boolean forwardDone = false;
+        boolean backwardDone = false;
+        while (true) {
+            // Cada lado se detiene cuando su mínimo ya no puede mejorar la mejor ruta conocida
+            forwardDone = forwardDone || forwardQueue.isEmpty() || (forwardQueue.peek() >>> 32) >= best;
+            backwardDone = backwardDone || backwardQueue.isEmpty() || (backwardQueue.peek() >>> 32) >= best;
+            if (forwardDone && backwardDone) {
+                break;
+            }
+            boolean forward = backwardDone || (!forwardDone && forwardQueue.peek() <= backwardQueue.peek());
+            SearchState state = forward ? forwardState : backwardState;
+            SearchState other = forward ? backwardState : forwardState;
+            LongHeap queue = state.heap();
+
+            long entry = queue.poll();
+            int current = (int) entry;
+            int currentTime = (int) (entry >>> 32);
+            if (currentTime > state.time(current)) {
+                continue; // Entrada obsoleta
+            }
+            settled++;
+            if (settled == checkpoint) {
+                checkpoint = budget.checkpoint(settled);
+            }
+            int otherTime = other.time(current);
+            if (otherTime != INFINITY && (long) currentTime + otherTime < best) {
+                best = (long) currentTime + otherTime;
+                meeting = current;
+            }
+
+            int[] offsets = forward ? upOffsets : downOffsets;
+            int[] neighbors = forward ? upTargets : downSources;
+            int[] weights = forward ? upWeights : downWeights;
+            int[] edges = forward ? upEdges : downEdges;
+            int end = offsets[current + 1];
+            relaxed += end - offsets[current];
+            for (int slot = offsets[current]; slot < end; slot++) {
+                int neighbor = neighbors[slot];
+                long newTime = (long) currentTime + weights[slot];
+                if (newTime < state.time(neighbor)) {
+                    state.update(neighbor, (int) newTime, edges[slot]);
+                    queue.add(newTime << 32 | neighbor);
+                    pushes++;
+                }
+            }
+        }
+
+        if (meeting < 0) {
+            return PathResult.notFound(settled, relaxed, pushes, RouteAlgorithm.CH);
+        }
+        return new PathResult(unpack(source, meeting, forwardState, backwardState), (int) best, settled, relaxed,
+                pushes, RouteAlgorithm.CH);
+    }
+
+    /**
+     * Reconstruye la ruta en nodos originales: las aristas hacia adelante hasta el nodo de
+     * encuentro, luego las de la búsqueda hacia atrás, desempaquetando cada atajo.
+     */
+    private int[] unpack(int source, int meeting, SearchState forwardState, SearchState backwardState) {
+        int forwardCount = 0;
+        for (int node = meeting; forwardState.predecessor(node) != -1; node = edgeFrom[forwardState.predecessor(node)]) {
+            forwardCount++;
+        }
+        int backwardCount = 0;
+        for (int node = meeting; backwardState.predecessor(node) != -1; node = edgeTo[backwardState.predecessor(node)]) {
+            backwardCount++;
+        }
+        int[] hierarchyEdges = new int[forwardCount + backwardCount];
+        int index = forwardCount;
+        for (int node = meeting; forwardState.predecessor(node) != -1; node = edgeFrom[forwardState.predecessor(node)]) {
+            hierarchyEdges[--index] = forwardState.predecessor(node);
+        }
+        index = forwardCount;
+        for (int node = meeting; backwardState.predecessor(node) != -1; node = edgeTo[backwardState.predecessor(node)]) {
+            hierarchyEdges[index++] = backwardState.predecessor(node);
+        }
+
+        IntStack path = new IntStack(hierarchyEdges.length + 1);
+        path.push(source);
+        IntStack pending = new IntStack(16);
+        for (int edge : hierarchyEdges) {
+            pending.push(edge);
+            while (pending.size > 0) {
+                int current = pending.pop();
+                if (childFirst[current] < 0) {
+                    path.push(edgeTo[current]);
+                } else {
+                    pending.push(childSecond[current]);
+                    pending.push(childFirst[current]);
+                }
+            }
+        }
+        return Arrays.copyOf(path.values, path.size);
+    }
+
+    /** Posición de cada nodo en el orden de contracción (mayor = más importante). */
+    public int rank(int node) {
+        return rank[node];
+    }
+
+    /** Cantidad de atajos agregados durante la contracción. */
+    public int shortcutCount() {
+        return edgeFrom.length - originalEdgeCount;
+    }
+
+    /** Bytes aproximados ocupados por la jerarquía. */
+    public long estimatedBytes() {
+        long edges = edgeFrom.length;
+        long searchEdges = upTargets.length + downSources.length;
+        return 4L * (rank.length + upOffsets.length + downOffsets.length) + 16L * edges + 12L * searchEdges + 14 * 16L;
+    }
+
+    /** Pila de enteros para el desempaquetado sin recursión. */
+    private static final class IntStack {
+
+        private int[] values;
+        private int size;
+
+        IntStack(int capacity) {
+            values = new int[Math.max(4, capacity)];
+        }
+
+        void push(int value) {
+            if (size == values.length) {
+                values = Arrays.copyOf(values, size * 2);
+            }
+            values[size++] = value;
+        }
+
+        int pop() {
+            return values[--size];
+        }
+    }
+
+    /**
+     * Estado mutable de la contracción: el grafo dinámico con listas de aristas entrantes y
+     * salientes por nodo, y los arreglos reutilizables de la búsqueda de testigos.
+     */
+    private static final class Builder {
+
+        private int[] from;
+        private int[] to;
+        private int[] weight;
+        private int[] first;
+        private int[] second;
+        private int size;
+        private final int originalEdgeCount;
+
+        private final int[][] outEdges;
+        private final int[] outSize;
+        private final int[][] inEdges;
+        private final int[] inSize;
+        private final boolean[] contracted;
+        private final int[] contractedNeighbors;
+
+        private final int[] witnessTimes;
+        private final int[] touched;
+        private int touchedCount;
+        private final LongHeap witnessQueue = new LongHeap();
+
+        Builder(CompactGraph graph) {
+            int nodeCount = graph.nodeCount();
+            int capacity = Math.max(16, graph.edgeCount() * 2);
+            from = new int[capacity];
+            to = new int[capacity];
+            weight = new int[capacity];
+            first = new int[capacity];
+            second = new int[capacity];
+            outEdges = new int[nodeCount][];
+            inEdges = new int[nodeCount][];
+            outSize = new int[nodeCount];
+            inSize = new int[nodeCount];
+            contracted = new boolean[nodeCount];
+            contractedNeighbors = new int[nodeCount];
+            witnessTimes = new int[nodeCount];
+            touched = new int[nodeCount];
+            Arrays.fill(witnessTimes, INFINITY);
+
+            // Aristas originales sin lazos y con una sola arista (la más rápida) por par de nodos
+            int[] seenFrom = new int[nodeCount];
+            int[] seenEdge = new int[nodeCount];
+            Arrays.fill(seenFrom, -1);
+            for (int u = 0; u < nodeCount; u++) {
+                for (int e = graph.edgeStart(u), end = graph.edgeEnd(u); e < end; e++) {
+                    int v = graph.target(e);
+                    if (v == u) {
+                        continue;
+                    }
+                    if (seenFrom[v] == u) {
+                        weight[seenEdge[v]] = Math.min(weight[seenEdge[v]], graph.weight(e));
+                    } else {
+                        seenFrom[v] = u;
+                        seenEdge[v] = addEdge(u, v, graph.weight(e), -1, -1);
+                    }
+                }
+            }
+            originalEdgeCount = size;
+        }
+
+        private int addEdge(int u, int v, int w, int firstChild, int secondChild) {
+            if (size == from.length) {
+                int capacity = size * 2;
+                from = Arrays.copyOf(from, capacity);
+                to = Arrays.copyOf(to, capacity);
+                weight = Arrays.copyOf(weight, capacity);
+                first = Arrays.copyOf(first, capacity);
+                second = Arrays.copyOf(second, capacity);
+            }
+            int edge = size++;
+            from[edge] = u;
+            to[edge] = v;
+            weight[edge] = w;
+            first[edge] = firstChild;
+            second[edge] = secondChild;
+            append(outEdges, outSize, u, edge);
+            append(inEdges, inSize, v, edge);
+            return edge;
+        }
+
+        private static void append(int[][] lists, int[] sizes, int node, int edge) {
+            int[] list = lists[node];
+            if (list == null) {
+                list = new int[4];
+                lists[node] = list;
+            } else if (sizes[node] == list.length) {
+                list = Arrays.copyOf(list, list.length * 2);
+                lists[node] = list;
+            }
+            list[sizes[node]++] = edge;
+        }
+
+        int[] contractAll() {
+            int nodeCount = contracted.length;
+            int[] rank = new int[nodeCount];
+            // Cada entrada empaqueta (prioridad << 32 | nodo); la prioridad puede ser negativa
+            LongHeap order = new LongHeap(nodeCount);
+            for (int v = 0; v < nodeCount; v++) {
+                order.add((long) priority(v) << 32 | v);
+            }
+            int next = 0;
+            while (!order.isEmpty()) {
+                int v = (int) order.poll();
+                int current = priority(v);
+                if (!order.isEmpty() && current > (int) (order.peek() >> 32)) {
+                    order.add((long) current << 32 | v); // Prioridad desactualizada: se reencola
+                    continue;
+                }
+                if (current > CORE_PRIORITY) {
+                    // Incluso el nodo menos importante es caro de contraer: el resto queda como núcleo
+                    rank[v] = nodeCount;
+                    while (!order.isEmpty()) {
+                        rank[(int) order.poll()] = nodeCount;
+                    }
+                    break;
+                }
+                contract(v, true);
+                contracted[v] = true;
+                rank[v] = next++;
+                for (int i = 0; i < outSize[v]; i++) {
+                    int neighbor = to[outEdges[v][i]];
+                    contractedNeighbors[neighbor]++;
+                    inSize[neighbor] = removeContracted(inEdges[neighbor], inSize[neighbor], from);
+                }
+                for (int i = 0; i < inSize[v]; i++) {
+                    int neighbor = from[inEdges[v][i]];
+                    contractedNeighbors[neighbor]++;
+                    outSize[neighbor] = removeContracted(outEdges[neighbor], outSize[neighbor], to);
+                }
+            }
+            return rank;
+        }
+
+        /**
+         * Quita de una lista de adyacencia las aristas hacia nodos ya contraídos, que ninguna
+         * búsqueda posterior recorre. Las aristas siguen existiendo en la jerarquía.
+         * @param endpoints {@code from} o {@code to}, según el extremo a revisar.
+         * @return El nuevo tamaño de la lista.
+         */
+        private int removeContracted(int[] edges, int count, int[] endpoints) {
+            int kept = 0;
+            for (int i = 0; i < count; i++) {
+                if (!contracted[endpoints[edges[i]]]) {
+                    edges[kept++] = edges[i];
+                }
+            }
+            return kept;
+        }
+
+        private int priority(int v) {
+            int removed = 0;
+            for (int i = 0; i < outSize[v]; i++) {
+                if (!contracted[to[outEdges[v][i]]]) {
+                    removed++;
+                }
+            }
+            for (int i = 0; i < inSize[v]; i++) {
+                if (!contracted[from[inEdges[v][i]]]) {
+                    removed++;
+                }
+            }
+            return contract(v, false) - removed + contractedNeighbors[v];
+        }
+
+        /**
+         * Calcula los atajos necesarios para contraer {@code v}.
+         * @param apply Si es true los atajos se agregan; si no, solo se cuentan.
+         * @return La cantidad de atajos.
+         */
+        private int contract(int v, boolean apply) {
+            int shortcuts = 0;
+            int[] in = inEdges[v];
+            int[] out = outEdges[v];
+            int inCount = inSize[v];
+            int outCount = outSize[v];
+            for (int i = 0; i < inCount; i++) {
+                int incoming = in[i];
+                int u = from[incoming];
+                if (contracted[u]) {
+                    continue;
+                }
+                long limit = -1;
+                for (int j = 0; j < outCount; j++) {
+                    int w = to[out[j]];
+                    if (!contracted[w] && w != u) {
+                        limit = Math.max(limit, (long) weight[incoming] + weight[out[j]]);
+                    }
+                }
+                if (limit < 0) {
+                    continue;
+                }
+                witnessSearch(u, v, limit, apply ? WITNESS_SETTLE_LIMIT : ESTIMATE_SETTLE_LIMIT);
+                for (int j = 0; j < outCount; j++) {
+                    int outgoing = out[j];
+                    int w = to[outgoing];
+                    if (contracted[w] || w == u) {
+                        continue;
+                    }
+                    long via = (long) weight[incoming] + weight[outgoing];
+                    if (witnessTimes[w] > via) {
+                        shortcuts++;
+                        if (apply) {
+                            addEdge(u, w, (int) via, incoming, outgoing);
+                        }
+                        // El atajo cuenta como testigo si v tiene otra arista hacia w
+                        if (witnessTimes[w] == INFINITY) {
+                            touched[touchedCount++] = w;
+                        }
+                        witnessTimes[w] = (int) via;
+                    }
+                }
+            }
+            return shortcuts;
+        }
+
+        /**
+         * Dijkstra acotado desde {@code source} sobre los nodos no contraídos, evitando
+         * {@code skip}. Deja los tiempos encontrados en {@code witnessTimes}.
+         */
+        private void witnessSearch(int source, int skip, long limit, int settleLimit) {
+            for (int i = 0; i < touchedCount; i++) {
+                witnessTimes[touched[i]] = INFINITY;
+            }
+            touchedCount = 0;
+            witnessQueue.clear();
+            witnessTimes[source] = 0;
+            touched[touchedCount++] = source;
+            witnessQueue.add((long) source);
+            int settled = 0;
+            while (!witnessQueue.isEmpty() && settled < settleLimit) {
+                long entry = witnessQueue.poll();
+                int current = (int) entry;
+                int currentTime = (int) (entry >>> 32);
+                if (currentTime > witnessTimes[current]) {
+                    continue;
+                }
+                if (currentTime > limit) {
+                    break;
+                }
+                settled++;
+                int[] out = outEdges[current];
+                for (int i = 0, count = outSize[current]; i < count; i++) {
+                    int edge = out[i];
+                    int neighbor = to[edge];
+                    if (neighbor == skip || contracted[neighbor]) {
+                        continue;
+                    }
+                    long newTime = (long) currentTime + weight[edge];
+                    if (newTime < witnessTimes[neighbor] && newTime <= limit) {
+                        if (witnessTimes[neighbor] == INFINITY) {
+                            touched[touchedCount++] = neighbor;
+                        }
+                        witnessTimes[neighbor] = (int) newTime;
+                        witnessQueue.add(newTime << 32 | neighbor);
+                    }
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,105 @@
+package cl.cesar.ApiRoute.routing;
+
+import java.util.Arrays;
+
+/**
+ * Cola de cubetas circular para Dijkstra con pesos enteros acotados (algoritmo de Dial).
+ *
+ * Mientras el último tiempo extraído sea {@code d}, todos los tiempos en la cola están en
+ * {@code [d, d + maxWeight]}, por lo que bastan {@code maxWeight + 1} cubetas indexadas por
+ * {@code tiempo % (maxWeight + 1)}. Agregar y extraer cuestan O(1) más el avance sobre
+ * cubetas vacías, acotado por {@code maxWeight} por extracción.
+ */
+public final class DialQueue implements SearchQueue {
+
+    private final int bucketCount;
+    private final int[][] buckets;
+    private final int[] sizes;
+    // Cubetas que recibieron elementos desde el último clear, cada una una sola vez,
+    // para vaciarlas sin recorrer todas
+    private final boolean[] listed;
+    private int[] dirty = new int[64];
+    private int dirtyCount;
+    private int size;
+    private int cursor;
+
+    /**
+     * @param maxWeight El mayor peso de arista del grafo.
+     */
+    public DialQueue(int maxWeight) {
+        if (maxWeight < 0) {
+            throw new IllegalArgumentException("Peso máximo negativo: " + maxWeight);
+        }
+        this.bucketCount = maxWeight + 1;
+        this.buckets = new int[bucketCount][];
+        this.sizes = new int[bucketCount];
+        this.listed = new boolean[bucketCount];
+    }
+
+    /** Mayor peso de arista que admite la cola. */
+    public int maxWeight() {
+        return bucketCount - 1;
+    }
+
+    @Override
+    public void add(long entry) {
+        int time = (int) (entry >>> 32);
+        int bucket = time % bucketCount;
+        int[] values = buckets[bucket];
+        if (values == null) {
+            values = new int[8];
+            buckets[bucket] = values;
+        } else if (sizes[bucket] == values.length) {
+            values = Arrays.copyOf(values, values.length * 2);
+            buckets[bucket] = values;
+        }
+        if (!listed[bucket]) {
+            listed[bucket] = true;
+            if (dirtyCount == dirty.length) {
+                dirty = Arrays.copyOf(dirty, dirtyCount * 2);
+            }
+            dirty[dirtyCount++] = bucket;
+        }
+        values[sizes[bucket]++] = (int) entry;
+        size++;
+    }
+
+    /** Avanza el cursor hasta la primera cubeta con elementos. */
+    private int advance() {
+        int bucket = cursor % bucketCount;
+        while (sizes[bucket] == 0) {
+            cursor++;
+            bucket = bucket + 1 == bucketCount ? 0 : bucket + 1;
+        }
+        return bucket;
+    }
+
+    @Override
+    public long peek() {
+        int bucket = advance();
+        return (long) cursor << 32 | buckets[bucket][sizes[bucket] - 1];
+    }
+
+    @Override
+    public long poll() {
+        int bucket = advance();
+        size--;
+        return (long) cursor << 32 | buckets[bucket][--sizes[bucket]];
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    @Override
+    public void clear() {
+        for (int i = 0; i < dirtyCount; i++) {
+            sizes[dirty[i]] = 0;
+            listed[dirty[i]] = false;
+        }
+        dirtyCount = 0;
+        size = 0;
+        cursor = 0;
+    }
+}
@@ -0,0 +1,308 @@
+package cl.cesar.ApiRoute.routing;
+
+import cl.cesar.ApiRoute.model.CompactGraph;
+
+import java.util.Arrays;
+
+/**
+ * Dijkstra punto a punto sobre el grafo compacto.
+ */
+public final class Dijkstra {
+
+    private Dijkstra() {
+    }
+
+    /**
+     * Encuentra la ruta más rápida entre dos nodos, con la cola elegida según el peso máximo del grafo.
+     * @param graph El grafo.
+     * @param source Id del origen.
+     * @param target Id del destino.
+     * @return La ruta y su tiempo total, o un resultado no encontrado.
+     */
+    public static PathResult shortestPath(CompactGraph graph, int source, int target) {
+        return shortestPath(graph, source, target, QueueKind.forMaxWeight(graph.maxWeight()));
+    }
+
+    /**
+     * Encuentra la ruta más rápida entre dos nodos con un tipo de cola dado.
+     * @param graph El grafo.
+     * @param source Id del origen.
+     * @param target Id del destino.
+     * @param queueKind La cola de prioridad a usar.
+     * @return La ruta y su tiempo total, o un resultado no encontrado.
+     */
+    public static PathResult shortestPath(CompactGraph graph, int source, int target, QueueKind queueKind) {
+        return shortestPath(graph, source, target, queueKind, SearchBudget.UNLIMITED);
+    }
+
+    /**
+     * Encuentra la ruta más rápida entre dos nodos dentro de un presupuesto.
+     * @param graph El grafo.
+     * @param source Id del origen.
+     * @param target Id del destino.
+     * @param queueKind La cola de prioridad a usar.
+     * @param budget Límites de la búsqueda.
+     * @return La ruta y su tiempo total, o un resultado no encontrado.
+     * @throws SearchAbortedException Si la búsqueda supera el presupuesto.
+     */
+    public static PathResult shortestPath(CompactGraph graph, int source, int target, QueueKind queueKind,
+                                          SearchBudget budget) {
+        // Estado reutilizable del hilo: no se reserva ni se recorre memoria proporcional al grafo
+        SearchState state = SearchState.forward(graph.nodeCount());
+        // Cada entrada empaqueta (tiempo << 32 | nodo) para ordenar por tiempo
+        SearchQueue heap = state.queue(queueKind, graph.maxWeight());
+        int settled = 0;
+        int relaxed = 0;
+        int pushes = 1;
+        int checkpoint = budget.start();
+
+        // 1. Inicialización
+        state.update(source, 0, -1);
+        heap.add(source);
+
+        // 2. Ciclo principal de Dijkstra
+        while (!heap.isEmpty()) {
+            long entry = heap.poll();
+            int current = (int) entry;
+            int currentTime = (int) (entry >>> 32);
+
+            if (currentTime > state.time(current)) {
+                continue; // Entrada obsoleta: el nodo ya se alcanzó con un tiempo menor
+            }
+            settled++;
+            if (current == target) {
+                break; // Se encontró la ruta más corta al destino
+            }
+            if (settled == checkpoint) {
+                checkpoint = budget.checkpoint(settled);
+            }
+
+            int start = graph.edgeStart(current);
+            int end = graph.edgeEnd(current);
+            relaxed += end - start;
+            for (int edge = start; edge < end; edge++) {
+                int neighbor = graph.target(edge);
+                int newTime = currentTime + graph.weight(edge);
+
+                if (newTime < state.time(neighbor)) {
+                    state.update(neighbor, newTime, current);
+                    heap.add(((long) newTime << 32) | neighbor);
+                    pushes++;
+                }
+            }
+        }
+
+        // 3. Reconstrucción de la ruta
+        if (state.time(target) == SearchState.UNREACHED) {
+            return PathResult.notFound(settled, relaxed, pushes, RouteAlgorithm.DIJKSTRA);
+        }
+        return new PathResult(state.pathTo(target), state.time(target), settled, relaxed, pushes, RouteAlgorithm.DIJKSTRA);
+    }
+
+    /**
+     * Encuentra las rutas más rápidas desde un origen hacia varios destinos con un solo
+     * árbol de búsqueda, que se detiene cuando todos los destinos están asentados.
+     * @param graph El grafo.
+     * @param source Id del origen.
+     * @param targets Ids de los destinos; pueden repetirse.
+     * @return Un resultado por destino, en el mismo orden. El total de nodos asentados se
+     * informa en cada resultado.
+     */
+    public static PathResult[] oneToMany(CompactGraph graph, int source, int[] targets) {
+        return oneToMany(graph, source, targets, SearchBudget.UNLIMITED);
+    }
+
+    /**
+     * Encuentra las rutas más rápidas desde un origen hacia varios destinos dentro de un presupuesto.
+     * @param graph El grafo.
+     * @param source Id del origen.
+     * @param targets Ids de los destinos; pueden repetirse.
+     * @param budget Límites de la búsqueda.
+     * @return Un resultado por destino, en el mismo orden.
+     * @throws SearchAbortedException Si la búsqueda supera el presupuesto.
+     */
+    public static PathResult[] oneToMany(CompactGraph graph, int source, int[] targets, SearchBudget budget) {
+        SearchState state = SearchState.forward(graph.nodeCount());
+        int settled = settleTargets(graph, state, source, targets, budget);
+        PathResult[] results = new PathResult[targets.length];
+        for (int i = 0; i < targets.length; i++) {
+            int target = targets[i];
+            results[i] = state.time(target) == SearchState.UNREACHED
+                    ? PathResult.notFound(settled, RouteAlgorithm.DIJKSTRA)
+                    : new PathResult(state.pathTo(target), state.time(target), settled, RouteAlgorithm.DIJKSTRA);
+        }
+        return results;
+    }
+
+    /**
+     * Calcula el tiempo mínimo desde un origen hacia varios destinos, sin rutas, con un solo
+     * árbol de búsqueda que se detiene cuando todos los destinos están asentados.
+     * @param graph El grafo.
+     * @param source Id del origen.
+     * @param targets Ids de los destinos; pueden repetirse.
+     * @return El tiempo hacia cada destino, en el mismo orden, con {@link Integer#MAX_VALUE}
+     * en los inalcanzables.
+     */
+    public static int[] travelTimes(CompactGraph graph, int source, int[] targets) {
+        return travelTimes(graph, source, targets, SearchBudget.UNLIMITED);
+    }
+
+    /**
+     * Calcula el tiempo mínimo desde un origen hacia varios destinos dentro de un presupuesto.
+     * @param graph El grafo.
+     * @param source Id del origen.
+     * @param targets Ids de los destinos; pueden repetirse.
+     * @param budget Límites de la búsqueda.
+     * @return El tiempo hacia cada destino, en el mismo orden, con {@link Integer#MAX_VALUE}
+     * en los inalcanzables.
+     * @throws SearchAbortedException Si la búsqueda supera el presupuesto.
+     */
+    public static int[] travelTimes(CompactGraph graph, int source, int[] targets, SearchBudget budget) {
+        SearchState state = SearchState.forward(graph.nodeCount());
+        settleTargets(graph, state, source, targets, budget);
+        int[] times = new int[targets.length];
+        for (int i = 0; i < targets.length; i++) {
+            times[i] = state.time(targets[i]);
+        }
+        return times;
+    }
+
+    /**
+     * Ejecuta Dijkstra desde el origen hasta asentar todos los destinos o agotar la cola.
+     * @return La cantidad de nodos asentados.
+     */
+    private static int settleTargets(CompactGraph graph, SearchState state, int source, int[] targets,
+                                     SearchBudget budget) {
+        SearchQueue queue = state.queue(QueueKind.forMaxWeight(graph.maxWeight()), graph.maxWeight());
+        // El valor auxiliar marca los destinos pendientes (1) y ya asentados (2)
+        int pending = 0;
+        for (int target : targets) {
+            if (state.aux(target) != 1) {
+                state.setAux(target, 1);
+                pending++;
+            }
+        }
+        int settled = 0;
+        int checkpoint = budget.start();
+
+        state.update(source, 0, -1);
+        queue.add(source);
+        while (!queue.isEmpty() && pending > 0) {
+            long entry = queue.poll();
+            int current = (int) entry;
+            int currentTime = (int) (entry >>> 32);
+            if (currentTime > state.time(current)) {
+                continue; // Entrada obsoleta
+            }
+            settled++;
+            if (state.aux(current) == 1) {
+                state.setAux(current, 2);
+                pending--;
+            }
+            if (settled == checkpoint) {
+                checkpoint = budget.checkpoint(settled);
+            }
+            for (int edge = graph.edgeStart(current), end = graph.edgeEnd(current); edge < end; edge++) {
+                int neighbor = graph.target(edge);
+                int newTime = currentTime + graph.weight(edge);
+                if (newTime < state.time(neighbor)) {
+                    state.update(neighbor, newTime, current);
+                    queue.add(((long) newTime << 32) | neighbor);
+                }
+            }
+        }
+        return settled;
+    }
+
+    /**
+     * Recorre los nodos alcanzables desde un origen dentro de un tiempo máximo, entregando
+     * cada uno al visitante en el momento en que se asienta. Las aristas que superan el tiempo
+     * máximo no se relajan, por lo que la búsqueda se detiene apenas la frontera lo sobrepasa.
+     * Sobre el grafo transpuesto entrega los nodos desde los que se alcanza {@code source}.
+     * @param graph El grafo.
+     * @param source Id del origen.
+     * @param maxTime Tiempo máximo, inclusive.
+     * @param visitor Recibe cada nodo asentado con su tiempo, comenzando por el origen.
+     * @return La cantidad de nodos entregados.
+     */
+    public static int withinTime(CompactGraph graph, int source, int maxTime, SettledNodeVisitor visitor) {
+        return withinTime(graph, source, maxTime, visitor, SearchBudget.UNLIMITED);
+    }
+
+    /**
+     * Recorre los nodos alcanzables desde un origen dentro de un tiempo máximo y de un presupuesto.
+     * Si la búsqueda se interrumpe, el visitante ya recibió los nodos asentados hasta ese momento.
+     * @param graph El grafo.
+     * @param source Id del origen.
+     * @param maxTime Tiempo máximo, inclusive.
+     * @param visitor Recibe cada nodo asentado con su tiempo, comenzando por el origen.
+     * @param budget Límites de la búsqueda.
+     * @return La cantidad de nodos entregados.
+     * @throws SearchAbortedException Si la búsqueda supera el presupuesto.
+     */
+    public static int withinTime(CompactGraph graph, int source, int maxTime, SettledNodeVisitor visitor,
+                                 SearchBudget budget) {
+        SearchState state = SearchState.forward(graph.nodeCount());
+        SearchQueue queue = state.queue(QueueKind.forMaxWeight(graph.maxWeight()), graph.maxWeight());
+        int settled = 0;
+        int checkpoint = budget.start();
+
+        state.update(source, 0, -1);
+        queue.add(source);
+        while (!queue.isEmpty()) {
+            long entry = queue.poll();
+            int current = (int) entry;
+            int currentTime = (int) (entry >>> 32);
+            if (currentTime > state.time(current)) {
+                continue; // Entrada obsoleta
+            }
+            settled++;
+            visitor.settled(current, currentTime);
+            if (settled == checkpoint) {
+                checkpoint = budget.checkpoint(settled);
+            }
+
+            for (int edge = graph.edgeStart(current), end = graph.edgeEnd(current); edge < end; edge++) {
+                int neighbor = graph.target(edge);
+                long newTime = (long) currentTime + graph.weight(edge);
+                if (newTime <= maxTime && newTime < state.time(neighbor)) {
+                    state.update(neighbor, (int) newTime, current);
+                    queue.add((newTime << 32) | neighbor);
+                }
+            }
+        }
+        return settled;
+    }
+
+    /**
+     * Calcula el tiempo mínimo desde un nodo hacia todos los demás.
+     * Sobre el grafo transpuesto entrega el tiempo desde cada nodo hacia {@code source}.
+     * @param graph El grafo.
+     * @param source Id del origen.
+     * @return Arreglo indexado por id, con {@link Integer#MAX_VALUE} en los nodos inalcanzables.
+     */
+    public static int[] distancesFrom(CompactGraph graph, int source) {
+        int[] times = new int[graph.nodeCount()];
+        Arrays.fill(times, Integer.MAX_VALUE);
+        LongHeap heap = new LongHeap();
+        times[source] = 0;
+        heap.add(source);
+        while (!heap.isEmpty()) {
+            long entry = heap.poll();
+            int current = (int) entry;
+            int currentTime = (int) (entry >>> 32);
+            if (currentTime > times[current]) {
+                continue;
+            }
+            for (int edge = graph.edgeStart(current), end = graph.edgeEnd(current); edge < end; edge++) {
+                int neighbor = graph.target(edge);
+                int newTime = currentTime + graph.weight(edge);
+                if (newTime < times[neighbor]) {
+                    times[neighbor] = newTime;
+                    heap.add(((long) newTime << 32) | neighbor);
+                }
+            }
+        }
+        return times;
+    }
+}
@@ -0,0 +1,501 @@
+package cl.cesar.ApiRoute.routing;
+
+import cl.cesar.ApiRoute.model.CompactGraph;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+
+/**
+ * Etiquetas de hubs (hub labeling) del grafo, para consultas de tiempo de viaje sin búsqueda.
+ *
+ * Cada nodo {@code v} tiene una etiqueta de salida con pares {@code (h, d(v, h))} y una de
+ * entrada con pares {@code (h, d(h, v))}. Las etiquetas cubren todos los pares con ruta:
+ * alguna ruta más rápida de {@code s} a {@code t} pasa por un hub que está en la etiqueta de
+ * salida de {@code s} y en la de entrada de {@code t}. El tiempo de viaje es el mínimo de
+ * {@code d(s, h) + d(h, t)} entre los hubs comunes, que se obtiene mezclando dos listas
+ * ordenadas, sin cola de prioridad y sin tocar el grafo.
+ *
+ * La construcción es el etiquetado podado (pruned landmark labeling): los nodos se procesan
+ * en orden de importancia, y desde cada uno un Dijkstra hacia adelante llena etiquetas de
+ * entrada y uno hacia atrás llena etiquetas de salida. Ambos dejan de expandir un nodo cuando
+ * las etiquetas ya existentes dan un tiempo igual o menor, por lo que los nodos procesados al
+ * final hacen búsquedas muy cortas. Los nodos se procesan en lotes en paralelo: dentro de un
+ * lote las búsquedas solo podan con las etiquetas de los lotes anteriores, lo que agrega
+ * algunas entradas de más pero conserva la cobertura. Los hubs se guardan como su posición
+ * en el orden, de modo que cada etiqueta queda ordenada al agregarlas en ese orden.
+ *
+ * Las etiquetas se guardan en arreglos planos tipo CSR por nodo. El tamaño depende mucho del
+ * grafo: es pequeño en redes con jerarquía (pocos nodos por los que pasan muchas rutas) y
+ * crece con la raíz de la cantidad de nodos en mallas, por eso la construcción se abandona si
+ * supera un máximo de bytes.
+ *
+ * La instancia es inmutable después de construirse y segura entre hilos.
+ */
+public final class HubLabels {
+
+    private static final int INFINITY = SearchState.UNREACHED;
+
+    /** Marca de nodo asentado en {@link SearchState#aux(int)}. */
+    private static final int SETTLED = 1;
+
+    /** Búsquedas por hilo en cada lote de la construcción en paralelo. */
+    private static final int BATCH_PER_WORKER = 4;
+
+    private final int nodeCount;
+
+    // Etiquetas de salida: hubs alcanzables desde cada nodo, en formato CSR por nodo
+    private final int[] outOffsets;
+    private final int[] outHubs;
+    private final int[] outTimes;
+
+    // Etiquetas de entrada: hubs desde los que se alcanza cada nodo, en formato CSR por nodo
+    private final int[] inOffsets;
+    private final int[] inHubs;
+    private final int[] inTimes;
+
+    private final long buildNanos;
+
+    private HubLabels(int nodeCount, Labels out, Labels in, long buildNanos) {
+        this.nodeCount = nodeCount;
+        this.outOffsets = new int[nodeCount + 1];
+        this.inOffsets = new int[nodeCount + 1];
+        this.outHubs = new int[(int) out.entries];
+        this.outTimes = new int[(int) out.entries];
+        this.inHubs = new int[(int) in.entries];
+        this.inTimes = new int[(int) in.entries];
+        out.flatten(outOffsets, outHubs, outTimes);
+        in.flatten(inOffsets, inHubs, inTimes);
+        this.buildNanos = buildNanos;
+    }
+
+    /**
+     * Construye las etiquetas procesando los nodos en el orden dado.
+     * @param graph El grafo.
+     * @param reverse El grafo transpuesto de {@code graph}.
+     * @param order Todos los nodos, del más importante al menos importante.
+     * @param pool Pool donde se reparten las búsquedas de cada lote; null construye en el hilo que llama.
+     * @param parallelism Hilos del pool a usar.
+     * @param maxBytes Máximo de bytes de las etiquetas; 0 sin límite.
+     * @return Las etiquetas, o null si superan {@code maxBytes}.
+     */
+    public static HubLabels build(CompactGraph graph, CompactGraph reverse, int[] order, ExecutorService pool,
+                                  int parallelism, long maxBytes) {
+        long start = System.nanoTime();
+        int nodeCount = graph.nodeCount();
+        if (order.length != nodeCount) {
+            throw new IllegalArgumentException("El orden tiene " + order.length + " nodos; el grafo tiene " + nodeCount);
+        }
+        Labels out = new Labels(nodeCount);
+        Labels in = new Labels(nodeCount);
+        int workers = pool == null ? 1 : Math.max(1, parallelism);
+        int[][] hubTimes = new int[workers][];
+        for (int w = 0; w < workers; w++) {
+            hubTimes[w] = new int[nodeCount];
+            Arrays.fill(hubTimes[w], INFINITY);
+        }
+
+        // Los primeros nodos son los que más podan: los lotes empiezan de a uno y crecen
+        int maxBatch = workers == 1 ? 1 : workers * BATCH_PER_WORKER;
+        int batch = 1;
+        int first = 0;
+        while (first < nodeCount) {
+            int end = Math.min(nodeCount, first + batch);
+            Found[] found = new Found[end - first];
+            if (workers == 1 || end - first == 1) {
+                for (int rank = first; rank < end; rank++) {
+                    found[rank - first] = search(graph, reverse, order[rank], out, in, hubTimes[0]);
+                }
+            } else {
+                runBatch(graph, reverse, order, first, end, out, in, hubTimes, pool, found);
+            }
+            // Las entradas se agregan en orden de rango, después de terminar todo el lote
+            for (int rank = first; rank < end; rank++) {
+                Found hub = found[rank - first];
+                in.appendAll(rank, hub.forwardNodes, hub.forwardTimes);
+                out.appendAll(rank, hub.backwardNodes, hub.backwardTimes);
+            }
+            if (maxBytes > 0 && estimatedBytes(nodeCount, out.entries + in.entries) > maxBytes
+                    || out.entries > Integer.MAX_VALUE - 8 || in.entries > Integer.MAX_VALUE - 8) {
+                return null;
+            }
+            first = end;
+            batch = Math.min(maxBatch, batch * 2);
+        }
+        return new HubLabels(nodeCount, out, in, System.nanoTime() - start);
+    }
+
+    private static void runBatch(CompactGraph graph, CompactGraph reverse, int[] order, int first, int end,
+                                 Labels out, Labels in, int[][] hubTimes, ExecutorService pool, Found[] found) {
+        int workers = Math.min(hubTimes.length, end - first);
+        List<Callable<Void>> tasks = new ArrayList<>(workers);
+        for (int w = 0; w < workers; w++) {
+            int worker = w;
+            tasks.add(() -> {
+                for (int rank = first + worker; rank < end; rank += workers) {
+                    found[rank - first] = search(graph, reverse, order[rank], out, in, hubTimes[worker]);
+                }
+                return null;
+            });
+        }
+        try {
+            for (Future<Void> task : pool.invokeAll(tasks)) {
+                task.get();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Construcción de etiquetas interrumpida", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw new IllegalStateException(e.getCause());
+        }
+    }
+
+    /** Las dos búsquedas podadas desde un hub; solo leen las etiquetas ya agregadas. */
+    private static Found search(CompactGraph graph, CompactGraph reverse, int hub, Labels out, Labels in,
+                                int[] hubTimes) {
+        Found found = new Found();
+        // Hacia adelante: d(hub, v) para las etiquetas de entrada, podando con salida(hub) + entrada(v)
+        found.forwardNodes = new IntList();
+        found.forwardTimes = new IntList();
+        prunedSearch(graph, hub, out, in, hubTimes, found.forwardNodes, found.forwardTimes);
+        // Hacia atrás: d(v, hub) para las etiquetas de salida, podando con salida(v) + entrada(hub)
+        found.backwardNodes = new IntList();
+        found.backwardTimes = new IntList();
+        prunedSearch(reverse, hub, in, out, hubTimes, found.backwardNodes, found.backwardTimes);
+        return found;
+    }
+
+    /**
+     * Dijkstra desde {@code hub} que no expande los nodos cuyas etiquetas ya dan su tiempo.
+     * @param hubSide Etiquetas del lado del hub ({@code hubTimes} se llena con la suya).
+     * @param reachedSide Etiquetas del lado de los nodos alcanzados.
+     */
+    private static void prunedSearch(CompactGraph graph, int hub, Labels hubSide, Labels reachedSide, int[] hubTimes,
+                                     IntList nodes, IntList times) {
+        int[] ownHubs = hubSide.hubs[hub];
+        int[] ownTimes = hubSide.times[hub];
+        int ownSize = hubSide.sizes[hub];
+        for (int i = 0; i < ownSize; i++) {
+            hubTimes[ownHubs[i]] = ownTimes[i];
+        }
+        SearchState state = SearchState.forward(graph.nodeCount());
+        LongHeap heap = state.heap();
+        state.update(hub, 0, -1);
+        heap.add(hub);
+        while (!heap.isEmpty()) {
+            long entry = heap.poll();
+            int u = (int) entry;
+            int time = (int) (entry >>> 32);
+            if (time > state.time(u) || state.aux(u) == SETTLED) {
+                continue;
+            }
+            state.setAux(u, SETTLED);
+            if (covered(reachedSide, u, hubTimes, time)) {
+                continue;
+            }
+            nodes.add(u);
+            times.add(time);
+            for (int e = graph.edgeStart(u), end = graph.edgeEnd(u); e < end; e++) {
+                int v = graph.target(e);
+                int candidate = time + graph.weight(e);
+                if (candidate < state.time(v)) {
+                    state.update(v, candidate, u);
+                    heap.add((long) candidate << 32 | v);
+                }
+            }
+        }
+        for (int i = 0; i < ownSize; i++) {
+            hubTimes[ownHubs[i]] = INFINITY;
+        }
+    }
+
+    /** Indica si las etiquetas existentes ya dan un tiempo de a lo más {@code time}. */
+    private static boolean covered(Labels side, int node, int[] hubTimes, int time) {
+        int[] hubs = side.hubs[node];
+        int[] times = side.times[node];
+        for (int i = 0, size = side.sizes[node]; i < size; i++) {
+            int hubTime = hubTimes[hubs[i]];
+            if (hubTime != INFINITY && (long) hubTime + times[i] <= time) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Orden de importancia por cobertura de rutas: se calculan árboles de rutas más rápidas
+     * desde nodos al azar, hacia adelante y hacia atrás, y cada nodo suma la cantidad de
+     * nodos que cuelgan de él en cada árbol. Los nodos por los que pasan más rutas quedan
+     * primero; el grado desempata.
+     * @param graph El grafo.
+     * @param reverse El grafo transpuesto de {@code graph}.
+     * @param samples Árboles por sentido.
+     * @param seed Semilla de los nodos de partida.
+     * @return Todos los nodos, del más importante al menos importante.
+     */
+    public static int[] coverageOrder(CompactGraph graph, CompactGraph reverse, int samples, long seed) {
+        int nodeCount = graph.nodeCount();
+        long[] coverage = new long[nodeCount];
+        if (nodeCount > 0) {
+            SplittableRandom random = new SplittableRandom(seed);
+            int[] settled = new int[nodeCount];
+            int[] below = new int[nodeCount];
+            for (int s = 0; s < samples; s++) {
+                int root = random.nextInt(nodeCount);
+                addCoverage(graph, root, settled, below, coverage);
+                addCoverage(reverse, root, settled, below, coverage);
+            }
+        }
+        // Cada clave empaqueta (cobertura, grado, nodo) para ordenar sin objetos
+        long[] keys = new long[nodeCount];
+        for (int v = 0; v < nodeCount; v++) {
+            int degree = Math.min(15, graph.edgeEnd(v) - graph.edgeStart(v) + reverse.edgeEnd(v) - reverse.edgeStart(v));
+            long score = Math.min(coverage[v], (1L << 27) - 1) << 4 | degree;
+            keys[v] = score << 32 | v;
+        }
+        Arrays.sort(keys);
+        int[] order = new int[nodeCount];
+        for (int i = 0; i < nodeCount; i++) {
+            order[i] = (int) keys[nodeCount - 1 - i];
+        }
+        return order;
+    }
+
+    /** Suma a cada nodo la cantidad de nodos de su subárbol en el árbol de rutas desde {@code root}. */
+    private static void addCoverage(CompactGraph graph, int root, int[] settled, int[] below, long[] coverage) {
+        SearchState state = SearchState.forward(graph.nodeCount());
+        LongHeap heap = state.heap();
+        state.update(root, 0, -1);
+        heap.add(root);
+        int count = 0;
+        while (!heap.isEmpty()) {
+            long entry = heap.poll();
+            int u = (int) entry;
+            int time = (int) (entry >>> 32);
+            if (time > state.time(u) || state.aux(u) == SETTLED) {
+                continue;
+            }
+            state.setAux(u, SETTLED);
+            settled[count++] = u;
+            below[u] = 1;
+            for (int e = graph.edgeStart(u), end = graph.edgeEnd(u); e < end; e++) {
+                int v = graph.target(e);
+                int candidate = time + graph.weight(e);
+                if (candidate < state.time(v)) {
+                    state.update(v, candidate, u);
+                    heap.add((long) candidate << 32 | v);
+                }
+            }
+        }
+        // En orden inverso de asentamiento cada nodo ya tiene sumado todo su subárbol
+        for (int i = count - 1; i >= 0; i--) {
+            int u = settled[i];
+            coverage[u] += below[u];
+            int parent = state.predecessor(u);
+            if (parent >= 0) {
+                below[parent] += below[u];
+            }
+        }
+    }
+
+    /**
+     * Orden de importancia de una jerarquía de contracción: los nodos contraídos al final
+     * quedan primero.
+     * @param hierarchy La jerarquía del mismo grafo.
+     * @param nodeCount Cantidad de nodos del grafo.
+     * @return Todos los nodos, del más importante al menos importante.
+     */
+    public static int[] hierarchyOrder(ContractionHierarchy hierarchy, int nodeCount) {
+        long[] keys = new long[nodeCount];
+        for (int v = 0; v < nodeCount; v++) {
+            keys[v] = (long) hierarchy.rank(v) << 32 | v;
+        }
+        Arrays.sort(keys);
+        int[] order = new int[nodeCount];
+        for (int i = 0; i < nodeCount; i++) {
+            order[i] = (int) keys[nodeCount - 1 - i];
+        }
+        return order;
+    }
+
+    /**
+     * Tiempo de viaje más corto entre dos nodos, mezclando la etiqueta de salida del origen
+     * con la de entrada del destino.
+     * @return El tiempo, o {@link SearchState#UNREACHED} si no hay ruta.
+     */
+    public int distance(int source, int target) {
+        int i = outOffsets[source];
+        int outEnd = outOffsets[source + 1];
+        int j = inOffsets[target];
+        int inEnd = inOffsets[target + 1];
+        long best = INFINITY;
+        while (i < outEnd && j < inEnd) {
+            int outHub = outHubs[i];
+            int inHub = inHubs[j];
+            if (outHub == inHub) {
+                long time = (long) outTimes[i++] + inTimes[j++];
+                if (time < best) {
+                    best = time;
+                }
+            } else if (outHub < inHub) {
+                i++;
+            } else {
+                j++;
+            }
+        }
+        return (int) best;
+    }
+
+    /**
+     * Encuentra la ruta más rápida con una búsqueda dirigida por las etiquetas: desde el
+     * origen, cada paso sigue la primera arista {@code (v, w)} con
+     * {@code peso + d(w, destino) = d(v, destino)}, de modo que nunca se desvía de una ruta
+     * más rápida ni usa cola de prioridad. Los nodos asentados del resultado son los de la ruta.
+     * Si la ruta no puede seguirse (solo ocurre con ciclos de tiempo 0), se responde con Dijkstra.
+     * @param graph El grafo con el que se construyeron las etiquetas.
+     * @param source Id del origen.
+     * @param target Id del destino.
+     * @return La ruta y su tiempo total, o un resultado no encontrado.
+     */
+    public PathResult shortestPath(CompactGraph graph, int source, int target) {
+        int total = distance(source, target);
+        if (total == INFINITY) {
+            return PathResult.notFound(0, RouteAlgorithm.HL);
+        }
+        SearchState state = SearchState.forward(nodeCount);
+        int[] path = new int[16];
+        int length = 0;
+        int relaxed = 0;
+        int node = source;
+        int remaining = total;
+        state.setAux(source, SETTLED);
+        path[length++] = source;
+        while (node != target) {
+            int next = -1;
+            for (int e = graph.edgeStart(node), end = graph.edgeEnd(node); e < end && next < 0; e++) {
+                relaxed++;
+                int v = graph.target(e);
+                int weight = graph.weight(e);
+                if (weight <= remaining && state.aux(v) != SETTLED && distance(v, target) == remaining - weight) {
+                    next = v;
+                    remaining -= weight;
+                }
+            }
+            if (next < 0) {
+                return Dijkstra.shortestPath(graph, source, target);
+            }
+            state.setAux(next, SETTLED);
+            if (length == path.length) {
+                path = Arrays.copyOf(path, length * 2);
+            }
+            path[length++] = next;
+            node = next;
+        }
+        return new PathResult(Arrays.copyOf(path, length), total, length, relaxed, 0, RouteAlgorithm.HL);
+    }
+
+    /** Cantidad total de entradas de las etiquetas de salida y de entrada. */
+    public long entryCount() {
+        return (long) outHubs.length + inHubs.length;
+    }
+
+    /** Entradas promedio por etiqueta (dos etiquetas por nodo). */
+    public double averageLabelSize() {
+        return nodeCount == 0 ? 0 : entryCount() / (2.0 * nodeCount);
+    }
+
+    /** Entradas de la etiqueta más grande. */
+    public int maxLabelSize() {
+        int max = 0;
+        for (int v = 0; v < nodeCount; v++) {
+            max = Math.max(max, Math.max(outOffsets[v + 1] - outOffsets[v], inOffsets[v + 1] - inOffsets[v]));
+        }
+        return max;
+    }
+
+    /** Duración de la construcción, incluida la del orden si se pasó ya calculado. */
+    public long buildMillis() {
+        return buildNanos / 1_000_000;
+    }
+
+    /** Bytes aproximados ocupados por las etiquetas. */
+    public long estimatedBytes() {
+        return estimatedBytes(nodeCount, entryCount());
+    }
+
+    private static long estimatedBytes(int nodeCount, long entries) {
+        return 8L * (nodeCount + 1) + 8L * entries + 6 * 16L;
+    }
+
+    /** Etiquetas de un sentido durante la construcción, con una lista creciente por nodo. */
+    private static final class Labels {
+
+        private final int[][] hubs;
+        private final int[][] times;
+        private final int[] sizes;
+        private long entries;
+
+        Labels(int nodeCount) {
+            hubs = new int[nodeCount][];
+            times = new int[nodeCount][];
+            sizes = new int[nodeCount];
+            int[] empty = new int[0];
+            Arrays.fill(hubs, empty);
+            Arrays.fill(times, empty);
+        }
+
+        void appendAll(int hub, IntList nodes, IntList nodeTimes) {
+            for (int i = 0; i < nodes.size; i++) {
+                int node = nodes.values[i];
+                int size = sizes[node];
+                if (size == hubs[node].length) {
+                    int capacity = Math.max(4, size * 2);
+                    hubs[node] = Arrays.copyOf(hubs[node], capacity);
+                    times[node] = Arrays.copyOf(times[node], capacity);
+                }
+                hubs[node][size] = hub;
+                times[node][size] = nodeTimes.values[i];
+                sizes[node] = size + 1;
+            }
+            entries += nodes.size;
+        }
+
+        void flatten(int[] offsets, int[] flatHubs, int[] flatTimes) {
+            for (int v = 0; v < sizes.length; v++) {
+                int offset = offsets[v];
+                System.arraycopy(hubs[v], 0, flatHubs, offset, sizes[v]);
+                System.arraycopy(times[v], 0, flatTimes, offset, sizes[v]);
+                offsets[v + 1] = offset + sizes[v];
+            }
+        }
+    }
+
+    /** Nodos y tiempos alcanzados por las dos búsquedas de un hub. */
+    private static final class Found {
+        IntList forwardNodes;
+        IntList forwardTimes;
+        IntList backwardNodes;
+        IntList backwardTimes;
+    }
+
+    private static final class IntList {
+
+        private int[] values = new int[8];
+        private int size;
+
+        void add(int value) {
+            if (size == values.length) {
+                values = Arrays.copyOf(values, size * 2);
+            }
+            values[size++] = value;
+        }
+    }
+}
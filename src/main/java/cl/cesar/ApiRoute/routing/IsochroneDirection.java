@@ -0,0 +1,11 @@
+package cl.cesar.ApiRoute.routing;
+
+/**
+ * Sentido de una isócrona respecto de la ubicación consultada.
+ */
+public enum IsochroneDirection {
+    /** Ubicaciones alcanzables desde la ubicación dentro del tiempo máximo. */
+    FORWARD,
+    /** Ubicaciones desde las que se alcanza la ubicación dentro del tiempo máximo (grafo transpuesto). */
+    REVERSE
+}
@@ -0,0 +1,477 @@
+package cl.cesar.ApiRoute.routing;
+
+import cl.cesar.ApiRoute.model.CompactGraph;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.Set;
+
+/**
+ * Rutas alternativas entre dos nodos: las K rutas sin ciclos más rápidas (Yen) o rutas
+ * diversas por penalización.
+ *
+ * Ambos modos comienzan con un Dijkstra hacia atrás desde el destino sobre el transpuesto,
+ * que se detiene al asentar el origen. Ese árbol entrega la primera ruta y se conserva para
+ * todas las búsquedas siguientes como cota inferior exacta del tiempo al destino: quitar o
+ * encarecer conexiones solo alarga los tiempos, por lo que la cota sigue siendo consistente.
+ * Los nodos que el árbol no asentó tienen al menos el tiempo del origen, que sirve de cota.
+ *
+ * Cada búsqueda siguiente es un A* con esa cota que termina apenas asienta un nodo cuyo
+ * camino en el árbol hasta el destino es utilizable: con la cota exacta, ese camino completa
+ * la ruta óptima. Así una búsqueda de desvío asienta pocos nodos más que los del desvío, y
+ * K rutas cuestan poco más que la búsqueda inicial.
+ *
+ * El conteo de nodos asentados es común a todas las búsquedas y se revisa contra un solo
+ * {@link SearchBudget}, de modo que un K grande no ocupa el hilo más que lo permitido.
+ */
+public final class KShortestPaths {
+
+    /** Rondas de penalización por ruta pedida, para cortar cuando se repiten rutas. */
+    private static final int PENALTY_ROUNDS = 3;
+
+    // Marca en el estado del árbol (hacia atrás) de los nodos asentados, con tiempo exacto
+    private static final int SETTLED = 1;
+    // Marca en el estado de cada búsqueda de desvío de los nodos que no se pueden visitar
+    private static final int BLOCKED = 1;
+
+    private final CompactGraph graph;
+    private final SearchBudget budget;
+    private final Penalties penalties;
+    private SearchState tree;
+    private int target;
+    private int radius;
+    private int settled;
+    private int relaxed;
+    private int pushes;
+    private int checkpoint;
+
+    private KShortestPaths(CompactGraph graph, SearchBudget budget, Penalties penalties) {
+        this.graph = graph;
+        this.budget = budget;
+        this.penalties = penalties;
+    }
+
+    /**
+     * Las K rutas sin ciclos más rápidas, con el algoritmo de Yen y la variante de Lawler:
+     * cada ruta solo genera desvíos desde el nodo en que se separó de la ruta de la que salió.
+     * @param graph El grafo.
+     * @param reverse El transpuesto de {@code graph}.
+     * @param source Id del origen.
+     * @param target Id del destino.
+     * @param k Cantidad máxima de rutas.
+     * @param budget Límites del conjunto de búsquedas.
+     * @return Hasta K rutas en orden de tiempo; ninguna si no hay ruta.
+     * @throws SearchAbortedException Si las búsquedas superan el presupuesto.
+     */
+    public static AlternativeRoutes yen(CompactGraph graph, CompactGraph reverse, int source, int target, int k,
+                                        SearchBudget budget) {
+        KShortestPaths search = new KShortestPaths(graph, budget, null);
+        int[] first = search.firstPath(reverse, source, target);
+        List<Route> accepted = new ArrayList<>();
+        if (first != null) {
+            accepted.add(search.route(first, 0));
+        }
+        PriorityQueue<Route> candidates = new PriorityQueue<>(
+                Comparator.comparingInt(Route::distance).thenComparingInt(route -> route.nodes.length));
+        Set<Route> seen = new HashSet<>(accepted);
+
+        while (!accepted.isEmpty() && accepted.size() < k) {
+            Route previous = accepted.get(accepted.size() - 1);
+            // Rutas aceptadas que comparten con la anterior el tramo hasta el nodo de desvío
+            List<Route> sharing = new ArrayList<>();
+            for (Route route : accepted) {
+                if (route.sharesPrefix(previous, previous.deviation)) {
+                    sharing.add(route);
+                }
+            }
+            for (int i = previous.deviation; i < previous.nodes.length - 1; i++) {
+                int position = i;
+                int spurNode = previous.nodes[i];
+                if (i > previous.deviation) {
+                    sharing.removeIf(route -> route.nodes.length <= position || route.nodes[position] != spurNode);
+                }
+                int[] blockedNext = new int[sharing.size()];
+                int blocked = 0;
+                for (Route route : sharing) {
+                    if (route.nodes.length > i + 1) {
+                        blockedNext[blocked++] = route.nodes[i + 1];
+                    }
+                }
+                SearchState state = SearchState.forward(graph.nodeCount());
+                for (int j = 0; j < i; j++) {
+                    state.setAux(previous.nodes[j], BLOCKED);
+                }
+                int[] spur = search.spur(state, spurNode, blockedNext, blocked);
+                if (spur == null) {
+                    continue;
+                }
+                int[] nodes = Arrays.copyOf(previous.nodes, i + spur.length);
+                System.arraycopy(spur, 0, nodes, i, spur.length);
+                Route candidate = search.route(nodes, i);
+                if (seen.add(candidate)) {
+                    candidates.add(candidate);
+                }
+            }
+            if (candidates.isEmpty()) {
+                break;
+            }
+            accepted.add(candidates.poll());
+        }
+        return search.result(accepted, AlternativeMode.YEN);
+    }
+
+    /**
+     * Rutas diversas por penalización: después de cada ruta, sus conexiones multiplican su
+     * tiempo por {@code penalty} en las búsquedas siguientes, que así prefieren separarse de
+     * las rutas ya encontradas. Los tiempos informados son los reales, sin penalización.
+     * @param graph El grafo.
+     * @param reverse El transpuesto de {@code graph}.
+     * @param source Id del origen.
+     * @param target Id del destino.
+     * @param k Cantidad máxima de rutas.
+     * @param penalty Factor por el que se multiplica el tiempo de una conexión cada vez que
+     * aparece en una ruta encontrada; mayor que 1.
+     * @param budget Límites del conjunto de búsquedas.
+     * @return Hasta K rutas distintas en orden de tiempo; ninguna si no hay ruta.
+     * @throws SearchAbortedException Si las búsquedas superan el presupuesto.
+     * @throws IllegalArgumentException Si {@code penalty} no es mayor que 1.
+     */
+    public static AlternativeRoutes penalty(CompactGraph graph, CompactGraph reverse, int source, int target, int k,
+                                            double penalty, SearchBudget budget) {
+        if (!(penalty > 1)) {
+            throw new IllegalArgumentException("El factor de penalización debe ser mayor que 1: " + penalty);
+        }
+        KShortestPaths search = new KShortestPaths(graph, budget, new Penalties(penalty));
+        int[] first = search.firstPath(reverse, source, target);
+        List<Route> found = new ArrayList<>();
+        if (first != null) {
+            found.add(search.route(first, 0));
+            search.penalties.add(graph, first);
+        }
+        for (int round = 1; !found.isEmpty() && found.size() < k && round < PENALTY_ROUNDS * k; round++) {
+            int[] path = search.spur(SearchState.forward(graph.nodeCount()), source, null, 0);
+            if (path == null) {
+                break;
+            }
+            Route route = search.route(path, 0);
+            if (!found.contains(route)) {
+                found.add(route);
+            }
+            search.penalties.add(graph, path);
+        }
+        found.sort(Comparator.comparingInt(Route::distance));
+        return search.result(found, AlternativeMode.PENALTY);
+    }
+
+    /**
+     * Dijkstra hacia atrás desde el destino hasta asentar el origen.
+     * @return La ruta más rápida, o null si no hay ruta.
+     */
+    private int[] firstPath(CompactGraph reverse, int source, int target) {
+        this.target = target;
+        this.checkpoint = budget.start();
+        tree = SearchState.backward(reverse.nodeCount());
+        SearchQueue queue = tree.queue(QueueKind.forMaxWeight(reverse.maxWeight()), reverse.maxWeight());
+        tree.update(target, 0, -1);
+        queue.add(target);
+        pushes++;
+        boolean found = false;
+        while (!queue.isEmpty()) {
+            long entry = queue.poll();
+            int current = (int) entry;
+            int currentTime = (int) (entry >>> 32);
+            if (currentTime > tree.time(current)) {
+                continue; // Entrada obsoleta
+            }
+            tree.setAux(current, SETTLED);
+            radius = currentTime;
+            settle();
+            if (current == source) {
+                found = true;
+                break;
+            }
+            int start = reverse.edgeStart(current);
+            int end = reverse.edgeEnd(current);
+            relaxed += end - start;
+            for (int edge = start; edge < end; edge++) {
+                int neighbor = reverse.target(edge);
+                int newTime = currentTime + reverse.weight(edge);
+                if (newTime < tree.time(neighbor)) {
+                    // El predecesor en el árbol es el siguiente nodo hacia el destino
+                    tree.update(neighbor, newTime, current);
+                    queue.add(((long) newTime << 32) | neighbor);
+                    pushes++;
+                }
+            }
+        }
+        if (!found) {
+            return null;
+        }
+        int length = 1;
+        for (int step = source; step != target; step = tree.predecessor(step)) {
+            length++;
+        }
+        int[] path = new int[length];
+        int index = 0;
+        for (int step = source; step != -1; step = tree.predecessor(step)) {
+            path[index++] = step;
+        }
+        return path;
+    }
+
+    /**
+     * A* desde {@code from} hasta el destino sobre el grafo sin los nodos marcados como
+     * bloqueados en {@code state} ni las aristas de {@code from} hacia {@code blockedNext}.
+     * @return La ruta desde {@code from} hasta el destino, o null si no hay.
+     */
+    private int[] spur(SearchState state, int from, int[] blockedNext, int blockedCount) {
+        LongHeap heap = state.heap();
+        state.update(from, 0, -1);
+        heap.add((long) bound(from) << 32 | from);
+        pushes++;
+        while (!heap.isEmpty()) {
+            long entry = heap.poll();
+            int current = (int) entry;
+            int currentTime = state.time(current);
+            if ((entry >>> 32) > (long) currentTime + bound(current)) {
+                continue; // Entrada obsoleta
+            }
+            settle();
+            if (completes(state, current, from, blockedNext, blockedCount)) {
+                return join(state, current);
+            }
+            boolean penalized = penalties != null && penalties.hasNode(current);
+            int start = graph.edgeStart(current);
+            int end = graph.edgeEnd(current);
+            relaxed += end - start;
+            for (int edge = start; edge < end; edge++) {
+                int neighbor = graph.target(edge);
+                if (state.aux(neighbor) == BLOCKED
+                        || (current == from && contains(blockedNext, blockedCount, neighbor))) {
+                    continue;
+                }
+                long weight = penalized ? penalties.weight(edge, graph.weight(edge)) : graph.weight(edge);
+                long newTime = currentTime + weight;
+                long estimate = newTime + bound(neighbor);
+                if (newTime < state.time(neighbor) && estimate < Integer.MAX_VALUE) {
+                    state.update(neighbor, (int) newTime, current);
+                    heap.add(estimate << 32 | neighbor);
+                    pushes++;
+                }
+            }
+        }
+        return null;
+    }
+
+    /** Cota inferior del tiempo desde un nodo hasta el destino. */
+    private int bound(int node) {
+        return tree.aux(node) == SETTLED ? tree.time(node) : radius;
+    }
+
+    /**
+     * Indica si el camino del árbol desde {@code node} completa la ruta: sin nodos bloqueados,
+     * sin aristas bloqueadas o penalizadas y sin nodos ya alcanzados por la búsqueda, que
+     * podrían formar un ciclo. La revisión es conservadora: si descarta un camino utilizable,
+     * el A* sigue y encuentra la misma ruta más adelante.
+     */
+    private boolean completes(SearchState state, int node, int from, int[] blockedNext, int blockedCount) {
+        if (tree.aux(node) != SETTLED) {
+            return false;
+        }
+        for (int step = node; step != target; ) {
+            int next = tree.predecessor(step);
+            if ((step == from && contains(blockedNext, blockedCount, next))
+                    || (penalties != null && penalties.hasNode(step))) {
+                return false;
+            }
+            if (next != target && (state.aux(next) == BLOCKED || state.time(next) != SearchState.UNREACHED)) {
+                return false;
+            }
+            step = next;
+        }
+        return true;
+    }
+
+    /** Une el tramo de la búsqueda desde su inicio hasta {@code node} con el camino del árbol hasta el destino. */
+    private int[] join(SearchState state, int node) {
+        int[] head = state.pathTo(node);
+        int tail = 0;
+        for (int step = node; step != target; step = tree.predecessor(step)) {
+            tail++;
+        }
+        int[] path = Arrays.copyOf(head, head.length + tail);
+        int index = head.length;
+        for (int step = tree.predecessor(node); index < path.length; step = tree.predecessor(step)) {
+            path[index++] = step;
+        }
+        return path;
+    }
+
+    private static boolean contains(int[] values, int count, int value) {
+        for (int i = 0; i < count; i++) {
+            if (values[i] == value) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private void settle() {
+        settled++;
+        if (settled == checkpoint) {
+            checkpoint = budget.checkpoint(settled);
+        }
+    }
+
+    /** Ruta con sus tiempos acumulados, usando la conexión más rápida entre cada par de nodos. */
+    private Route route(int[] nodes, int deviation) {
+        int[] times = new int[nodes.length];
+        for (int i = 1; i < nodes.length; i++) {
+            int fastest = Integer.MAX_VALUE;
+            for (int edge = graph.edgeStart(nodes[i - 1]), end = graph.edgeEnd(nodes[i - 1]); edge < end; edge++) {
+                if (graph.target(edge) == nodes[i]) {
+                    fastest = Math.min(fastest, graph.weight(edge));
+                }
+            }
+            times[i] = times[i - 1] + fastest;
+        }
+        return new Route(nodes, times, deviation);
+    }
+
+    private AlternativeRoutes result(List<Route> routes, AlternativeMode mode) {
+        List<int[]> paths = new ArrayList<>(routes.size());
+        List<Integer> distances = new ArrayList<>(routes.size());
+        for (Route route : routes) {
+            paths.add(route.nodes);
+            distances.add(route.distance());
+        }
+        return new AlternativeRoutes(paths, distances, settled, relaxed, pushes, mode);
+    }
+
+    /**
+     * Ruta candidata o aceptada. Dos rutas son iguales si recorren los mismos nodos.
+     */
+    private static final class Route {
+
+        final int[] nodes;
+        final int[] times;
+        /** Posición del nodo en que la ruta se separó de la ruta de la que salió. */
+        final int deviation;
+
+        Route(int[] nodes, int[] times, int deviation) {
+            this.nodes = nodes;
+            this.times = times;
+            this.deviation = deviation;
+        }
+
+        int distance() {
+            return times[times.length - 1];
+        }
+
+        /** Indica si ambas rutas pasan por los mismos nodos hasta la posición {@code last}, inclusive. */
+        boolean sharesPrefix(Route other, int last) {
+            return nodes.length > last && Arrays.equals(nodes, 0, last + 1, other.nodes, 0, last + 1);
+        }
+
+        @Override
+        public boolean equals(Object other) {
+            return other instanceof Route route && Arrays.equals(nodes, route.nodes);
+        }
+
+        @Override
+        public int hashCode() {
+            return Arrays.hashCode(nodes);
+        }
+    }
+
+    /**
+     * Cantidad de veces que cada arista aparece en las rutas ya encontradas, en tablas de
+     * direccionamiento abierto, más el conjunto de nodos de los que sale alguna arista
+     * penalizada. Solo se consulta la tabla de aristas al expandir esos nodos.
+     */
+    private static final class Penalties {
+
+        private final double factor;
+        private final IntCounts edges = new IntCounts();
+        private final IntCounts nodes = new IntCounts();
+
+        Penalties(double factor) {
+            this.factor = factor;
+        }
+
+        void add(CompactGraph graph, int[] path) {
+            for (int i = 0; i + 1 < path.length; i++) {
+                nodes.increment(path[i]);
+                for (int edge = graph.edgeStart(path[i]), end = graph.edgeEnd(path[i]); edge < end; edge++) {
+                    if (graph.target(edge) == path[i + 1]) {
+                        edges.increment(edge);
+                    }
+                }
+            }
+        }
+
+        boolean hasNode(int node) {
+            return nodes.get(node) > 0;
+        }
+
+        /** Tiempo penalizado de una arista, acotado a Integer.MAX_VALUE para que sumarlo no desborde. */
+        long weight(int edge, int weight) {
+            int count = edges.get(edge);
+            return count == 0 ? weight : (long) Math.min(Integer.MAX_VALUE, Math.ceil(weight * Math.pow(factor, count)));
+        }
+    }
+
+    /** Conteos por clave entera no negativa, con direccionamiento abierto. */
+    private static final class IntCounts {
+
+        // Clave + 1 en keys (0 = libre)
+        private int[] keys = new int[64];
+        private int[] counts = new int[64];
+        private int size;
+
+        int get(int key) {
+            int slot = slot(key);
+            return keys[slot] == 0 ? 0 : counts[slot];
+        }
+
+        void increment(int key) {
+            int slot = slot(key);
+            if (keys[slot] == 0) {
+                if (2 * (size + 1) > keys.length) {
+                    grow();
+                    slot = slot(key);
+                }
+                keys[slot] = key + 1;
+                size++;
+            }
+            counts[slot]++;
+        }
+
+        private int slot(int key) {
+            int mask = keys.length - 1;
+            int slot = (key * 0x9E3779B9) >>> (32 - Integer.numberOfTrailingZeros(keys.length));
+            while (keys[slot] != 0 && keys[slot] != key + 1) {
+                slot = (slot + 1) & mask;
+            }
+            return slot;
+        }
+
+        private void grow() {
+            int[] oldKeys = keys;
+            int[] oldCounts = counts;
+            keys = new int[oldKeys.length * 2];
+            counts = new int[oldKeys.length * 2];
+            for (int i = 0; i < oldKeys.length; i++) {
+                if (oldKeys[i] != 0) {
+                    int slot = slot(oldKeys[i] - 1);
+                    keys[slot] = oldKeys[i];
+                    counts[slot] = oldCounts[i];
+                }
+            }
+        }
+    }
+}
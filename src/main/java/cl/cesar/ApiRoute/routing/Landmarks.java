@@ -0,0 +1,121 @@
+package cl.cesar.ApiRoute.routing;
+
+import cl.cesar.ApiRoute.model.CompactGraph;
+
+/**
+ * Tablas de distancias a un conjunto de nodos de referencia (landmarks), usadas como
+ * cotas inferiores por la búsqueda A* (ALT).
+ *
+ * Para cada landmark {@code L} se guarda el tiempo {@code d(L, v)} desde el landmark hacia
+ * cada nodo y el tiempo {@code d(v, L)} desde cada nodo hacia el landmark. Por la desigualdad
+ * triangular, {@code d(v, t) >= d(L, t) - d(L, v)} y {@code d(v, t) >= d(v, L) - d(t, L)}.
+ * Las tablas se guardan por nodo ({@code v * count + k}), de modo que las cotas de un nodo
+ * para todos los landmarks quedan contiguas en memoria.
+ *
+ * Los landmarks se eligen con la heurística del más lejano: cada uno es el nodo cuya
+ * distancia mínima a los ya elegidos es mayor, prefiriendo los nodos inalcanzables desde
+ * ellos, lo que reparte landmarks también entre componentes desconectadas.
+ */
+public final class Landmarks {
+
+    /** Marca de distancia para nodos inalcanzables. */
+    public static final int UNREACHABLE = Integer.MAX_VALUE;
+
+    private final int[] nodes;
+    private final int[] fromLandmark;
+    private final int[] toLandmark;
+
+    private Landmarks(int[] nodes, int[] fromLandmark, int[] toLandmark) {
+        this.nodes = nodes;
+        this.fromLandmark = fromLandmark;
+        this.toLandmark = toLandmark;
+    }
+
+    /**
+     * Elige los landmarks y calcula sus tablas con dos búsquedas completas por landmark.
+     * @param forward El grafo.
+     * @param reverse El grafo transpuesto de {@code forward}.
+     * @param requested Cantidad de landmarks deseada; se limita a la cantidad de nodos.
+     * @return Las tablas de distancias.
+     */
+    public static Landmarks compute(CompactGraph forward, CompactGraph reverse, int requested) {
+        int nodeCount = forward.nodeCount();
+        int count = Math.max(0, Math.min(requested, nodeCount));
+        int[] nodes = new int[count];
+        int[] fromLandmark = new int[count * nodeCount];
+        int[] toLandmark = new int[count * nodeCount];
+        if (count == 0) {
+            return new Landmarks(nodes, fromLandmark, toLandmark);
+        }
+
+        // Distancia mínima (hacia adelante) desde cualquiera de los landmarks ya elegidos
+        int[] nearest = Dijkstra.distancesFrom(forward, 0);
+        for (int k = 0; k < count; k++) {
+            int landmark = farthest(nearest);
+            nodes[k] = landmark;
+            int[] from = Dijkstra.distancesFrom(forward, landmark);
+            int[] to = Dijkstra.distancesFrom(reverse, landmark);
+            for (int v = 0; v < nodeCount; v++) {
+                fromLandmark[v * count + k] = from[v];
+                toLandmark[v * count + k] = to[v];
+                nearest[v] = k == 0 ? from[v] : Math.min(nearest[v], from[v]);
+            }
+        }
+        return new Landmarks(nodes, fromLandmark, toLandmark);
+    }
+
+    private static int farthest(int[] distances) {
+        int best = 0;
+        for (int v = 1; v < distances.length; v++) {
+            if (distances[v] > distances[best]) {
+                best = v;
+            }
+        }
+        return best;
+    }
+
+    /**
+     * Cota inferior del tiempo desde {@code node} hasta {@code target}.
+     * @return La cota, o {@link #UNREACHABLE} si las tablas prueban que no hay ruta.
+     */
+    public int lowerBound(int node, int target) {
+        int count = nodes.length;
+        int nodeBase = node * count;
+        int targetBase = target * count;
+        int bound = 0;
+        for (int k = 0; k < count; k++) {
+            int landmarkToNode = fromLandmark[nodeBase + k];
+            int landmarkToTarget = fromLandmark[targetBase + k];
+            if (landmarkToNode != UNREACHABLE) {
+                if (landmarkToTarget == UNREACHABLE) {
+                    return UNREACHABLE; // El landmark llega al nodo pero no al destino
+                }
+                bound = Math.max(bound, landmarkToTarget - landmarkToNode);
+            }
+            int nodeToLandmark = toLandmark[nodeBase + k];
+            int targetToLandmark = toLandmark[targetBase + k];
+            if (targetToLandmark != UNREACHABLE) {
+                if (nodeToLandmark == UNREACHABLE) {
+                    return UNREACHABLE; // El destino llega al landmark pero el nodo no
+                }
+                bound = Math.max(bound, nodeToLandmark - targetToLandmark);
+            }
+        }
+        return bound;
+    }
+
+    /** Cantidad de landmarks. */
+    public int count() {
+        return nodes.length;
+    }
+
+    /** Id del landmark {@code k}. */
+    public int node(int k) {
+        return nodes[k];
+    }
+
+    /** Bytes aproximados ocupados por las tablas. */
+    public long estimatedBytes() {
+        return 3 * 16L + 4L * (nodes.length + fromLandmark.length + toLandmark.length);
+    }
+}
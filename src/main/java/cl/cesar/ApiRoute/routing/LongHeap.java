@@ -0,0 +1,86 @@
+package cl.cesar.ApiRoute.routing;
+
+import java.util.Arrays;
+
+/**
+ * Montículo binario mínimo de valores {@code long} sin boxing.
+ *
+ * Las búsquedas empaquetan {@code (tiempo << 32 | nodo)} en cada valor, por lo que el orden
+ * natural del {@code long} es el orden por tiempo. Igual que con {@code PriorityQueue<Long>},
+ * un nodo puede tener varias entradas y las obsoletas se descartan al extraerlas.
+ * El arreglo interno crece según se necesite y se reutiliza entre búsquedas.
+ */
+public final class LongHeap implements SearchQueue {
+
+    private long[] values;
+    private int size;
+
+    public LongHeap() {
+        this(64);
+    }
+
+    public LongHeap(int capacity) {
+        values = new long[Math.max(4, capacity)];
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public void clear() {
+        size = 0;
+    }
+
+    @Override
+    public void add(long value) {
+        if (size == values.length) {
+            values = Arrays.copyOf(values, size * 2);
+        }
+        int index = size++;
+        while (index > 0) {
+            int parent = (index - 1) >>> 1;
+            long parentValue = values[parent];
+            if (parentValue <= value) {
+                break;
+            }
+            values[index] = parentValue;
+            index = parent;
+        }
+        values[index] = value;
+    }
+
+    @Override
+    public long peek() {
+        return values[0];
+    }
+
+    @Override
+    public long poll() {
+        long result = values[0];
+        long last = values[--size];
+        int index = 0;
+        int half = size >>> 1;
+        while (index < half) {
+            int child = 2 * index + 1;
+            long childValue = values[child];
+            int right = child + 1;
+            if (right < size && values[right] < childValue) {
+                child = right;
+                childValue = values[right];
+            }
+            if (last <= childValue) {
+                break;
+            }
+            values[index] = childValue;
+            index = child;
+        }
+        values[index] = last;
+        return result;
+    }
+}
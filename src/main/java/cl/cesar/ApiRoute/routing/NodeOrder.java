@@ -0,0 +1,108 @@
+package cl.cesar.ApiRoute.routing;
+
+import cl.cesar.ApiRoute.model.CompactGraph;
+
+import java.util.Arrays;
+
+/**
+ * Orden en que se numeran los nodos del grafo después de una carga.
+ *
+ * Los ids del CSV siguen el orden de primera aparición, que no tiene relación con la
+ * estructura del grafo: los vecinos de un nodo quedan dispersos en los arreglos de
+ * distancias y de aristas y cada relajación de Dijkstra tiende a ser un fallo de caché.
+ * Un recorrido del grafo numera juntos a los nodos cercanos, de modo que una búsqueda,
+ * que avanza por vecindades, toca líneas de caché contiguas. Los nombres no cambian.
+ */
+public enum NodeOrder {
+    /** Conserva el orden de primera aparición del CSV. */
+    NONE,
+    /** Recorrido en anchura: cada nivel de la búsqueda queda en ids contiguos. */
+    BFS,
+    /** Recorrido en profundidad (preorden): cada camino queda en ids contiguos. */
+    DFS;
+
+    /**
+     * Renumera el grafo según este orden.
+     * @param graph El grafo.
+     * @return El grafo renumerado, o el mismo grafo con {@link #NONE}.
+     */
+    public CompactGraph apply(CompactGraph graph) {
+        return this == NONE ? graph : graph.renumber(permutation(graph));
+    }
+
+    /**
+     * Calcula el id nuevo de cada nodo. Los recorridos parten del nodo 0 y continúan desde
+     * el menor id aún no visitado, por lo que todos los nodos reciben un id.
+     * @param graph El grafo.
+     * @return El id nuevo de cada nodo; con {@link #NONE}, la identidad.
+     */
+    public int[] permutation(CompactGraph graph) {
+        int nodeCount = graph.nodeCount();
+        int[] newId = new int[nodeCount];
+        switch (this) {
+            case BFS -> breadthFirst(graph, newId);
+            case DFS -> depthFirst(graph, newId);
+            default -> {
+                for (int u = 0; u < nodeCount; u++) {
+                    newId[u] = u;
+                }
+            }
+        }
+        return newId;
+    }
+
+    private static void breadthFirst(CompactGraph graph, int[] newId) {
+        int nodeCount = graph.nodeCount();
+        Arrays.fill(newId, -1);
+        // Los ids nuevos son las posiciones en la cola: queue[id nuevo] = nodo
+        int[] queue = new int[nodeCount];
+        int tail = 0;
+        for (int root = 0; root < nodeCount; root++) {
+            if (newId[root] >= 0) {
+                continue;
+            }
+            newId[root] = tail;
+            queue[tail++] = root;
+            for (int head = newId[root]; head < tail; head++) {
+                int u = queue[head];
+                for (int edge = graph.edgeStart(u), end = graph.edgeEnd(u); edge < end; edge++) {
+                    int v = graph.target(edge);
+                    if (newId[v] < 0) {
+                        newId[v] = tail;
+                        queue[tail++] = v;
+                    }
+                }
+            }
+        }
+    }
+
+    private static void depthFirst(CompactGraph graph, int[] newId) {
+        int nodeCount = graph.nodeCount();
+        Arrays.fill(newId, -1);
+        int[] nextEdge = new int[nodeCount];
+        int[] stack = new int[nodeCount];
+        int counter = 0;
+        for (int root = 0; root < nodeCount; root++) {
+            if (newId[root] >= 0) {
+                continue;
+            }
+            int top = 0;
+            newId[root] = counter++;
+            nextEdge[root] = graph.edgeStart(root);
+            stack[top++] = root;
+            while (top > 0) {
+                int u = stack[top - 1];
+                if (nextEdge[u] == graph.edgeEnd(u)) {
+                    top--;
+                    continue;
+                }
+                int v = graph.target(nextEdge[u]++);
+                if (newId[v] < 0) {
+                    newId[v] = counter++;
+                    nextEdge[v] = graph.edgeStart(v);
+                    stack[top++] = v;
+                }
+            }
+        }
+    }
+}
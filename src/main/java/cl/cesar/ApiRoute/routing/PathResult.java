@@ -0,0 +1,81 @@
+package cl.cesar.ApiRoute.routing;
+
+/**
+ * Resultado de una búsqueda punto a punto en ids de nodo, antes de traducirlo a nombres.
+ */
+public final class PathResult {
+
+    private final int[] path;
+    private final int distance;
+    private final int settledNodes;
+    private final int relaxedEdges;
+    private final int queuePushes;
+    private final RouteAlgorithm algorithm;
+
+    public PathResult(int[] path, int distance, int settledNodes, RouteAlgorithm algorithm) {
+        this(path, distance, settledNodes, 0, 0, algorithm);
+    }
+
+    /**
+     * @param relaxedEdges Aristas revisadas al expandir los nodos asentados.
+     * @param queuePushes Entradas agregadas a las colas de prioridad.
+     */
+    public PathResult(int[] path, int distance, int settledNodes, int relaxedEdges, int queuePushes,
+                      RouteAlgorithm algorithm) {
+        this.path = path;
+        this.distance = distance;
+        this.settledNodes = settledNodes;
+        this.relaxedEdges = relaxedEdges;
+        this.queuePushes = queuePushes;
+        this.algorithm = algorithm;
+    }
+
+    /**
+     * Resultado para un destino inalcanzable.
+     * @param settledNodes Nodos asentados antes de concluir que no hay ruta.
+     * @param algorithm Algoritmo que realizó la búsqueda.
+     */
+    public static PathResult notFound(int settledNodes, RouteAlgorithm algorithm) {
+        return notFound(settledNodes, 0, 0, algorithm);
+    }
+
+    /**
+     * Resultado para un destino inalcanzable, con el trabajo realizado por la búsqueda.
+     */
+    public static PathResult notFound(int settledNodes, int relaxedEdges, int queuePushes, RouteAlgorithm algorithm) {
+        return new PathResult(null, -1, settledNodes, relaxedEdges, queuePushes, algorithm);
+    }
+
+    public boolean isFound() {
+        return path != null;
+    }
+
+    /** Ids de la ruta desde el origen hasta el destino, o null si no hay ruta. */
+    public int[] getPath() {
+        return path;
+    }
+
+    /** Tiempo total de la ruta, o -1 si no hay ruta. */
+    public int getDistance() {
+        return distance;
+    }
+
+    /** Cantidad de nodos asentados (extraídos definitivamente de la cola) durante la búsqueda. */
+    public int getSettledNodes() {
+        return settledNodes;
+    }
+
+    /** Cantidad de aristas revisadas al expandir los nodos asentados. */
+    public int getRelaxedEdges() {
+        return relaxedEdges;
+    }
+
+    /** Cantidad de entradas agregadas a las colas de prioridad, incluidas las que quedaron obsoletas. */
+    public int getQueuePushes() {
+        return queuePushes;
+    }
+
+    public RouteAlgorithm getAlgorithm() {
+        return algorithm;
+    }
+}
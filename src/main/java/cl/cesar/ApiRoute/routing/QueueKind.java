@@ -0,0 +1,28 @@
+package cl.cesar.ApiRoute.routing;
+
+/**
+ * Implementación de la cola de prioridad usada por Dijkstra.
+ */
+public enum QueueKind {
+    /** Montículo binario de {@code long}: sirve para cualquier peso. */
+    BINARY_HEAP,
+    /** Cola circular de cubetas (Dial), una por tiempo posible dentro de la ventana del peso máximo. */
+    DIAL,
+    /** Montículo radix de 33 cubetas según el bit más alto en que el tiempo difiere del último extraído. */
+    RADIX;
+
+    /**
+     * Mayor peso de arista con el que conviene la cola de Dial: con pesos mayores la
+     * búsqueda recorre demasiadas cubetas vacías y se usa el montículo radix.
+     */
+    public static final int DIAL_MAX_WEIGHT = 4096;
+
+    /**
+     * Elige la cola según el mayor tiempo de viaje del grafo, conocido desde la carga.
+     * @param maxWeight El mayor peso de arista.
+     * @return DIAL para pesos acotados, RADIX en otro caso.
+     */
+    public static QueueKind forMaxWeight(int maxWeight) {
+        return maxWeight <= DIAL_MAX_WEIGHT ? DIAL : RADIX;
+    }
+}
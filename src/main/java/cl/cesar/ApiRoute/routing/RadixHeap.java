@@ -0,0 +1,94 @@
+package cl.cesar.ApiRoute.routing;
+
+import java.util.Arrays;
+
+/**
+ * Montículo radix monótono para tiempos enteros no negativos de 32 bits.
+ *
+ * Una entrada con tiempo {@code t} vive en la cubeta {@code 32 - numberOfLeadingZeros(t ^ last)},
+ * donde {@code last} es el último tiempo extraído; la cubeta 0 contiene los tiempos iguales a
+ * {@code last}. Al vaciarse la cubeta 0 se toma la primera cubeta no vacía, su mínimo pasa a
+ * ser {@code last} y sus entradas se redistribuyen en cubetas menores. Cada entrada baja de
+ * cubeta como máximo 32 veces, sin importar el rango de los pesos.
+ */
+public final class RadixHeap implements SearchQueue {
+
+    private static final int BUCKETS = 33;
+
+    private final long[][] buckets = new long[BUCKETS][];
+    private final int[] sizes = new int[BUCKETS];
+    private int size;
+    private int last;
+
+    public RadixHeap() {
+        for (int i = 0; i < BUCKETS; i++) {
+            buckets[i] = new long[8];
+        }
+    }
+
+    private static int bucketOf(int time, int last) {
+        return 32 - Integer.numberOfLeadingZeros(time ^ last);
+    }
+
+    @Override
+    public void add(long entry) {
+        push(bucketOf((int) (entry >>> 32), last), entry);
+        size++;
+    }
+
+    private void push(int bucket, long entry) {
+        long[] values = buckets[bucket];
+        if (sizes[bucket] == values.length) {
+            values = Arrays.copyOf(values, values.length * 2);
+            buckets[bucket] = values;
+        }
+        values[sizes[bucket]++] = entry;
+    }
+
+    /** Deja en la cubeta 0 las entradas con el menor tiempo. */
+    private void refill() {
+        if (sizes[0] > 0) {
+            return;
+        }
+        int bucket = 1;
+        while (sizes[bucket] == 0) {
+            bucket++;
+        }
+        long[] values = buckets[bucket];
+        int count = sizes[bucket];
+        long min = values[0];
+        for (int i = 1; i < count; i++) {
+            min = Math.min(min, values[i]);
+        }
+        last = (int) (min >>> 32);
+        sizes[bucket] = 0;
+        for (int i = 0; i < count; i++) {
+            push(bucketOf((int) (values[i] >>> 32), last), values[i]);
+        }
+    }
+
+    @Override
+    public long peek() {
+        refill();
+        return buckets[0][sizes[0] - 1];
+    }
+
+    @Override
+    public long poll() {
+        refill();
+        size--;
+        return buckets[0][--sizes[0]];
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    @Override
+    public void clear() {
+        Arrays.fill(sizes, 0);
+        size = 0;
+        last = 0;
+    }
+}
@@ -0,0 +1,22 @@
+package cl.cesar.ApiRoute.routing;
+
+/**
+ * Algoritmo usado para responder una consulta de ruta punto a punto.
+ * Todos devuelven el mismo tiempo total; cuando hay varias rutas empatadas
+ * pueden elegir rutas distintas entre ellas.
+ */
+public enum RouteAlgorithm {
+    /** Dijkstra hacia adelante desde el origen hasta asentar el destino. */
+    DIJKSTRA,
+    /** Dijkstra simultáneo desde el origen y hacia atrás desde el destino. */
+    BIDIRECTIONAL,
+    /** A* con cotas inferiores de landmarks calculadas en la carga (ALT). */
+    ALT,
+    /** Búsqueda ascendente sobre la jerarquía de contracción construida en segundo plano. */
+    CH,
+    /**
+     * Tiempo por cruce de etiquetas de hubs construidas en segundo plano, y la ruta con una
+     * búsqueda dirigida por esas etiquetas.
+     */
+    HL
+}
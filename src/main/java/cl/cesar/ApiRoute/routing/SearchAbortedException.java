@@ -0,0 +1,52 @@
+package cl.cesar.ApiRoute.routing;
+
+/**
+ * Búsqueda interrumpida por su {@link SearchBudget} antes de concluir. No dice nada sobre la
+ * existencia de la ruta, por lo que el resultado no debe guardarse.
+ */
+public class SearchAbortedException extends RuntimeException {
+
+    /** Motivo de la interrupción. */
+    public enum Reason {
+        /** Se asentaron más nodos que el máximo permitido. */
+        SETTLED_NODES,
+        /** Se cumplió el plazo de la búsqueda. */
+        DEADLINE,
+        /** Quien pidió la búsqueda ya no espera la respuesta. */
+        CANCELLED,
+        /** La búsqueda se volvió pesada y no había cupo para otra búsqueda pesada. */
+        OVERLOADED
+    }
+
+    private final Reason reason;
+    private final int settledNodes;
+
+    public SearchAbortedException(Reason reason, int settledNodes) {
+        super(message(reason, settledNodes));
+        this.reason = reason;
+        this.settledNodes = settledNodes;
+    }
+
+    private static String message(Reason reason, int settledNodes) {
+        return switch (reason) {
+            case SETTLED_NODES -> "La búsqueda superó el máximo de nodos asentados (" + settledNodes + ").";
+            case DEADLINE -> "La búsqueda superó su tiempo máximo después de asentar " + settledNodes + " nodos.";
+            case CANCELLED -> "La búsqueda se canceló después de asentar " + settledNodes + " nodos.";
+            case OVERLOADED -> "Hay demasiadas búsquedas pesadas en curso; intenta más tarde.";
+        };
+    }
+
+    public Reason getReason() {
+        return reason;
+    }
+
+    /** Nodos asentados antes de la interrupción. */
+    public int getSettledNodes() {
+        return settledNodes;
+    }
+
+    /** Indica si la búsqueda superó su propio presupuesto, y no la capacidad del servicio. */
+    public boolean isBudgetExceeded() {
+        return reason == Reason.SETTLED_NODES || reason == Reason.DEADLINE;
+    }
+}
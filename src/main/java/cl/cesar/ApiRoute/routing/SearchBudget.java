@@ -0,0 +1,155 @@
+package cl.cesar.ApiRoute.routing;
+
+import java.util.concurrent.Semaphore;
+import java.util.function.BooleanSupplier;
+
+/**
+ * Límites de trabajo de una búsqueda: nodos asentados, plazo, cancelación cooperativa y cupo
+ * de búsquedas pesadas.
+ *
+ * Las búsquedas no consultan el presupuesto en cada nodo. Llevan la cuenta de asentados y
+ * llaman a {@link #checkpoint(int)} solo cuando la cuenta alcanza el punto de control que
+ * este les indicó, de modo que el costo en el ciclo es una comparación de enteros. Los puntos
+ * de control caen cada {@value #CHECK_INTERVAL} nodos, en el máximo de asentados y en el
+ * umbral de búsqueda pesada.
+ *
+ * Una búsqueda que supera {@code heavyAfter} asentados debe tomar un permiso del semáforo de
+ * búsquedas pesadas para continuar; si no hay, se interrumpe. Así las búsquedas largas no
+ * ocupan todos los hilos y las cortas, que nunca llegan al umbral, no esperan el permiso.
+ * Un presupuesto es de una sola búsqueda y de un solo hilo; {@link #release()} devuelve el
+ * permiso al terminar.
+ */
+public final class SearchBudget {
+
+    /** Nodos asentados entre consultas del plazo y de la cancelación. */
+    public static final int CHECK_INTERVAL = 1024;
+
+    /** Presupuesto sin límites: las búsquedas nunca llegan a su punto de control. */
+    public static final SearchBudget UNLIMITED = new SearchBudget(0, 0, null, 0, null);
+
+    private final int maxSettledNodes;
+    private final long deadlineNanos;
+    private final BooleanSupplier cancelled;
+    private final int heavyAfter;
+    private final Semaphore heavyPermits;
+    private boolean heavy;
+    // Devolvió el permiso mientras espera y debe volver a pedirlo al retomar
+    private boolean paused;
+
+    /**
+     * @param maxSettledNodes Máximo de nodos asentados; 0 sin límite.
+     * @param deadlineNanos Instante de {@link System#nanoTime()} en que vence el plazo; 0 sin plazo.
+     * @param cancelled Indica si quien pidió la búsqueda ya no espera la respuesta; null si no se cancela.
+     * @param heavyAfter Asentados a partir de los cuales la búsqueda es pesada.
+     * @param heavyPermits Cupo de búsquedas pesadas simultáneas; null sin control de admisión.
+     */
+    public SearchBudget(int maxSettledNodes, long deadlineNanos, BooleanSupplier cancelled,
+                        int heavyAfter, Semaphore heavyPermits) {
+        this.maxSettledNodes = maxSettledNodes;
+        this.deadlineNanos = deadlineNanos;
+        this.cancelled = cancelled;
+        this.heavyAfter = Math.max(1, heavyAfter);
+        this.heavyPermits = heavyPermits;
+    }
+
+    /**
+     * Revisa el plazo y la cancelación antes de comenzar, por ejemplo después de esperar en la
+     * cola de un pool.
+     * @return El primer punto de control.
+     * @throws SearchAbortedException Si el plazo venció o la búsqueda se canceló.
+     */
+    public int start() {
+        checkTimeAndCancellation(0);
+        return nextCheckpoint(0);
+    }
+
+    /**
+     * Revisa los límites cuando la cuenta de asentados llega a un punto de control.
+     * @param settled Nodos asentados hasta ahora.
+     * @return El siguiente punto de control.
+     * @throws SearchAbortedException Si se superó algún límite o no hay cupo para una búsqueda pesada.
+     */
+    public int checkpoint(int settled) {
+        if (maxSettledNodes > 0 && settled > maxSettledNodes) {
+            throw new SearchAbortedException(SearchAbortedException.Reason.SETTLED_NODES, settled);
+        }
+        checkTimeAndCancellation(settled);
+        if (!heavy && heavyPermits != null && settled >= heavyAfter) {
+            if (!heavyPermits.tryAcquire()) {
+                throw new SearchAbortedException(SearchAbortedException.Reason.OVERLOADED, settled);
+            }
+            heavy = true;
+        }
+        return nextCheckpoint(settled);
+    }
+
+    /**
+     * Revisa el plazo y la cancelación fuera de un punto de control, por ejemplo mientras la
+     * búsqueda espera a que se lean sus resultados.
+     * @param settled Nodos asentados hasta ahora.
+     * @throws SearchAbortedException Si el plazo venció o la búsqueda se canceló.
+     */
+    public void checkTimeAndCancellation(int settled) {
+        if (cancelled != null && cancelled.getAsBoolean()) {
+            throw new SearchAbortedException(SearchAbortedException.Reason.CANCELLED, settled);
+        }
+        if (deadlineNanos != 0 && System.nanoTime() - deadlineNanos >= 0) {
+            throw new SearchAbortedException(SearchAbortedException.Reason.DEADLINE, settled);
+        }
+    }
+
+    private int nextCheckpoint(int settled) {
+        long next = Integer.MAX_VALUE;
+        if (deadlineNanos != 0 || cancelled != null) {
+            next = (long) settled + CHECK_INTERVAL;
+        }
+        if (maxSettledNodes > 0) {
+            next = Math.min(next, (long) maxSettledNodes + 1);
+        }
+        if (!heavy && heavyPermits != null) {
+            next = Math.min(next, Math.max(heavyAfter, settled + 1L));
+        }
+        return (int) next;
+    }
+
+    /**
+     * Devuelve el permiso de búsqueda pesada mientras la búsqueda espera a otra parte, de modo
+     * que una espera larga no ocupe el cupo. {@link #resume(int)} lo vuelve a pedir.
+     */
+    public void pause() {
+        if (heavy) {
+            release();
+            paused = true;
+        }
+    }
+
+    /**
+     * Retoma una búsqueda después de {@link #pause()}: revisa el plazo y la cancelación y
+     * vuelve a tomar el permiso que devolvió.
+     * @param settled Nodos asentados hasta ahora.
+     * @throws SearchAbortedException Si el plazo venció, la búsqueda se canceló o ya no hay cupo.
+     */
+    public void resume(int settled) {
+        checkTimeAndCancellation(settled);
+        if (paused) {
+            if (!heavyPermits.tryAcquire()) {
+                throw new SearchAbortedException(SearchAbortedException.Reason.OVERLOADED, settled);
+            }
+            paused = false;
+            heavy = true;
+        }
+    }
+
+    /** Indica si la búsqueda tomó un permiso de búsqueda pesada. */
+    public boolean isHeavy() {
+        return heavy;
+    }
+
+    /** Devuelve el permiso de búsqueda pesada, si se tomó. */
+    public void release() {
+        if (heavy) {
+            heavy = false;
+            heavyPermits.release();
+        }
+    }
+}
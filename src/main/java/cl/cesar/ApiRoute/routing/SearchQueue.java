@@ -0,0 +1,25 @@
+package cl.cesar.ApiRoute.routing;
+
+/**
+ * Cola de prioridad de las búsquedas. Cada entrada empaqueta {@code (tiempo << 32 | nodo)}
+ * y se extrae siempre la de menor tiempo.
+ *
+ * Las implementaciones para Dijkstra pueden suponer que la cola es monótona: nunca se
+ * agrega un tiempo menor que el último extraído. Un nodo puede tener varias entradas y las
+ * obsoletas se descartan al extraerlas.
+ */
+public interface SearchQueue {
+
+    void add(long entry);
+
+    /** Entrada con el menor tiempo, sin extraerla. La cola no debe estar vacía. */
+    long peek();
+
+    /** Extrae la entrada con el menor tiempo. La cola no debe estar vacía. */
+    long poll();
+
+    boolean isEmpty();
+
+    /** Vacía la cola conservando su capacidad. */
+    void clear();
+}
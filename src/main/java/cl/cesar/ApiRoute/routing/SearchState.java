@@ -0,0 +1,161 @@
+package cl.cesar.ApiRoute.routing;
+
+import java.util.Arrays;
+
+/**
+ * Estado reutilizable de una búsqueda: tiempo, predecesor y un valor auxiliar por nodo,
+ * más la cola de prioridad de la búsqueda.
+ *
+ * Los arreglos no se rellenan al comenzar cada búsqueda. Cada nodo guarda la época en que
+ * se escribió por última vez y {@link #reset()} solo incrementa la época actual, de modo que
+ * los valores de búsquedas anteriores quedan invalidados sin recorrerlos. Así una consulta
+ * que toca pocos nodos cuesta lo mismo en un grafo de diez nodos que en uno de millones.
+ *
+ * Cada hilo tiene sus propias instancias ({@link #forward(int)} y {@link #backward(int)});
+ * una instancia no debe usarse en dos búsquedas simultáneas del mismo hilo.
+ */
+public final class SearchState {
+
+    /** Tiempo de un nodo no alcanzado en la búsqueda actual. */
+    public static final int UNREACHED = Integer.MAX_VALUE;
+
+    private static final ThreadLocal<SearchState> FORWARD = ThreadLocal.withInitial(SearchState::new);
+    private static final ThreadLocal<SearchState> BACKWARD = ThreadLocal.withInitial(SearchState::new);
+
+    private int[] stamps = new int[0];
+    private int[] times = new int[0];
+    private int[] predecessors = new int[0];
+    private int[] aux = new int[0];
+    private int epoch;
+    private final LongHeap heap = new LongHeap();
+    private DialQueue dial;
+    private RadixHeap radix;
+
+    /**
+     * Estado de la búsqueda hacia adelante del hilo actual, ya reiniciado.
+     * @param nodeCount Cantidad de nodos del grafo a recorrer.
+     */
+    public static SearchState forward(int nodeCount) {
+        SearchState state = FORWARD.get();
+        state.reset(nodeCount);
+        return state;
+    }
+
+    /**
+     * Estado de la búsqueda hacia atrás del hilo actual, ya reiniciado.
+     * @param nodeCount Cantidad de nodos del grafo a recorrer.
+     */
+    public static SearchState backward(int nodeCount) {
+        SearchState state = BACKWARD.get();
+        state.reset(nodeCount);
+        return state;
+    }
+
+    /**
+     * Invalida todos los valores y vacía el montículo. Los arreglos solo se reservan de nuevo
+     * si el grafo tiene más nodos que la capacidad actual.
+     * @param nodeCount Cantidad de nodos del grafo a recorrer.
+     */
+    public void reset(int nodeCount) {
+        if (nodeCount > stamps.length) {
+            int capacity = Math.max(nodeCount, stamps.length + (stamps.length >> 1));
+            stamps = new int[capacity];
+            times = new int[capacity];
+            predecessors = new int[capacity];
+            aux = new int[capacity];
+            epoch = 0;
+        }
+        if (epoch == Integer.MAX_VALUE) {
+            Arrays.fill(stamps, 0);
+            epoch = 0;
+        }
+        epoch++;
+        heap.clear();
+    }
+
+    private void touch(int node) {
+        if (stamps[node] != epoch) {
+            stamps[node] = epoch;
+            times[node] = UNREACHED;
+            predecessors[node] = -1;
+            aux[node] = -1;
+        }
+    }
+
+    /** Tiempo del nodo en la búsqueda actual, o {@link #UNREACHED}. */
+    public int time(int node) {
+        return stamps[node] == epoch ? times[node] : UNREACHED;
+    }
+
+    /** Predecesor del nodo (un id de nodo o de arista, según el algoritmo), o -1. */
+    public int predecessor(int node) {
+        return stamps[node] == epoch ? predecessors[node] : -1;
+    }
+
+    /** Registra un tiempo mejor para el nodo. */
+    public void update(int node, int time, int predecessor) {
+        touch(node);
+        times[node] = time;
+        predecessors[node] = predecessor;
+    }
+
+    /** Valor auxiliar del nodo (por ejemplo una cota de A*), o -1 si no se ha asignado. */
+    public int aux(int node) {
+        return stamps[node] == epoch ? aux[node] : -1;
+    }
+
+    public void setAux(int node, int value) {
+        touch(node);
+        aux[node] = value;
+    }
+
+    public LongHeap heap() {
+        return heap;
+    }
+
+    /**
+     * Cola vacía del tipo pedido. Solo la cola devuelta se vacía; las demás pueden conservar
+     * entradas de búsquedas anteriores hasta que se vuelvan a pedir.
+     * @param kind El tipo de cola.
+     * @param maxWeight El mayor peso de arista del grafo, necesario para la cola de Dial.
+     */
+    public SearchQueue queue(QueueKind kind, int maxWeight) {
+        switch (kind) {
+            case DIAL -> {
+                if (dial == null || dial.maxWeight() != maxWeight) {
+                    dial = new DialQueue(maxWeight);
+                } else {
+                    dial.clear();
+                }
+                return dial;
+            }
+            case RADIX -> {
+                if (radix == null) {
+                    radix = new RadixHeap();
+                } else {
+                    radix.clear();
+                }
+                return radix;
+            }
+            default -> {
+                return heap;
+            }
+        }
+    }
+
+    /**
+     * Reconstruye la ruta siguiendo predecesores de nodo desde {@code last}.
+     * @return Los ids desde el primer nodo sin predecesor hasta {@code last}.
+     */
+    public int[] pathTo(int last) {
+        int length = 0;
+        for (int step = last; step != -1; step = predecessor(step)) {
+            length++;
+        }
+        int[] path = new int[length];
+        for (int step = last; step != -1; step = predecessor(step)) {
+            path[--length] = step;
+        }
+        return path;
+    }
+}
@@ -0,0 +1,14 @@
+package cl.cesar.ApiRoute.routing;
+
+/**
+ * Recibe cada nodo en el momento en que una búsqueda lo asienta, en orden de tiempo creciente.
+ */
+@FunctionalInterface
+public interface SettledNodeVisitor {
+
+    /**
+     * @param node Id del nodo asentado.
+     * @param time Tiempo mínimo desde el origen de la búsqueda.
+     */
+    void settled(int node, int time);
+}
@@ -0,0 +1,42 @@
+package cl.cesar.ApiRoute.service;
+
+import cl.cesar.ApiRoute.api.LoadResponse;
+import cl.cesar.ApiRoute.config.RouteProperties;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.stereotype.Component;
+
+import java.nio.file.Path;
+
+/**
+ * Carga al arrancar el archivo configurado en {@code routes.data.path}, para que una
+ * instancia reiniciada no quede con el grafo vacío hasta el próximo POST /load.
+ * Si el archivo es un snapshot binario se publica sin volver a leer el CSV.
+ */
+@Component
+public class GraphBootstrap implements ApplicationRunner {
+
+    private static final Logger log = LoggerFactory.getLogger(GraphBootstrap.class);
+
+    private final RouteService routeService;
+    private final RouteProperties properties;
+
+    public GraphBootstrap(RouteService routeService, RouteProperties properties) {
+        this.routeService = routeService;
+        this.properties = properties;
+    }
+
+    @Override
+    public void run(ApplicationArguments args) throws Exception {
+        String path = properties.getData().getPath();
+        if (path == null || path.isBlank()) {
+            return;
+        }
+        LoadResponse response = routeService.loadFile(Path.of(path), null);
+        log.info("Grafo inicial cargado desde {} ({}): {} ubicaciones, {} conexiones en {} ms, fases {}",
+                path, response.getMode(), response.getLocations(), response.getConnections(),
+                response.getTotalMillis(), response.getPhaseMillis());
+    }
+}
@@ -0,0 +1,152 @@
+package cl.cesar.ApiRoute.service;
+
+import cl.cesar.ApiRoute.model.CompactGraph;
+import cl.cesar.ApiRoute.model.GraphMemory;
+import cl.cesar.ApiRoute.routing.ComponentIndex;
+import cl.cesar.ApiRoute.routing.ContractionHierarchy;
+import cl.cesar.ApiRoute.routing.HubLabels;
+import cl.cesar.ApiRoute.routing.Landmarks;
+
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Versión publicada e inmutable del grafo.
+ * Cada carga construye un snapshot nuevo y lo publica con un único intercambio atómico;
+ * las consultas toman el snapshot vigente al comenzar y lo usan hasta terminar,
+ * sin bloqueos y sin ver nunca un grafo a medio construir.
+ *
+ * Junto al grafo se publica su transpuesto, construido durante la carga, que usan las
+ * búsquedas hacia atrás del Dijkstra bidireccional, las tablas de landmarks de la
+ * búsqueda ALT y el índice de componentes fuertemente conexas que descarta las consultas
+ * sin ruta. Todo se calcula antes del intercambio, por lo que una consulta siempre ve
+ * estructuras que corresponden al mismo grafo.
+ *
+ * La jerarquía de contracción y las etiquetas de hubs son la excepción: se construyen en
+ * segundo plano después de publicar, y el snapshot solo guarda los futuros que las entregan
+ * cuando están listas.
+ *
+ * Una actualización incremental de conexiones publica un snapshot que conserva los índices
+ * que el cambio no invalida. Los que sí invalida quedan en null (landmarks y componentes) o
+ * con la jerarquía y las etiquetas completadas en null, y las consultas usan las alternativas sin ellos hasta
+ * que el mantenimiento en segundo plano los reconstruye.
+ *
+ * Si el grafo vive fuera del heap, el grafo y su transpuesto comparten una {@link GraphMemory}
+ * que se cierra de forma determinista: quien lee el grafo fuera de la petición que lo tomó
+ * debe mantener una referencia con {@link #retain()} y {@link #release()}.
+ */
+public final class GraphSnapshot {
+
+    /** Snapshot inicial, antes de cualquier carga. */
+    public static final GraphSnapshot EMPTY = new GraphSnapshot(CompactGraph.EMPTY, CompactGraph.EMPTY,
+            Landmarks.compute(CompactGraph.EMPTY, CompactGraph.EMPTY, 0), ComponentIndex.compute(CompactGraph.EMPTY),
+            CompletableFuture.completedFuture(null), CompletableFuture.completedFuture(null), 0);
+
+    private final CompactGraph graph;
+    private final CompactGraph reverse;
+    private final Landmarks landmarks;
+    private final ComponentIndex components;
+    private final CompletableFuture<ContractionHierarchy> hierarchy;
+    private final CompletableFuture<HubLabels> hubLabels;
+    private final long version;
+    // Memoria fuera del heap del grafo y su transpuesto; null si viven en el heap
+    private final GraphMemory memory;
+
+    /**
+     * @throws IllegalArgumentException Si el grafo y su transpuesto no comparten la memoria.
+     */
+    public GraphSnapshot(CompactGraph graph, CompactGraph reverse, Landmarks landmarks, ComponentIndex components,
+                         CompletableFuture<ContractionHierarchy> hierarchy, CompletableFuture<HubLabels> hubLabels,
+                         long version) {
+        this.graph = graph;
+        this.reverse = reverse;
+        this.landmarks = landmarks;
+        this.components = components;
+        this.hierarchy = hierarchy;
+        this.hubLabels = hubLabels;
+        this.version = version;
+        this.memory = graph.memory();
+        if (reverse.memory() != memory) {
+            throw new IllegalArgumentException("El grafo y su transpuesto deben compartir la misma memoria");
+        }
+    }
+
+    public CompactGraph getGraph() {
+        return graph;
+    }
+
+    /** Grafo con todas las aristas invertidas, con los mismos ids que {@link #getGraph()}. */
+    public CompactGraph getReverse() {
+        return reverse;
+    }
+
+    /**
+     * Tablas de landmarks del grafo; sin landmarks si la cantidad configurada es 0, o null si
+     * una actualización las invalidó y aún no se recalculan.
+     */
+    public Landmarks getLandmarks() {
+        return landmarks;
+    }
+
+    /**
+     * Componentes fuertemente conexas del grafo y etiquetas de alcanzabilidad entre ellas, o
+     * null si una actualización las invalidó y aún no se recalculan.
+     */
+    public ComponentIndex getComponents() {
+        return components;
+    }
+
+    /**
+     * Indica si puede existir una ruta entre dos nodos según el índice de componentes.
+     * @return false solo si está probado que no hay ruta; true si hay que buscar.
+     */
+    public boolean mayReach(int source, int target) {
+        return components == null || components.mayReach(source, target);
+    }
+
+    /**
+     * Jerarquía de contracción de este grafo. El futuro se completa con null si la
+     * jerarquía está deshabilitada, falló o la versión fue reemplazada antes de construirla.
+     */
+    public CompletableFuture<ContractionHierarchy> getHierarchy() {
+        return hierarchy;
+    }
+
+    /**
+     * Etiquetas de hubs de este grafo. El futuro se completa con null si las etiquetas están
+     * deshabilitadas, superan el máximo de bytes, fallaron o la versión fue reemplazada antes
+     * de construirlas.
+     */
+    public CompletableFuture<HubLabels> getHubLabels() {
+        return hubLabels;
+    }
+
+    /** Memoria fuera del heap del grafo y su transpuesto, o null si viven en el heap. */
+    public GraphMemory getMemory() {
+        return memory;
+    }
+
+    /**
+     * Toma una referencia a la memoria del grafo para leerlo; en el heap no hace nada.
+     * @return false si la memoria ya se liberó porque el snapshot fue reemplazado.
+     */
+    public boolean retain() {
+        return memory == null || memory.retain();
+    }
+
+    /** Suelta una referencia tomada con {@link #retain()}. */
+    public void release() {
+        if (memory != null) {
+            memory.release();
+        }
+    }
+
+    /** Número de versión, creciente en cada publicación. */
+    public long getVersion() {
+        return version;
+    }
+
+    @Override
+    public String toString() {
+        return "GraphSnapshot{version=" + version + ", graph=" + graph + '}';
+    }
+}
@@ -0,0 +1,270 @@
+package cl.cesar.ApiRoute.service;
+
+import cl.cesar.ApiRoute.api.ConnectionChange;
+import cl.cesar.ApiRoute.model.CompactGraph;
+import cl.cesar.ApiRoute.routing.ComponentIndex;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Lote de cambios de conexiones aplicado sobre un snapshot sin reconstruir el grafo.
+ *
+ * Los cambios se agrupan por nodo: en el grafo se reemplazan las aristas salientes de cada
+ * origen afectado y en el transpuesto las entrantes de cada destino, con
+ * {@link CompactGraph#withReplacedEdges}, de modo que el costo depende de los nodos tocados
+ * y no del tamaño del grafo. Un cambio con tiempo agrega la conexión o fija su tiempo,
+ * reemplazando las aristas repetidas del mismo par; sin tiempo, la elimina.
+ *
+ * También se clasifica el efecto del lote sobre lo precalculado. Si ninguna conexión es
+ * nueva ni más rápida, ninguna distancia baja: las cotas de los landmarks siguen siendo
+ * válidas, las componentes no ganan caminos y una ruta guardada que no usa una conexión
+ * más lenta o eliminada sigue siendo la más rápida.
+ */
+final class GraphUpdate {
+
+    private static final int REMOVE = -1;
+
+    private final CompactGraph graph;
+    private final CompactGraph reverse;
+    private final int added;
+    private final int updated;
+    private final int removed;
+    private final int unchanged;
+    private final int notFound;
+    private final boolean shortens;
+    private final boolean joinsComponents;
+    private final Set<Long> slowed;
+
+    private GraphUpdate(CompactGraph graph, CompactGraph reverse, int[] counts, boolean shortens,
+                        boolean joinsComponents, Set<Long> slowed) {
+        this.graph = graph;
+        this.reverse = reverse;
+        this.added = counts[0];
+        this.updated = counts[1];
+        this.removed = counts[2];
+        this.unchanged = counts[3];
+        this.notFound = counts[4];
+        this.shortens = shortens;
+        this.joinsComponents = joinsComponents;
+        this.slowed = slowed;
+    }
+
+    /**
+     * Aplica los cambios sobre el grafo y el transpuesto de un snapshot.
+     * Si hay varios cambios para la misma conexión, vale el último.
+     * @param current El snapshot sobre el que se aplican los cambios.
+     * @param changes Los cambios, sobre ubicaciones existentes.
+     * @return El resultado, con los grafos nuevos y la clasificación de los cambios.
+     * @throws IllegalArgumentException Si un cambio está incompleto, usa una ubicación
+     * inexistente o tiene un tiempo negativo.
+     */
+    static GraphUpdate apply(GraphSnapshot current, List<ConnectionChange> changes) {
+        CompactGraph g = current.getGraph();
+        Map<Integer, Map<Integer, Integer>> bySource = new LinkedHashMap<>();
+        for (ConnectionChange change : changes) {
+            if (change == null || change.getOrigin() == null || change.getDestination() == null) {
+                throw new IllegalArgumentException("Cada cambio debe indicar origen y destino.");
+            }
+            int source = idOf(g, change.getOrigin());
+            int target = idOf(g, change.getDestination());
+            Integer time = change.getTime();
+            if (time != null && time < 0) {
+                throw new IllegalArgumentException("El tiempo no puede ser negativo: " + change.getOrigin()
+                        + " -> " + change.getDestination() + " = " + time);
+            }
+            bySource.computeIfAbsent(source, key -> new LinkedHashMap<>()).put(target, time == null ? REMOVE : time);
+        }
+
+        // added, updated, removed, unchanged, notFound
+        int[] counts = new int[5];
+        boolean shortens = false;
+        boolean joinsComponents = false;
+        Set<Long> slowed = new HashSet<>();
+        ComponentIndex components = current.getComponents();
+        Map<Integer, Map<Integer, Integer>> byTarget = new LinkedHashMap<>();
+        int[] nodes = new int[bySource.size()];
+        int[][] nodeTargets = new int[nodes.length][];
+        int[][] nodeWeights = new int[nodes.length][];
+        int patched = 0;
+        for (Map.Entry<Integer, Map<Integer, Integer>> entry : bySource.entrySet()) {
+            int source = entry.getKey();
+            Map<Integer, Integer> wanted = entry.getValue();
+            Map<Integer, Integer> previous = new HashMap<>();
+            int[][] edges = rewrite(g, source, wanted, previous);
+            boolean changed = false;
+            for (Map.Entry<Integer, Integer> change : wanted.entrySet()) {
+                int target = change.getKey();
+                int time = change.getValue();
+                Integer old = previous.get(target);
+                if (old == null && time == REMOVE) {
+                    counts[4]++;
+                    continue;
+                }
+                if (old == null) {
+                    counts[0]++;
+                    shortens = true;
+                    joinsComponents |= components != null && components.component(source) != components.component(target);
+                } else if (time == REMOVE) {
+                    counts[2]++;
+                    slowed.add(edgeKey(source, target));
+                } else if (time != old) {
+                    counts[1]++;
+                    if (time < old) {
+                        shortens = true;
+                    } else {
+                        slowed.add(edgeKey(source, target));
+                    }
+                } else {
+                    counts[3]++;
+                    continue;
+                }
+                changed = true;
+            }
+            if (changed) {
+                // El transpuesto recibe todos los cambios del nodo, para que también descarte sus repetidas
+                for (Map.Entry<Integer, Integer> change : wanted.entrySet()) {
+                    if (previous.containsKey(change.getKey()) || change.getValue() != REMOVE) {
+                        byTarget.computeIfAbsent(change.getKey(), key -> new LinkedHashMap<>())
+                                .put(source, change.getValue());
+                    }
+                }
+                nodes[patched] = source;
+                nodeTargets[patched] = edges[0];
+                nodeWeights[patched++] = edges[1];
+            }
+        }
+        if (patched == 0) {
+            return new GraphUpdate(g, current.getReverse(), counts, false, false, slowed);
+        }
+        CompactGraph graph = g.withReplacedEdges(Arrays.copyOf(nodes, patched),
+                Arrays.copyOf(nodeTargets, patched), Arrays.copyOf(nodeWeights, patched));
+
+        // En el transpuesto cambian las aristas entrantes de cada destino
+        CompactGraph r = current.getReverse();
+        int[] reverseNodes = new int[byTarget.size()];
+        int[][] reverseTargets = new int[reverseNodes.length][];
+        int[][] reverseWeights = new int[reverseNodes.length][];
+        int index = 0;
+        for (Map.Entry<Integer, Map<Integer, Integer>> entry : byTarget.entrySet()) {
+            int[][] edges = rewrite(r, entry.getKey(), entry.getValue(), null);
+            reverseNodes[index] = entry.getKey();
+            reverseTargets[index] = edges[0];
+            reverseWeights[index++] = edges[1];
+        }
+        CompactGraph reverse = r.withReplacedEdges(reverseNodes, reverseTargets, reverseWeights);
+        return new GraphUpdate(graph, reverse, counts, shortens, joinsComponents, slowed);
+    }
+
+    private static int idOf(CompactGraph g, String name) {
+        int id = g.idOf(name);
+        if (id < 0) {
+            throw new IllegalArgumentException("Ubicación desconocida: " + name
+                    + ". Las ubicaciones nuevas requieren una carga completa.");
+        }
+        return id;
+    }
+
+    /**
+     * Arma la lista nueva de aristas de un nodo. Una conexión que cambia de tiempo conserva la
+     * posición de su primera arista; las nuevas van al final.
+     * @param previous Si no es null, recibe el menor tiempo previo de cada conexión cambiada.
+     * @return Los destinos y los tiempos de las aristas nuevas.
+     */
+    private static int[][] rewrite(CompactGraph g, int node, Map<Integer, Integer> wanted, Map<Integer, Integer> previous) {
+        int start = g.edgeStart(node);
+        int end = g.edgeEnd(node);
+        int[] targets = new int[end - start + wanted.size()];
+        int[] weights = new int[targets.length];
+        Set<Integer> written = new HashSet<>();
+        int size = 0;
+        for (int edge = start; edge < end; edge++) {
+            int target = g.target(edge);
+            Integer time = wanted.get(target);
+            if (time == null) {
+                targets[size] = target;
+                weights[size++] = g.weight(edge);
+                continue;
+            }
+            if (previous != null) {
+                previous.merge(target, g.weight(edge), Math::min);
+            }
+            if (time != REMOVE && written.add(target)) {
+                targets[size] = target;
+                weights[size++] = time;
+            }
+        }
+        for (Map.Entry<Integer, Integer> change : wanted.entrySet()) {
+            if (change.getValue() != REMOVE && written.add(change.getKey())) {
+                targets[size] = change.getKey();
+                weights[size++] = change.getValue();
+            }
+        }
+        return new int[][] {Arrays.copyOf(targets, size), Arrays.copyOf(weights, size)};
+    }
+
+    private static long edgeKey(int source, int target) {
+        return (long) source << 32 | target;
+    }
+
+    CompactGraph getGraph() {
+        return graph;
+    }
+
+    CompactGraph getReverse() {
+        return reverse;
+    }
+
+    /** Indica si alguna conexión se agregó, eliminó o cambió de tiempo. */
+    boolean isChanged() {
+        return added + updated + removed > 0;
+    }
+
+    int getAdded() {
+        return added;
+    }
+
+    int getUpdated() {
+        return updated;
+    }
+
+    int getRemoved() {
+        return removed;
+    }
+
+    int getUnchanged() {
+        return unchanged;
+    }
+
+    int getNotFound() {
+        return notFound;
+    }
+
+    /** Indica si alguna conexión es nueva o más rápida, de modo que alguna distancia puede bajar. */
+    boolean isShortening() {
+        return shortens;
+    }
+
+    /** Indica si alguna conexión nueva une dos componentes distintas, lo que invalida el índice. */
+    boolean isJoiningComponents() {
+        return joinsComponents;
+    }
+
+    /**
+     * Indica si una ruta usa alguna conexión que se hizo más lenta o se eliminó.
+     * @param route Nombres de las ubicaciones de la ruta.
+     */
+    boolean slows(List<String> route) {
+        for (int i = 0; i + 1 < route.size(); i++) {
+            if (slowed.contains(edgeKey(graph.idOf(route.get(i)), graph.idOf(route.get(i + 1))))) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
@@ -0,0 +1,269 @@
+package cl.cesar.ApiRoute.service;
+
+import cl.cesar.ApiRoute.model.CompactGraph;
+import cl.cesar.ApiRoute.model.GraphMemory;
+import cl.cesar.ApiRoute.routing.Dijkstra;
+import cl.cesar.ApiRoute.routing.IsochroneDirection;
+import cl.cesar.ApiRoute.routing.SearchAbortedException;
+import cl.cesar.ApiRoute.routing.SearchBudget;
+import cl.cesar.ApiRoute.routing.SettledNodeVisitor;
+
+import java.lang.ref.Cleaner;
+import java.util.Arrays;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.ObjIntConsumer;
+import java.util.function.Supplier;
+
+/**
+ * Isócrona preparada sobre un snapshot: el grafo (o su transpuesto, según el sentido),
+ * la ubicación de partida y el tiempo máximo. La búsqueda no se ejecuta hasta llamar a
+ * {@link #forEach(ObjIntConsumer)}, de modo que los resultados pueden escribirse a medida
+ * que se asientan sin reunir antes el conjunto completo en memoria.
+ *
+ * La isócrona que entrega el servicio es dueña de una referencia al snapshot tomada al
+ * prepararla: si el grafo vive fuera del heap, una carga que lo reemplace no lo libera hasta
+ * que la isócrona se recorre o se cierra con {@link #close()}. Si nadie la recorre ni la
+ * cierra, la referencia se suelta cuando la isócrona deja de ser alcanzable.
+ *
+ * Con un executor, la búsqueda corre en sus hilos y no en el que recorre la isócrona, que
+ * suele ser un hilo de la petición. La búsqueda deja los nodos asentados en bloques en una
+ * cola acotada y el hilo que recorre los convierte en nombres y los entrega; si se atrasa, la
+ * búsqueda espera en lugar de acumular el conjunto completo. Mientras espera devuelve su
+ * permiso de búsqueda pesada y respeta el plazo y la cancelación de su presupuesto, por lo que
+ * el executor no debe ser uno con pocos hilos compartidos con otras consultas: un cliente que
+ * no lee ocuparía uno de ellos.
+ */
+public final class Isochrone implements AutoCloseable {
+
+    private static final Cleaner CLEANER = Cleaner.create();
+
+    /** Nodos por bloque entregado desde la búsqueda. */
+    private static final int CHUNK_SIZE = 256;
+    /** Bloques que la búsqueda puede adelantar a quien los entrega. */
+    private static final int QUEUE_CHUNKS = 16;
+    /** Cada cuánto se revisa si la otra parte abandonó mientras se espera la cola. */
+    private static final long POLL_MILLIS = 100;
+    // Marca el final de la búsqueda en la cola
+    private static final long[] END = new long[0];
+
+    private final CompactGraph graph;
+    private final String location;
+    private final int source;
+    private final int maxTime;
+    private final IsochroneDirection direction;
+    private final Supplier<SearchBudget> budgets;
+    // Donde corre la búsqueda; null la ejecuta en el hilo que recorre la isócrona
+    private final Executor executor;
+    private final AtomicBoolean closed = new AtomicBoolean();
+    // Suelta la referencia al snapshot una sola vez; null si la isócrona no tiene una
+    private final Cleaner.Cleanable lease;
+
+    /**
+     * @param graph El grafo a recorrer: el transpuesto para {@link IsochroneDirection#REVERSE}.
+     * @param location Nombre de la ubicación de partida.
+     * @param source Id de la ubicación de partida en {@code graph}.
+     * @param maxTime Tiempo máximo, inclusive.
+     * @param direction Sentido de la isócrona.
+     */
+    public Isochrone(CompactGraph graph, String location, int source, int maxTime, IsochroneDirection direction) {
+        this.graph = graph;
+        this.location = location;
+        this.source = source;
+        this.maxTime = maxTime;
+        this.direction = direction;
+        this.budgets = () -> SearchBudget.UNLIMITED;
+        this.executor = null;
+        this.lease = null;
+    }
+
+    /**
+     * Isócrona dueña de una referencia ya tomada con {@link GraphSnapshot#retain()}.
+     * @param snapshot El snapshot retenido; la isócrona lo suelta al recorrerse o cerrarse.
+     * @param graph El grafo del snapshot a recorrer.
+     * @param budgets Entrega el presupuesto de la búsqueda.
+     * @param executor Donde corre la búsqueda, o null para buscar en el hilo que recorre la isócrona.
+     */
+    Isochrone(GraphSnapshot snapshot, CompactGraph graph, String location, int source, int maxTime,
+              IsochroneDirection direction, Supplier<SearchBudget> budgets, Executor executor) {
+        this.graph = graph;
+        this.location = location;
+        this.source = source;
+        this.maxTime = maxTime;
+        this.direction = direction;
+        this.budgets = budgets;
+        this.executor = executor;
+        this.lease = CLEANER.register(this, snapshot::release);
+    }
+
+    public String getLocation() {
+        return location;
+    }
+
+    public int getMaxTime() {
+        return maxTime;
+    }
+
+    public IsochroneDirection getDirection() {
+        return direction;
+    }
+
+    /**
+     * Ejecuta la búsqueda y entrega sus resultados en el hilo actual. Una isócrona del servicio
+     * se recorre una sola vez: al terminar suelta su referencia al snapshot.
+     * @param action Recibe cada ubicación alcanzada y su tiempo, en orden de tiempo creciente.
+     * Si lanza una excepción, la búsqueda se abandona.
+     * @return La cantidad de ubicaciones entregadas.
+     * @throws IllegalStateException Si la isócrona ya se recorrió o se cerró, o si el grafo fuera
+     * del heap de una isócrona armada sin referencia ya se liberó.
+     * @throws SearchAbortedException Si la búsqueda supera su presupuesto o el hilo se interrumpe
+     * mientras espera resultados; las ubicaciones entregadas hasta entonces son correctas, pero
+     * el conjunto queda incompleto.
+     */
+    public int forEach(ObjIntConsumer<String> action) {
+        if (closed.get()) {
+            throw new IllegalStateException("La isócrona ya se recorrió o se cerró.");
+        }
+        // Sin referencia propia, se toma una solo mientras dura la búsqueda
+        GraphMemory memory = lease == null ? graph.memory() : null;
+        if (memory != null && !memory.retain()) {
+            throw new IllegalStateException("El grafo de la isócrona fue reemplazado por una carga; vuelve a consultar.");
+        }
+        try {
+            return executor == null ? searchHere(action) : searchOn(executor, action);
+        } finally {
+            if (memory != null) {
+                memory.release();
+            }
+            close();
+        }
+    }
+
+    private int searchHere(ObjIntConsumer<String> action) {
+        SearchBudget budget = budgets.get();
+        try {
+            return Dijkstra.withinTime(graph, source, maxTime, (node, time) -> action.accept(graph.nameOf(node), time),
+                    budget);
+        } finally {
+            budget.release();
+        }
+    }
+
+    private int searchOn(Executor executor, ObjIntConsumer<String> action) {
+        Producer producer = new Producer();
+        CompletableFuture<Void> search = CompletableFuture.runAsync(producer, executor);
+        int count = 0;
+        try {
+            while (true) {
+                long[] chunk = producer.chunks.poll(POLL_MILLIS, TimeUnit.MILLISECONDS);
+                if (chunk == null) {
+                    // Una búsqueda interrumpida puede terminar sin dejar la marca final
+                    if (!search.isDone()) {
+                        continue;
+                    }
+                    chunk = producer.chunks.poll();
+                }
+                if (chunk == null || chunk == END) {
+                    break;
+                }
+                for (long entry : chunk) {
+                    action.accept(graph.nameOf((int) entry), (int) (entry >>> 32));
+                    count++;
+                }
+                if (chunk.length == CHUNK_SIZE) {
+                    producer.free.offer(chunk);
+                }
+            }
+            search.join();
+            return count;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SearchAbortedException(SearchAbortedException.Reason.CANCELLED, count);
+        } catch (CompletionException e) {
+            throw e.getCause() instanceof RuntimeException cause ? cause : e;
+        } finally {
+            producer.abandoned.set(true);
+            // La búsqueda lee el grafo: se espera que termine antes de soltarlo
+            search.handle((ignored, error) -> null).join();
+        }
+    }
+
+    /** Búsqueda que deja los nodos asentados en la cola, en bloques de tiempo y nodo empaquetados. */
+    private final class Producer implements Runnable, SettledNodeVisitor {
+
+        final BlockingQueue<long[]> chunks = new ArrayBlockingQueue<>(QUEUE_CHUNKS);
+        // Bloques ya entregados, que se reutilizan en lugar de reservar uno por cada CHUNK_SIZE nodos
+        final BlockingQueue<long[]> free = new ArrayBlockingQueue<>(QUEUE_CHUNKS + 2);
+        final AtomicBoolean abandoned = new AtomicBoolean();
+        private long[] chunk = new long[CHUNK_SIZE];
+        private int size;
+        private int settledNodes;
+        private SearchBudget budget;
+
+        @Override
+        public void run() {
+            budget = budgets.get();
+            try {
+                Dijkstra.withinTime(graph, source, maxTime, this, budget);
+            } finally {
+                budget.release();
+                // También tras una interrupción: los nodos ya asentados son correctos
+                if (hand(Arrays.copyOf(chunk, size))) {
+                    hand(END);
+                }
+            }
+        }
+
+        @Override
+        public void settled(int node, int time) {
+            chunk[size++] = ((long) time << 32) | node;
+            settledNodes++;
+            if (size == CHUNK_SIZE) {
+                if (!hand(chunk)) {
+                    throw new SearchAbortedException(SearchAbortedException.Reason.CANCELLED, settledNodes);
+                }
+                long[] reused = free.poll();
+                chunk = reused != null ? reused : new long[CHUNK_SIZE];
+                size = 0;
+            }
+        }
+
+        /**
+         * Deja un bloque en la cola, esperando espacio mientras quien la recorre siga leyendo.
+         * La espera no ocupa el cupo de búsquedas pesadas y termina al vencer el plazo.
+         * @throws SearchAbortedException Si el plazo vence mientras espera o ya no hay cupo al retomar.
+         */
+        private boolean hand(long[] block) {
+            if (chunks.offer(block)) {
+                return true;
+            }
+            budget.pause();
+            try {
+                while (!chunks.offer(block, POLL_MILLIS, TimeUnit.MILLISECONDS)) {
+                    if (abandoned.get()) {
+                        return false;
+                    }
+                    budget.checkTimeAndCancellation(settledNodes);
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return false;
+            }
+            budget.resume(settledNodes);
+            return true;
+        }
+    }
+
+    /** Suelta la referencia al snapshot sin recorrer la isócrona; llamarlo de nuevo no hace nada. */
+    @Override
+    public void close() {
+        if (lease != null && closed.compareAndSet(false, true)) {
+            lease.clean();
+        }
+    }
+}
@@ -0,0 +1,265 @@
+package cl.cesar.ApiRoute.service;
+
+import cl.cesar.ApiRoute.api.CacheStatsResponse;
+import cl.cesar.ApiRoute.api.RouteResponse;
+import cl.cesar.ApiRoute.routing.RouteAlgorithm;
+
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
+
+/**
+ * Caché acotado de resultados de rutas, con clave (origen, destino, versión del grafo, algoritmo).
+ *
+ * Como la versión forma parte de la clave, publicar un grafo nuevo invalida el caché sin
+ * bloquearlo ni recorrerlo: las entradas de versiones anteriores dejan de coincidir y el
+ * desalojo las descarta primero. El desalojo usa el algoritmo CLOCK (segunda oportunidad):
+ * una lectura solo marca la entrada como referenciada, y el reloj, al buscar espacio,
+ * quita la primera entrada no referenciada o de una versión antigua.
+ *
+ * Cada entrada guarda el futuro del resultado, de modo que varias consultas simultáneas por
+ * la misma clave ejecutan una sola búsqueda y las demás esperan su resultado.
+ *
+ * Cuando una versión nueva no puede cambiar ciertas rutas (por ejemplo, una actualización que
+ * solo hace más lentas algunas conexiones), {@link #carryOver} traspasa esas entradas a la
+ * versión nueva en lugar de perderlas.
+ */
+public class RouteCache {
+
+    private final int capacity;
+    private final ConcurrentHashMap<Key, Entry> entries;
+    private final Entry[] ring;
+    private final Object ringLock = new Object();
+    private int hand;
+    private int used;
+    private final AtomicLong newestVersion = new AtomicLong();
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder sharedWaits = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+
+    /**
+     * @param capacity Cantidad máxima de rutas guardadas; 0 deshabilita el caché.
+     */
+    public RouteCache(int capacity) {
+        if (capacity < 0) {
+            throw new IllegalArgumentException("La capacidad del caché no puede ser negativa: " + capacity);
+        }
+        this.capacity = capacity;
+        this.entries = new ConcurrentHashMap<>(Math.max(16, capacity * 4 / 3 + 1));
+        this.ring = new Entry[capacity];
+    }
+
+    public boolean isEnabled() {
+        return capacity > 0;
+    }
+
+    /**
+     * Obtiene la ruta guardada o la calcula.
+     * Si otra consulta ya está calculando la misma clave, espera su resultado en lugar de repetir la búsqueda.
+     * @param key La clave de la consulta.
+     * @param search Búsqueda a ejecutar si la clave no está en el caché.
+     * @return La respuesta guardada o recién calculada; no debe modificarse.
+     */
+    public RouteResponse get(Key key, Supplier<RouteResponse> search) {
+        CompletableFuture<RouteResponse> result = getAsync(key, () -> CompletableFuture.completedFuture(search.get()));
+        try {
+            return result.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * Variante de {@link #get} que no bloquea: la búsqueda devuelve un futuro, por ejemplo de
+     * una tarea en otro pool, y las consultas por la misma clave reciben el futuro de la entrada.
+     * @param key La clave de la consulta.
+     * @param search Inicia la búsqueda si la clave no está en el caché; se llama en este hilo.
+     * @return El futuro de la respuesta guardada o en curso; la respuesta no debe modificarse.
+     */
+    public CompletableFuture<RouteResponse> getAsync(Key key, Supplier<CompletableFuture<RouteResponse>> search) {
+        Entry entry = entries.get(key);
+        if (entry == null) {
+            Entry created = new Entry(key);
+            entry = entries.putIfAbsent(key, created);
+            if (entry == null) {
+                misses.increment();
+                return compute(created, search);
+            }
+        }
+        entry.referenced = true;
+        if (entry.result.isDone()) {
+            hits.increment();
+        } else {
+            sharedWaits.increment();
+        }
+        return entry.result;
+    }
+
+    private CompletableFuture<RouteResponse> compute(Entry entry, Supplier<CompletableFuture<RouteResponse>> search) {
+        CompletableFuture<RouteResponse> pending;
+        try {
+            pending = search.get();
+        } catch (RuntimeException e) {
+            pending = CompletableFuture.failedFuture(e);
+        }
+        pending.whenComplete((response, error) -> {
+            if (error != null) {
+                // No se guardan errores: la siguiente consulta vuelve a intentar
+                entries.remove(entry.key, entry);
+                entry.result.completeExceptionally(error instanceof CompletionException && error.getCause() != null
+                        ? error.getCause() : error);
+                return;
+            }
+            // Se admite antes de completar, para que quien recibe la respuesta ya la encuentre en el reloj
+            admit(entry);
+            entry.result.complete(response);
+        });
+        return entry.result;
+    }
+
+    /**
+     * Ubica una entrada recién calculada en el reloj, desalojando otra si no hay espacio.
+     */
+    private void admit(Entry entry) {
+        newestVersion.accumulateAndGet(entry.key.version, Math::max);
+        synchronized (ringLock) {
+            if (used < capacity) {
+                ring[used++] = entry;
+                return;
+            }
+            long newest = newestVersion.get();
+            while (true) {
+                Entry candidate = ring[hand];
+                if (candidate.key.version < newest || !candidate.referenced) {
+                    entries.remove(candidate.key, candidate);
+                    evictions.increment();
+                    ring[hand] = entry;
+                    hand = (hand + 1) % capacity;
+                    return;
+                }
+                candidate.referenced = false; // Segunda oportunidad
+                hand = (hand + 1) % capacity;
+            }
+        }
+    }
+
+    /**
+     * Traspasa a una versión nueva las rutas ya calculadas de la versión anterior que siguen
+     * siendo válidas. Las demás quedan con la versión anterior y el reloj las desaloja primero.
+     * Cada entrada traspasada conserva su lugar en el reloj.
+     * @param fromVersion Versión de las entradas a revisar.
+     * @param toVersion Versión nueva.
+     * @param keep Indica si una ruta guardada sigue siendo válida en la versión nueva.
+     * @return Cantidad de rutas traspasadas.
+     */
+    public int carryOver(long fromVersion, long toVersion, Predicate<RouteResponse> keep) {
+        newestVersion.accumulateAndGet(toVersion, Math::max);
+        int carried = 0;
+        synchronized (ringLock) {
+            for (int i = 0; i < used; i++) {
+                Entry entry = ring[i];
+                if (entry.key.version != fromVersion || !keep.test(entry.result.join())) {
+                    continue;
+                }
+                Key moved = entry.key.withVersion(toVersion);
+                // Si la versión nueva ya calculó la misma clave, se conserva esa entrada
+                if (entries.putIfAbsent(moved, entry) == null) {
+                    entries.remove(entry.key, entry);
+                    entry.key = moved;
+                    carried++;
+                }
+            }
+        }
+        return carried;
+    }
+
+    /** Cantidad de rutas guardadas o en cálculo. */
+    public int size() {
+        return entries.size();
+    }
+
+    public long getHits() {
+        return hits.sum();
+    }
+
+    public long getMisses() {
+        return misses.sum();
+    }
+
+    public long getSharedWaits() {
+        return sharedWaits.sum();
+    }
+
+    public long getEvictions() {
+        return evictions.sum();
+    }
+
+    /**
+     * Resume las métricas del caché.
+     * @return Los contadores acumulados desde el inicio.
+     */
+    public CacheStatsResponse stats() {
+        return new CacheStatsResponse(isEnabled(), capacity, size(), getHits(), getMisses(), getSharedWaits(), getEvictions());
+    }
+
+    /**
+     * Clave de una consulta de ruta para una versión del grafo.
+     */
+    public static final class Key {
+
+        private final String origin;
+        private final String destination;
+        private final long version;
+        private final RouteAlgorithm algorithm;
+
+        public Key(String origin, String destination, long version, RouteAlgorithm algorithm) {
+            this.origin = origin;
+            this.destination = destination;
+            this.version = version;
+            this.algorithm = algorithm;
+        }
+
+        Key withVersion(long newVersion) {
+            return new Key(origin, destination, newVersion, algorithm);
+        }
+
+        @Override
+        public boolean equals(Object other) {
+            if (this == other) {
+                return true;
+            }
+            if (!(other instanceof Key key)) {
+                return false;
+            }
+            return version == key.version && algorithm == key.algorithm
+                    && origin.equals(key.origin) && destination.equals(key.destination);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(origin, destination, version, algorithm);
+        }
+    }
+
+    private static final class Entry {
+
+        // Solo cambia al traspasar la entrada a otra versión, con ringLock tomado
+        private volatile Key key;
+        private final CompletableFuture<RouteResponse> result = new CompletableFuture<>();
+        private volatile boolean referenced;
+
+        Entry(Key key) {
+            this.key = key;
+        }
+    }
+}
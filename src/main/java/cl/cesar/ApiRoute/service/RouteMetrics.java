@@ -0,0 +1,253 @@
+package cl.cesar.ApiRoute.service;
+
+import cl.cesar.ApiRoute.api.AlternativeRoutesResponse;
+import cl.cesar.ApiRoute.api.RouteResponse;
+import cl.cesar.ApiRoute.model.GraphMemory;
+import cl.cesar.ApiRoute.routing.AlternativeMode;
+import cl.cesar.ApiRoute.routing.ContractionHierarchy;
+import cl.cesar.ApiRoute.routing.HubLabels;
+import cl.cesar.ApiRoute.routing.RouteAlgorithm;
+import cl.cesar.ApiRoute.routing.SearchAbortedException;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+
+import java.time.Duration;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+import java.util.function.ToDoubleFunction;
+
+/**
+ * Métricas del servicio de rutas en Micrometer, que Actuator expone en /actuator/prometheus.
+ *
+ * Los medidores de las consultas se crean al iniciar, uno por algoritmo y resultado, de modo
+ * que registrar una consulta no busca en el registro ni arma etiquetas: solo actualiza
+ * contadores e histogramas ya existentes. Las búsquedas cuentan su trabajo en variables
+ * locales y lo entregan en el {@link cl.cesar.ApiRoute.routing.PathResult}, sin reservar
+ * memoria por arista.
+ */
+final class RouteMetrics {
+
+    /** Resultado de una consulta, usado como etiqueta de {@code routes.find}. */
+    enum Outcome {
+        FOUND, NO_ROUTE, CACHED, ABORTED;
+
+        final String tag = name().toLowerCase();
+    }
+
+    private final MeterRegistry registry;
+    // Los medidores solo guardan una referencia débil a su estado: el proveedor debe vivir aquí
+    private final Supplier<GraphSnapshot> snapshot;
+    private final Map<RouteAlgorithm, Timer[]> find = new EnumMap<>(RouteAlgorithm.class);
+    private final Map<RouteAlgorithm, DistributionSummary> settled = new EnumMap<>(RouteAlgorithm.class);
+    private final Map<RouteAlgorithm, DistributionSummary> relaxed = new EnumMap<>(RouteAlgorithm.class);
+    private final Map<RouteAlgorithm, DistributionSummary> pushes = new EnumMap<>(RouteAlgorithm.class);
+    private final Map<SearchAbortedException.Reason, Counter> aborted = new EnumMap<>(SearchAbortedException.Reason.class);
+    private final Timer unknownLocation;
+    private final Map<AlternativeMode, Timer[]> alternatives = new EnumMap<>(AlternativeMode.class);
+    private final Timer travelTime;
+    private final Timer hubLabelsBuilt;
+    private final Timer hubLabelsOverBudget;
+
+    RouteMetrics(MeterRegistry registry, Supplier<GraphSnapshot> snapshot) {
+        this.registry = registry;
+        this.snapshot = snapshot;
+        for (RouteAlgorithm algorithm : RouteAlgorithm.values()) {
+            Timer[] timers = new Timer[Outcome.values().length];
+            for (Outcome outcome : Outcome.values()) {
+                timers[outcome.ordinal()] = findTimer(algorithm.name(), outcome.tag);
+            }
+            find.put(algorithm, timers);
+            settled.put(algorithm, searchSummary("routes.search.settled.nodes", "Nodos asentados por búsqueda", algorithm));
+            relaxed.put(algorithm, searchSummary("routes.search.relaxed.edges", "Aristas revisadas por búsqueda", algorithm));
+            pushes.put(algorithm, searchSummary("routes.search.queue.pushes", "Entradas agregadas a la cola por búsqueda", algorithm));
+        }
+        this.unknownLocation = findTimer("none", "unknown_location");
+        for (AlternativeMode mode : AlternativeMode.values()) {
+            Timer[] timers = new Timer[Outcome.values().length];
+            for (Outcome outcome : new Outcome[]{Outcome.FOUND, Outcome.NO_ROUTE, Outcome.ABORTED}) {
+                timers[outcome.ordinal()] = Timer.builder("routes.alternatives")
+                        .description("Latencia de las consultas de rutas alternativas")
+                        .tag("mode", mode.name())
+                        .tag("outcome", outcome.tag)
+                        .publishPercentileHistogram()
+                        .register(registry);
+            }
+            alternatives.put(mode, timers);
+        }
+        this.travelTime = Timer.builder("routes.time")
+                .description("Latencia de las consultas de solo tiempo respondidas con etiquetas de hubs")
+                .publishPercentileHistogram()
+                .register(registry);
+        this.hubLabelsBuilt = hubLabelsTimer("built");
+        this.hubLabelsOverBudget = hubLabelsTimer("over_budget");
+        for (SearchAbortedException.Reason reason : SearchAbortedException.Reason.values()) {
+            aborted.put(reason, Counter.builder("routes.search.aborted")
+                    .description("Búsquedas interrumpidas por su presupuesto o por el control de admisión")
+                    .tag("reason", reason.name())
+                    .register(registry));
+        }
+
+        Gauge.builder("routes.graph.nodes", snapshot, s -> s.get().getGraph().nodeCount())
+                .description("Ubicaciones del grafo vigente").register(registry);
+        Gauge.builder("routes.graph.edges", snapshot, s -> s.get().getGraph().edgeCount())
+                .description("Conexiones del grafo vigente").register(registry);
+        Gauge.builder("routes.graph.memory", snapshot, s -> estimatedBytes(s.get()))
+                .description("Memoria estimada del grafo, su transpuesto y sus índices")
+                .baseUnit("bytes").register(registry);
+        Gauge.builder("routes.graph.version", snapshot, s -> s.get().getVersion())
+                .description("Versión publicada del grafo").register(registry);
+        Gauge.builder("routes.hub.labels.entries", snapshot, s -> hubLabelStat(s.get(), HubLabels::entryCount))
+                .description("Entradas de las etiquetas de hubs del grafo vigente; 0 sin etiquetas").register(registry);
+        Gauge.builder("routes.hub.labels.average.size", snapshot, s -> hubLabelStat(s.get(), HubLabels::averageLabelSize))
+                .description("Entradas promedio por etiqueta de hubs").register(registry);
+        Gauge.builder("routes.hub.labels.memory", snapshot, s -> hubLabelStat(s.get(), HubLabels::estimatedBytes))
+                .description("Memoria estimada de las etiquetas de hubs")
+                .baseUnit("bytes").register(registry);
+        Gauge.builder("routes.graph.offheap.memory", GraphMemory::openBytes)
+                .description("Bytes fuera del heap de los grafos abiertos, incluidas versiones reemplazadas aún en uso")
+                .baseUnit("bytes").register(registry);
+        Gauge.builder("routes.graph.offheap.arenas", GraphMemory::openCount)
+                .description("Memorias de grafos fuera del heap aún abiertas").register(registry);
+    }
+
+    private Timer hubLabelsTimer(String outcome) {
+        return Timer.builder("routes.hub.labels.build")
+                .description("Duración de la construcción de las etiquetas de hubs, incluido el orden")
+                .tag("outcome", outcome)
+                .register(registry);
+    }
+
+    private static double hubLabelStat(GraphSnapshot current, ToDoubleFunction<HubLabels> stat) {
+        HubLabels labels = current.getHubLabels().getNow(null);
+        return labels != null ? stat.applyAsDouble(labels) : 0;
+    }
+
+    private Timer findTimer(String algorithm, String outcome) {
+        return Timer.builder("routes.find")
+                .description("Latencia de las consultas de ruta, desde la llamada hasta la respuesta")
+                .tag("algorithm", algorithm)
+                .tag("outcome", outcome)
+                .publishPercentileHistogram()
+                .register(registry);
+    }
+
+    private DistributionSummary searchSummary(String name, String description, RouteAlgorithm algorithm) {
+        return DistributionSummary.builder(name)
+                .description(description)
+                .tag("algorithm", algorithm.name())
+                .publishPercentileHistogram()
+                .register(registry);
+    }
+
+    private static long estimatedBytes(GraphSnapshot current) {
+        long bytes = current.getGraph().estimatedBytes() + current.getReverse().estimatedBytes();
+        if (current.getLandmarks() != null) {
+            bytes += current.getLandmarks().estimatedBytes();
+        }
+        if (current.getComponents() != null) {
+            bytes += current.getComponents().estimatedBytes();
+        }
+        ContractionHierarchy hierarchy = current.getHierarchy().getNow(null);
+        if (hierarchy != null) {
+            bytes += hierarchy.estimatedBytes();
+        }
+        HubLabels labels = current.getHubLabels().getNow(null);
+        return labels != null ? bytes + labels.estimatedBytes() : bytes;
+    }
+
+    /**
+     * Registra una consulta de ruta terminada.
+     * @param algorithm Algoritmo pedido o configurado.
+     * @param nanos Duración desde la llamada, incluida la espera en el pool de cómputo.
+     * @param response La respuesta, o null si la búsqueda falló.
+     * @param error El error de la búsqueda, o null.
+     */
+    void recordFind(RouteAlgorithm algorithm, long nanos, RouteResponse response, Throwable error) {
+        if (error != null) {
+            if (error instanceof SearchAbortedException abortedSearch) {
+                aborted.get(abortedSearch.getReason()).increment();
+                find.get(algorithm)[Outcome.ABORTED.ordinal()].record(nanos, TimeUnit.NANOSECONDS);
+            }
+            return;
+        }
+        if (response.getAlgorithm() == null) {
+            unknownLocation.record(nanos, TimeUnit.NANOSECONDS);
+            return;
+        }
+        Outcome outcome = response.isCached() ? Outcome.CACHED
+                : response.getTotalTime() == -1 ? Outcome.NO_ROUTE : Outcome.FOUND;
+        find.get(algorithm)[outcome.ordinal()].record(nanos, TimeUnit.NANOSECONDS);
+        if (response.getSettledNodes() > 0) {
+            // Las estadísticas son del algoritmo que realmente buscó (ALT y CH pueden responder con Dijkstra)
+            RouteAlgorithm searched = response.getAlgorithm();
+            settled.get(searched).record(response.getSettledNodes());
+            relaxed.get(searched).record(response.getRelaxedEdges());
+            pushes.get(searched).record(response.getQueuePushes());
+        }
+    }
+
+    /**
+     * Registra una consulta de rutas alternativas terminada.
+     * @param mode Modo de la consulta.
+     * @param nanos Duración desde la llamada, incluida la espera en el pool de cómputo.
+     * @param response La respuesta, o null si las búsquedas fallaron.
+     * @param error El error de las búsquedas, o null.
+     */
+    void recordAlternatives(AlternativeMode mode, long nanos, AlternativeRoutesResponse response, Throwable error) {
+        if (error != null) {
+            if (error instanceof SearchAbortedException abortedSearch) {
+                aborted.get(abortedSearch.getReason()).increment();
+                alternatives.get(mode)[Outcome.ABORTED.ordinal()].record(nanos, TimeUnit.NANOSECONDS);
+            }
+            return;
+        }
+        Outcome outcome = response.getRoutes().isEmpty() ? Outcome.NO_ROUTE : Outcome.FOUND;
+        alternatives.get(mode)[outcome.ordinal()].record(nanos, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Registra una consulta de solo tiempo respondida con las etiquetas de hubs. Las que
+     * buscan se registran en {@code routes.find}.
+     * @param nanos Duración de la consulta.
+     */
+    void recordTravelTime(long nanos) {
+        travelTime.record(nanos, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Registra una construcción de etiquetas de hubs.
+     * @param millis Duración, incluido el orden de los nodos.
+     * @param labels Las etiquetas, o null si superaron el máximo de bytes.
+     */
+    void recordHubLabels(long millis, HubLabels labels) {
+        (labels != null ? hubLabelsBuilt : hubLabelsOverBudget).record(Duration.ofMillis(millis));
+    }
+
+    /**
+     * Registra una carga terminada y la duración de cada una de sus fases.
+     * @param mode Estrategia de lectura, o "MERGE" / "SNAPSHOT".
+     * @param phaseMillis Duración de cada fase en milisegundos.
+     * @param totalMillis Duración total en milisegundos.
+     */
+    void recordLoad(String mode, Map<String, Long> phaseMillis, long totalMillis) {
+        Timer.builder("routes.load")
+                .description("Duración de las cargas de datos")
+                .tag("mode", mode)
+                .publishPercentileHistogram()
+                .register(registry)
+                .record(Duration.ofMillis(totalMillis));
+        for (Map.Entry<String, Long> phase : phaseMillis.entrySet()) {
+            Timer.builder("routes.load.phase")
+                    .description("Duración de cada fase de las cargas de datos")
+                    .tag("phase", phase.getKey())
+                    .register(registry)
+                    .record(Duration.ofMillis(phase.getValue()));
+        }
+    }
+}
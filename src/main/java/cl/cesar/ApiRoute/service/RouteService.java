@@ -1,54 +1,769 @@
 package cl.cesar.ApiRoute.service;
 
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 import org.springframework.web.multipart.MultipartFile;
 
+import cl.cesar.ApiRoute.api.AlternativeRoutesResponse;
+import cl.cesar.ApiRoute.api.BatchRouteResult;
+import cl.cesar.ApiRoute.api.CacheStatsResponse;
+import cl.cesar.ApiRoute.api.ConnectionChange;
+import cl.cesar.ApiRoute.api.LoadResponse;
+import cl.cesar.ApiRoute.api.RoutePair;
 import cl.cesar.ApiRoute.api.RouteResponse;
-import cl.cesar.ApiRoute.model.Connection;
-import cl.cesar.ApiRoute.model.Graph;
-import cl.cesar.ApiRoute.model.Location;
+import cl.cesar.ApiRoute.api.SnapshotResponse;
+import cl.cesar.ApiRoute.api.TravelTimeResponse;
+import cl.cesar.ApiRoute.api.UpdateResponse;
+import cl.cesar.ApiRoute.config.RouteProperties;
+import cl.cesar.ApiRoute.loader.CsvEdgeParser;
+import cl.cesar.ApiRoute.loader.DuplicatePolicy;
+import cl.cesar.ApiRoute.loader.GraphSnapshotFile;
+import cl.cesar.ApiRoute.loader.LoadMode;
+import cl.cesar.ApiRoute.loader.LoadTimings;
+import cl.cesar.ApiRoute.loader.ParallelCsvLoader;
+import cl.cesar.ApiRoute.loader.ParseStats;
+import cl.cesar.ApiRoute.model.CompactGraph;
+import cl.cesar.ApiRoute.model.GraphStorage;
+import cl.cesar.ApiRoute.routing.AltSearch;
+import cl.cesar.ApiRoute.routing.AlternativeMode;
+import cl.cesar.ApiRoute.routing.AlternativeRoutes;
+import cl.cesar.ApiRoute.routing.BidirectionalDijkstra;
+import cl.cesar.ApiRoute.routing.ComponentIndex;
+import cl.cesar.ApiRoute.routing.ContractionHierarchy;
+import cl.cesar.ApiRoute.routing.Dijkstra;
+import cl.cesar.ApiRoute.routing.HubLabels;
+import cl.cesar.ApiRoute.routing.IsochroneDirection;
+import cl.cesar.ApiRoute.routing.KShortestPaths;
+import cl.cesar.ApiRoute.routing.Landmarks;
+import cl.cesar.ApiRoute.routing.NodeOrder;
+import cl.cesar.ApiRoute.routing.PathResult;
+import cl.cesar.ApiRoute.routing.QueueKind;
+import cl.cesar.ApiRoute.routing.RouteAlgorithm;
+import cl.cesar.ApiRoute.routing.SearchAbortedException;
+import cl.cesar.ApiRoute.routing.SearchBudget;
+import cl.cesar.ApiRoute.routing.SearchState;
 
-import java.io.BufferedReader;
 import java.io.IOException;
-import java.io.InputStreamReader;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.BooleanSupplier;
+import java.util.function.Supplier;
 
 @Service
 public class RouteService {
 
-    private Graph graph = new Graph();
+    private static final Logger log = LoggerFactory.getLogger(RouteService.class);
+
+    /** Árboles por sentido del orden de las etiquetas de hubs cuando no hay jerarquía de contracción. */
+    private static final int HUB_LABEL_ORDER_SAMPLES = 16;
+
+    private final AtomicReference<GraphSnapshot> snapshot = new AtomicReference<>(GraphSnapshot.EMPTY);
+    private final RouteProperties properties;
+    private final ForkJoinPool loadPool;
+    // Construye en segundo plano la jerarquía de contracción y luego las etiquetas de hubs
+    private final ExecutorService indexExecutor;
+    // Hilos de la construcción de etiquetas de hubs; null la hace en el hilo de indexExecutor
+    private final ExecutorService hubLabelPool;
+    private final ForkJoinPool batchPool;
+    private final RouteCache routeCache;
+    // Serializa las actualizaciones incrementales y la compactación entre sí
+    private final Object updateLock = new Object();
+    private final ExecutorService maintenanceExecutor;
+    private final AtomicBoolean maintenancePending = new AtomicBoolean();
+    // Búsquedas de /find en hilos de plataforma, para que el estado de búsqueda por hilo se
+    // reutilice aunque las peticiones lleguen en hilos virtuales; null busca en el hilo que llama
+    private final ExecutorService computeExecutor;
+    // Búsquedas de isócronas: esperan al cliente, así que no ocupan el pool de cómputo. Los hilos
+    // se crean a demanda y los ociosos se reutilizan con su estado de búsqueda; null junto con
+    // computeExecutor
+    private final ExecutorService isochroneExecutor;
+    // Cupos de búsquedas pesadas (routes.search.max-heavy-searches); null sin control de admisión
+    private final Semaphore heavySearches;
+    private final RouteMetrics metrics;
+
+    public RouteService() {
+        this(new RouteProperties());
+    }
+
+    public RouteService(RouteProperties properties) {
+        this(properties, new SimpleMeterRegistry());
+    }
+
+    /**
+     * @param properties La configuración del servicio.
+     * @param meterRegistry Registro donde se publican las métricas de consultas, cargas y grafo.
+     */
+    @Autowired
+    public RouteService(RouteProperties properties, MeterRegistry meterRegistry) {
+        this.properties = properties;
+        this.loadPool = new ForkJoinPool(Math.max(1, properties.getLoad().getParallelism()));
+        this.indexExecutor = Executors.newSingleThreadExecutor(task -> {
+            Thread thread = new Thread(task, "route-indexes");
+            thread.setDaemon(true);
+            return thread;
+        });
+        int labelThreads = properties.getHubLabels().getParallelism();
+        AtomicInteger labelThreadCount = new AtomicInteger();
+        this.hubLabelPool = !properties.getHubLabels().isEnabled() || labelThreads <= 1 ? null
+                : Executors.newFixedThreadPool(labelThreads, task -> {
+                    Thread thread = new Thread(task, "hub-labels-" + labelThreadCount.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                });
+        this.batchPool = new ForkJoinPool(Math.max(1, properties.getBatch().getParallelism()));
+        this.routeCache = new RouteCache(Math.max(0, properties.getCache().getMaxEntries()));
+        this.maintenanceExecutor = Executors.newSingleThreadExecutor(task -> {
+            Thread thread = new Thread(task, "graph-maintenance");
+            thread.setDaemon(true);
+            return thread;
+        });
+        int computeThreads = properties.getSearch().getComputeThreads();
+        AtomicInteger computeThreadCount = new AtomicInteger();
+        this.computeExecutor = computeThreads <= 0 ? null : Executors.newFixedThreadPool(computeThreads, task -> {
+            Thread thread = new Thread(task, "route-compute-" + computeThreadCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        AtomicInteger isochroneThreadCount = new AtomicInteger();
+        this.isochroneExecutor = computeThreads <= 0 ? null : Executors.newCachedThreadPool(task -> {
+            Thread thread = new Thread(task, "route-isochrone-" + isochroneThreadCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        int maxHeavySearches = properties.getSearch().getMaxHeavySearches();
+        this.heavySearches = maxHeavySearches > 0 ? new Semaphore(maxHeavySearches) : null;
+        this.metrics = new RouteMetrics(meterRegistry, snapshot::get);
+    }
+
+    /**
+     * Detiene los hilos del servicio al cerrar el contexto. Las construcciones de índices y las
+     * búsquedas pendientes se interrumpen: el servidor ya dejó de aceptar peticiones.
+     */
+    @PreDestroy
+    public void shutdown() {
+        loadPool.shutdownNow();
+        batchPool.shutdownNow();
+        indexExecutor.shutdownNow();
+        maintenanceExecutor.shutdownNow();
+        if (computeExecutor != null) {
+            computeExecutor.shutdownNow();
+            isochroneExecutor.shutdownNow();
+        }
+        if (hubLabelPool != null) {
+            hubLabelPool.shutdownNow();
+        }
+    }
+
+    /**
+     * Carga los datos de las conexiones desde un archivo CSV con la estrategia configurada.
+     *
+     * @param file El archivo CSV a procesar.
+     * @return El resumen de la carga.
+     * @throws IOException Si ocurre un error al leer el archivo.
+     */
+    public LoadResponse loadData(MultipartFile file) throws IOException {
+        return loadData(file, null);
+    }
+
+    /**
+     * Carga los datos de las conexiones desde un archivo CSV y reemplaza el grafo, tratando
+     * las conexiones repetidas según la política configurada.
+     *
+     * @param file El archivo CSV a procesar.
+     * @param mode Estrategia de lectura, o null para usar la configurada.
+     * @return El resumen de la carga, con la duración de cada fase.
+     * @throws IOException Si ocurre un error al leer el archivo.
+     */
+    public LoadResponse loadData(MultipartFile file, LoadMode mode) throws IOException {
+        return loadData(file, mode, false, null);
+    }
 
     /**
      * Carga los datos de las conexiones desde un archivo CSV y construye el grafo.
      * El archivo debe tener el formato: loc_start;loc_end;time
      *
+     * El grafo nuevo se construye aparte y se publica al final con un intercambio atómico,
+     * por lo que las consultas en curso siguen usando el grafo anterior sin bloquearse.
+     * Al combinar, las conexiones del CSV se agregan a las del grafo vigente (puede traer
+     * ubicaciones nuevas) y la política de repetidas decide entre ambas; la combinación se
+     * hace bajo el mismo candado que las actualizaciones incrementales, para no perder una
+     * que se publique mientras tanto.
+     *
      * @param file El archivo CSV a procesar.
+     * @param mode Estrategia de lectura, o null para usar la configurada.
+     * @param merge Si es true, combina el CSV con el grafo vigente en lugar de reemplazarlo.
+     * @param duplicates Tratamiento de las conexiones repetidas, o null para usar el configurado.
+     * @return El resumen de la carga, con la duración de cada fase.
      * @throws IOException Si ocurre un error al leer el archivo.
+     * @throws IllegalArgumentException Si la política es REJECT y hay conexiones repetidas;
+     * el grafo vigente no cambia.
+     */
+    public LoadResponse loadData(MultipartFile file, LoadMode mode, boolean merge, DuplicatePolicy duplicates)
+            throws IOException {
+        LoadMode effectiveMode = mode != null ? mode : properties.getLoad().getMode();
+        DuplicatePolicy policy = duplicates != null ? duplicates : properties.getLoad().getDuplicates();
+        LoadTimings timings = new LoadTimings();
+        CsvEdgeParser parser;
+        try (InputStream in = file.getInputStream()) {
+            if (effectiveMode == LoadMode.PARALLEL) {
+                parser = new ParallelCsvLoader(loadPool, properties.getLoad().getChunkSize()).load(in, timings);
+            } else {
+                parser = new CsvEdgeParser();
+                parser.parse(in);
+                timings.mark("parse");
+            }
+        }
+        if (!merge) {
+            return finishLoad(parser.toGraph(policy), parser.getStats(), effectiveMode.name(), policy, timings);
+        }
+        synchronized (updateLock) {
+            GraphSnapshot current = acquire();
+            CsvEdgeParser combined;
+            try {
+                combined = parser.appendTo(current.getGraph());
+            } finally {
+                current.release();
+            }
+            timings.mark("append");
+            LoadResponse response = finishLoad(combined.toGraph(policy), combined.getStats(), effectiveMode.name(),
+                    policy, timings);
+            response.setMessage("Datos de rutas combinados correctamente.");
+            response.setMerged(true);
+            return response;
+        }
+    }
+
+    /**
+     * Carga un archivo local del servidor: un snapshot binario si comienza con la firma
+     * del formato, o un CSV en caso contrario. El CSV se lee mapeado en memoria y sus
+     * conexiones repetidas se tratan según la política configurada. Con
+     * {@code routes.load.storage=OFF_HEAP} el snapshot se mapea y se usa sin copiarlo.
+     *
+     * @param path El archivo a cargar.
+     * @param mode Estrategia de lectura del CSV, o null para usar la configurada.
+     * @return El resumen de la carga.
+     * @throws IOException Si ocurre un error al leer el archivo o el snapshot es inválido.
+     */
+    public LoadResponse loadFile(Path path, LoadMode mode) throws IOException {
+        LoadTimings timings = new LoadTimings();
+        if (GraphSnapshotFile.isSnapshot(path)) {
+            GraphSnapshotFile.Loaded loaded = properties.getLoad().getStorage() == GraphStorage.OFF_HEAP
+                    ? GraphSnapshotFile.map(path) : GraphSnapshotFile.read(path);
+            timings.mark("snapshot");
+            return finishLoad(loaded.getGraph(), new ParseStats(), "SNAPSHOT", null, timings);
+        }
+        LoadMode effectiveMode = mode != null ? mode : properties.getLoad().getMode();
+        DuplicatePolicy policy = properties.getLoad().getDuplicates();
+        CsvEdgeParser parser;
+        if (effectiveMode == LoadMode.PARALLEL) {
+            parser = new ParallelCsvLoader(loadPool, properties.getLoad().getChunkSize()).load(path, timings);
+        } else {
+            parser = new CsvEdgeParser();
+            try (InputStream in = Files.newInputStream(path)) {
+                parser.parse(in);
+            }
+            timings.mark("parse");
+        }
+        return finishLoad(parser.toGraph(policy), parser.getStats(), effectiveMode.name(), policy, timings);
+    }
+
+    /**
+     * Renumera los nodos si está configurado, mueve el grafo fuera del heap si corresponde,
+     * publica el grafo recién construido y arma el resumen de la carga. Todo lo que depende
+     * de los ids se calcula después de renumerar. Si algo falla antes de publicar, la memoria
+     * fuera del heap del grafo nuevo se libera de inmediato.
+     */
+    private LoadResponse finishLoad(CompactGraph graph, ParseStats stats, String mode, DuplicatePolicy policy,
+                                    LoadTimings timings) throws IOException {
+        timings.mark("build");
+        NodeOrder order = properties.getLoad().getReorder();
+        GraphStorage storage = properties.getLoad().getStorage();
+        CompactGraph reverse;
+        ComponentIndex components;
+        Landmarks landmarks;
+        GraphSnapshot published;
+        try {
+            if (order != NodeOrder.NONE) {
+                CompactGraph reordered = order.apply(graph);
+                // Renumerar deja el grafo en el heap: un snapshot mapeado ya no se usa
+                releaseMemory(graph);
+                graph = reordered;
+                timings.mark("reorder");
+            }
+            if (storage == GraphStorage.OFF_HEAP && !graph.isOffHeap()) {
+                graph = graph.toOffHeap();
+                timings.mark("off-heap");
+            }
+            reverse = graph.transpose();
+            timings.mark("reverse");
+            components = ComponentIndex.compute(graph);
+            timings.mark("components");
+            landmarks = Landmarks.compute(graph, reverse, properties.getSearch().getLandmarks());
+            timings.mark("landmarks");
+            published = publish(graph, reverse, landmarks, components, new CompletableFuture<>(),
+                    new CompletableFuture<>());
+        } catch (RuntimeException | OutOfMemoryError e) {
+            releaseMemory(graph);
+            throw e;
+        }
+        timings.mark("publish");
+        scheduleHierarchy(published);
+        scheduleHubLabels(published);
+        String snapshotError = null;
+        if (properties.getSnapshot().isWriteOnLoad() && hasSnapshotPath()) {
+            // Una carga concurrente puede reemplazar el grafo recién publicado y liberar su memoria
+            if (published.retain()) {
+                try {
+                    writeSnapshot(published, Path.of(properties.getSnapshot().getPath()));
+                } catch (IOException e) {
+                    // El grafo ya está publicado: la carga se informa como exitosa, sin snapshot
+                    log.error("No se pudo escribir el snapshot de la versión {}", published.getVersion(), e);
+                    snapshotError = e.getMessage() != null ? e.getMessage() : e.getClass().getSimpleName();
+                } finally {
+                    published.release();
+                }
+                timings.mark("snapshot-write");
+            } else {
+                log.info("No se escribió el snapshot de la versión {}: otra carga ya la reemplazó",
+                        published.getVersion());
+            }
+        }
+
+        logInvalidRows(stats);
+        LoadResponse response = new LoadResponse("Datos de rutas cargados correctamente.");
+        response.setVersion(published.getVersion());
+        response.setMode(mode);
+        response.setDuplicatePolicy(policy);
+        response.setNodeOrder(order);
+        response.setStorage(graph.isOffHeap() ? GraphStorage.OFF_HEAP : GraphStorage.HEAP);
+        response.setOffHeapBytes(graph.isOffHeap() ? graph.memory().byteSize() : 0);
+        response.setLocations(graph.nodeCount());
+        response.setConnections(graph.edgeCount());
+        response.setValidRows(stats.getValidRows());
+        response.setInvalidRows(stats.getInvalidRows());
+        response.setInvalidSamples(stats.getInvalidSamples());
+        response.setCollapsedEdges(stats.getCollapsedEdges());
+        response.setLandmarks(landmarks.count());
+        response.setLandmarkBytes(landmarks.estimatedBytes());
+        response.setQueue(QueueKind.forMaxWeight(graph.maxWeight()));
+        response.setComponents(components.count());
+        response.setLargestComponent(components.largestSize());
+        response.setComponentDagEdges(components.dagEdgeCount());
+        response.setSnapshotError(snapshotError);
+        response.setPhaseMillis(timings.asMap());
+        response.setTotalMillis(timings.totalMillis());
+        metrics.recordLoad(mode, response.getPhaseMillis(), response.getTotalMillis());
+        return response;
+    }
+
+    /**
+     * Programa la construcción en segundo plano de la jerarquía de un snapshot recién publicado,
+     * o completa su futuro con null si la jerarquía está deshabilitada.
+     */
+    private void scheduleHierarchy(GraphSnapshot published) {
+        if (properties.getSearch().isContractionHierarchies()) {
+            indexExecutor.execute(() -> buildHierarchy(published));
+        } else {
+            published.getHierarchy().complete(null);
+        }
+    }
+
+    /**
+     * Construye la jerarquía de contracción de un snapshot ya publicado. Si mientras
+     * esperaba turno se publicó una versión más nueva, no se construye.
      */
-    public void loadData(MultipartFile file) throws IOException {
-        graph.clearGraph(); // Limpiamos el grafo actual para evitar duplicados
-        try (BufferedReader reader = new BufferedReader(new InputStreamReader(file.getInputStream()))) {
-            String line;
-            while ((line = reader.readLine()) != null) {
-                String[] parts = line.split(";");
-                if (parts.length == 3) {
-                    try {
-                        String locStart = parts[0].trim();
-                        String locEnd = parts[1].trim();
-                        int time = Integer.parseInt(parts[2].trim());
-                        graph.addConnection(locStart, locEnd, time);
-                    } catch (NumberFormatException e) {
-                        // Opcional: Loggear la línea que no se pudo parsear
-                        System.err.println("Advertencia: Línea de CSV con formato inválido -> " + line);
+    private void buildHierarchy(GraphSnapshot target) {
+        if (snapshot.get() != target || !target.retain()) {
+            target.getHierarchy().complete(null);
+            return;
+        }
+        try {
+            long start = System.nanoTime();
+            ContractionHierarchy hierarchy = ContractionHierarchy.build(target.getGraph());
+            log.info("Jerarquía de contracción de la versión {} lista en {} ms ({} atajos, {} bytes)",
+                    target.getVersion(), (System.nanoTime() - start) / 1_000_000,
+                    hierarchy.shortcutCount(), hierarchy.estimatedBytes());
+            target.getHierarchy().complete(hierarchy);
+        } catch (RuntimeException e) {
+            log.error("No se pudo construir la jerarquía de contracción de la versión {}", target.getVersion(), e);
+            target.getHierarchy().complete(null);
+        } finally {
+            target.release();
+        }
+    }
+
+    /**
+     * Programa la construcción en segundo plano de las etiquetas de hubs de un snapshot recién
+     * publicado, después de su jerarquía, o completa su futuro con null si están deshabilitadas.
+     */
+    private void scheduleHubLabels(GraphSnapshot published) {
+        if (properties.getHubLabels().isEnabled()) {
+            indexExecutor.execute(() -> buildHubLabels(published));
+        } else {
+            published.getHubLabels().complete(null);
+        }
+    }
+
+    /**
+     * Construye las etiquetas de hubs de un snapshot ya publicado, en el orden de su jerarquía
+     * de contracción si está lista, que da etiquetas más pequeñas, o en el de cobertura de rutas.
+     * Si mientras esperaba turno se publicó una versión más nueva, no se construyen.
+     */
+    private void buildHubLabels(GraphSnapshot target) {
+        if (snapshot.get() != target || !target.retain()) {
+            target.getHubLabels().complete(null);
+            return;
+        }
+        RouteProperties.HubLabels config = properties.getHubLabels();
+        try {
+            long start = System.nanoTime();
+            CompactGraph graph = target.getGraph();
+            ContractionHierarchy hierarchy = target.getHierarchy().getNow(null);
+            int[] order = hierarchy != null
+                    ? HubLabels.hierarchyOrder(hierarchy, graph.nodeCount())
+                    : HubLabels.coverageOrder(graph, target.getReverse(), HUB_LABEL_ORDER_SAMPLES, target.getVersion());
+            HubLabels labels = HubLabels.build(graph, target.getReverse(), order, hubLabelPool,
+                    config.getParallelism(), config.getMaxBytes());
+            long millis = (System.nanoTime() - start) / 1_000_000;
+            metrics.recordHubLabels(millis, labels);
+            if (labels == null) {
+                log.warn("Las etiquetas de hubs de la versión {} superan {} bytes (routes.hub-labels.max-bytes); "
+                        + "las consultas HL buscan sin ellas", target.getVersion(), config.getMaxBytes());
+            } else {
+                log.info("Etiquetas de hubs de la versión {} listas en {} ms ({} entradas, {} por etiqueta en promedio, "
+                                + "máximo {}, {} bytes)", target.getVersion(), millis, labels.entryCount(),
+                        String.format("%.1f", labels.averageLabelSize()), labels.maxLabelSize(), labels.estimatedBytes());
+            }
+            target.getHubLabels().complete(labels);
+        } catch (RuntimeException e) {
+            log.error("No se pudieron construir las etiquetas de hubs de la versión {}", target.getVersion(), e);
+            target.getHubLabels().complete(null);
+        } finally {
+            target.release();
+        }
+    }
+
+    /**
+     * Indica si hay un archivo de snapshot configurado en {@code routes.snapshot.path}.
+     */
+    public boolean hasSnapshotPath() {
+        String path = properties.getSnapshot().getPath();
+        return path != null && !path.isBlank();
+    }
+
+    /**
+     * Escribe el grafo vigente en el archivo de snapshot configurado.
+     * @return El resumen de la escritura.
+     * @throws IOException Si ocurre un error al escribir.
+     * @throws IllegalStateException Si no hay un archivo de snapshot configurado.
+     */
+    public SnapshotResponse writeSnapshot() throws IOException {
+        if (!hasSnapshotPath()) {
+            throw new IllegalStateException("No hay un archivo de snapshot configurado (routes.snapshot.path).");
+        }
+        GraphSnapshot current = acquire();
+        try {
+            return writeSnapshot(current, Path.of(properties.getSnapshot().getPath()));
+        } finally {
+            current.release();
+        }
+    }
+
+    private SnapshotResponse writeSnapshot(GraphSnapshot current, Path path) throws IOException {
+        long start = System.nanoTime();
+        // El formato guarda arreglos CSR contiguos: una capa de actualizaciones se compacta antes
+        CompactGraph graph = current.getGraph();
+        CompactGraph compacted = graph.compact();
+        long bytes;
+        try {
+            bytes = GraphSnapshotFile.write(compacted, current.getVersion(), path);
+        } finally {
+            if (compacted != graph) {
+                releaseMemory(compacted);
+            }
+        }
+        long millis = (System.nanoTime() - start) / 1_000_000;
+        log.info("Snapshot de la versión {} escrito en {} ({} bytes, {} ms)", current.getVersion(), path, bytes, millis);
+        return new SnapshotResponse("Snapshot escrito correctamente.", path.toString(), current.getVersion(), bytes, millis);
+    }
+
+    private static void logInvalidRows(ParseStats stats) {
+        if (stats.getInvalidRows() > 0) {
+            log.warn("Se descartaron {} líneas de CSV con formato inválido ({} válidas). Ejemplos: {}",
+                    stats.getInvalidRows(), stats.getValidRows(), stats.getInvalidSamples());
+        }
+    }
+
+    /**
+     * Publica un grafo como la nueva versión vigente.
+     * La versión se asigna dentro del intercambio, de modo que el orden de las versiones
+     * coincide con el orden de publicación aun con cargas concurrentes.
+     * @param graph El grafo ya congelado.
+     * @param reverse El grafo transpuesto de {@code graph}.
+     * @param landmarks Tablas de landmarks de {@code graph}.
+     * @param components Índice de componentes de {@code graph}.
+     * @param hierarchy Futuro de la jerarquía de contracción de {@code graph}.
+     * @return El snapshot publicado, sin etiquetas de hubs.
+     */
+    GraphSnapshot publish(CompactGraph graph, CompactGraph reverse, Landmarks landmarks, ComponentIndex components,
+                          CompletableFuture<ContractionHierarchy> hierarchy) {
+        return publish(graph, reverse, landmarks, components, hierarchy, CompletableFuture.completedFuture(null));
+    }
+
+    /**
+     * Publica un grafo como la nueva versión vigente, con el futuro de sus etiquetas de hubs.
+     * @see #publish(CompactGraph, CompactGraph, Landmarks, ComponentIndex, CompletableFuture)
+     */
+    GraphSnapshot publish(CompactGraph graph, CompactGraph reverse, Landmarks landmarks, ComponentIndex components,
+                          CompletableFuture<ContractionHierarchy> hierarchy, CompletableFuture<HubLabels> hubLabels) {
+        while (true) {
+            GraphSnapshot previous = snapshot.get();
+            GraphSnapshot next = new GraphSnapshot(graph, reverse, landmarks, components, hierarchy, hubLabels,
+                    previous.getVersion() + 1);
+            if (snapshot.compareAndSet(previous, next)) {
+                retire(previous, next);
+                return next;
+            }
+        }
+    }
+
+    /**
+     * Publica un snapshot derivado del vigente solo si este no cambió mientras se preparaba,
+     * para que una actualización nunca reemplace una carga publicada entretanto.
+     * @return El snapshot publicado, o null si {@code expected} ya no es el vigente.
+     */
+    private GraphSnapshot publishIfCurrent(GraphSnapshot expected, CompactGraph graph, CompactGraph reverse,
+                                           Landmarks landmarks, ComponentIndex components,
+                                           CompletableFuture<ContractionHierarchy> hierarchy,
+                                           CompletableFuture<HubLabels> hubLabels) {
+        GraphSnapshot next = new GraphSnapshot(graph, reverse, landmarks, components, hierarchy, hubLabels,
+                expected.getVersion() + 1);
+        if (!snapshot.compareAndSet(expected, next)) {
+            return null;
+        }
+        retire(expected, next);
+        return next;
+    }
+
+    /**
+     * Suelta la referencia de publicación de la memoria fuera del heap del snapshot reemplazado
+     * si la versión nueva no la comparte. La memoria se libera en ese momento o cuando
+     * terminan las consultas que aún la retienen.
+     */
+    private static void retire(GraphSnapshot previous, GraphSnapshot next) {
+        if (previous.getMemory() != null && previous.getMemory() != next.getMemory()) {
+            previous.release();
+        }
+    }
+
+    /** Suelta la referencia de quien creó un grafo fuera del heap que no llegó a publicarse. */
+    private static void releaseMemory(CompactGraph graph) {
+        if (graph.memory() != null) {
+            graph.memory().release();
+        }
+    }
+
+    /**
+     * Toma el snapshot vigente y retiene su memoria fuera del heap, de modo que una carga
+     * que lo reemplace no la libere mientras se usa. Quien llama debe soltarla con
+     * {@link GraphSnapshot#release()} al terminar de leer el grafo.
+     */
+    private GraphSnapshot acquire() {
+        while (true) {
+            GraphSnapshot current = snapshot.get();
+            // Solo falla si el snapshot ya fue reemplazado y liberado: el siguiente es más nuevo
+            if (current.retain()) {
+                return current;
+            }
+        }
+    }
+
+    /**
+     * Agrega, elimina o cambia el tiempo de conexiones entre ubicaciones existentes sin
+     * volver a cargar el grafo.
+     *
+     * Los cambios se aplican como una capa sobre el grafo vigente (ver {@link GraphUpdate}) y
+     * se publican como una versión nueva. Se conserva lo que el cambio no puede afectar: si
+     * ninguna conexión es nueva ni más rápida, los landmarks, las componentes y las rutas del
+     * caché que no usan una conexión más lenta o eliminada pasan a la versión nueva. Lo demás
+     * se invalida y las consultas usan las alternativas sin índices hasta que el mantenimiento
+     * en segundo plano lo reconstruye, junto con la compactación de la capa cuando supera
+     * {@code routes.updates.compaction-threshold} aristas.
+     *
+     * @param changes Los cambios; si hay varios para la misma conexión, vale el último.
+     * @return El resumen de la actualización.
+     * @throws IllegalArgumentException Si hay más cambios que {@code routes.updates.max-changes},
+     * o un cambio está incompleto, usa una ubicación inexistente o tiene un tiempo negativo.
+     */
+    public UpdateResponse updateConnections(List<ConnectionChange> changes) {
+        int maxChanges = properties.getUpdates().getMaxChanges();
+        if (changes.size() > maxChanges) {
+            throw new IllegalArgumentException("La actualización tiene " + changes.size()
+                    + " cambios; el máximo es " + maxChanges);
+        }
+        long start = System.nanoTime();
+        synchronized (updateLock) {
+            while (true) {
+                // La capa nueva comparte la memoria del grafo vigente: retenerla cubre ambos
+                GraphSnapshot current = acquire();
+                try {
+                    GraphUpdate update = GraphUpdate.apply(current, changes);
+                    if (!update.isChanged()) {
+                        return updateResponse("Las conexiones no cambiaron.", update, current, 0, start);
+                    }
+                    // Con distancias que solo suben, las cotas de los landmarks siguen siendo válidas
+                    Landmarks landmarks = update.isShortening() ? null : current.getLandmarks();
+                    ComponentIndex components = update.isJoiningComponents() ? null : current.getComponents();
+                    // La jerarquía y las etiquetas suponen tiempos fijos: toda actualización las invalida
+                    GraphSnapshot published = publishIfCurrent(current, update.getGraph(), update.getReverse(),
+                            landmarks, components, CompletableFuture.completedFuture(null),
+                            CompletableFuture.completedFuture(null));
+                    if (published == null) {
+                        continue; // Se publicó una carga entretanto: los cambios se aplican sobre ella
+                    }
+                    int kept = update.isShortening() ? 0
+                            : routeCache.carryOver(current.getVersion(), published.getVersion(),
+                                    route -> !update.slows(route.getRoute()));
+                    if (needsMaintenance(published)) {
+                        scheduleMaintenance();
                     }
+                    return updateResponse("Conexiones actualizadas correctamente.", update, published, kept, start);
+                } finally {
+                    current.release();
                 }
             }
         }
     }
 
+    private UpdateResponse updateResponse(String message, GraphUpdate update, GraphSnapshot published, int kept, long start) {
+        UpdateResponse response = new UpdateResponse(message);
+        response.setVersion(published.getVersion());
+        response.setAdded(update.getAdded());
+        response.setUpdated(update.getUpdated());
+        response.setRemoved(update.getRemoved());
+        response.setUnchanged(update.getUnchanged());
+        response.setNotFound(update.getNotFound());
+        response.setConnections(published.getGraph().edgeCount());
+        response.setOverlayEdges(published.getGraph().overlayEdgeCount());
+        response.setKeptRoutes(kept);
+        response.setMaintenancePending(maintenancePending.get());
+        response.setMillis((System.nanoTime() - start) / 1_000_000);
+        return response;
+    }
+
+    /**
+     * Indica si un snapshot publicado por una actualización tiene la capa por sobre el umbral
+     * de compactación o algún índice invalidado.
+     */
+    private boolean needsMaintenance(GraphSnapshot current) {
+        return current.getGraph().overlayEdgeCount() > properties.getUpdates().getCompactionThreshold()
+                || current.getLandmarks() == null || current.getComponents() == null
+                || properties.getSearch().isContractionHierarchies() || properties.getHubLabels().isEnabled();
+    }
+
+    private void scheduleMaintenance() {
+        // Una sola tarea pendiente: las actualizaciones que llegan mientras espera se atienden juntas
+        if (maintenancePending.compareAndSet(false, true)) {
+            maintenanceExecutor.execute(() -> {
+                maintenancePending.set(false);
+                try {
+                    maintain();
+                } catch (RuntimeException e) {
+                    log.error("Falló el mantenimiento del grafo", e);
+                }
+            });
+        }
+    }
+
+    /**
+     * Compacta la capa de actualizaciones si superó el umbral y recalcula los índices que las
+     * actualizaciones invalidaron, publicando el resultado como una versión nueva. Las distancias
+     * no cambian, por lo que todas las rutas del caché pasan a la versión nueva. Se ejecuta en
+     * segundo plano; las consultas no esperan, y las actualizaciones esperan a que termine.
+     * @return El snapshot publicado, o null si no había nada que hacer o se publicó una carga entretanto.
+     */
+    GraphSnapshot maintain() {
+        synchronized (updateLock) {
+            // Una carga completa puede publicarse entretanto: la memoria retenida sigue abierta hasta terminar
+            GraphSnapshot current = acquire();
+            try {
+                CompactGraph graph = current.getGraph();
+                CompactGraph reverse = current.getReverse();
+                boolean compact = graph.overlayEdgeCount() > properties.getUpdates().getCompactionThreshold();
+                boolean rebuildHierarchy = properties.getSearch().isContractionHierarchies()
+                        && current.getHierarchy().isDone() && current.getHierarchy().getNow(null) == null;
+                boolean rebuildHubLabels = properties.getHubLabels().isEnabled()
+                        && current.getHubLabels().isDone() && current.getHubLabels().getNow(null) == null;
+                if (!compact && current.getLandmarks() != null && current.getComponents() != null && !rebuildHierarchy
+                        && !rebuildHubLabels) {
+                    return null;
+                }
+                long start = System.nanoTime();
+                if (compact) {
+                    graph = graph.compact();
+                    // Fuera del heap, el transpuesto debe quedar en la memoria nueva del grafo compactado
+                    reverse = graph.isOffHeap() ? graph.transpose() : reverse.compact();
+                }
+                // Los ids no cambian al compactar, por lo que los índices vigentes siguen sirviendo
+                ComponentIndex components = current.getComponents() != null
+                        ? current.getComponents() : ComponentIndex.compute(graph);
+                Landmarks landmarks = current.getLandmarks() != null
+                        ? current.getLandmarks() : Landmarks.compute(graph, reverse, properties.getSearch().getLandmarks());
+                CompletableFuture<ContractionHierarchy> hierarchy = rebuildHierarchy ? new CompletableFuture<>() : current.getHierarchy();
+                CompletableFuture<HubLabels> hubLabels = rebuildHubLabels ? new CompletableFuture<>() : current.getHubLabels();
+                GraphSnapshot published = publishIfCurrent(current, graph, reverse, landmarks, components, hierarchy,
+                        hubLabels);
+                if (published == null) {
+                    if (graph.memory() != current.getMemory()) {
+                        releaseMemory(graph);
+                    }
+                    return null;
+                }
+                routeCache.carryOver(current.getVersion(), published.getVersion(), route -> true);
+                if (rebuildHierarchy) {
+                    scheduleHierarchy(published);
+                }
+                if (rebuildHubLabels) {
+                    scheduleHubLabels(published);
+                }
+                log.info("Mantenimiento del grafo: versión {} publicada en {} ms (compactado: {}, {} aristas)",
+                        published.getVersion(), (System.nanoTime() - start) / 1_000_000, compact, graph.edgeCount());
+                return published;
+            } finally {
+                current.release();
+            }
+        }
+    }
+
+    /**
+     * Obtiene el snapshot vigente del grafo.
+     * @return El último snapshot publicado.
+     */
+    public GraphSnapshot getSnapshot() {
+        return snapshot.get();
+    }
+
     /**
      * Encuentra la ruta más rápida (con el menor tiempo de viaje) entre dos ubicaciones
-     * utilizando el algoritmo de Dijkstra.
+     * con el algoritmo configurado en {@code routes.search.algorithm}.
      *
      * @param origin Nombre de la ubicación de origen.
      * @param destination Nombre de la ubicación de destino.
@@ -56,58 +771,686 @@ public class RouteService {
      * el tiempo total será -1.
      */
     public RouteResponse findFastestRoute(String origin, String destination) {
-        Location originLocation = graph.getLocation(origin);
-        Location destinationLocation = graph.getLocation(destination);
+        return findFastestRoute(origin, destination, null);
+    }
+
+    /**
+     * Encuentra la ruta más rápida (con el menor tiempo de viaje) entre dos ubicaciones
+     * sobre el grafo compacto vigente. El hilo que llama espera mientras la búsqueda corre
+     * en el pool de cómputo.
+     *
+     * @param origin Nombre de la ubicación de origen.
+     * @param destination Nombre de la ubicación de destino.
+     * @param algorithm Algoritmo a usar, o null para usar el configurado.
+     * @return Un objeto RouteResponse con la ruta, el tiempo total y los nodos asentados.
+     * Si no hay ruta, el tiempo total será -1.
+     * @throws SearchAbortedException Si la búsqueda supera el presupuesto configurado o no hay
+     * cupo para otra búsqueda pesada.
+     */
+    public RouteResponse findFastestRoute(String origin, String destination, RouteAlgorithm algorithm) {
+        CompletableFuture<RouteResponse> response = findFastestRouteAsync(origin, destination, algorithm);
+        try {
+            return response.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * Variante de {@link #findFastestRoute(String, String, RouteAlgorithm)} que no bloquea.
+     *
+     * Las ubicaciones desconocidas, los pares sin ruta probada por las componentes y los
+     * aciertos del caché se resuelven en el hilo que llama; solo las búsquedas van al pool
+     * de cómputo ({@code routes.search.compute-threads} hilos de plataforma). Así las
+     * búsquedas simultáneas no superan la cantidad de núcleos aunque las peticiones lleguen
+     * en miles de hilos virtuales, y cada hilo del pool reutiliza su estado de búsqueda.
+     *
+     * @param origin Nombre de la ubicación de origen.
+     * @param destination Nombre de la ubicación de destino.
+     * @param algorithm Algoritmo a usar, o null para usar el configurado.
+     * @return El futuro de la respuesta.
+     */
+    public CompletableFuture<RouteResponse> findFastestRouteAsync(String origin, String destination, RouteAlgorithm algorithm) {
+        return findFastestRouteAsync(origin, destination, algorithm, null, null);
+    }
+
+    /**
+     * Variante de {@link #findFastestRouteAsync(String, String, RouteAlgorithm)} con un
+     * presupuesto propio de la consulta, que solo puede ajustar el configurado en
+     * {@code routes.search.max-settled-nodes} y {@code routes.search.timeout}. El plazo corre
+     * desde esta llamada, incluida la espera en el pool de cómputo. Cancelar el futuro
+     * interrumpe la búsqueda en su siguiente punto de control.
+     *
+     * @param origin Nombre de la ubicación de origen.
+     * @param destination Nombre de la ubicación de destino.
+     * @param algorithm Algoritmo a usar, o null para usar el configurado.
+     * @param maxSettledNodes Máximo de nodos asentados, o null para usar el configurado.
+     * @param timeout Tiempo máximo, o null para usar el configurado.
+     * @return El futuro de la respuesta. Falla con {@link SearchAbortedException} si la búsqueda
+     * supera su presupuesto o no hay cupo para otra búsqueda pesada.
+     * @throws IllegalArgumentException Si el presupuesto pedido es negativo.
+     */
+    public CompletableFuture<RouteResponse> findFastestRouteAsync(String origin, String destination, RouteAlgorithm algorithm,
+                                                                  Integer maxSettledNodes, Duration timeout) {
+        if ((maxSettledNodes != null && maxSettledNodes < 0) || (timeout != null && timeout.isNegative())) {
+            throw new IllegalArgumentException("El máximo de nodos asentados y el tiempo máximo no pueden ser negativos.");
+        }
+        long start = System.nanoTime();
+        RouteAlgorithm effectiveAlgorithm = algorithm != null ? algorithm : properties.getSearch().getAlgorithm();
+        CompletableFuture<RouteResponse> result = new CompletableFuture<>();
+        Supplier<SearchBudget> budgets = budgets(maxSettledNodes, timeout, result::isDone);
+        GraphSnapshot current = acquire();
+        CompletableFuture<RouteResponse> found;
+        try {
+            found = findFastestRoute(current, origin, destination, effectiveAlgorithm,
+                    computeExecutor != null ? computeExecutor : Runnable::run, budgets);
+        } catch (RuntimeException e) {
+            current.release();
+            throw e;
+        }
+        found.whenComplete((response, error) -> {
+            current.release();
+            Throwable cause = error != null ? unwrap(error) : null;
+            metrics.recordFind(effectiveAlgorithm, System.nanoTime() - start, response, cause);
+            if (cause != null) {
+                result.completeExceptionally(cause);
+            } else {
+                result.complete(response);
+            }
+        });
+        return result;
+    }
+
+    /**
+     * Obtiene solo el tiempo de viaje más corto entre dos ubicaciones.
+     *
+     * Con las etiquetas de hubs de la versión vigente listas, el tiempo sale de mezclar dos
+     * etiquetas en el hilo que llama, sin búsqueda, sin caché y sin presupuesto. Sin ellas
+     * (deshabilitadas, en construcción o sobre el máximo de bytes) se responde como
+     * {@link #findFastestRouteAsync(String, String, RouteAlgorithm, Integer, Duration)} con el
+     * algoritmo configurado, y se descarta la ruta.
+     *
+     * @param origin Nombre de la ubicación de origen.
+     * @param destination Nombre de la ubicación de destino.
+     * @param maxSettledNodes Máximo de nodos asentados si hay que buscar, o null para usar el configurado.
+     * @param timeout Tiempo máximo si hay que buscar, o null para usar el configurado.
+     * @return El futuro de la respuesta, con tiempo -1 si no hay ruta o alguna ubicación no existe.
+     * @throws IllegalArgumentException Si el presupuesto pedido es negativo.
+     */
+    public CompletableFuture<TravelTimeResponse> findTravelTimeAsync(String origin, String destination,
+                                                                     Integer maxSettledNodes, Duration timeout) {
+        if ((maxSettledNodes != null && maxSettledNodes < 0) || (timeout != null && timeout.isNegative())) {
+            throw new IllegalArgumentException("El máximo de nodos asentados y el tiempo máximo no pueden ser negativos.");
+        }
+        long start = System.nanoTime();
+        GraphSnapshot current = acquire();
+        HubLabels labels = current.getHubLabels().getNow(null);
+        if (labels == null) {
+            current.release();
+            CompletableFuture<RouteResponse> route = findFastestRouteAsync(origin, destination, null, maxSettledNodes, timeout);
+            CompletableFuture<TravelTimeResponse> result = new CompletableFuture<>();
+            route.whenComplete((found, error) -> {
+                if (error != null) {
+                    result.completeExceptionally(unwrap(error));
+                } else {
+                    TravelTimeResponse response = new TravelTimeResponse(origin, destination, found.getTotalTime());
+                    response.setAlgorithm(found.getAlgorithm());
+                    result.complete(response);
+                }
+            });
+            // Cancelar la respuesta detiene la búsqueda en su siguiente punto de control
+            result.whenComplete((response, error) -> {
+                if (result.isCancelled()) {
+                    route.cancel(false);
+                }
+            });
+            return result;
+        }
+        TravelTimeResponse response = new TravelTimeResponse(origin, destination, -1);
+        try {
+            CompactGraph g = current.getGraph();
+            int source = g.idOf(origin);
+            int target = g.idOf(destination);
+            if (source >= 0 && target >= 0) {
+                int time = labels.distance(source, target);
+                response.setTotalTime(time == SearchState.UNREACHED ? -1 : time);
+                response.setAlgorithm(RouteAlgorithm.HL);
+            }
+        } finally {
+            current.release();
+        }
+        metrics.recordTravelTime(System.nanoTime() - start);
+        return CompletableFuture.completedFuture(response);
+    }
+
+    /**
+     * Encuentra hasta K rutas alternativas entre dos ubicaciones, sin caché. Las búsquedas
+     * corren en el pool de cómputo y comparten un solo presupuesto, igual que el de /find,
+     * de modo que un K grande se interrumpe como una búsqueda larga.
+     *
+     * @param origin Nombre de la ubicación de origen.
+     * @param destination Nombre de la ubicación de destino.
+     * @param k Cantidad de rutas pedida, entre 1 y {@code routes.alternatives.max-routes}.
+     * @param mode YEN para las K rutas más rápidas, PENALTY para rutas más distintas; null para YEN.
+     * @param maxSettledNodes Máximo de nodos asentados entre todas las búsquedas, o null para usar el configurado.
+     * @param timeout Tiempo máximo, o null para usar el configurado.
+     * @return El futuro de la respuesta, sin rutas si no hay ruta o alguna ubicación no existe.
+     * Falla con {@link SearchAbortedException} si las búsquedas superan su presupuesto.
+     * @throws IllegalArgumentException Si K está fuera de rango o el presupuesto pedido es negativo.
+     */
+    public CompletableFuture<AlternativeRoutesResponse> findAlternativeRoutesAsync(String origin, String destination,
+                                                                                   int k, AlternativeMode mode,
+                                                                                   Integer maxSettledNodes, Duration timeout) {
+        int maxRoutes = properties.getAlternatives().getMaxRoutes();
+        if (k < 1 || k > maxRoutes) {
+            throw new IllegalArgumentException("La cantidad de rutas debe estar entre 1 y " + maxRoutes + ": " + k);
+        }
+        if ((maxSettledNodes != null && maxSettledNodes < 0) || (timeout != null && timeout.isNegative())) {
+            throw new IllegalArgumentException("El máximo de nodos asentados y el tiempo máximo no pueden ser negativos.");
+        }
+        long start = System.nanoTime();
+        AlternativeMode effectiveMode = mode != null ? mode : AlternativeMode.YEN;
+        GraphSnapshot current = acquire();
+        CompactGraph g = current.getGraph();
+        int source;
+        int target;
+        try {
+            source = g.idOf(origin);
+            target = g.idOf(destination);
+        } catch (RuntimeException e) {
+            current.release();
+            throw e;
+        }
+        if (source < 0 || target < 0 || !current.mayReach(source, target)) {
+            current.release();
+            AlternativeRoutesResponse response = new AlternativeRoutesResponse(origin, destination, effectiveMode, List.of());
+            metrics.recordAlternatives(effectiveMode, System.nanoTime() - start, response, null);
+            return CompletableFuture.completedFuture(response);
+        }
+
+        CompletableFuture<AlternativeRoutesResponse> result = new CompletableFuture<>();
+        Supplier<SearchBudget> budgets = budgets(maxSettledNodes, timeout, result::isDone);
+        double penalty = properties.getAlternatives().getPenalty();
+        CompletableFuture<AlternativeRoutesResponse> found;
+        try {
+            found = CompletableFuture.supplyAsync(() -> {
+                SearchBudget budget = budgets.get();
+                long searchStart = System.nanoTime();
+                try {
+                    AlternativeRoutes routes = effectiveMode == AlternativeMode.PENALTY
+                            ? KShortestPaths.penalty(g, current.getReverse(), source, target, k, penalty, budget)
+                            : KShortestPaths.yen(g, current.getReverse(), source, target, k, budget);
+                    List<RouteResponse> responses = new ArrayList<>(routes.size());
+                    for (int i = 0; i < routes.size(); i++) {
+                        int[] path = routes.path(i);
+                        String[] names = new String[path.length];
+                        for (int j = 0; j < path.length; j++) {
+                            names[j] = g.nameOf(path[j]);
+                        }
+                        responses.add(new RouteResponse(List.of(names), routes.distance(i)));
+                    }
+                    AlternativeRoutesResponse response = new AlternativeRoutesResponse(origin, destination, effectiveMode, responses);
+                    response.setSettledNodes(routes.getSettledNodes());
+                    response.setSearchNanos(System.nanoTime() - searchStart);
+                    return response;
+                } finally {
+                    budget.release();
+                }
+            }, computeExecutor != null ? computeExecutor : Runnable::run);
+        } catch (RuntimeException e) {
+            current.release();
+            throw e;
+        }
+        found.whenComplete((response, error) -> {
+            current.release();
+            Throwable cause = error != null ? unwrap(error) : null;
+            metrics.recordAlternatives(effectiveMode, System.nanoTime() - start, response, cause);
+            if (cause != null) {
+                result.completeExceptionally(cause);
+            } else {
+                result.complete(response);
+            }
+        });
+        return result;
+    }
+
+    /**
+     * Combina el presupuesto configurado con el de la consulta: para cada límite vale el menor
+     * de los que no son 0. Cada búsqueda recibe su propio presupuesto, porque guarda el permiso
+     * de búsqueda pesada que haya tomado.
+     * @param cancelled Indica si quien espera la respuesta la abandonó; null si no se cancela.
+     */
+    private Supplier<SearchBudget> budgets(Integer maxSettledNodes, Duration timeout, BooleanSupplier cancelled) {
+        RouteProperties.Search search = properties.getSearch();
+        int maxSettled = (int) tighter(search.getMaxSettledNodes(), maxSettledNodes == null ? 0 : maxSettledNodes);
+        long timeoutNanos = tighter(search.getTimeout() == null ? 0 : search.getTimeout().toNanos(),
+                timeout == null ? 0 : timeout.toNanos());
+        long deadline = timeoutNanos == 0 ? 0 : System.nanoTime() + timeoutNanos;
+        if (maxSettled == 0 && deadline == 0 && cancelled == null && heavySearches == null) {
+            return () -> SearchBudget.UNLIMITED;
+        }
+        return () -> new SearchBudget(maxSettled, deadline, cancelled, search.getHeavyAfterNodes(), heavySearches);
+    }
 
-        if (originLocation == null || destinationLocation == null) {
-            return new RouteResponse(Collections.emptyList(), -1);
+    private static long tighter(long configured, long requested) {
+        if (configured <= 0) {
+            return Math.max(0, requested);
         }
+        return requested <= 0 ? configured : Math.min(configured, requested);
+    }
 
-        // Estructuras de datos para el algoritmo de Dijkstra
-        Map<Location, Integer> times = new HashMap<>(); // Tiempos más cortos desde el origen
-        Map<Location, Location> predecessors = new HashMap<>(); // Para reconstruir la ruta
-        PriorityQueue<NodeWithTime> priorityQueue = new PriorityQueue<>(Comparator.comparingInt(NodeWithTime::getTime));
+    private static Throwable unwrap(Throwable error) {
+        return error instanceof CompletionException && error.getCause() != null ? error.getCause() : error;
+    }
 
-        // 1. Inicialización
-        graph.getLocationNames().forEach(name -> times.put(graph.getLocation(name), Integer.MAX_VALUE));
-        times.put(originLocation, 0);
-        priorityQueue.add(new NodeWithTime(originLocation, 0));
+    /**
+     * @param executor Donde se ejecuta la búsqueda si hace falta buscar.
+     * @param budgets Entrega el presupuesto de cada búsqueda.
+     */
+    private CompletableFuture<RouteResponse> findFastestRoute(GraphSnapshot current, String origin, String destination,
+                                                             RouteAlgorithm algorithm, Executor executor,
+                                                             Supplier<SearchBudget> budgets) {
+        RouteAlgorithm effectiveAlgorithm = algorithm != null ? algorithm : properties.getSearch().getAlgorithm();
+        CompactGraph g = current.getGraph();
+        int source = g.idOf(origin);
+        int target = g.idOf(destination);
 
-        // 2. Ciclo principal de Dijkstra
-        while (!priorityQueue.isEmpty()) {
-            Location currentLocation = priorityQueue.poll().getLocation();
+        if (source < 0 || target < 0) {
+            return CompletableFuture.completedFuture(new RouteResponse(Collections.emptyList(), -1));
+        }
+        if (!current.mayReach(source, target)) {
+            // Las componentes prueban que no hay ruta: se responde sin buscar ni ocupar el caché
+            RouteResponse response = new RouteResponse(List.of(), -1);
+            response.setAlgorithm(effectiveAlgorithm);
+            return CompletableFuture.completedFuture(response);
+        }
+        Supplier<RouteResponse> search = () -> search(current, source, target, effectiveAlgorithm, budgets.get());
+        if (!routeCache.isEnabled()) {
+            return CompletableFuture.supplyAsync(search, executor);
+        }
 
-            if (currentLocation.equals(destinationLocation)) {
-                break; // Se encontró la ruta más corta al destino
+        // La búsqueda usa el mismo snapshot cuya versión forma parte de la clave
+        RouteCache.Key key = new RouteCache.Key(origin, destination, current.getVersion(), effectiveAlgorithm);
+        boolean[] searched = new boolean[1];
+        CompletableFuture<RouteResponse> shared = routeCache.getAsync(key, () -> {
+            searched[0] = true;
+            return CompletableFuture.supplyAsync(search, executor);
+        });
+        // La respuesta guardada se comparte entre consultas: cada llamador recibe su propia copia
+        CompletableFuture<RouteResponse> copy = shared.thenApply(saved -> {
+            RouteResponse response = new RouteResponse(saved.getRoute(), saved.getTotalTime());
+            response.setAlgorithm(saved.getAlgorithm());
+            if (searched[0]) {
+                response.setSettledNodes(saved.getSettledNodes());
+                response.setRelaxedEdges(saved.getRelaxedEdges());
+                response.setQueuePushes(saved.getQueuePushes());
+                response.setSearchNanos(saved.getSearchNanos());
             }
+            response.setCached(!searched[0]);
+            return response;
+        });
+        if (searched[0]) {
+            return copy;
+        }
+        // Una búsqueda compartida se interrumpe con el presupuesto de quien la inició; si eso
+        // ocurre, esta consulta busca por su cuenta con el suyo
+        return copy.exceptionallyCompose(error -> unwrap(error) instanceof SearchAbortedException
+                ? CompletableFuture.supplyAsync(search, executor)
+                : CompletableFuture.failedFuture(unwrap(error)));
+    }
 
-            for (Connection connection : currentLocation.getConnections()) {
-                Location neighbor = connection.getDestination();
-                int newTime = times.get(currentLocation) + connection.getTime();
+    /**
+     * Encuentra las rutas más rápidas de varios pares origen/destino sobre un mismo snapshot.
+     *
+     * Los pares con el mismo origen forman un grupo que se resuelve con un solo árbol de
+     * búsqueda hasta asentar todos sus destinos; los grupos se resuelven en paralelo. Un
+     * grupo de un solo par usa el algoritmo configurado y el caché, igual que /find.
+     * Los errores se informan por par: nunca se completa un futuro de forma excepcional.
+     * Cada grupo busca con el presupuesto configurado en {@code routes.search}; si lo supera,
+     * sus pares se informan con {@link BatchRouteResult#SEARCH_ABORTED}. Cancelar los futuros
+     * de un grupo interrumpe su búsqueda.
+     *
+     * @param pairs Los pares a consultar.
+     * @return Un futuro por par, en el orden de la petición.
+     * @throws IllegalArgumentException Si hay más pares que {@code routes.batch.max-pairs}.
+     */
+    public List<CompletableFuture<BatchRouteResult>> findFastestRoutes(List<RoutePair> pairs) {
+        int maxPairs = properties.getBatch().getMaxPairs();
+        if (pairs.size() > maxPairs) {
+            throw new IllegalArgumentException("El lote tiene " + pairs.size() + " pares; el máximo es " + maxPairs);
+        }
+        GraphSnapshot current = acquire();
+        List<CompletableFuture<BatchRouteResult>> results = new ArrayList<>(pairs.size());
+        List<CompletableFuture<Void>> searches = new ArrayList<>();
+        try {
+            CompactGraph g = current.getGraph();
+            // Índices de los pares de cada origen, en orden de aparición
+            Map<Integer, List<Integer>> groups = new LinkedHashMap<>();
+            for (int i = 0; i < pairs.size(); i++) {
+                RoutePair pair = pairs.get(i);
+                CompletableFuture<BatchRouteResult> result = new CompletableFuture<>();
+                results.add(result);
+                int source = pair == null ? -1 : g.idOf(pair.getOrigin());
+                int target = pair == null ? -1 : g.idOf(pair.getDestination());
+                if (source < 0 || target < 0) {
+                    result.complete(failed(pair, BatchRouteResult.UNKNOWN_LOCATION));
+                } else if (!current.mayReach(source, target)) {
+                    // Sin ruta probada: no se agrega al grupo, donde obligaría a agotar la búsqueda
+                    result.complete(failed(pair, BatchRouteResult.NO_ROUTE));
+                } else {
+                    groups.computeIfAbsent(source, key -> new ArrayList<>()).add(i);
+                }
+            }
+            for (Map.Entry<Integer, List<Integer>> group : groups.entrySet()) {
+                searches.add(CompletableFuture.runAsync(
+                        () -> searchGroup(current, group.getKey(), group.getValue(), pairs, results), batchPool));
+            }
+        } catch (RuntimeException e) {
+            current.release();
+            throw e;
+        }
+        // Los grupos leen el grafo hasta terminar su búsqueda, aunque sus pares se hayan cancelado antes
+        CompletableFuture.allOf(searches.toArray(CompletableFuture[]::new)).whenComplete((ignored, error) -> current.release());
+        return results;
+    }
 
-                if (newTime < times.get(neighbor)) {
-                    times.put(neighbor, newTime);
-                    predecessors.put(neighbor, currentLocation);
-                    priorityQueue.add(new NodeWithTime(neighbor, newTime));
+    private void searchGroup(GraphSnapshot current, int source, List<Integer> indices, List<RoutePair> pairs,
+                             List<CompletableFuture<BatchRouteResult>> results) {
+        // Nadie espera el grupo si todos sus pares ya están completos o cancelados
+        Supplier<SearchBudget> budgets = budgets(null, null,
+                () -> indices.stream().allMatch(index -> results.get(index).isDone()));
+        try {
+            if (indices.size() == 1) {
+                RoutePair pair = pairs.get(indices.get(0));
+                // El hilo del pool de lotes ya es de plataforma: busca directamente
+                CompletableFuture<RouteResponse> response = findFastestRoute(current, pair.getOrigin(),
+                        pair.getDestination(), null, Runnable::run, budgets);
+                try {
+                    results.get(indices.get(0)).complete(toBatchResult(pair, response.join()));
+                } catch (CompletionException e) {
+                    if (!(e.getCause() instanceof SearchAbortedException)) {
+                        throw e;
+                    }
+                    results.get(indices.get(0)).complete(failed(pair, BatchRouteResult.SEARCH_ABORTED));
                 }
+                return;
+            }
+            CompactGraph g = current.getGraph();
+            int[] targets = new int[indices.size()];
+            for (int k = 0; k < targets.length; k++) {
+                targets[k] = g.idOf(pairs.get(indices.get(k)).getDestination());
+            }
+            SearchBudget budget = budgets.get();
+            PathResult[] paths;
+            try {
+                paths = Dijkstra.oneToMany(g, source, targets, budget);
+            } finally {
+                budget.release();
+            }
+            for (int k = 0; k < targets.length; k++) {
+                RoutePair pair = pairs.get(indices.get(k));
+                results.get(indices.get(k)).complete(toBatchResult(pair, toResponse(g, paths[k])));
+            }
+        } catch (SearchAbortedException e) {
+            for (int index : indices) {
+                results.get(index).complete(failed(pairs.get(index), BatchRouteResult.SEARCH_ABORTED));
+            }
+        } catch (RuntimeException e) {
+            log.error("Falló la búsqueda por lotes desde {}", current.getGraph().nameOf(source), e);
+            for (int index : indices) {
+                results.get(index).complete(failed(pairs.get(index), BatchRouteResult.SEARCH_FAILED));
             }
         }
+    }
 
-        // 3. Reconstrucción de la ruta y preparación de la respuesta
-        List<String> fastestRoute = new ArrayList<>();
-        int totalTime = times.getOrDefault(destinationLocation, Integer.MAX_VALUE);
+    /**
+     * Calcula la matriz de tiempos de viaje entre orígenes y destinos sobre un mismo snapshot.
+     *
+     * Cada origen distinto se resuelve con una búsqueda de uno a muchos que se detiene al
+     * asentar todos los destinos, sin reconstruir rutas; las búsquedas se reparten en el pool
+     * de lotes. Con las etiquetas de hubs listas, cada celda es un cruce de etiquetas en lugar
+     * de una búsqueda. El método retorna de inmediato y cada fila queda disponible al terminar su búsqueda.
+     * Cada búsqueda usa el presupuesto configurado en {@code routes.search}: una fila que lo
+     * supera queda con {@link TravelTimeMatrix#NO_ROUTE} y su error. Cancelar el futuro de una
+     * fila interrumpe su búsqueda.
+     *
+     * @param origins Nombres de los orígenes (filas).
+     * @param destinations Nombres de los destinos (columnas).
+     * @return La matriz, con {@link TravelTimeMatrix#NO_ROUTE} en los pares sin ruta o con ubicaciones inexistentes.
+     * @throws IllegalArgumentException Si la matriz supera {@code routes.batch.max-matrix-cells} celdas.
+     */
+    public TravelTimeMatrix computeMatrix(List<String> origins, List<String> destinations) {
+        long cells = (long) origins.size() * destinations.size();
+        long maxCells = properties.getBatch().getMaxMatrixCells();
+        if (cells > maxCells) {
+            throw new IllegalArgumentException("La matriz tiene " + cells + " celdas; el máximo es " + maxCells);
+        }
+        GraphSnapshot current = acquire();
+        Set<String> unknown = new LinkedHashSet<>();
+        List<CompletableFuture<int[]>> rows = new ArrayList<>(origins.size());
+        List<CompletableFuture<Void>> searches = new ArrayList<>();
+        try {
+            CompactGraph g = current.getGraph();
+            HubLabels labels = current.getHubLabels().getNow(null);
 
-        if (totalTime != Integer.MAX_VALUE) {
-            Location step = destinationLocation;
-            while (step != null) {
-                fastestRoute.add(step.getName());
-                step = predecessors.get(step);
+            // Solo los destinos existentes entran en la búsqueda; columns indica su columna
+            int[] targets = new int[destinations.size()];
+            int[] columns = new int[destinations.size()];
+            int known = 0;
+            for (int column = 0; column < destinations.size(); column++) {
+                int target = g.idOf(destinations.get(column));
+                if (target < 0) {
+                    if (destinations.get(column) != null) {
+                        unknown.add(destinations.get(column));
+                    }
+                } else {
+                    targets[known] = target;
+                    columns[known++] = column;
+                }
+            }
+            int[] knownTargets = Arrays.copyOf(targets, known);
+            int[] knownColumns = Arrays.copyOf(columns, known);
+
+            int[] emptyRow = new int[destinations.size()];
+            Arrays.fill(emptyRow, TravelTimeMatrix.NO_ROUTE);
+            Map<Integer, CompletableFuture<int[]>> bySource = new HashMap<>();
+            for (String origin : origins) {
+                int source = g.idOf(origin);
+                if (source < 0) {
+                    if (origin != null) {
+                        unknown.add(origin);
+                    }
+                    rows.add(CompletableFuture.completedFuture(emptyRow));
+                    continue;
+                }
+                rows.add(bySource.computeIfAbsent(source, key -> {
+                    CompletableFuture<int[]> row = new CompletableFuture<>();
+                    searches.add(CompletableFuture.runAsync(() -> {
+                        try {
+                            row.complete(matrixRow(current, labels, source, knownTargets, knownColumns, emptyRow,
+                                    budgets(null, null, row::isDone)));
+                        } catch (SearchAbortedException e) {
+                            row.completeExceptionally(e);
+                        } catch (RuntimeException e) {
+                            // La fila se informa como fallida sin cortar la matriz que ya se está escribiendo
+                            log.error("Falló la fila de la matriz desde {}", current.getGraph().nameOf(source), e);
+                            row.completeExceptionally(e);
+                        }
+                    }, batchPool));
+                    return row;
+                }));
+            }
+        } catch (RuntimeException e) {
+            current.release();
+            throw e;
+        }
+        // Las búsquedas leen el grafo hasta terminar, aunque su fila se haya cancelado antes
+        CompletableFuture.allOf(searches.toArray(CompletableFuture[]::new)).whenComplete((ignored, error) -> current.release());
+        return new TravelTimeMatrix(origins, destinations, List.copyOf(unknown), rows);
+    }
+
+    /**
+     * Calcula una fila de la matriz: con etiquetas de hubs cruzándolas, y si no con una
+     * búsqueda de uno a muchos dentro del presupuesto.
+     * @param knownColumns Columna de cada destino existente de {@code knownTargets}.
+     * @param emptyRow Fila sin rutas, que se copia.
+     * @throws SearchAbortedException Si la búsqueda supera el presupuesto.
+     */
+    private static int[] matrixRow(GraphSnapshot current, HubLabels labels, int source, int[] knownTargets,
+                                   int[] knownColumns, int[] emptyRow, Supplier<SearchBudget> budgets) {
+        // Solo se buscan los destinos que las componentes no descartan
+        int[] reachable = new int[knownTargets.length];
+        int count = 0;
+        for (int k = 0; k < knownTargets.length; k++) {
+            if (current.mayReach(source, knownTargets[k])) {
+                reachable[count++] = k;
+            }
+        }
+        int[] searchTargets = new int[count];
+        for (int k = 0; k < count; k++) {
+            searchTargets[k] = knownTargets[reachable[k]];
+        }
+        int[] times;
+        if (labels != null) {
+            times = new int[count];
+            for (int k = 0; k < count; k++) {
+                times[k] = labels.distance(source, searchTargets[k]);
             }
-            Collections.reverse(fastestRoute);
         } else {
-            totalTime = -1; // No se encontró una ruta
+            SearchBudget budget = budgets.get();
+            try {
+                times = Dijkstra.travelTimes(current.getGraph(), source, searchTargets, budget);
+            } finally {
+                budget.release();
+            }
         }
+        int[] row = emptyRow.clone();
+        for (int k = 0; k < count; k++) {
+            if (times[k] != SearchState.UNREACHED) {
+                row[knownColumns[reachable[k]]] = times[k];
+            }
+        }
+        return row;
+    }
 
-        return new RouteResponse(fastestRoute, totalTime);
+    /**
+     * Prepara una isócrona sobre el snapshot vigente: las ubicaciones alcanzables desde
+     * {@code location} (FORWARD) o desde las que se alcanza {@code location} (REVERSE)
+     * dentro de {@code maxTime}. La búsqueda se ejecuta al recorrer el resultado, en el pool
+     * de cómputo y con el presupuesto configurado en {@code routes.search}. La isócrona retiene el snapshot
+     * vigente hasta recorrerse o cerrarse.
+     *
+     * @param location Nombre de la ubicación de partida.
+     * @param maxTime Tiempo máximo, inclusive.
+     * @param direction Sentido de la isócrona, o null para FORWARD.
+     * @return La isócrona preparada, o null si la ubicación no existe.
+     * @throws IllegalArgumentException Si el tiempo máximo es negativo.
+     */
+    public Isochrone isochrone(String location, int maxTime, IsochroneDirection direction) {
+        if (maxTime < 0) {
+            throw new IllegalArgumentException("El tiempo máximo no puede ser negativo: " + maxTime);
+        }
+        IsochroneDirection effectiveDirection = direction != null ? direction : IsochroneDirection.FORWARD;
+        GraphSnapshot current = acquire();
+        int source;
+        try {
+            // El transpuesto comparte ids con el grafo, por lo que el id de la ubicación sirve en ambos
+            source = current.getGraph().idOf(location);
+        } catch (RuntimeException e) {
+            current.release();
+            throw e;
+        }
+        if (source < 0) {
+            current.release();
+            return null;
+        }
+        CompactGraph g = effectiveDirection == IsochroneDirection.REVERSE ? current.getReverse() : current.getGraph();
+        // La referencia pasa a la isócrona, que la suelta al recorrerse o cerrarse
+        return new Isochrone(current, g, location, source, maxTime, effectiveDirection, budgets(null, null, null),
+                isochroneExecutor);
+    }
+
+    private static BatchRouteResult toBatchResult(RoutePair pair, RouteResponse response) {
+        BatchRouteResult result = new BatchRouteResult(pair.getOrigin(), pair.getDestination(),
+                response.getRoute(), response.getTotalTime());
+        result.setAlgorithm(response.getAlgorithm());
+        result.setSettledNodes(response.getSettledNodes());
+        result.setCached(response.isCached());
+        if (response.getTotalTime() == -1) {
+            result.setError(BatchRouteResult.NO_ROUTE);
+        }
+        return result;
+    }
+
+    private static BatchRouteResult failed(RoutePair pair, String error) {
+        BatchRouteResult result = new BatchRouteResult(pair == null ? null : pair.getOrigin(),
+                pair == null ? null : pair.getDestination(), List.of(), -1);
+        result.setError(error);
+        return result;
+    }
+
+    /**
+     * Métricas acumuladas del caché de rutas.
+     */
+    public CacheStatsResponse getCacheStats() {
+        return routeCache.stats();
+    }
+
+    private static RouteResponse search(GraphSnapshot current, int source, int target, RouteAlgorithm algorithm,
+                                        SearchBudget budget) {
+        CompactGraph g = current.getGraph();
+        QueueKind queue = QueueKind.forMaxWeight(g.maxWeight());
+        long start = System.nanoTime();
+        try {
+            PathResult result = switch (algorithm) {
+                case DIJKSTRA -> Dijkstra.shortestPath(g, source, target, queue, budget);
+                case BIDIRECTIONAL -> BidirectionalDijkstra.shortestPath(g, current.getReverse(), source, target, queue, budget);
+                // Sin landmarks calculados (routes.search.landmarks=0 o invalidados) se responde con Dijkstra
+                case ALT -> current.getLandmarks() != null && current.getLandmarks().count() > 0
+                        ? AltSearch.shortestPath(g, current.getLandmarks(), source, target, budget)
+                        : Dijkstra.shortestPath(g, source, target, queue, budget);
+                // Mientras la jerarquía no esté lista se responde con Dijkstra
+                case CH -> {
+                    ContractionHierarchy hierarchy = current.getHierarchy().getNow(null);
+                    yield hierarchy != null
+                            ? hierarchy.shortestPath(source, target, budget)
+                            : Dijkstra.shortestPath(g, source, target, queue, budget);
+                }
+                // Igual sin etiquetas; con ellas la ruta se sigue sin cola y no agota el presupuesto
+                case HL -> {
+                    HubLabels labels = current.getHubLabels().getNow(null);
+                    yield labels != null
+                            ? labels.shortestPath(g, source, target)
+                            : Dijkstra.shortestPath(g, source, target, queue, budget);
+                }
+            };
+            RouteResponse response = toResponse(g, result);
+            response.setSearchNanos(System.nanoTime() - start);
+            return response;
+        } finally {
+            budget.release();
+        }
+    }
+
+    private static RouteResponse toResponse(CompactGraph g, PathResult result) {
+        RouteResponse response;
+        if (!result.isFound()) {
+            response = new RouteResponse(List.of(), -1); // No se encontró una ruta
+        } else {
+            String[] fastestRoute = new String[result.getPath().length];
+            for (int i = 0; i < fastestRoute.length; i++) {
+                fastestRoute[i] = g.nameOf(result.getPath()[i]);
+            }
+            // Lista inmutable: la misma respuesta puede quedar guardada en el caché
+            response = new RouteResponse(List.of(fastestRoute), result.getDistance());
+        }
+        response.setAlgorithm(result.getAlgorithm());
+        response.setSettledNodes(result.getSettledNodes());
+        response.setRelaxedEdges(result.getRelaxedEdges());
+        response.setQueuePushes(result.getQueuePushes());
+        return response;
     }
-}
\ No newline at end of file
+}
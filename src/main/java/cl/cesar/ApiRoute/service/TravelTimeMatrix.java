@@ -0,0 +1,93 @@
+package cl.cesar.ApiRoute.service;
+
+import cl.cesar.ApiRoute.api.BatchRouteResult;
+import cl.cesar.ApiRoute.routing.SearchAbortedException;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+
+/**
+ * Matriz densa de tiempos de viaje entre orígenes y destinos, calculada por filas.
+ *
+ * Cada fila es el resultado de una búsqueda de uno a muchos que puede seguir en curso:
+ * {@link #row(int)} espera solo esa fila, de modo que la matriz puede escribirse fila por
+ * fila a medida que las búsquedas terminan. Los orígenes repetidos comparten la misma fila.
+ * Una fila cuya búsqueda se interrumpió por su presupuesto o falló se entrega con
+ * {@link #NO_ROUTE} en todas sus celdas y con el error de {@link #error(int)}.
+ */
+public final class TravelTimeMatrix {
+
+    /** Tiempo de un par sin ruta o con una ubicación inexistente. */
+    public static final int NO_ROUTE = -1;
+
+    private final List<String> origins;
+    private final List<String> destinations;
+    private final List<String> unknown;
+    private final List<CompletableFuture<int[]>> rows;
+
+    public TravelTimeMatrix(List<String> origins, List<String> destinations, List<String> unknown,
+                     List<CompletableFuture<int[]>> rows) {
+        this.origins = origins;
+        this.destinations = destinations;
+        this.unknown = unknown;
+        this.rows = rows;
+    }
+
+    public List<String> getOrigins() {
+        return origins;
+    }
+
+    public List<String> getDestinations() {
+        return destinations;
+    }
+
+    /** Ubicaciones de la petición que no existen en el grafo, sin repetir. */
+    public List<String> getUnknown() {
+        return unknown;
+    }
+
+    /** Indica si la fila ya está calculada. */
+    public boolean isRowDone(int origin) {
+        return rows.get(origin).isDone();
+    }
+
+    /**
+     * Tiempos desde un origen hacia cada destino, esperando la búsqueda si sigue en curso.
+     * @param origin Índice del origen en la petición.
+     * @return Un tiempo por destino, con {@link #NO_ROUTE} donde no hay ruta; no debe modificarse.
+     */
+    public int[] row(int origin) {
+        try {
+            return rows.get(origin).join();
+        } catch (CompletionException e) {
+            int[] empty = new int[destinations.size()];
+            Arrays.fill(empty, NO_ROUTE);
+            return empty;
+        }
+    }
+
+    /**
+     * Error de la búsqueda de una fila, esperándola si sigue en curso.
+     * @param origin Índice del origen en la petición.
+     * @return {@link BatchRouteResult#SEARCH_ABORTED} si la búsqueda superó su presupuesto,
+     *         {@link BatchRouteResult#SEARCH_FAILED} si falló, o null.
+     */
+    public String error(int origin) {
+        try {
+            rows.get(origin).join();
+            return null;
+        } catch (CompletionException e) {
+            return e.getCause() instanceof SearchAbortedException
+                    ? BatchRouteResult.SEARCH_ABORTED : BatchRouteResult.SEARCH_FAILED;
+        }
+    }
+
+    /** Cancela las filas que siguen en curso, lo que interrumpe sus búsquedas. */
+    public void cancel() {
+        for (CompletableFuture<int[]> row : rows) {
+            row.cancel(false);
+        }
+    }
+}
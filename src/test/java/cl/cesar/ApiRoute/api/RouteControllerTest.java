@@ -1,6 +1,15 @@
 package cl.cesar.ApiRoute.api;
 
+import cl.cesar.ApiRoute.loader.DuplicatePolicy;
+import cl.cesar.ApiRoute.loader.LoadMode;
+import cl.cesar.ApiRoute.model.CompactGraph;
+import cl.cesar.ApiRoute.routing.AlternativeMode;
+import cl.cesar.ApiRoute.routing.IsochroneDirection;
+import cl.cesar.ApiRoute.routing.RouteAlgorithm;
+import cl.cesar.ApiRoute.routing.SearchAbortedException;
+import cl.cesar.ApiRoute.service.Isochrone;
 import cl.cesar.ApiRoute.service.RouteService;
+import cl.cesar.ApiRoute.service.TravelTimeMatrix;
 
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -10,11 +19,22 @@ import org.springframework.http.MediaType;
 import org.springframework.mock.web.MockMultipartFile;
 import org.springframework.security.test.context.support.WithMockUser;
 import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
 
+import java.io.ByteArrayInputStream;
+import java.io.DataInputStream;
+import java.time.Duration;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
 import java.io.IOException;
 
+import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyBoolean;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.isNull;
 import static org.mockito.Mockito.*;
 import static org.springframework.security.test.web.servlet.request.SecurityMockMvcRequestPostProcessors.csrf;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
@@ -42,15 +62,75 @@ public class RouteControllerTest {
                 "CP1;R11;84".getBytes()
         );
 
-        // Configuramos el mock para no hacer nada cuando se llama a loadData
-        doNothing().when(routeService).loadData(any());
+        LoadResponse loadResponse = new LoadResponse("Datos de rutas cargados correctamente.");
+        loadResponse.setPhaseMillis(Map.of("parse", 12L));
+
+        // Configuramos el mock para devolver el resumen de la carga
+        when(routeService.loadData(any(), any(), anyBoolean(), any())).thenReturn(loadResponse);
 
         mockMvc.perform(multipart("/api/routes/load").file(file).with(csrf()))
                 .andExpect(status().isOk())
-                .andExpect(content().string("Datos de rutas cargados correctamente."));
+                .andExpect(jsonPath("$.mensaje").value("Datos de rutas cargados correctamente."))
+                .andExpect(jsonPath("$.fasesMs.parse").value(12));
+
+        // Verificamos que el método del servicio fue llamado una vez, sin modo explícito
+        verify(routeService, times(1)).loadData(any(), isNull(), eq(false), isNull());
+    }
+
+    @Test
+    void testLoadData_WithMode() throws Exception {
+        MockMultipartFile file = new MockMultipartFile(
+                "file",
+                "data.csv",
+                MediaType.TEXT_PLAIN_VALUE,
+                "CP1;R11;84".getBytes()
+        );
+        when(routeService.loadData(any(), any(), anyBoolean(), any())).thenReturn(new LoadResponse("Datos de rutas cargados correctamente."));
+
+        mockMvc.perform(multipart("/api/routes/load").file(file).param("mode", "SEQUENTIAL").with(csrf()))
+                .andExpect(status().isOk());
+
+        verify(routeService, times(1)).loadData(any(), eq(LoadMode.SEQUENTIAL), eq(false), isNull());
+    }
+
+    @Test
+    void testLoadData_MergeWithDuplicatePolicy() throws Exception {
+        MockMultipartFile file = new MockMultipartFile(
+                "file",
+                "data.csv",
+                MediaType.TEXT_PLAIN_VALUE,
+                "CP1;R11;84\nCP1;R11;80".getBytes()
+        );
+        LoadResponse loadResponse = new LoadResponse("Datos de rutas combinados correctamente.");
+        loadResponse.setMerged(true);
+        loadResponse.setDuplicatePolicy(DuplicatePolicy.LATEST);
+        loadResponse.setCollapsedEdges(1);
+        when(routeService.loadData(any(), any(), anyBoolean(), any())).thenReturn(loadResponse);
+
+        mockMvc.perform(multipart("/api/routes/load").file(file)
+                        .param("merge", "true").param("duplicates", "LATEST").with(csrf()))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.combinada").value(true))
+                .andExpect(jsonPath("$.politicaRepetidas").value("LATEST"))
+                .andExpect(jsonPath("$.aristasColapsadas").value(1));
 
-        // Verificamos que el método del servicio fue llamado una vez
-        verify(routeService, times(1)).loadData(any());
+        verify(routeService, times(1)).loadData(any(), isNull(), eq(true), eq(DuplicatePolicy.LATEST));
+    }
+
+    @Test
+    void testLoadData_RejectedDuplicates() throws Exception {
+        MockMultipartFile file = new MockMultipartFile(
+                "file",
+                "data.csv",
+                MediaType.TEXT_PLAIN_VALUE,
+                "CP1;R11;84\nCP1;R11;80".getBytes()
+        );
+        when(routeService.loadData(any(), any(), anyBoolean(), any()))
+                .thenThrow(new IllegalArgumentException("El archivo tiene 1 conexiones repetidas, por ejemplo CP1 -> R11."));
+
+        mockMvc.perform(multipart("/api/routes/load").file(file).param("duplicates", "REJECT").with(csrf()))
+                .andExpect(status().isBadRequest())
+                .andExpect(content().string("El archivo tiene 1 conexiones repetidas, por ejemplo CP1 -> R11."));
     }
 
     @Test
@@ -62,7 +142,7 @@ public class RouteControllerTest {
                 .andExpect(content().string("Por favor, selecciona un archivo para cargar."));
 
         // Verificamos que el método del servicio nunca fue llamado
-        verify(routeService, never()).loadData(any());
+        verify(routeService, never()).loadData(any(), any(), anyBoolean(), any());
     }
 
     @Test
@@ -75,13 +155,37 @@ public class RouteControllerTest {
         );
 
         // Configuramos el mock para lanzar una excepción de E/S
-        doThrow(new IOException("Error de prueba")).when(routeService).loadData(any());
+        when(routeService.loadData(any(), any(), anyBoolean(), any())).thenThrow(new IOException("Error de prueba"));
 
         mockMvc.perform(multipart("/api/routes/load").file(file).with(csrf()))
                 .andExpect(status().isInternalServerError())
                 .andExpect(content().string("Error al procesar el archivo CSV: Error de prueba"));
     }
 
+    // --- Pruebas para el endpoint POST /api/routes/snapshot ---
+
+    @Test
+    void testWriteSnapshot_Success() throws Exception {
+        when(routeService.hasSnapshotPath()).thenReturn(true);
+        when(routeService.writeSnapshot()).thenReturn(
+                new SnapshotResponse("Snapshot escrito correctamente.", "/data/rutas.snapshot", 3, 1024, 5));
+
+        mockMvc.perform(post("/api/routes/snapshot").with(csrf()))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.archivo").value("/data/rutas.snapshot"))
+                .andExpect(jsonPath("$.version").value(3));
+    }
+
+    @Test
+    void testWriteSnapshot_NotConfigured() throws Exception {
+        when(routeService.hasSnapshotPath()).thenReturn(false);
+
+        mockMvc.perform(post("/api/routes/snapshot").with(csrf()))
+                .andExpect(status().isConflict());
+
+        verify(routeService, never()).writeSnapshot();
+    }
+
     // --- Pruebas para el endpoint GET /api/routes/find ---
 
     @Test
@@ -89,19 +193,22 @@ public class RouteControllerTest {
         RouteResponse mockResponse = new RouteResponse(List.of("CP1", "CP2", "R20"), 74);
 
         // Configuramos el mock para devolver una respuesta válida
-        when(routeService.findFastestRoute("CP1", "R20")).thenReturn(mockResponse);
+        when(routeService.findFastestRouteAsync("CP1", "R20", null, null, null)).thenReturn(CompletableFuture.completedFuture(mockResponse));
 
-        mockMvc.perform(get("/api/routes/find")
+        MvcResult result = mockMvc.perform(get("/api/routes/find")
                 .param("origin", "CP1")
                 .param("destination", "R20")
                 .accept(MediaType.APPLICATION_JSON))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        mockMvc.perform(asyncDispatch(result))
                 .andExpect(status().isOk())
                 .andExpect(jsonPath("$.ruta").isArray())
                 .andExpect(jsonPath("$.ruta[0]").value("CP1"))
                 .andExpect(jsonPath("$.tiempoTotal").value(74));
 
         // Verificamos que el método del servicio fue llamado con los parámetros correctos
-        verify(routeService, times(1)).findFastestRoute("CP1", "R20");
+        verify(routeService, times(1)).findFastestRouteAsync("CP1", "R20", null, null, null);
     }
 
     @Test
@@ -109,13 +216,459 @@ public class RouteControllerTest {
         RouteResponse mockResponse = new RouteResponse(List.of(), -1);
 
         // Configuramos el mock para devolver una respuesta de "no encontrado"
-        when(routeService.findFastestRoute("CP1", "NonExistent")).thenReturn(mockResponse);
+        when(routeService.findFastestRouteAsync("CP1", "NonExistent", null, null, null)).thenReturn(CompletableFuture.completedFuture(mockResponse));
 
-        mockMvc.perform(get("/api/routes/find")
+        MvcResult result = mockMvc.perform(get("/api/routes/find")
                 .param("origin", "CP1")
                 .param("destination", "NonExistent")
                 .accept(MediaType.APPLICATION_JSON))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        mockMvc.perform(asyncDispatch(result))
                 .andExpect(status().isNotFound())
                 .andExpect(jsonPath("$.tiempoTotal").value(-1));
     }
-}
\ No newline at end of file
+
+    @Test
+    void testFindFastestRoute_WithAlgorithm() throws Exception {
+        RouteResponse mockResponse = new RouteResponse(List.of("CP1", "CP2", "R20"), 74);
+        mockResponse.setAlgorithm(RouteAlgorithm.BIDIRECTIONAL);
+        mockResponse.setSettledNodes(3);
+        mockResponse.setCached(true);
+
+        when(routeService.findFastestRouteAsync("CP1", "R20", RouteAlgorithm.BIDIRECTIONAL, null, null))
+                .thenReturn(CompletableFuture.completedFuture(mockResponse));
+
+        MvcResult result = mockMvc.perform(get("/api/routes/find")
+                .param("origin", "CP1")
+                .param("destination", "R20")
+                .param("algorithm", "BIDIRECTIONAL")
+                .accept(MediaType.APPLICATION_JSON))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        mockMvc.perform(asyncDispatch(result))
+                .andExpect(status().isOk())
+                .andExpect(header().string("X-Route-Algorithm", "BIDIRECTIONAL"))
+                .andExpect(header().string("X-Route-Settled-Nodes", "3"))
+                .andExpect(header().string("X-Route-Cache", "HIT"))
+                .andExpect(jsonPath("$.tiempoTotal").value(74))
+                .andExpect(jsonPath("$.algorithm").doesNotExist());
+    }
+
+    @Test
+    void testFindFastestRoute_DebugHeader() throws Exception {
+        RouteResponse mockResponse = new RouteResponse(List.of("CP1", "CP2", "R20"), 74);
+        mockResponse.setAlgorithm(RouteAlgorithm.DIJKSTRA);
+        mockResponse.setSettledNodes(3);
+        mockResponse.setRelaxedEdges(5);
+        mockResponse.setQueuePushes(4);
+        mockResponse.setSearchNanos(12_000);
+        when(routeService.findFastestRouteAsync("CP1", "R20", null, null, null))
+                .thenReturn(CompletableFuture.completedFuture(mockResponse));
+
+        MvcResult plain = mockMvc.perform(get("/api/routes/find")
+                .param("origin", "CP1")
+                .param("destination", "R20"))
+                .andReturn();
+        mockMvc.perform(asyncDispatch(plain))
+                .andExpect(status().isOk())
+                .andExpect(header().doesNotExist("X-Route-Search-Stats"));
+
+        MvcResult debug = mockMvc.perform(get("/api/routes/find")
+                .param("origin", "CP1")
+                .param("destination", "R20")
+                .header("X-Route-Debug", "true"))
+                .andReturn();
+        mockMvc.perform(asyncDispatch(debug))
+                .andExpect(status().isOk())
+                .andExpect(header().string("X-Route-Search-Stats", "settled=3; relaxed=5; pushes=4; micros=12"))
+                .andExpect(jsonPath("$.tiempoTotal").value(74));
+    }
+
+    @Test
+    void testFindFastestRoute_BudgetExceeded() throws Exception {
+        when(routeService.findFastestRouteAsync("CP1", "R20", null, 100, Duration.ofMillis(50)))
+                .thenReturn(CompletableFuture.failedFuture(
+                        new SearchAbortedException(SearchAbortedException.Reason.SETTLED_NODES, 101)));
+
+        MvcResult result = mockMvc.perform(get("/api/routes/find")
+                .param("origin", "CP1")
+                .param("destination", "R20")
+                .param("maxSettledNodes", "100")
+                .param("timeoutMs", "50"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        mockMvc.perform(asyncDispatch(result))
+                .andExpect(status().isUnprocessableEntity())
+                .andExpect(header().string("X-Route-Budget", "SETTLED_NODES"))
+                .andExpect(header().string("X-Route-Settled-Nodes", "101"));
+    }
+
+    @Test
+    void testFindAlternativeRoutes() throws Exception {
+        AlternativeRoutesResponse mockResponse = new AlternativeRoutesResponse("CP1", "R20", AlternativeMode.PENALTY,
+                List.of(new RouteResponse(List.of("CP1", "CP2", "R20"), 74),
+                        new RouteResponse(List.of("CP1", "R11", "R12", "R13", "R20"), 122)));
+        mockResponse.setSettledNodes(9);
+        when(routeService.findAlternativeRoutesAsync("CP1", "R20", 2, AlternativeMode.PENALTY, null, null))
+                .thenReturn(CompletableFuture.completedFuture(mockResponse));
+
+        MvcResult result = mockMvc.perform(get("/api/routes/alternatives")
+                .param("origin", "CP1")
+                .param("destination", "R20")
+                .param("k", "2")
+                .param("mode", "PENALTY"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        mockMvc.perform(asyncDispatch(result))
+                .andExpect(status().isOk())
+                .andExpect(header().string("X-Route-Settled-Nodes", "9"))
+                .andExpect(jsonPath("$.origen").value("CP1"))
+                .andExpect(jsonPath("$.modo").value("PENALTY"))
+                .andExpect(jsonPath("$.rutas.length()").value(2))
+                .andExpect(jsonPath("$.rutas[1].ruta[1]").value("R11"))
+                .andExpect(jsonPath("$.rutas[1].tiempoTotal").value(122));
+    }
+
+    @Test
+    void testFindAlternativeRoutes_NotFoundAndInvalidK() throws Exception {
+        when(routeService.findAlternativeRoutesAsync("CP1", "X", 3, null, null, null))
+                .thenReturn(CompletableFuture.completedFuture(
+                        new AlternativeRoutesResponse("CP1", "X", AlternativeMode.YEN, List.of())));
+        MvcResult result = mockMvc.perform(get("/api/routes/alternatives")
+                .param("origin", "CP1")
+                .param("destination", "X"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        mockMvc.perform(asyncDispatch(result))
+                .andExpect(status().isNotFound())
+                .andExpect(jsonPath("$.rutas.length()").value(0));
+
+        when(routeService.findAlternativeRoutesAsync("CP1", "R20", 50, null, null, null))
+                .thenThrow(new IllegalArgumentException("La cantidad de rutas debe estar entre 1 y 10: 50"));
+        MvcResult invalid = mockMvc.perform(get("/api/routes/alternatives")
+                .param("origin", "CP1")
+                .param("destination", "R20")
+                .param("k", "50"))
+                .andReturn();
+        mockMvc.perform(asyncDispatch(invalid))
+                .andExpect(status().isBadRequest());
+
+        when(routeService.findAlternativeRoutesAsync("CP1", "R20", 3, null, 10, null))
+                .thenReturn(CompletableFuture.failedFuture(
+                        new SearchAbortedException(SearchAbortedException.Reason.SETTLED_NODES, 11)));
+        MvcResult aborted = mockMvc.perform(get("/api/routes/alternatives")
+                .param("origin", "CP1")
+                .param("destination", "R20")
+                .param("maxSettledNodes", "10"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        mockMvc.perform(asyncDispatch(aborted))
+                .andExpect(status().isUnprocessableEntity())
+                .andExpect(header().string("X-Route-Budget", "SETTLED_NODES"));
+    }
+
+    @Test
+    void testFindTravelTime() throws Exception {
+        TravelTimeResponse mockResponse = new TravelTimeResponse("CP1", "R20", 74);
+        mockResponse.setAlgorithm(RouteAlgorithm.HL);
+        when(routeService.findTravelTimeAsync("CP1", "R20", null, null))
+                .thenReturn(CompletableFuture.completedFuture(mockResponse));
+
+        MvcResult result = mockMvc.perform(get("/api/routes/time")
+                .param("origin", "CP1")
+                .param("destination", "R20"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        mockMvc.perform(asyncDispatch(result))
+                .andExpect(status().isOk())
+                .andExpect(header().string("X-Route-Algorithm", "HL"))
+                .andExpect(jsonPath("$.origen").value("CP1"))
+                .andExpect(jsonPath("$.destino").value("R20"))
+                .andExpect(jsonPath("$.tiempoTotal").value(74))
+                .andExpect(jsonPath("$.ruta").doesNotExist());
+
+        when(routeService.findTravelTimeAsync("CP1", "X", null, null))
+                .thenReturn(CompletableFuture.completedFuture(new TravelTimeResponse("CP1", "X", -1)));
+        MvcResult missing = mockMvc.perform(get("/api/routes/time")
+                .param("origin", "CP1")
+                .param("destination", "X"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        mockMvc.perform(asyncDispatch(missing))
+                .andExpect(status().isNotFound())
+                .andExpect(header().doesNotExist("X-Route-Algorithm"))
+                .andExpect(jsonPath("$.tiempoTotal").value(-1));
+    }
+
+    @Test
+    void testFindTravelTime_BudgetExceeded() throws Exception {
+        when(routeService.findTravelTimeAsync("CP1", "R20", 10, Duration.ofMillis(50)))
+                .thenReturn(CompletableFuture.failedFuture(
+                        new SearchAbortedException(SearchAbortedException.Reason.SETTLED_NODES, 11)));
+
+        MvcResult result = mockMvc.perform(get("/api/routes/time")
+                .param("origin", "CP1")
+                .param("destination", "R20")
+                .param("maxSettledNodes", "10")
+                .param("timeoutMs", "50"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        mockMvc.perform(asyncDispatch(result))
+                .andExpect(status().isUnprocessableEntity())
+                .andExpect(header().string("X-Route-Budget", "SETTLED_NODES"));
+    }
+
+    @Test
+    void testFindFastestRoute_OverloadedAndInvalidBudget() throws Exception {
+        when(routeService.findFastestRouteAsync("CP1", "R20", null, null, null))
+                .thenReturn(CompletableFuture.failedFuture(
+                        new SearchAbortedException(SearchAbortedException.Reason.OVERLOADED, 100_000)));
+        MvcResult result = mockMvc.perform(get("/api/routes/find")
+                .param("origin", "CP1")
+                .param("destination", "R20"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        mockMvc.perform(asyncDispatch(result))
+                .andExpect(status().isServiceUnavailable())
+                .andExpect(header().string("Retry-After", "1"))
+                .andExpect(header().string("X-Route-Budget", "OVERLOADED"));
+
+        when(routeService.findFastestRouteAsync("CP1", "R20", null, -1, null))
+                .thenThrow(new IllegalArgumentException("negativo"));
+        MvcResult invalid = mockMvc.perform(get("/api/routes/find")
+                .param("origin", "CP1")
+                .param("destination", "R20")
+                .param("maxSettledNodes", "-1"))
+                .andReturn();
+        mockMvc.perform(asyncDispatch(invalid))
+                .andExpect(status().isBadRequest());
+    }
+
+    // --- Pruebas para el endpoint POST /api/routes/find/batch ---
+
+    @Test
+    void testFindFastestRoutes_Batch() throws Exception {
+        BatchRouteResult found = new BatchRouteResult("CP1", "R20", List.of("CP1", "CP2", "R20"), 74);
+        BatchRouteResult unknown = new BatchRouteResult("CP1", "X", List.of(), -1);
+        unknown.setError(BatchRouteResult.UNKNOWN_LOCATION);
+        when(routeService.findFastestRoutes(anyList())).thenReturn(List.of(
+                CompletableFuture.completedFuture(found), CompletableFuture.completedFuture(unknown)));
+
+        MvcResult started = mockMvc.perform(post("/api/routes/find/batch").with(csrf())
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"pares\": [{\"origen\": \"CP1\", \"destino\": \"R20\"}, {\"origen\": \"CP1\", \"destino\": \"X\"}]}"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        mockMvc.perform(asyncDispatch(started))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.length()").value(2))
+                .andExpect(jsonPath("$[0].origen").value("CP1"))
+                .andExpect(jsonPath("$[0].ruta[2]").value("R20"))
+                .andExpect(jsonPath("$[0].tiempoTotal").value(74))
+                .andExpect(jsonPath("$[0].error").doesNotExist())
+                .andExpect(jsonPath("$[1].tiempoTotal").value(-1))
+                .andExpect(jsonPath("$[1].error").value(BatchRouteResult.UNKNOWN_LOCATION));
+    }
+
+    @Test
+    void testFindFastestRoutes_TooManyPairs() throws Exception {
+        when(routeService.findFastestRoutes(anyList()))
+                .thenThrow(new IllegalArgumentException("El lote tiene 3 pares; el máximo es 2"));
+
+        MvcResult started = mockMvc.perform(post("/api/routes/find/batch").with(csrf())
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"pares\": []}"))
+                .andReturn();
+
+        mockMvc.perform(asyncDispatch(started))
+                .andExpect(status().isBadRequest())
+                .andExpect(content().string("El lote tiene 3 pares; el máximo es 2"));
+    }
+
+    // --- Pruebas para los endpoints /api/routes/connections ---
+
+    @Test
+    void testUpdateConnections_Batch() throws Exception {
+        UpdateResponse response = new UpdateResponse("Conexiones actualizadas correctamente.");
+        response.setVersion(3);
+        response.setUpdated(1);
+        response.setRemoved(1);
+        when(routeService.updateConnections(anyList())).thenReturn(response);
+
+        mockMvc.perform(patch("/api/routes/connections").with(csrf())
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"cambios\": [{\"origen\": \"CP1\", \"destino\": \"R11\", \"tiempo\": 90},"
+                                + " {\"origen\": \"R11\", \"destino\": \"R12\"}]}"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.version").value(3))
+                .andExpect(jsonPath("$.actualizadas").value(1))
+                .andExpect(jsonPath("$.eliminadas").value(1));
+
+        verify(routeService).updateConnections(argThat(changes -> changes.size() == 2
+                && changes.get(0).getTime() == 90 && changes.get(1).getTime() == null));
+    }
+
+    @Test
+    void testPutAndDeleteConnection() throws Exception {
+        when(routeService.updateConnections(anyList())).thenReturn(new UpdateResponse("Conexiones actualizadas correctamente."));
+
+        mockMvc.perform(put("/api/routes/connections").with(csrf())
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"origen\": \"CP1\", \"destino\": \"R11\", \"tiempo\": 90}"))
+                .andExpect(status().isOk());
+        mockMvc.perform(delete("/api/routes/connections").with(csrf())
+                        .param("origin", "CP1")
+                        .param("destination", "R11"))
+                .andExpect(status().isOk());
+        // Sin tiempo, PUT no sabe qué valor fijar
+        mockMvc.perform(put("/api/routes/connections").with(csrf())
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"origen\": \"CP1\", \"destino\": \"R11\"}"))
+                .andExpect(status().isBadRequest());
+
+        verify(routeService).updateConnections(argThat(changes -> changes.size() == 1 && changes.get(0).getTime() != null));
+        verify(routeService).updateConnections(argThat(changes -> changes.size() == 1 && changes.get(0).getTime() == null));
+    }
+
+    @Test
+    void testUpdateConnections_UnknownLocation() throws Exception {
+        when(routeService.updateConnections(anyList()))
+                .thenThrow(new IllegalArgumentException("Ubicación desconocida: X"));
+
+        mockMvc.perform(delete("/api/routes/connections").with(csrf())
+                        .param("origin", "X")
+                        .param("destination", "R11"))
+                .andExpect(status().isBadRequest())
+                .andExpect(content().string("Ubicación desconocida: X"));
+    }
+
+    // --- Pruebas para el endpoint POST /api/routes/matrix ---
+
+    private static TravelTimeMatrix sampleMatrix() {
+        return new TravelTimeMatrix(List.of("CP1", "CP2"), List.of("R20", "X"), List.of("X"), List.of(
+                CompletableFuture.completedFuture(new int[]{74, -1}),
+                CompletableFuture.completedFuture(new int[]{67, -1})));
+    }
+
+    @Test
+    void testComputeMatrix_Json() throws Exception {
+        when(routeService.computeMatrix(List.of("CP1", "CP2"), List.of("R20", "X"))).thenReturn(sampleMatrix());
+
+        MvcResult started = mockMvc.perform(post("/api/routes/matrix").with(csrf())
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"origenes\": [\"CP1\", \"CP2\"], \"destinos\": [\"R20\", \"X\"]}"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        mockMvc.perform(asyncDispatch(started))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.origenes[1]").value("CP2"))
+                .andExpect(jsonPath("$.desconocidas[0]").value("X"))
+                .andExpect(jsonPath("$.tiempoTotal[0][0]").value(74))
+                .andExpect(jsonPath("$.tiempoTotal[1][0]").value(67))
+                .andExpect(jsonPath("$.tiempoTotal[1][1]").value(-1));
+    }
+
+    @Test
+    void testComputeMatrix_AbortedAndFailedRows() throws Exception {
+        TravelTimeMatrix matrix = new TravelTimeMatrix(List.of("CP1", "CP2", "R11"), List.of("R20"), List.of(), List.of(
+                CompletableFuture.failedFuture(new SearchAbortedException(SearchAbortedException.Reason.DEADLINE, 10)),
+                CompletableFuture.completedFuture(new int[]{67}),
+                CompletableFuture.failedFuture(new IllegalStateException("fallo"))));
+        when(routeService.computeMatrix(List.of("CP1", "CP2", "R11"), List.of("R20"))).thenReturn(matrix);
+
+        MvcResult started = mockMvc.perform(post("/api/routes/matrix").with(csrf())
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"origenes\": [\"CP1\", \"CP2\", \"R11\"], \"destinos\": [\"R20\"]}"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        // Las filas fallidas no cortan la respuesta: quedan en -1 con su error
+        mockMvc.perform(asyncDispatch(started))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.tiempoTotal[0][0]").value(-1))
+                .andExpect(jsonPath("$.tiempoTotal[1][0]").value(67))
+                .andExpect(jsonPath("$.tiempoTotal[2][0]").value(-1))
+                .andExpect(jsonPath("$.errores.length()").value(2))
+                .andExpect(jsonPath("$.errores[0].origen").value("CP1"))
+                .andExpect(jsonPath("$.errores[0].error").value(BatchRouteResult.SEARCH_ABORTED))
+                .andExpect(jsonPath("$.errores[1].origen").value("R11"))
+                .andExpect(jsonPath("$.errores[1].error").value(BatchRouteResult.SEARCH_FAILED));
+    }
+
+    @Test
+    void testComputeMatrix_Binary() throws Exception {
+        when(routeService.computeMatrix(List.of("CP1", "CP2"), List.of("R20", "X"))).thenReturn(sampleMatrix());
+
+        MvcResult started = mockMvc.perform(post("/api/routes/matrix").with(csrf())
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .accept(MediaType.APPLICATION_OCTET_STREAM)
+                        .content("{\"origenes\": [\"CP1\", \"CP2\"], \"destinos\": [\"R20\", \"X\"]}"))
+                .andReturn();
+        byte[] body = mockMvc.perform(asyncDispatch(started))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType(MediaType.APPLICATION_OCTET_STREAM))
+                .andReturn().getResponse().getContentAsByteArray();
+
+        DataInputStream data = new DataInputStream(new ByteArrayInputStream(body));
+        assertEquals(2, data.readInt());
+        assertEquals(2, data.readInt());
+        assertEquals(74, data.readInt());
+        assertEquals(-1, data.readInt());
+        assertEquals(67, data.readInt());
+        assertEquals(-1, data.readInt());
+        assertEquals(-1, data.read(), "No debe haber datos después de la matriz");
+    }
+
+    // --- Pruebas para el endpoint GET /api/routes/isochrone ---
+
+    @Test
+    void testIsochrone_Found() throws Exception {
+        // CP1 -> CP2 (7) -> R20 (67)
+        CompactGraph graph = new CompactGraph(new String[]{"CP1", "CP2", "R20"},
+                new int[]{0, 1, 2, 2}, new int[]{1, 2}, new int[]{7, 67});
+        when(routeService.isochrone("CP1", 60, null))
+                .thenReturn(new Isochrone(graph, "CP1", 0, 60, IsochroneDirection.FORWARD));
+
+        MvcResult started = mockMvc.perform(get("/api/routes/isochrone")
+                        .param("origin", "CP1")
+                        .param("maxTime", "60"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        mockMvc.perform(asyncDispatch(started))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.origen").value("CP1"))
+                .andExpect(jsonPath("$.direccion").value("FORWARD"))
+                .andExpect(jsonPath("$.ubicaciones.length()").value(2))
+                .andExpect(jsonPath("$.ubicaciones[1].ubicacion").value("CP2"))
+                .andExpect(jsonPath("$.ubicaciones[1].tiempo").value(7))
+                .andExpect(jsonPath("$.total").value(2));
+    }
+
+    @Test
+    void testIsochrone_UnknownLocation() throws Exception {
+        when(routeService.isochrone("X", 60, IsochroneDirection.REVERSE)).thenReturn(null);
+
+        mockMvc.perform(get("/api/routes/isochrone")
+                        .param("origin", "X")
+                        .param("maxTime", "60")
+                        .param("direction", "REVERSE"))
+                .andExpect(status().isNotFound());
+    }
+
+    // --- Pruebas para el endpoint GET /api/routes/cache ---
+
+    @Test
+    void testGetCacheStats() throws Exception {
+        when(routeService.getCacheStats()).thenReturn(new CacheStatsResponse(true, 100, 2, 6, 2, 0, 0));
+
+        mockMvc.perform(get("/api/routes/cache"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.aciertos").value(6))
+                .andExpect(jsonPath("$.fallos").value(2))
+                .andExpect(jsonPath("$.tasaAciertos").value(0.75));
+    }
+}
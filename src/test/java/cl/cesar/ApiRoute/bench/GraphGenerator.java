@@ -0,0 +1,340 @@
+package cl.cesar.ApiRoute.bench;
+
+import cl.cesar.ApiRoute.api.RoutePair;
+import cl.cesar.ApiRoute.model.CompactGraph;
+
+import org.springframework.mock.web.MockMultipartFile;
+
+import java.io.BufferedWriter;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+
+/**
+ * Generador de grafos de prueba reproducibles, escritos como CSV con el formato de /load o
+ * armados directamente como {@link CompactGraph}.
+ *
+ * La misma forma, cantidad de conexiones y semilla producen siempre el mismo archivo, de modo
+ * que los benchmarks y los tests de rendimiento comparan corridas sobre los mismos datos.
+ * Las conexiones se escriben en flujo, sin armar el archivo en memoria, por lo que sirve
+ * desde 10 mil hasta 10 millones de conexiones.
+ */
+public final class GraphGenerator {
+
+    /** Forma del grafo generado. */
+    public enum Shape {
+        /**
+         * Malla cuadrada con conexiones en ambos sentidos entre vecinos y ubicaciones
+         * {@code Nfila_columna}, como una red de calles.
+         */
+        GRID,
+        /**
+         * Centros conectados todos con todos por conexiones rápidas, y ubicaciones periféricas
+         * conectadas en ambos sentidos con dos centros, como una red de vuelos.
+         */
+        HUB_AND_SPOKE,
+        /**
+         * Conexiones entre ubicaciones elegidas al azar, como {@code data/generate_csv.py}:
+         * una ubicación por cada diez conexiones, sin conexiones de una ubicación a sí misma
+         * y con tiempos entre 1 y 100.
+         */
+        RANDOM
+    }
+
+    /** Semilla de los grafos de los benchmarks, para comparar corridas sobre el mismo archivo. */
+    public static final long DEFAULT_SEED = 42;
+
+    private static final String HEADER = "loc_start;loc_end;time\n";
+
+    /** Tiempo máximo de las conexiones de la malla y de las conexiones al azar. */
+    private static final int DEFAULT_MAX_TIME = 100;
+
+    private final Shape shape;
+    private final int edges;
+    private final long seed;
+    private final int side;
+    private final int hubs;
+    private final int locations;
+    private final int maxTime;
+
+    /** Destino de las conexiones generadas: el CSV o los arreglos de {@link #toGraph()}. */
+    private interface ConnectionSink {
+        void accept(int origin, int destination, int time) throws IOException;
+    }
+
+    /**
+     * @param shape Forma del grafo.
+     * @param edges Cantidad de conexiones del archivo.
+     * @param seed Semilla de los tiempos y de las conexiones al azar.
+     */
+    public GraphGenerator(Shape shape, int edges, long seed) {
+        if (edges < 1) {
+            throw new IllegalArgumentException("La cantidad de conexiones debe ser positiva: " + edges);
+        }
+        this.shape = shape;
+        this.edges = edges;
+        this.seed = seed;
+        this.maxTime = DEFAULT_MAX_TIME;
+        switch (shape) {
+            case GRID -> {
+                // Una malla de lado s tiene 4 s (s - 1) conexiones; el resto son atajos al azar
+                this.side = Math.max(2, (int) ((1 + Math.sqrt(1 + (double) edges)) / 2));
+                this.hubs = 0;
+                this.locations = side * side;
+            }
+            case HUB_AND_SPOKE -> {
+                // Cerca de un cuarto de las conexiones une a los centros; cada periférica aporta 4
+                this.side = 0;
+                this.hubs = Math.max(2, (int) Math.sqrt(edges / 4.0));
+                this.locations = hubs + Math.max(1, (edges - hubs * (hubs - 1)) / 4);
+            }
+            default -> {
+                this.side = 0;
+                this.hubs = 0;
+                this.locations = Math.max(2, edges / 10);
+            }
+        }
+    }
+
+    private GraphGenerator(int locations, int edges, int maxTime, long seed) {
+        if (edges < 1 || locations < 2 || maxTime < 1) {
+            throw new IllegalArgumentException("Grafo al azar inválido: " + locations + " ubicaciones, "
+                    + edges + " conexiones, tiempo máximo " + maxTime);
+        }
+        this.shape = Shape.RANDOM;
+        this.edges = edges;
+        this.seed = seed;
+        this.side = 0;
+        this.hubs = 0;
+        this.locations = locations;
+        this.maxTime = maxTime;
+    }
+
+    /**
+     * Malla completa de lado {@code side}, sin atajos: {@code 4 side (side - 1)} conexiones.
+     * @param side Ubicaciones por fila y por columna.
+     * @param seed Semilla de los tiempos.
+     */
+    public static GraphGenerator grid(int side, long seed) {
+        return new GraphGenerator(Shape.GRID, 4 * side * (side - 1), seed);
+    }
+
+    /**
+     * Conexiones al azar como {@link Shape#RANDOM}, pero con la cantidad de ubicaciones y el
+     * tiempo máximo elegidos, para grafos chicos, densos o con pocos tiempos distintos.
+     * @param locations Cantidad de ubicaciones.
+     * @param edges Cantidad de conexiones.
+     * @param maxTime Tiempo máximo de una conexión; el mínimo es 1.
+     * @param seed Semilla de las conexiones y de los tiempos.
+     */
+    public static GraphGenerator random(int locations, int edges, int maxTime, long seed) {
+        return new GraphGenerator(locations, edges, maxTime, seed);
+    }
+
+    public Shape getShape() {
+        return shape;
+    }
+
+    public int getEdges() {
+        return edges;
+    }
+
+    /** Cantidad de ubicaciones que pueden aparecer en el archivo. */
+    public int locationCount() {
+        return locations;
+    }
+
+    /**
+     * Nombre de una ubicación del grafo.
+     * @param index Índice entre 0 y {@link #locationCount()} - 1.
+     */
+    public String location(int index) {
+        return switch (shape) {
+            case GRID -> "N" + index / side + "_" + index % side;
+            case HUB_AND_SPOKE -> index < hubs ? "HUB" + index : "S" + (index - hubs);
+            case RANDOM -> "LOC" + (index + 1);
+        };
+    }
+
+    /**
+     * Pares origen/destino al azar, distintos entre sí, para las consultas.
+     * @param count Cantidad de pares.
+     * @param pairSeed Semilla de los pares, independiente de la del grafo.
+     */
+    public List<RoutePair> randomPairs(int count, long pairSeed) {
+        SplittableRandom random = new SplittableRandom(pairSeed);
+        List<RoutePair> pairs = new ArrayList<>(count);
+        while (pairs.size() < count) {
+            int origin = random.nextInt(locations);
+            int destination = random.nextInt(locations);
+            if (origin != destination) {
+                pairs.add(new RoutePair(location(origin), location(destination)));
+            }
+        }
+        return pairs;
+    }
+
+    /**
+     * Escribe el CSV con encabezado.
+     * @param out Destino del archivo; no se cierra.
+     * @throws IOException Si falla la escritura.
+     */
+    public void write(OutputStream out) throws IOException {
+        Writer writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8), 1 << 16);
+        writer.write(HEADER);
+        generate((origin, destination, time) -> {
+            writer.write(location(origin));
+            writer.write(';');
+            writer.write(location(destination));
+            writer.write(';');
+            writer.write(Integer.toString(time));
+            writer.write('\n');
+        });
+        writer.flush();
+    }
+
+    /**
+     * El grafo en memoria, sin pasar por el CSV: las mismas conexiones que {@link #write}, con
+     * el id de cada ubicación igual a su índice en {@link #location(int)}, incluidas las que no
+     * tienen conexiones.
+     */
+    public CompactGraph toGraph() {
+        String[] names = new String[locations];
+        for (int i = 0; i < locations; i++) {
+            names[i] = location(i);
+        }
+        int[] sources = new int[edges];
+        int[] destinations = new int[edges];
+        int[] times = new int[edges];
+        int[] count = new int[1];
+        try {
+            generate((origin, destination, time) -> {
+                sources[count[0]] = origin;
+                destinations[count[0]] = destination;
+                times[count[0]++] = time;
+            });
+        } catch (IOException e) {
+            throw new IllegalStateException(e); // Los arreglos no fallan
+        }
+        return CompactGraph.fromEdges(names, count[0], sources, destinations, times);
+    }
+
+    private void generate(ConnectionSink sink) throws IOException {
+        SplittableRandom random = new SplittableRandom(seed);
+        switch (shape) {
+            case GRID -> writeGrid(sink, random);
+            case HUB_AND_SPOKE -> writeHubAndSpoke(sink, random);
+            case RANDOM -> writeRandom(sink, random);
+        }
+    }
+
+    private void writeGrid(ConnectionSink sink, SplittableRandom random) throws IOException {
+        int written = 0;
+        for (int i = 0; i < side && written < edges; i++) {
+            for (int j = 0; j < side && written < edges; j++) {
+                int node = i * side + j;
+                if (i + 1 < side) {
+                    written += connection(sink, node, node + side, 1 + random.nextInt(maxTime), written);
+                    written += connection(sink, node + side, node, 1 + random.nextInt(maxTime), written);
+                }
+                if (j + 1 < side) {
+                    written += connection(sink, node, node + 1, 1 + random.nextInt(maxTime), written);
+                    written += connection(sink, node + 1, node, 1 + random.nextInt(maxTime), written);
+                }
+            }
+        }
+        fill(sink, random, 0, written);
+    }
+
+    private void writeHubAndSpoke(ConnectionSink sink, SplittableRandom random) throws IOException {
+        int written = 0;
+        for (int a = 0; a < hubs && written < edges; a++) {
+            for (int b = 0; b < hubs && written < edges; b++) {
+                if (a != b) {
+                    written += connection(sink, a, b, 1 + random.nextInt(20), written);
+                }
+            }
+        }
+        for (int spoke = hubs; spoke < locations && written < edges; spoke++) {
+            int first = random.nextInt(hubs);
+            int second = (first + 1 + random.nextInt(hubs - 1)) % hubs;
+            for (int hub : new int[]{first, second}) {
+                int time = 10 + random.nextInt(91);
+                written += connection(sink, spoke, hub, time, written);
+                written += connection(sink, hub, spoke, time, written);
+            }
+        }
+        fill(sink, random, hubs, written);
+    }
+
+    /**
+     * Completa la cantidad pedida con conexiones al azar, desde ubicaciones a partir de
+     * {@code firstOrigin}, cuando la forma no calza exacto con ella.
+     */
+    private void fill(ConnectionSink sink, SplittableRandom random, int firstOrigin, int written) throws IOException {
+        while (written < edges) {
+            int origin = firstOrigin + random.nextInt(locations - firstOrigin);
+            int destination = random.nextInt(locations);
+            if (origin != destination) {
+                written += connection(sink, origin, destination, 1 + random.nextInt(maxTime), written);
+            }
+        }
+    }
+
+    private void writeRandom(ConnectionSink sink, SplittableRandom random) throws IOException {
+        for (int written = 0; written < edges; written++) {
+            int origin = random.nextInt(locations);
+            int destination = random.nextInt(locations);
+            while (destination == origin) {
+                destination = random.nextInt(locations);
+            }
+            connection(sink, origin, destination, 1 + random.nextInt(maxTime), written);
+        }
+    }
+
+    /** Escribe una conexión si aún no se alcanza la cantidad pedida. Devuelve las conexiones escritas. */
+    private int connection(ConnectionSink sink, int origin, int destination, int time, int written) throws IOException {
+        if (written >= edges) {
+            return 0;
+        }
+        sink.accept(origin, destination, time);
+        return 1;
+    }
+
+    /** El CSV completo en memoria. */
+    public byte[] toBytes() {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(edges * 20);
+        try {
+            write(out);
+        } catch (IOException e) {
+            throw new IllegalStateException(e); // Un ByteArrayOutputStream no falla
+        }
+        return out.toByteArray();
+    }
+
+    /** El CSV como archivo subido a /load. */
+    public MockMultipartFile toMultipartFile() {
+        return new MockMultipartFile("data", shape.name().toLowerCase() + ".csv", "text/csv", toBytes());
+    }
+
+    /**
+     * Escribe el CSV en un archivo, para las cargas que no caben cómodamente en memoria.
+     * @param file El archivo a crear o reemplazar.
+     * @return El mismo archivo.
+     * @throws IOException Si falla la escritura.
+     */
+    public Path writeTo(Path file) throws IOException {
+        try (OutputStream out = Files.newOutputStream(file)) {
+            write(out);
+        }
+        return file;
+    }
+}
@@ -0,0 +1,90 @@
+package cl.cesar.ApiRoute.bench;
+
+import cl.cesar.ApiRoute.api.LoadResponse;
+import cl.cesar.ApiRoute.api.RoutePair;
+import cl.cesar.ApiRoute.api.RouteResponse;
+import cl.cesar.ApiRoute.config.RouteProperties;
+import cl.cesar.ApiRoute.loader.CsvEdgeParser;
+import cl.cesar.ApiRoute.loader.DuplicatePolicy;
+import cl.cesar.ApiRoute.model.CompactGraph;
+import cl.cesar.ApiRoute.service.RouteService;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class GraphGeneratorTest {
+
+    @Test
+    void testSameSeedSameFile() {
+        for (GraphGenerator.Shape shape : GraphGenerator.Shape.values()) {
+            byte[] first = new GraphGenerator(shape, 10_000, 7).toBytes();
+            assertArrayEquals(first, new GraphGenerator(shape, 10_000, 7).toBytes(), shape.name());
+            assertFalse(Arrays.equals(first, new GraphGenerator(shape, 10_000, 8).toBytes()), shape.name());
+        }
+    }
+
+    @Test
+    void testEveryShapeHasTheRequestedConnections(@TempDir Path dir) throws IOException {
+        RouteProperties properties = new RouteProperties();
+        properties.getLoad().setDuplicates(DuplicatePolicy.KEEP);
+        properties.getSearch().setComputeThreads(0);
+        for (GraphGenerator.Shape shape : GraphGenerator.Shape.values()) {
+            GraphGenerator generator = new GraphGenerator(shape, 12_345, 42);
+            Path file = generator.writeTo(dir.resolve(shape.name() + ".csv"));
+            List<String> lines = Files.readAllLines(file, StandardCharsets.UTF_8);
+            assertEquals(12_345 + 1, lines.size(), shape.name());
+            assertTrue(lines.stream().skip(1).map(line -> line.split(";"))
+                    .noneMatch(row -> row[0].equals(row[1])), "Sin conexiones a sí mismas: " + shape.name());
+
+            RouteService service = new RouteService(properties);
+            LoadResponse load = service.loadFile(file, null);
+            assertEquals(12_345, load.getConnections(), shape.name());
+            assertTrue(load.getLocations() <= generator.locationCount(), shape.name());
+            for (RoutePair pair : generator.randomPairs(20, 1)) {
+                RouteResponse response = service.findFastestRoute(pair.getOrigin(), pair.getDestination());
+                assertNotNull(response.getAlgorithm(), "Los pares usan ubicaciones del archivo: " + pair.getOrigin());
+            }
+        }
+    }
+
+    @Test
+    void testRandomShapeFollowsTheScript() {
+        GraphGenerator generator = new GraphGenerator(GraphGenerator.Shape.RANDOM, 10_000, 3);
+        assertEquals(1_000, generator.locationCount());
+        String csv = new String(generator.toBytes(), StandardCharsets.UTF_8);
+        assertTrue(csv.startsWith("loc_start;loc_end;time\n"));
+        assertTrue(csv.lines().skip(1).map(line -> Integer.parseInt(line.split(";")[2]))
+                .allMatch(time -> time >= 1 && time <= 100));
+    }
+
+    @Test
+    void testToGraphMatchesTheFile() throws IOException {
+        for (GraphGenerator generator : List.of(new GraphGenerator(GraphGenerator.Shape.HUB_AND_SPOKE, 5_000, 9),
+                GraphGenerator.grid(30, 9), GraphGenerator.random(50, 400, 5, 9))) {
+            CompactGraph graph = generator.toGraph();
+            CsvEdgeParser parser = new CsvEdgeParser();
+            parser.parse(new ByteArrayInputStream(generator.toBytes()));
+            CompactGraph parsed = parser.toGraph(DuplicatePolicy.KEEP);
+
+            assertEquals(generator.locationCount(), graph.nodeCount());
+            assertEquals(generator.getEdges(), graph.edgeCount());
+            assertEquals(parsed.edgeCount(), graph.edgeCount());
+            for (int node = 0; node < parsed.nodeCount(); node++) {
+                int id = graph.idOf(parsed.nameOf(node));
+                assertEquals(parsed.edgeEnd(node) - parsed.edgeStart(node), graph.edgeEnd(id) - graph.edgeStart(id));
+            }
+        }
+        assertEquals(4 * 30 * 29, GraphGenerator.grid(30, 1).getEdges());
+        assertEquals("N29_29", GraphGenerator.grid(30, 1).location(30 * 30 - 1));
+        assertTrue(GraphGenerator.random(50, 400, 5, 9).toGraph().maxWeight() <= 5);
+    }
+}
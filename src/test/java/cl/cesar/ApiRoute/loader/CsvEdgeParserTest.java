@@ -0,0 +1,135 @@
+package cl.cesar.ApiRoute.loader;
+
+import cl.cesar.ApiRoute.model.CompactGraph;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+
+import static cl.cesar.ApiRoute.loader.GraphAssertions.assertSameGraph;
+import static org.junit.jupiter.api.Assertions.*;
+
+public class CsvEdgeParserTest {
+
+    private static CsvEdgeParser parse(String csv) throws IOException {
+        CsvEdgeParser parser = new CsvEdgeParser();
+        parser.parse(new ByteArrayInputStream(csv.getBytes(StandardCharsets.UTF_8)));
+        return parser;
+    }
+
+    /**
+     * Compara arista por arista el grafo del lector por bytes con el del lector original.
+     */
+    private static void assertSameAsLegacyReader(String csv) throws IOException {
+        CompactGraph expected = LegacyCsvReader.read(new ByteArrayInputStream(csv.getBytes(StandardCharsets.UTF_8))).freeze();
+        assertSameGraph(expected, parse(csv).toGraph());
+    }
+
+    @Test
+    void testSameGraphAsLegacyReader() throws IOException {
+        assertSameAsLegacyReader("loc_start;loc_end;time\nCP1;R11;84\nR11;R12;20\nR12;R13;9\nR13;CP1;5");
+    }
+
+    @Test
+    void testWindowsLineEndingsAndSpaces() throws IOException {
+        assertSameAsLegacyReader("loc_start;loc_end;time\r\n CP1 ; R11 ;  84 \r\nR11;R12;+20\r\n\r\nR12;R13;9;\r\n");
+    }
+
+    @Test
+    void testUtf8Names() throws IOException {
+        assertSameAsLegacyReader("Ñuñoa;Peñalolén;12\nPeñalolén;Ñuñoa;15\nÑuñoa;Maipú;30");
+    }
+
+    @Test
+    void testInvalidRowsAreCountedAndSampled() throws IOException {
+        CsvEdgeParser parser = parse("loc_start;loc_end;time\nA;B;10\nInvalidLine\nA;B\nA;B;x\nA;B;-3\nA;B;99999999999\n\nB;C;5");
+
+        ParseStats stats = parser.getStats();
+        assertEquals(2, stats.getValidRows());
+        assertEquals(6, stats.getInvalidRows());
+        assertEquals("loc_start;loc_end;time", stats.getInvalidSamples().get(0));
+        assertEquals("InvalidLine", stats.getInvalidSamples().get(1));
+        assertEquals(3, parser.toGraph().nodeCount());
+    }
+
+    @Test
+    void testSamplesAreBounded() throws IOException {
+        StringBuilder csv = new StringBuilder();
+        for (int i = 0; i < 100; i++) {
+            csv.append("bad").append(i).append('\n');
+        }
+        ParseStats stats = parse(csv.toString()).getStats();
+
+        assertEquals(100, stats.getInvalidRows());
+        assertEquals(ParseStats.MAX_SAMPLES, stats.getInvalidSamples().size());
+    }
+
+    @Test
+    void testDuplicatePolicies() throws IOException {
+        String csv = "A;B;5\nA;C;1\nA;B;3\nB;A;2\nA;B;4\nA;C;1";
+
+        CompactGraph kept = parse(csv).toGraph(DuplicatePolicy.KEEP);
+        assertEquals(6, kept.edgeCount());
+
+        CsvEdgeParser minParser = parse(csv);
+        CompactGraph min = minParser.toGraph(DuplicatePolicy.MIN);
+        assertEquals(3, min.edgeCount());
+        assertEquals(3, minParser.getStats().getCollapsedEdges());
+        // Cada par conserva la posición de su primera aparición
+        int a = min.idOf("A");
+        assertEquals(min.idOf("B"), min.target(min.edgeStart(a)));
+        assertEquals(3, min.weight(min.edgeStart(a)));
+        assertEquals(min.idOf("C"), min.target(min.edgeStart(a) + 1));
+
+        CompactGraph latest = parse(csv).toGraph(DuplicatePolicy.LATEST);
+        assertEquals(3, latest.edgeCount());
+        assertEquals(4, latest.weight(latest.edgeStart(latest.idOf("A"))));
+
+        CsvEdgeParser rejected = parse(csv);
+        IllegalArgumentException error = assertThrows(IllegalArgumentException.class,
+                () -> rejected.toGraph(DuplicatePolicy.REJECT));
+        assertTrue(error.getMessage().contains("3 conexiones repetidas"), error.getMessage());
+        assertTrue(error.getMessage().contains("A -> B"), error.getMessage());
+        // El rechazo no modifica lo leído
+        assertEquals(6, rejected.toGraph(DuplicatePolicy.KEEP).edgeCount());
+    }
+
+    @Test
+    void testAppendKeepsExistingIdsAndAddsNewLocations() throws IOException {
+        CompactGraph base = parse("A;B;5\nB;C;7").toGraph();
+
+        CsvEdgeParser appended = parse("B;C;4\nC;D;2").appendTo(base);
+        CompactGraph merged = appended.toGraph(DuplicatePolicy.LATEST);
+
+        assertEquals(4, merged.nodeCount());
+        for (int id = 0; id < base.nodeCount(); id++) {
+            assertEquals(base.nameOf(id), merged.nameOf(id));
+        }
+        assertEquals(3, merged.edgeCount());
+        assertEquals(1, appended.getStats().getCollapsedEdges());
+        int b = merged.idOf("B");
+        assertEquals(4, merged.weight(merged.edgeStart(b)));
+        assertEquals(merged.idOf("D"), merged.target(merged.edgeStart(merged.idOf("C"))));
+    }
+
+    @Test
+    void testLinesSpanningReadBuffers() throws IOException {
+        // Suficientes filas para cruzar varios bloques de lectura, y una línea mayor que el bloque
+        StringBuilder csv = new StringBuilder();
+        for (int i = 0; i < 200_000; i++) {
+            csv.append("NODE_").append(i % 5000).append(";NODE_").append((i * 7) % 5000).append(';').append(i % 100).append('\n');
+        }
+        csv.append("X".repeat(CsvEdgeParser.BUFFER_SIZE + 10)).append(";Y;1\n");
+        assertSameAsLegacyReader(csv.toString());
+    }
+
+    @Test
+    void testRepeatedNamesAreInterned() throws IOException {
+        CsvEdgeParser parser = parse("A;B;1\nB;A;2\nA;B;3\nA;C;4");
+
+        NameTable names = parser.getNames();
+        assertEquals(3, names.size());
+        assertSame(names.nameOf(names.intern("A")), names.nameOf(0));
+    }
+}
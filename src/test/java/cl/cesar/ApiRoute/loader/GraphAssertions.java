@@ -0,0 +1,34 @@
+package cl.cesar.ApiRoute.loader;
+
+import cl.cesar.ApiRoute.model.CompactGraph;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Comparaciones de grafos compartidas por las pruebas de los lectores y del snapshot.
+ */
+final class GraphAssertions {
+
+    private GraphAssertions() {
+    }
+
+    /**
+     * Compara arista por arista dos grafos que deben ser idénticos: mismos ids, nombres,
+     * offsets, destinos y pesos, y el mismo ancho de los pesos.
+     */
+    static void assertSameGraph(CompactGraph expected, CompactGraph actual) {
+        assertEquals(expected.nodeCount(), actual.nodeCount());
+        assertEquals(expected.edgeCount(), actual.edgeCount());
+        assertEquals(expected.hasNarrowWeights(), actual.hasNarrowWeights());
+        for (int node = 0; node < expected.nodeCount(); node++) {
+            assertEquals(expected.nameOf(node), actual.nameOf(node));
+            assertEquals(node, actual.idOf(expected.nameOf(node)));
+            assertEquals(expected.edgeStart(node), actual.edgeStart(node));
+            assertEquals(expected.edgeEnd(node), actual.edgeEnd(node));
+        }
+        for (int edge = 0; edge < expected.edgeCount(); edge++) {
+            assertEquals(expected.target(edge), actual.target(edge));
+            assertEquals(expected.weight(edge), actual.weight(edge));
+        }
+    }
+}
@@ -0,0 +1,151 @@
+package cl.cesar.ApiRoute.loader;
+
+import cl.cesar.ApiRoute.model.CompactGraph;
+import cl.cesar.ApiRoute.model.GraphMemory;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static cl.cesar.ApiRoute.loader.GraphAssertions.assertSameGraph;
+import static org.junit.jupiter.api.Assertions.*;
+
+public class GraphSnapshotFileTest {
+
+    @TempDir
+    Path tempDir;
+
+    private static CompactGraph graph(int... weights) {
+        String[] names = {"CP1", "Ñuñoa", "R20", "Aislado"};
+        int[] offsets = {0, 2, 3, weights.length, weights.length};
+        int[] targets = new int[weights.length];
+        int[] edgeTargets = {1, 2, 2, 0, 1};
+        System.arraycopy(edgeTargets, 0, targets, 0, weights.length);
+        return new CompactGraph(names, offsets, targets, weights);
+    }
+
+    @Test
+    void testRoundTripWithNarrowWeights() throws IOException {
+        CompactGraph graph = graph(7, 84, 67, 10);
+        Path file = tempDir.resolve("grafo.snapshot");
+
+        long bytes = GraphSnapshotFile.write(graph, 5, file);
+        GraphSnapshotFile.Loaded loaded = GraphSnapshotFile.read(file);
+
+        assertEquals(Files.size(file), bytes);
+        assertEquals(5, loaded.getGraphVersion());
+        assertTrue(GraphSnapshotFile.isSnapshot(file));
+        assertSameGraph(graph, loaded.getGraph());
+    }
+
+    @Test
+    void testRoundTripWithWideWeights() throws IOException {
+        CompactGraph graph = graph(7, 100_000, 67, 10, 3);
+        Path file = tempDir.resolve("grafo.snapshot");
+
+        GraphSnapshotFile.write(graph, 1, file);
+
+        assertSameGraph(graph, GraphSnapshotFile.read(file).getGraph());
+    }
+
+    @Test
+    void testEmptyGraph() throws IOException {
+        Path file = tempDir.resolve("vacio.snapshot");
+
+        GraphSnapshotFile.write(CompactGraph.EMPTY, 0, file);
+
+        assertEquals(0, GraphSnapshotFile.read(file).getGraph().nodeCount());
+    }
+
+    @Test
+    void testMappedRoundTrip() throws IOException {
+        for (CompactGraph graph : new CompactGraph[]{graph(7, 84, 67, 10), graph(7, 100_000, 67, 10, 3), CompactGraph.EMPTY}) {
+            Path file = tempDir.resolve("grafo.snapshot");
+            GraphSnapshotFile.write(graph, 3, file);
+
+            GraphSnapshotFile.Loaded loaded = GraphSnapshotFile.map(file);
+            CompactGraph mapped = loaded.getGraph();
+
+            assertEquals(3, loaded.getGraphVersion());
+            assertTrue(mapped.isOffHeap());
+            assertTrue(mapped.memory().isMapped());
+            assertSameGraph(graph, mapped);
+            assertEquals(-1, mapped.idOf("Inexistente"));
+            mapped.memory().release();
+        }
+    }
+
+    @Test
+    void testMappedSnapshotIsUnmappedOnRelease() throws IOException {
+        Path file = tempDir.resolve("grafo.snapshot");
+        GraphSnapshotFile.write(graph(7, 84, 67, 10), 1, file);
+        CompactGraph mapped = GraphSnapshotFile.map(file).getGraph();
+        CompactGraph reverse = mapped.transpose();
+        long openBytes = GraphMemory.openBytes();
+
+        assertSame(mapped.memory(), reverse.memory());
+        assertTrue(mapped.memory().retain());
+        mapped.memory().release();
+        assertEquals(84, reverse.weight(reverse.edgeStart(2)));
+        mapped.memory().release();
+
+        assertFalse(mapped.memory().isOpen());
+        assertFalse(mapped.memory().retain());
+        assertEquals(openBytes - mapped.memory().byteSize(), GraphMemory.openBytes());
+        assertThrows(IllegalStateException.class, () -> mapped.weight(0));
+        assertThrows(IllegalStateException.class, () -> mapped.memory().release());
+        // El archivo ya no está mapeado: se puede reemplazar
+        Files.delete(file);
+    }
+
+    @Test
+    void testMapRejectsCorruptedSnapshot() throws IOException {
+        Path file = tempDir.resolve("grafo.snapshot");
+        GraphSnapshotFile.write(graph(7, 84, 67, 10), 1, file);
+        try (RandomAccessFile raf = new RandomAccessFile(file.toFile(), "rw")) {
+            raf.seek(GraphSnapshotFile.HEADER_BYTES + 4);
+            raf.write(0x7F);
+        }
+
+        IOException error = assertThrows(IOException.class, () -> GraphSnapshotFile.map(file));
+        assertTrue(error.getMessage().contains("Checksum"));
+    }
+
+    @Test
+    void testTruncatedSnapshotIsRejected() throws IOException {
+        Path file = tempDir.resolve("grafo.snapshot");
+        GraphSnapshotFile.write(graph(7, 84, 67, 10), 1, file);
+        try (RandomAccessFile raf = new RandomAccessFile(file.toFile(), "rw")) {
+            raf.setLength(raf.length() - 8);
+        }
+
+        IOException error = assertThrows(IOException.class, () -> GraphSnapshotFile.read(file));
+        assertTrue(error.getMessage().contains("truncado"));
+    }
+
+    @Test
+    void testCorruptedSnapshotIsRejected() throws IOException {
+        Path file = tempDir.resolve("grafo.snapshot");
+        GraphSnapshotFile.write(graph(7, 84, 67, 10), 1, file);
+        try (RandomAccessFile raf = new RandomAccessFile(file.toFile(), "rw")) {
+            raf.seek(GraphSnapshotFile.HEADER_BYTES + 4);
+            raf.write(0x7F);
+        }
+
+        IOException error = assertThrows(IOException.class, () -> GraphSnapshotFile.read(file));
+        assertTrue(error.getMessage().contains("Checksum"));
+    }
+
+    @Test
+    void testCsvIsNotSnapshot() throws IOException {
+        Path csv = tempDir.resolve("datos.csv");
+        Files.write(csv, "CP1;R11;84\n".getBytes(StandardCharsets.UTF_8));
+
+        assertFalse(GraphSnapshotFile.isSnapshot(csv));
+        assertThrows(IOException.class, () -> GraphSnapshotFile.read(csv));
+    }
+}
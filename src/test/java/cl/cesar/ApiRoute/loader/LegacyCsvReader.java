@@ -0,0 +1,49 @@
+package cl.cesar.ApiRoute.loader;
+
+import cl.cesar.ApiRoute.model.Graph;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+
+/**
+ * Lector de CSV original, basado en {@code String.split} sobre cada línea.
+ * Solo la usan las pruebas, como referencia de comportamiento y para comparar
+ * rendimiento con {@link CsvEdgeParser}.
+ */
+public final class LegacyCsvReader {
+
+    private LegacyCsvReader() {
+    }
+
+    /**
+     * Lee el CSV en un grafo de objetos mutable.
+     * El archivo debe tener el formato: loc_start;loc_end;time
+     *
+     * @param in El contenido del CSV. El flujo se cierra al terminar.
+     * @return El grafo con todas las conexiones válidas.
+     * @throws IOException Si ocurre un error al leer el flujo.
+     */
+    public static Graph read(InputStream in) throws IOException {
+        Graph graph = new Graph();
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(in))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                String[] parts = line.split(";");
+                if (parts.length == 3) {
+                    try {
+                        String locStart = parts[0].trim();
+                        String locEnd = parts[1].trim();
+                        int time = Integer.parseInt(parts[2].trim());
+                        graph.addConnection(locStart, locEnd, time);
+                    } catch (NumberFormatException e) {
+                        // Opcional: Loggear la línea que no se pudo parsear
+                        System.err.println("Advertencia: Línea de CSV con formato inválido -> " + line);
+                    }
+                }
+            }
+        }
+        return graph;
+    }
+}
@@ -0,0 +1,104 @@
+package cl.cesar.ApiRoute.loader;
+
+import cl.cesar.ApiRoute.model.CompactGraph;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+
+import static cl.cesar.ApiRoute.loader.GraphAssertions.assertSameGraph;
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ParallelCsvLoaderTest {
+
+    private static byte[] randomCsv(int rows, int locations, long seed) {
+        Random random = new Random(seed);
+        StringBuilder csv = new StringBuilder("loc_start;loc_end;time\r\n");
+        for (int i = 0; i < rows; i++) {
+            csv.append("LOC").append(1 + random.nextInt(locations)).append(";LOC")
+                    .append(1 + random.nextInt(locations)).append(';').append(1 + random.nextInt(100)).append("\r\n");
+            if (i % 997 == 0) {
+                csv.append("fila inválida ").append(i).append("\r\n");
+            }
+        }
+        return csv.toString().getBytes(StandardCharsets.UTF_8);
+    }
+
+    @Test
+    void testSameGraphRegardlessOfThreadsAndChunks() throws IOException {
+        byte[] csv = randomCsv(50_000, 3_000, 11);
+        CsvEdgeParser sequential = new CsvEdgeParser();
+        sequential.parse(new ByteArrayInputStream(csv));
+        CompactGraph expected = sequential.toGraph();
+
+        for (int threads : new int[]{1, 3, 8}) {
+            for (int chunkSize : new int[]{64, 4096, 1 << 20}) {
+                ForkJoinPool pool = new ForkJoinPool(threads);
+                try {
+                    CsvEdgeParser parallel = new ParallelCsvLoader(pool, chunkSize)
+                            .load(new ByteArrayInputStream(csv), new LoadTimings());
+
+                    assertSameGraph(expected, parallel.toGraph());
+                    assertEquals(sequential.getStats().getValidRows(), parallel.getStats().getValidRows());
+                    assertEquals(sequential.getStats().getInvalidRows(), parallel.getStats().getInvalidRows());
+                    assertEquals(sequential.getStats().getInvalidSamples(), parallel.getStats().getInvalidSamples());
+                    assertEquals(csv.length, parallel.getStats().getBytes());
+                } finally {
+                    pool.shutdown();
+                }
+            }
+        }
+    }
+
+    @Test
+    void testMappedFileMatchesStream(@TempDir Path tempDir) throws IOException {
+        byte[] csv = randomCsv(20_000, 1_000, 5);
+        Path file = tempDir.resolve("datos.csv");
+        Files.write(file, csv);
+        CsvEdgeParser sequential = new CsvEdgeParser();
+        sequential.parse(new ByteArrayInputStream(csv));
+
+        ForkJoinPool pool = new ForkJoinPool(3);
+        try {
+            CsvEdgeParser mapped = new ParallelCsvLoader(pool, 2048).load(file, new LoadTimings());
+
+            assertSameGraph(sequential.toGraph(), mapped.toGraph());
+            assertEquals(sequential.getStats().getInvalidRows(), mapped.getStats().getInvalidRows());
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    @Test
+    void testLineLongerThanChunk() throws IOException {
+        String csv = "A;B;1\n" + "X".repeat(500) + ";Y;2\nB;A;3";
+        ForkJoinPool pool = new ForkJoinPool(2);
+        try {
+            CsvEdgeParser parallel = new ParallelCsvLoader(pool, 16)
+                    .load(new ByteArrayInputStream(csv.getBytes(StandardCharsets.UTF_8)), new LoadTimings());
+
+            assertEquals(3, parallel.getStats().getValidRows());
+            assertEquals(4, parallel.toGraph().nodeCount());
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    @Test
+    void testPhasesAreTimed() throws IOException {
+        LoadTimings timings = new LoadTimings();
+        ForkJoinPool pool = new ForkJoinPool(2);
+        try {
+            new ParallelCsvLoader(pool, 1024).load(new ByteArrayInputStream(randomCsv(1_000, 50, 3)), timings);
+        } finally {
+            pool.shutdown();
+        }
+        assertEquals(java.util.List.of("parse", "merge"), java.util.List.copyOf(timings.asMap().keySet()));
+    }
+}
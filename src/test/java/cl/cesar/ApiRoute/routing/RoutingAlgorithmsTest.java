@@ -0,0 +1,863 @@
+package cl.cesar.ApiRoute.routing;
+
+import cl.cesar.ApiRoute.bench.GraphGenerator;
+import cl.cesar.ApiRoute.model.CompactGraph;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.function.Function;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Compara cada algoritmo punto a punto con Dijkstra sobre grafos aleatorios al estilo de
+ * data/generate_csv.py: conexiones entre pares de ubicaciones elegidos al azar, con
+ * componentes desconectadas y nodos sin aristas salientes.
+ */
+public class RoutingAlgorithmsTest {
+
+    private static void assertValidPath(CompactGraph graph, PathResult result, int source, int target) {
+        int[] path = result.getPath();
+        assertEquals(source, path[0]);
+        assertEquals(target, path[path.length - 1]);
+        long total = 0;
+        for (int i = 0; i + 1 < path.length; i++) {
+            int best = Integer.MAX_VALUE;
+            for (int edge = graph.edgeStart(path[i]); edge < graph.edgeEnd(path[i]); edge++) {
+                if (graph.target(edge) == path[i + 1]) {
+                    best = Math.min(best, graph.weight(edge));
+                }
+            }
+            assertNotEquals(Integer.MAX_VALUE, best, "La ruta usa una arista inexistente");
+            total += best;
+        }
+        assertEquals(result.getDistance(), total);
+    }
+
+    @Test
+    void testAllAlgorithmsMatchDijkstraOnRandomGraphs() {
+        Random random = new Random(2024);
+        for (int round = 0; round < 20; round++) {
+            int nodeCount = 20 + random.nextInt(300);
+            int edgeCount = nodeCount * (1 + random.nextInt(4));
+            CompactGraph graph = GraphGenerator.random(nodeCount, edgeCount, 100, random.nextLong()).toGraph();
+            CompactGraph reverse = graph.transpose();
+            Landmarks landmarks = Landmarks.compute(graph, reverse, 1 + random.nextInt(8));
+            ContractionHierarchy hierarchy = ContractionHierarchy.build(graph);
+
+            for (int q = 0; q < 30; q++) {
+                int source = random.nextInt(nodeCount);
+                int target = random.nextInt(nodeCount);
+                int expected = Dijkstra.distancesFrom(graph, source)[target];
+                PathResult[] results = {
+                        Dijkstra.shortestPath(graph, source, target),
+                        BidirectionalDijkstra.shortestPath(graph, reverse, source, target),
+                        AltSearch.shortestPath(graph, landmarks, source, target),
+                        hierarchy.shortestPath(source, target)
+                };
+                for (PathResult result : results) {
+                    if (expected == Integer.MAX_VALUE) {
+                        assertFalse(result.isFound(), result.getAlgorithm() + " encontró una ruta inexistente");
+                    } else {
+                        assertEquals(expected, result.getDistance(), result.getAlgorithm().name());
+                        assertValidPath(graph, result, source, target);
+                    }
+                }
+            }
+        }
+    }
+
+    @Test
+    void testEveryQueueMatchesDijkstraForNarrowAndWideWeights() {
+        Random random = new Random(7);
+        for (int maxWeight : new int[]{1, 100, 100_000}) {
+            CompactGraph graph = GraphGenerator.random(300, 1200, maxWeight, random.nextLong()).toGraph();
+            CompactGraph reverse = graph.transpose();
+            for (int q = 0; q < 40; q++) {
+                int source = random.nextInt(graph.nodeCount());
+                int target = random.nextInt(graph.nodeCount());
+                int expected = Dijkstra.distancesFrom(graph, source)[target];
+                for (QueueKind kind : QueueKind.values()) {
+                    PathResult[] results = {
+                            Dijkstra.shortestPath(graph, source, target, kind),
+                            BidirectionalDijkstra.shortestPath(graph, reverse, source, target, kind)
+                    };
+                    for (PathResult result : results) {
+                        if (expected == Integer.MAX_VALUE) {
+                            assertFalse(result.isFound(), kind + " encontró una ruta inexistente");
+                        } else {
+                            assertEquals(expected, result.getDistance(), kind + " con peso máximo " + maxWeight);
+                            assertValidPath(graph, result, source, target);
+                        }
+                    }
+                }
+            }
+        }
+    }
+
+    @Test
+    void testSearchBudgetStopsEveryAlgorithm() {
+        Random random = new Random(31);
+        CompactGraph graph = GraphGenerator.random(3000, 9000, 100, random.nextLong()).toGraph();
+        CompactGraph reverse = graph.transpose();
+        Landmarks landmarks = Landmarks.compute(graph, reverse, 4);
+        ContractionHierarchy hierarchy = ContractionHierarchy.build(graph);
+        List<Function<SearchBudget, PathResult>> searches = new ArrayList<>();
+        for (int q = 0; q < 10; q++) {
+            int source = random.nextInt(graph.nodeCount());
+            int target = random.nextInt(graph.nodeCount());
+            QueueKind kind = QueueKind.forMaxWeight(graph.maxWeight());
+            searches.add(budget -> Dijkstra.shortestPath(graph, source, target, kind, budget));
+            searches.add(budget -> BidirectionalDijkstra.shortestPath(graph, reverse, source, target, kind, budget));
+            searches.add(budget -> AltSearch.shortestPath(graph, landmarks, source, target, budget));
+            searches.add(budget -> hierarchy.shortestPath(source, target, budget));
+        }
+
+        for (Function<SearchBudget, PathResult> search : searches) {
+            PathResult free = search.apply(SearchBudget.UNLIMITED);
+            int settled = free.getSettledNodes();
+            // Con el máximo justo en lo que necesita, la búsqueda termina igual
+            PathResult exact = search.apply(new SearchBudget(settled, 0, null, 1, null));
+            assertEquals(free.getDistance(), exact.getDistance());
+            if (settled <= 2) {
+                continue; // Respuestas sin buscar, como origen igual a destino
+            }
+            SearchAbortedException aborted = assertThrows(SearchAbortedException.class,
+                    () -> search.apply(new SearchBudget(settled / 2, 0, null, 1, null)));
+            assertEquals(SearchAbortedException.Reason.SETTLED_NODES, aborted.getReason());
+            assertEquals(settled / 2 + 1, aborted.getSettledNodes());
+            assertEquals(SearchAbortedException.Reason.CANCELLED, assertThrows(SearchAbortedException.class,
+                    () -> search.apply(new SearchBudget(0, 0, () -> true, 1, null))).getReason());
+            assertEquals(SearchAbortedException.Reason.DEADLINE, assertThrows(SearchAbortedException.class,
+                    () -> search.apply(new SearchBudget(0, System.nanoTime(), null, 1, null))).getReason());
+        }
+    }
+
+    @Test
+    void testSearchStatsCountTheWork() {
+        // Cadena 0 -> 1 -> 2 -> 3 -> 4 con un desvío 0 -> 4 más lento
+        CompactGraph graph = CompactGraph.fromEdges(new String[]{"A", "B", "C", "D", "E"}, 5,
+                new int[]{0, 1, 2, 3, 0}, new int[]{1, 2, 3, 4, 4}, new int[]{1, 1, 1, 1, 10});
+        PathResult dijkstra = Dijkstra.shortestPath(graph, 0, 4);
+        assertEquals(5, dijkstra.getSettledNodes());
+        // El destino no se expande: se revisan las aristas de 0 (2), 1, 2 y 3
+        assertEquals(5, dijkstra.getRelaxedEdges());
+        // El origen, cada nodo de la cadena y 4 alcanzado primero por el desvío
+        assertEquals(6, dijkstra.getQueuePushes());
+
+        CompactGraph reverse = graph.transpose();
+        for (PathResult result : new PathResult[]{
+                BidirectionalDijkstra.shortestPath(graph, reverse, 0, 4),
+                AltSearch.shortestPath(graph, Landmarks.compute(graph, reverse, 2), 0, 4),
+                ContractionHierarchy.build(graph).shortestPath(0, 4)}) {
+            assertEquals(4, result.getDistance());
+            assertTrue(result.getQueuePushes() >= result.getSettledNodes(), result.getAlgorithm().name());
+            assertTrue(result.getRelaxedEdges() > 0, result.getAlgorithm().name());
+        }
+    }
+
+    @Test
+    void testHeavySearchesNeedAPermit() {
+        CompactGraph graph = GraphGenerator.random(2000, 8000, 100, 5).toGraph();
+        int source = 0;
+        int target = 1;
+        PathResult free = Dijkstra.shortestPath(graph, source, target);
+        assertTrue(free.getSettledNodes() > 10);
+        QueueKind kind = QueueKind.forMaxWeight(graph.maxWeight());
+
+        Semaphore none = new Semaphore(0);
+        SearchAbortedException aborted = assertThrows(SearchAbortedException.class,
+                () -> Dijkstra.shortestPath(graph, source, target, kind, new SearchBudget(0, 0, null, 10, none)));
+        assertEquals(SearchAbortedException.Reason.OVERLOADED, aborted.getReason());
+        assertEquals(10, aborted.getSettledNodes());
+
+        Semaphore one = new Semaphore(1);
+        SearchBudget budget = new SearchBudget(0, 0, null, 10, one);
+        assertEquals(free.getDistance(), Dijkstra.shortestPath(graph, source, target, kind, budget).getDistance());
+        assertTrue(budget.isHeavy());
+        assertEquals(0, one.availablePermits());
+        budget.release();
+        assertEquals(1, one.availablePermits());
+
+        // Una búsqueda en pausa devuelve el permiso y lo vuelve a pedir al retomar
+        SearchBudget paused = new SearchBudget(0, 0, null, 10, one);
+        paused.checkpoint(10);
+        paused.pause();
+        assertFalse(paused.isHeavy());
+        assertEquals(1, one.availablePermits());
+        paused.resume(10);
+        assertTrue(paused.isHeavy());
+        assertEquals(0, one.availablePermits());
+        paused.pause();
+        one.acquireUninterruptibly();
+        assertEquals(SearchAbortedException.Reason.OVERLOADED,
+                assertThrows(SearchAbortedException.class, () -> paused.resume(10)).getReason());
+        one.release();
+
+        // Una búsqueda corta no llega al umbral y no usa cupo
+        SearchBudget cheap = new SearchBudget(0, 0, null, free.getSettledNodes() + 1, none);
+        assertEquals(free.getDistance(), Dijkstra.shortestPath(graph, source, target, kind, cheap).getDistance());
+        assertFalse(cheap.isHeavy());
+    }
+
+    /** Tiempos de todas las rutas sin ciclos entre dos nodos, de menor a mayor, por búsqueda exhaustiva. */
+    private static List<Integer> allSimplePathTimes(CompactGraph graph, int source, int target) {
+        List<Integer> times = new ArrayList<>();
+        simplePaths(graph, source, target, new boolean[graph.nodeCount()], 0, times);
+        times.sort(null);
+        return times;
+    }
+
+    private static void simplePaths(CompactGraph graph, int node, int target, boolean[] visited, int time,
+                                    List<Integer> times) {
+        if (node == target) {
+            times.add(time);
+            return;
+        }
+        visited[node] = true;
+        // Con aristas repetidas, cada vecino cuenta una vez con su conexión más rápida
+        int[] fastest = new int[graph.nodeCount()];
+        Arrays.fill(fastest, Integer.MAX_VALUE);
+        for (int edge = graph.edgeStart(node); edge < graph.edgeEnd(node); edge++) {
+            fastest[graph.target(edge)] = Math.min(fastest[graph.target(edge)], graph.weight(edge));
+        }
+        for (int neighbor = 0; neighbor < graph.nodeCount(); neighbor++) {
+            if (fastest[neighbor] != Integer.MAX_VALUE && !visited[neighbor]) {
+                simplePaths(graph, neighbor, target, visited, time + fastest[neighbor], times);
+            }
+        }
+        visited[node] = false;
+    }
+
+    private static void assertSimplePath(CompactGraph graph, int[] path, int distance, int source, int target) {
+        assertEquals(source, path[0]);
+        assertEquals(target, path[path.length - 1]);
+        assertEquals(path.length, Arrays.stream(path).distinct().count(), "La ruta no debe tener ciclos");
+        int total = 0;
+        for (int i = 0; i + 1 < path.length; i++) {
+            int fastest = Integer.MAX_VALUE;
+            for (int edge = graph.edgeStart(path[i]); edge < graph.edgeEnd(path[i]); edge++) {
+                if (graph.target(edge) == path[i + 1]) {
+                    fastest = Math.min(fastest, graph.weight(edge));
+                }
+            }
+            assertNotEquals(Integer.MAX_VALUE, fastest, "Conexión inexistente en la ruta");
+            total += fastest;
+        }
+        assertEquals(total, distance);
+    }
+
+    @Test
+    void testYenMatchesExhaustiveSearch() {
+        Random random = new Random(23);
+        for (int round = 0; round < 40; round++) {
+            CompactGraph graph = GraphGenerator.random(9, 30, 20, random.nextLong()).toGraph();
+            CompactGraph reverse = graph.transpose();
+            for (int query = 0; query < 10; query++) {
+                int source = random.nextInt(graph.nodeCount());
+                int target = random.nextInt(graph.nodeCount());
+                List<Integer> expected = allSimplePathTimes(graph, source, target);
+                int k = 1 + random.nextInt(6);
+                AlternativeRoutes routes = KShortestPaths.yen(graph, reverse, source, target, k, SearchBudget.UNLIMITED);
+
+                assertEquals(Math.min(k, expected.size()), routes.size());
+                List<String> distinct = new ArrayList<>();
+                for (int i = 0; i < routes.size(); i++) {
+                    assertEquals(expected.get(i), routes.distance(i), "Ruta " + i + " de " + source + " a " + target);
+                    assertSimplePath(graph, routes.path(i), routes.distance(i), source, target);
+                    distinct.add(Arrays.toString(routes.path(i)));
+                }
+                assertEquals(routes.size(), distinct.stream().distinct().count(), "Las rutas deben ser distintas");
+            }
+        }
+    }
+
+    @Test
+    void testPenaltyAlternativesAreDistinctSimplePaths() {
+        Random random = new Random(29);
+        for (int round = 0; round < 40; round++) {
+            CompactGraph graph = GraphGenerator.random(30, 120, 50, random.nextLong()).toGraph();
+            CompactGraph reverse = graph.transpose();
+            for (int query = 0; query < 10; query++) {
+                int source = random.nextInt(graph.nodeCount());
+                int target = random.nextInt(graph.nodeCount());
+                AlternativeRoutes routes = KShortestPaths.penalty(graph, reverse, source, target, 3, 1.5,
+                        SearchBudget.UNLIMITED);
+                PathResult fastest = Dijkstra.shortestPath(graph, source, target);
+                if (!fastest.isFound()) {
+                    assertEquals(0, routes.size());
+                    continue;
+                }
+                assertTrue(routes.size() >= 1 && routes.size() <= 3);
+                assertEquals(fastest.getDistance(), routes.distance(0));
+                List<String> distinct = new ArrayList<>();
+                for (int i = 0; i < routes.size(); i++) {
+                    assertSimplePath(graph, routes.path(i), routes.distance(i), source, target);
+                    assertTrue(i == 0 || routes.distance(i) >= routes.distance(i - 1), "En orden de tiempo");
+                    distinct.add(Arrays.toString(routes.path(i)));
+                }
+                assertEquals(routes.size(), distinct.stream().distinct().count(), "Las rutas deben ser distintas");
+            }
+        }
+    }
+
+    @Test
+    void testPenaltyFactorIsCheckedAndPenalizedTimesDoNotOverflow() {
+        // Rutas 0-1-3 (2), 0-2-1-3 (7) y 0-2-3 (10)
+        CompactGraph graph = CompactGraph.fromEdges(new String[]{"A", "B", "C", "D"}, 5,
+                new int[]{0, 1, 0, 2, 2}, new int[]{1, 3, 2, 3, 1}, new int[]{1, 1, 5, 5, 1});
+        CompactGraph reverse = graph.transpose();
+        for (double penalty : new double[]{1, 0.5, Double.NaN}) {
+            assertThrows(IllegalArgumentException.class,
+                    () -> KShortestPaths.penalty(graph, reverse, 0, 3, 3, penalty, SearchBudget.UNLIMITED));
+        }
+
+        // Con un factor enorme, una conexión ya usada cuesta Integer.MAX_VALUE: la suma no debe
+        // desbordar y dejar la ruta que la usa como la más rápida
+        AlternativeRoutes routes = KShortestPaths.penalty(graph, reverse, 0, 3, 3, 1e300, SearchBudget.UNLIMITED);
+        assertEquals(2, routes.size());
+        assertArrayEquals(new int[]{0, 1, 3}, routes.path(0));
+        assertEquals(2, routes.distance(0));
+        assertArrayEquals(new int[]{0, 2, 3}, routes.path(1));
+        assertEquals(10, routes.distance(1));
+    }
+
+    @Test
+    void testAlternativesShareOneBudget() {
+        CompactGraph graph = GraphGenerator.random(3_000, 12_000, 100, 31).toGraph();
+        CompactGraph reverse = graph.transpose();
+        AlternativeRoutes unlimited = KShortestPaths.yen(graph, reverse, 0, 1, 10, SearchBudget.UNLIMITED);
+        assertTrue(unlimited.getSettledNodes() > 20);
+        int limit = unlimited.getSettledNodes() / 2;
+        SearchAbortedException aborted = assertThrows(SearchAbortedException.class,
+                () -> KShortestPaths.yen(graph, reverse, 0, 1, 10, new SearchBudget(limit, 0, null, 0, null)));
+        assertEquals(SearchAbortedException.Reason.SETTLED_NODES, aborted.getReason());
+    }
+
+    @Test
+    void testOneToManyMatchesDistances() {
+        Random random = new Random(13);
+        for (int round = 0; round < 10; round++) {
+            CompactGraph graph = GraphGenerator.random(200, 600, 100, random.nextLong()).toGraph();
+            int source = random.nextInt(graph.nodeCount());
+            int[] targets = new int[1 + random.nextInt(20)];
+            for (int i = 0; i < targets.length; i++) {
+                targets[i] = i > 0 && random.nextInt(5) == 0 ? targets[i - 1] : random.nextInt(graph.nodeCount());
+            }
+            int[] expected = Dijkstra.distancesFrom(graph, source);
+
+            PathResult[] results = Dijkstra.oneToMany(graph, source, targets);
+            int[] times = Dijkstra.travelTimes(graph, source, targets);
+
+            assertEquals(targets.length, results.length);
+            for (int i = 0; i < targets.length; i++) {
+                assertEquals(expected[targets[i]], times[i]);
+                if (expected[targets[i]] == Integer.MAX_VALUE) {
+                    assertFalse(results[i].isFound());
+                } else {
+                    assertEquals(expected[targets[i]], results[i].getDistance());
+                    assertValidPath(graph, results[i], source, targets[i]);
+                }
+            }
+        }
+    }
+
+    @Test
+    void testSearchBudgetStopsOneToManyAndWithinTime() {
+        CompactGraph graph = GraphGenerator.random(2_000, 8_000, 100, 19).toGraph();
+        int[] targets = {1, 2, 3};
+        int[] expected = Dijkstra.travelTimes(graph, 0, targets);
+        assertArrayEquals(expected, Dijkstra.travelTimes(graph, 0, targets, new SearchBudget(0, 0, () -> false, 1, null)));
+
+        SearchBudget small = new SearchBudget(10, 0, null, 1, null);
+        assertEquals(11, assertThrows(SearchAbortedException.class,
+                () -> Dijkstra.oneToMany(graph, 0, new int[]{graph.nodeCount() - 1}, small)).getSettledNodes());
+        assertEquals(SearchAbortedException.Reason.CANCELLED, assertThrows(SearchAbortedException.class,
+                () -> Dijkstra.travelTimes(graph, 0, targets, new SearchBudget(0, 0, () -> true, 1, null))).getReason());
+        int[] visited = {0};
+        assertThrows(SearchAbortedException.class, () -> Dijkstra.withinTime(graph, 0, Integer.MAX_VALUE,
+                (node, time) -> visited[0]++, new SearchBudget(10, 0, null, 1, null)));
+        assertEquals(11, visited[0]);
+    }
+
+    @Test
+    void testWithinTimeVisitsExactlyTheNodesInsideTheBudget() {
+        Random random = new Random(17);
+        for (int round = 0; round < 10; round++) {
+            CompactGraph graph = GraphGenerator.random(300, 900, 100, random.nextLong()).toGraph();
+            int source = random.nextInt(graph.nodeCount());
+            int maxTime = random.nextInt(400);
+            int[] expected = Dijkstra.distancesFrom(graph, source);
+            int[] visited = new int[graph.nodeCount()];
+            Arrays.fill(visited, -1);
+            int[] lastTime = {0};
+
+            int count = Dijkstra.withinTime(graph, source, maxTime, (node, time) -> {
+                assertEquals(-1, visited[node], "Nodo entregado dos veces");
+                assertTrue(time >= lastTime[0], "Los nodos deben entregarse en orden de tiempo");
+                visited[node] = time;
+                lastTime[0] = time;
+            });
+
+            int inside = 0;
+            for (int node = 0; node < graph.nodeCount(); node++) {
+                if (expected[node] <= maxTime) {
+                    inside++;
+                    assertEquals(expected[node], visited[node]);
+                } else {
+                    assertEquals(-1, visited[node]);
+                }
+            }
+            assertEquals(inside, count);
+        }
+    }
+
+    @Test
+    void testMonotoneQueuesExtractInTimeOrder() {
+        Random random = new Random(5);
+        int maxWeight = 1000;
+        SearchQueue[] queues = {new LongHeap(), new DialQueue(maxWeight), new RadixHeap()};
+        for (SearchQueue queue : queues) {
+            for (int round = 0; round < 2; round++) { // La segunda ronda verifica clear()
+                PriorityQueue<Long> expected = new PriorityQueue<>();
+                int last = 0;
+                queue.add(0);
+                expected.add(0L);
+                for (int step = 0; step < 5000; step++) {
+                    if (random.nextInt(3) > 0 || queue.isEmpty()) {
+                        // Como en Dijkstra: cada tiempo nuevo está a lo más maxWeight sobre el último extraído
+                        long entry = (long) (last + random.nextInt(maxWeight + 1)) << 32 | random.nextInt(1000);
+                        queue.add(entry);
+                        expected.add(entry);
+                    } else {
+                        long peeked = queue.peek();
+                        long polled = queue.poll();
+                        assertEquals(peeked, polled, queue.getClass().getSimpleName());
+                        assertEquals(expected.poll() >>> 32, polled >>> 32, queue.getClass().getSimpleName());
+                        last = (int) (polled >>> 32);
+                    }
+                }
+                queue.clear();
+                assertTrue(queue.isEmpty());
+            }
+        }
+    }
+
+    @Test
+    void testQueueKindFollowsMaxWeight() {
+        assertEquals(QueueKind.DIAL, QueueKind.forMaxWeight(100));
+        assertEquals(QueueKind.DIAL, QueueKind.forMaxWeight(QueueKind.DIAL_MAX_WEIGHT));
+        assertEquals(QueueKind.RADIX, QueueKind.forMaxWeight(QueueKind.DIAL_MAX_WEIGHT + 1));
+    }
+
+    @Test
+    void testComponentIndexNeverRejectsReachablePairs() {
+        Random random = new Random(23);
+        long unreachable = 0;
+        long rejected = 0;
+        for (int round = 0; round < 10; round++) {
+            int nodeCount = 50 + random.nextInt(200);
+            // Pocas aristas por nodo: muchas componentes y pares sin ruta
+            int edgeCount = nodeCount + random.nextInt(nodeCount);
+            CompactGraph graph = GraphGenerator.random(nodeCount, edgeCount, 10, random.nextLong()).toGraph();
+            ComponentIndex components = ComponentIndex.compute(graph);
+            int[][] distances = new int[nodeCount][];
+            for (int s = 0; s < nodeCount; s++) {
+                distances[s] = Dijkstra.distancesFrom(graph, s);
+            }
+            for (int s = 0; s < nodeCount; s++) {
+                for (int t = 0; t < nodeCount; t++) {
+                    boolean reachable = distances[s][t] != Integer.MAX_VALUE;
+                    boolean mutual = reachable && distances[t][s] != Integer.MAX_VALUE;
+                    assertEquals(mutual, components.component(s) == components.component(t));
+                    if (reachable) {
+                        assertTrue(components.mayReach(s, t), s + " alcanza a " + t);
+                    } else {
+                        unreachable++;
+                        rejected += components.mayReach(s, t) ? 0 : 1;
+                    }
+                }
+            }
+        }
+        // El orden topológico por sí solo descarta al menos la mitad de los pares sin ruta
+        assertTrue(rejected * 2 >= unreachable, rejected + " de " + unreachable);
+    }
+
+    @Test
+    void testComponentIndexHandlesDeepGraphs() {
+        // Cadena de un millón de nodos cerrada en ciclo, más un nodo aislado: la versión
+        // recursiva de Tarjan agotaría la pila
+        int nodeCount = 1_000_001;
+        String[] names = new String[nodeCount];
+        int[] offsets = new int[nodeCount + 1];
+        int[] targets = new int[nodeCount - 1];
+        int[] weights = new int[nodeCount - 1];
+        for (int i = 0; i < nodeCount; i++) {
+            names[i] = Integer.toString(i);
+            offsets[i + 1] = Math.min(i + 1, nodeCount - 1);
+        }
+        for (int i = 0; i + 1 < nodeCount; i++) {
+            targets[i] = i + 1 < nodeCount - 1 ? i + 1 : 0;
+            weights[i] = 1;
+        }
+        ComponentIndex components = ComponentIndex.compute(new CompactGraph(names, offsets, targets, weights));
+
+        assertEquals(2, components.count());
+        assertEquals(nodeCount - 1, components.largestSize());
+        assertTrue(components.mayReach(0, nodeCount - 2));
+        assertTrue(components.mayReach(nodeCount - 2, 0));
+        assertFalse(components.mayReach(0, nodeCount - 1));
+        assertFalse(components.mayReach(nodeCount - 1, 0));
+    }
+
+    // Lista de aristas {destino, tiempo} de cada nodo de un grafo
+    private static List<List<int[]>> adjacency(CompactGraph graph) {
+        List<List<int[]>> lists = new ArrayList<>();
+        for (int u = 0; u < graph.nodeCount(); u++) {
+            List<int[]> edges = new ArrayList<>();
+            for (int edge = graph.edgeStart(u); edge < graph.edgeEnd(u); edge++) {
+                edges.add(new int[]{graph.target(edge), graph.weight(edge)});
+            }
+            lists.add(edges);
+        }
+        return lists;
+    }
+
+    private static void assertSameAdjacency(List<List<int[]>> expected, CompactGraph graph) {
+        List<List<int[]>> actual = adjacency(graph);
+        assertEquals(expected.size(), actual.size());
+        int edges = 0;
+        for (int u = 0; u < expected.size(); u++) {
+            assertEquals(expected.get(u).size(), actual.get(u).size(), "Aristas del nodo " + u);
+            for (int k = 0; k < expected.get(u).size(); k++) {
+                assertArrayEquals(expected.get(u).get(k), actual.get(u).get(k), "Arista " + k + " del nodo " + u);
+            }
+            edges += expected.get(u).size();
+        }
+        assertEquals(edges, graph.edgeCount());
+    }
+
+    @Test
+    void testReplacedEdgesMatchRebuiltGraph() {
+        Random random = new Random(16);
+        int nodeCount = 300;
+        CompactGraph graph = GraphGenerator.random(nodeCount, 900, 100, random.nextLong()).toGraph();
+        List<List<int[]>> expected = adjacency(graph);
+        for (int round = 0; round < 15; round++) {
+            // Cada ronda reemplaza las aristas de algunos nodos, a veces ya modificados antes
+            int count = 1 + random.nextInt(20);
+            int[] nodes = random.ints(0, nodeCount).distinct().limit(count).toArray();
+            int[][] targets = new int[nodes.length][];
+            int[][] weights = new int[nodes.length][];
+            for (int i = 0; i < nodes.length; i++) {
+                int degree = random.nextInt(6);
+                targets[i] = random.ints(degree, 0, nodeCount).toArray();
+                weights[i] = random.ints(degree, 0, round % 2 == 0 ? 100 : 100_000).toArray();
+                List<int[]> edges = new ArrayList<>();
+                for (int k = 0; k < degree; k++) {
+                    edges.add(new int[]{targets[i][k], weights[i][k]});
+                }
+                expected.set(nodes[i], edges);
+            }
+            CompactGraph previous = graph;
+            graph = graph.withReplacedEdges(nodes, targets, weights);
+            assertTrue(graph.sharesEdgeArraysWith(previous));
+            assertSameAdjacency(expected, graph);
+
+            int[] sources = new int[graph.edgeCount()];
+            int[] destinations = new int[sources.length];
+            int[] times = new int[sources.length];
+            int size = 0;
+            for (int u = 0; u < nodeCount; u++) {
+                for (int[] edge : expected.get(u)) {
+                    sources[size] = u;
+                    destinations[size] = edge[0];
+                    times[size++] = edge[1];
+                }
+            }
+            CompactGraph rebuilt = CompactGraph.fromEdges(names(graph), size, sources, destinations, times);
+            CompactGraph compacted = graph.compact();
+            assertEquals(0, compacted.overlayEdgeCount());
+            assertFalse(compacted.sharesEdgeArraysWith(graph));
+            assertSameAdjacency(expected, compacted);
+            assertSameAdjacency(adjacency(rebuilt.transpose()), graph.transpose());
+            for (int source = 0; source < nodeCount; source += 37) {
+                assertArrayEquals(Dijkstra.distancesFrom(rebuilt, source), Dijkstra.distancesFrom(graph, source));
+            }
+        }
+        assertTrue(graph.overlayNodeCount() > 0);
+        assertTrue(graph.maxWeight() >= graph.compact().maxWeight(), "El peso máximo es una cota superior");
+    }
+
+    @Test
+    void testNodeOrdersKeepNamesEdgesAndDistances() {
+        Random random = new Random(61);
+        CompactGraph base = GraphGenerator.random(2_000, 6_000, 100, random.nextLong()).toGraph();
+        // También sobre un grafo con capa de actualizaciones
+        CompactGraph patched = base.withReplacedEdges(new int[]{0, 5}, new int[][]{{1, 2, 3}, {}}, new int[][]{{4, 5, 6}, {}});
+        for (CompactGraph graph : List.of(base, patched)) {
+            for (NodeOrder order : NodeOrder.values()) {
+                CompactGraph ordered = order.apply(graph);
+                assertEquals(graph.nodeCount(), ordered.nodeCount());
+                assertEquals(graph.edgeCount(), ordered.edgeCount());
+                if (order != NodeOrder.NONE) {
+                    assertEquals(0, ordered.overlayEdgeCount());
+                }
+                int[] newId = new int[graph.nodeCount()];
+                for (int u = 0; u < graph.nodeCount(); u++) {
+                    newId[u] = ordered.idOf(graph.nameOf(u));
+                    assertEquals(graph.nameOf(u), ordered.nameOf(newId[u]));
+                }
+                for (int u = 0; u < graph.nodeCount(); u++) {
+                    int v = newId[u];
+                    assertEquals(graph.edgeEnd(u) - graph.edgeStart(u), ordered.edgeEnd(v) - ordered.edgeStart(v));
+                    for (int k = 0; k < graph.edgeEnd(u) - graph.edgeStart(u); k++) {
+                        assertEquals(newId[graph.target(graph.edgeStart(u) + k)], ordered.target(ordered.edgeStart(v) + k));
+                        assertEquals(graph.weight(graph.edgeStart(u) + k), ordered.weight(ordered.edgeStart(v) + k));
+                    }
+                }
+                for (int source = 0; source < graph.nodeCount(); source += 97) {
+                    int[] expected = Dijkstra.distancesFrom(graph, source);
+                    int[] actual = Dijkstra.distancesFrom(ordered, newId[source]);
+                    for (int u = 0; u < graph.nodeCount(); u++) {
+                        assertEquals(expected[u], actual[newId[u]], order + " desde " + source);
+                    }
+                }
+            }
+        }
+
+        // En anchura, los vecinos del primer nodo reciben los ids siguientes
+        CompactGraph bfs = NodeOrder.BFS.apply(base);
+        assertEquals(base.nameOf(0), bfs.nameOf(0));
+        for (int edge = bfs.edgeStart(0); edge < bfs.edgeEnd(0); edge++) {
+            int target = bfs.target(edge);
+            assertTrue(target == 0 || target <= bfs.edgeEnd(0) - bfs.edgeStart(0), "Vecino " + target);
+        }
+        assertThrows(IllegalArgumentException.class, () -> base.renumber(new int[base.nodeCount()]));
+        assertThrows(IllegalArgumentException.class, () -> base.renumber(new int[]{0}));
+    }
+
+    @Test
+    void testOffHeapGraphMatchesHeapGraph() {
+        Random random = new Random(25);
+        for (int maxWeight : new int[]{100, 200_000}) {
+            CompactGraph heap = GraphGenerator.random(1_500, 4_500, maxWeight, random.nextLong()).toGraph();
+            CompactGraph offHeap = heap.toOffHeap();
+            CompactGraph reverse = offHeap.transpose();
+            assertTrue(offHeap.isOffHeap() && reverse.isOffHeap());
+            assertSame(offHeap.memory(), reverse.memory());
+            assertEquals(heap.hasNarrowWeights(), offHeap.hasNarrowWeights());
+            assertEquals(heap.maxWeight(), offHeap.maxWeight());
+            assertSameAdjacency(adjacency(heap), offHeap);
+            assertSameAdjacency(adjacency(heap.transpose()), reverse);
+            assertArrayEquals(names(heap), names(offHeap));
+            for (int u = 0; u < heap.nodeCount(); u++) {
+                assertEquals(u, offHeap.idOf(heap.nameOf(u)));
+            }
+            assertEquals(-1, offHeap.idOf("LOC0"));
+            assertEquals(-1, offHeap.idOf(null));
+
+            Landmarks landmarks = Landmarks.compute(offHeap, reverse, 4);
+            ContractionHierarchy hierarchy = ContractionHierarchy.build(offHeap);
+            for (int q = 0; q < 30; q++) {
+                int source = random.nextInt(heap.nodeCount());
+                int target = random.nextInt(heap.nodeCount());
+                int expected = Dijkstra.distancesFrom(heap, source)[target];
+                PathResult[] results = {
+                        Dijkstra.shortestPath(offHeap, source, target),
+                        BidirectionalDijkstra.shortestPath(offHeap, reverse, source, target),
+                        AltSearch.shortestPath(offHeap, landmarks, source, target),
+                        hierarchy.shortestPath(source, target)
+                };
+                for (PathResult result : results) {
+                    assertEquals(expected != Integer.MAX_VALUE, result.isFound(), result.getAlgorithm().name());
+                    if (result.isFound()) {
+                        assertEquals(expected, result.getDistance(), result.getAlgorithm().name());
+                        assertValidPath(heap, result, source, target);
+                    }
+                }
+            }
+
+            // La capa de actualizaciones comparte la memoria; compactar la copia a una nueva
+            CompactGraph patched = offHeap.withReplacedEdges(new int[]{0, 7}, new int[][]{{1, 2}, {}}, new int[][]{{3, 4}, {}});
+            CompactGraph expected = heap.withReplacedEdges(new int[]{0, 7}, new int[][]{{1, 2}, {}}, new int[][]{{3, 4}, {}});
+            assertSame(offHeap.memory(), patched.memory());
+            assertTrue(patched.sharesEdgeArraysWith(offHeap));
+            assertSameAdjacency(adjacency(expected), patched);
+            CompactGraph compacted = patched.compact();
+            assertTrue(compacted.isOffHeap());
+            assertNotSame(offHeap.memory(), compacted.memory());
+            assertEquals(0, compacted.overlayEdgeCount());
+            assertSameAdjacency(adjacency(expected), compacted);
+            assertSameAdjacency(adjacency(expected.transpose()), compacted.transpose());
+            // Renumerar vuelve al heap
+            assertFalse(NodeOrder.BFS.apply(compacted).isOffHeap());
+
+            offHeap.memory().release();
+            compacted.memory().release();
+            assertFalse(offHeap.memory().isOpen());
+            assertThrows(IllegalStateException.class, () -> reverse.edgeEnd(0));
+            assertNull(heap.memory());
+        }
+    }
+
+    private static String[] names(CompactGraph graph) {
+        String[] names = new String[graph.nodeCount()];
+        for (int i = 0; i < names.length; i++) {
+            names[i] = graph.nameOf(i);
+        }
+        return names;
+    }
+
+    @Test
+    void testLandmarkBoundsSurviveSlowerEdges() {
+        // Si las aristas solo se hacen más lentas o desaparecen, las cotas calculadas antes
+        // siguen siendo válidas y ALT sigue encontrando las rutas más rápidas
+        Random random = new Random(61);
+        CompactGraph graph = GraphGenerator.random(200, 700, 100, random.nextLong()).toGraph();
+        Landmarks landmarks = Landmarks.compute(graph, graph.transpose(), 6);
+        int[] nodes = random.ints(0, 200).distinct().limit(40).toArray();
+        int[][] targets = new int[nodes.length][];
+        int[][] weights = new int[nodes.length][];
+        for (int i = 0; i < nodes.length; i++) {
+            List<int[]> kept = new ArrayList<>();
+            for (int edge = graph.edgeStart(nodes[i]); edge < graph.edgeEnd(nodes[i]); edge++) {
+                if (random.nextInt(3) > 0) {
+                    kept.add(new int[]{graph.target(edge), graph.weight(edge) + random.nextInt(200)});
+                }
+            }
+            targets[i] = kept.stream().mapToInt(edge -> edge[0]).toArray();
+            weights[i] = kept.stream().mapToInt(edge -> edge[1]).toArray();
+        }
+        CompactGraph slower = graph.withReplacedEdges(nodes, targets, weights);
+
+        for (int source = 0; source < 200; source += 9) {
+            int[] distances = Dijkstra.distancesFrom(slower, source);
+            for (int target = 0; target < 200; target += 3) {
+                PathResult alt = AltSearch.shortestPath(slower, landmarks, source, target);
+                if (distances[target] == Integer.MAX_VALUE) {
+                    assertFalse(alt.isFound());
+                    continue;
+                }
+                assertTrue(landmarks.lowerBound(source, target) <= distances[target]);
+                assertEquals(distances[target], alt.getDistance());
+            }
+        }
+    }
+
+    @Test
+    void testLandmarkBoundsNeverOverestimate() {
+        Random random = new Random(99);
+        CompactGraph graph = GraphGenerator.random(200, 600, 1000, random.nextLong()).toGraph();
+        Landmarks landmarks = Landmarks.compute(graph, graph.transpose(), 6);
+
+        assertEquals(6, landmarks.count());
+        for (int source = 0; source < graph.nodeCount(); source += 7) {
+            int[] distances = Dijkstra.distancesFrom(graph, source);
+            for (int target = 0; target < graph.nodeCount(); target++) {
+                int bound = landmarks.lowerBound(source, target);
+                if (distances[target] == Integer.MAX_VALUE) {
+                    continue; // Sin ruta cualquier cota es válida
+                }
+                assertTrue(bound <= distances[target], "Cota " + bound + " mayor que " + distances[target]);
+            }
+        }
+    }
+
+    @Test
+    void testLandmarkCountIsLimitedByNodeCount() {
+        CompactGraph graph = new CompactGraph(new String[]{"A", "B"}, new int[]{0, 1, 1}, new int[]{1}, new int[]{5});
+        Landmarks landmarks = Landmarks.compute(graph, graph.transpose(), 16);
+
+        assertEquals(2, landmarks.count());
+        assertNotEquals(landmarks.node(0), landmarks.node(1));
+        assertEquals(5, AltSearch.shortestPath(graph, landmarks, 0, 1).getDistance());
+        assertFalse(AltSearch.shortestPath(graph, landmarks, 1, 0).isFound());
+    }
+
+    @Test
+    void testHierarchyUnpacksShortcutsIntoOriginalEdges() {
+        // Cadena A -> B -> C -> D con un desvío más lento A -> D: contraer B y C exige atajos
+        String[] names = {"A", "B", "C", "D"};
+        CompactGraph graph = CompactGraph.fromEdges(names, 4,
+                new int[]{0, 1, 2, 0}, new int[]{1, 2, 3, 3}, new int[]{1, 1, 1, 10});
+        ContractionHierarchy hierarchy = ContractionHierarchy.build(graph);
+
+        PathResult result = hierarchy.shortestPath(0, 3);
+
+        assertArrayEquals(new int[]{0, 1, 2, 3}, result.getPath());
+        assertEquals(3, result.getDistance());
+        assertFalse(hierarchy.shortestPath(3, 0).isFound());
+    }
+
+    @Test
+    void testHubLabelsMatchDijkstraOnRandomGraphs() {
+        Random random = new Random(99);
+        ExecutorService pool = Executors.newFixedThreadPool(3);
+        try {
+            for (int round = 0; round < 12; round++) {
+                int nodeCount = 20 + random.nextInt(250);
+                int edgeCount = nodeCount * (1 + random.nextInt(4));
+                CompactGraph graph = GraphGenerator.random(nodeCount, edgeCount, 100, random.nextLong()).toGraph();
+                CompactGraph reverse = graph.transpose();
+                int[][] orders = {
+                        HubLabels.coverageOrder(graph, reverse, 4, round),
+                        HubLabels.hierarchyOrder(ContractionHierarchy.build(graph), nodeCount)
+                };
+                for (int[] order : orders) {
+                    // En paralelo los lotes podan con menos etiquetas: más entradas, mismas distancias
+                    HubLabels sequential = HubLabels.build(graph, reverse, order, null, 1, 0);
+                    HubLabels parallel = HubLabels.build(graph, reverse, order, pool, 3, 0);
+                    assertTrue(parallel.entryCount() >= sequential.entryCount());
+                    for (int q = 0; q < 10; q++) {
+                        int source = random.nextInt(nodeCount);
+                        int[] expected = Dijkstra.distancesFrom(graph, source);
+                        for (int target = 0; target < nodeCount; target++) {
+                            assertEquals(expected[target], sequential.distance(source, target));
+                            assertEquals(expected[target], parallel.distance(source, target));
+                        }
+                        int target = random.nextInt(nodeCount);
+                        PathResult result = parallel.shortestPath(graph, source, target);
+                        if (expected[target] == Integer.MAX_VALUE) {
+                            assertFalse(result.isFound());
+                        } else {
+                            assertEquals(RouteAlgorithm.HL, result.getAlgorithm());
+                            assertEquals(expected[target], result.getDistance());
+                            assertValidPath(graph, result, source, target);
+                        }
+                    }
+                }
+            }
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    @Test
+    void testHubLabelsFollowZeroTimeCyclesAndRespectTheMemoryCap() {
+        // A <-> B con tiempo 0, B -> C, y un desvío A -> C más lento
+        CompactGraph graph = CompactGraph.fromEdges(new String[]{"A", "B", "C"}, 4,
+                new int[]{0, 1, 1, 0}, new int[]{1, 0, 2, 2}, new int[]{0, 0, 5, 9});
+        CompactGraph reverse = graph.transpose();
+        int[] order = HubLabels.coverageOrder(graph, reverse, 2, 1);
+        HubLabels labels = HubLabels.build(graph, reverse, order, null, 1, 0);
+
+        PathResult result = labels.shortestPath(graph, 0, 2);
+        assertArrayEquals(new int[]{0, 1, 2}, result.getPath());
+        assertEquals(5, result.getDistance());
+        assertEquals(0, labels.distance(1, 0));
+        assertEquals(Integer.MAX_VALUE, labels.distance(2, 0));
+        assertTrue(labels.averageLabelSize() >= 1);
+        assertTrue(labels.maxLabelSize() <= graph.nodeCount());
+
+        assertNull(HubLabels.build(graph, reverse, order, null, 1, labels.estimatedBytes() - 1));
+        assertNotNull(HubLabels.build(graph, reverse, order, null, 1, labels.estimatedBytes()));
+    }
+}
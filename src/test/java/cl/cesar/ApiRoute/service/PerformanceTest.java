@@ -1,12 +1,58 @@
 package cl.cesar.ApiRoute.service;
 
+import cl.cesar.ApiRoute.api.AlternativeRoutesResponse;
+import cl.cesar.ApiRoute.api.BatchRouteResult;
+import cl.cesar.ApiRoute.api.ConnectionChange;
+import cl.cesar.ApiRoute.api.LoadResponse;
+import cl.cesar.ApiRoute.api.RoutePair;
 import cl.cesar.ApiRoute.api.RouteResponse;
+import cl.cesar.ApiRoute.bench.GraphGenerator;
+import cl.cesar.ApiRoute.config.RouteProperties;
+import cl.cesar.ApiRoute.loader.CsvEdgeParser;
+import cl.cesar.ApiRoute.loader.DuplicatePolicy;
+import cl.cesar.ApiRoute.loader.GraphSnapshotFile;
+import cl.cesar.ApiRoute.loader.LegacyCsvReader;
+import cl.cesar.ApiRoute.loader.LoadTimings;
+import cl.cesar.ApiRoute.loader.ParallelCsvLoader;
+import cl.cesar.ApiRoute.model.CompactGraph;
+import cl.cesar.ApiRoute.model.Graph;
+import cl.cesar.ApiRoute.model.GraphMemory;
+import cl.cesar.ApiRoute.model.GraphStorage;
+import cl.cesar.ApiRoute.routing.AlternativeMode;
+import cl.cesar.ApiRoute.routing.ComponentIndex;
+import cl.cesar.ApiRoute.routing.ContractionHierarchy;
+import cl.cesar.ApiRoute.routing.Dijkstra;
+import cl.cesar.ApiRoute.routing.HubLabels;
+import cl.cesar.ApiRoute.routing.Landmarks;
+import cl.cesar.ApiRoute.routing.NodeOrder;
+import cl.cesar.ApiRoute.routing.PathResult;
+import cl.cesar.ApiRoute.routing.QueueKind;
+import cl.cesar.ApiRoute.routing.RouteAlgorithm;
+import cl.cesar.ApiRoute.routing.SearchAbortedException;
 import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Tag;
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
 import org.springframework.mock.web.MockMultipartFile;
 
+import java.io.ByteArrayInputStream;
 import java.io.IOException;
 import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import static org.junit.jupiter.api.Assertions.*;
 
@@ -20,22 +66,26 @@ public class PerformanceTest {
 
     @BeforeEach
     void setUp() {
-        routeService = new RouteService();
+        // Sin caché de rutas, para que las consultas repetidas midan la búsqueda
+        RouteProperties properties = new RouteProperties();
+        properties.getCache().setMaxEntries(0);
+        routeService = new RouteService(properties);
     }
 
     @Test
     void testPerformanceWith10000Connections() throws IOException {
-        // Generar un archivo CSV con 10,000 conexiones
+        // Generar un archivo CSV con 10,000 conexiones, con semilla fija para que sea reproducible
         StringBuilder csvContent = new StringBuilder();
+        Random random = new Random(10_000);
         
         // Crear una red en forma de malla con múltiples caminos
         for (int i = 0; i < 100; i++) {
             for (int j = 0; j < 100; j++) {
                 if (i < 99) {
-                    csvContent.append("NODE_").append(i).append(";NODE_").append(i + 1).append(";").append(1 + (int)(Math.random() * 100)).append("\n");
+                    csvContent.append("NODE_").append(i).append(";NODE_").append(i + 1).append(";").append(1 + random.nextInt(100)).append("\n");
                 }
                 if (j < 99) {
-                    csvContent.append("NODE_").append(i).append(";NODE_").append(j + 1).append(";").append(1 + (int)(Math.random() * 100)).append("\n");
+                    csvContent.append("NODE_").append(i).append(";NODE_").append(j + 1).append(";").append(1 + random.nextInt(100)).append("\n");
                 }
             }
         }
@@ -74,11 +124,12 @@ public class PerformanceTest {
     void testPerformanceWithComplexGraph() throws IOException {
         // Crear un grafo más complejo con múltiples caminos alternativos
         StringBuilder csvContent = new StringBuilder();
+        Random random = new Random(10);
         
         // Red tipo estrella con múltiples hubs
         for (int hub = 1; hub <= 10; hub++) {
             for (int node = 1; node <= 50; node++) {
-                int time = 10 + (int)(Math.random() * 90);
+                int time = 10 + random.nextInt(90);
                 csvContent.append("HUB_").append(hub).append(";NODE_").append(node).append(";").append(time).append("\n");
                 csvContent.append("NODE_").append(node).append(";HUB_").append(hub).append(";").append(time).append("\n");
             }
@@ -87,7 +138,7 @@ public class PerformanceTest {
         // Conexiones entre hubs
         for (int hub1 = 1; hub1 <= 10; hub1++) {
             for (int hub2 = hub1 + 1; hub2 <= 10; hub2++) {
-                int time = 20 + (int)(Math.random() * 80);
+                int time = 20 + random.nextInt(80);
                 csvContent.append("HUB_").append(hub1).append(";HUB_").append(hub2).append(";").append(time).append("\n");
                 csvContent.append("HUB_").append(hub2).append(";HUB_").append(hub1).append(";").append(time).append("\n");
             }
@@ -111,4 +162,1050 @@ public class PerformanceTest {
         assertTrue(routeTime < 300, "La consulta compleja debe completarse en menos de 300ms");
         assertNotEquals(-1, response.getTotalTime(), "Debe encontrar una ruta válida");
     }
+
+    @Test
+    void testCompactGraphVersusObjectGraph() throws IOException {
+        // Malla de 150x150 nodos con conexiones en ambos sentidos (~90,000 aristas)
+        int side = 150;
+        Random random = new Random(42);
+        MockMultipartFile file = GraphGenerator.grid(side, random.nextLong()).toMultipartFile();
+
+        Graph objectGraph = LegacyCsvReader.read(file.getInputStream());
+        CompactGraph compactGraph = objectGraph.freeze();
+        routeService.loadData(file);
+
+        String[] origins = new String[50];
+        String[] destinations = new String[50];
+        for (int q = 0; q < origins.length; q++) {
+            origins[q] = "N" + random.nextInt(side) + "_" + random.nextInt(side);
+            destinations[q] = "N" + random.nextInt(side) + "_" + random.nextInt(side);
+        }
+
+        // Calentamiento y verificación de que ambas representaciones dan el mismo tiempo
+        for (int q = 0; q < origins.length; q++) {
+            RouteResponse expected = ReferenceDijkstra.findFastestRoute(objectGraph, origins[q], destinations[q]);
+            RouteResponse actual = routeService.findFastestRoute(origins[q], destinations[q]);
+            assertEquals(expected.getTotalTime(), actual.getTotalTime());
+        }
+
+        long startTime = System.nanoTime();
+        for (int q = 0; q < origins.length; q++) {
+            ReferenceDijkstra.findFastestRoute(objectGraph, origins[q], destinations[q]);
+        }
+        long objectNanos = (System.nanoTime() - startTime) / origins.length;
+
+        startTime = System.nanoTime();
+        for (int q = 0; q < origins.length; q++) {
+            routeService.findFastestRoute(origins[q], destinations[q]);
+        }
+        long compactNanos = (System.nanoTime() - startTime) / origins.length;
+
+        System.out.printf("Representación | Memoria estimada | Latencia media%n");
+        System.out.printf("Objetos (Graph) | %,d KB | %.3f ms%n", objectGraph.estimatedBytes() / 1024, objectNanos / 1e6);
+        System.out.printf("CSR (CompactGraph) | %,d KB | %.3f ms%n", compactGraph.estimatedBytes() / 1024, compactNanos / 1e6);
+
+        assertEquals(objectGraph.getLocationNames().size(), compactGraph.nodeCount());
+        assertTrue(compactGraph.estimatedBytes() < objectGraph.estimatedBytes(),
+                "La representación compacta debe ocupar menos memoria que el grafo de objetos");
+    }
+
+    @Test
+    void testSettledNodesByAlgorithm() throws IOException {
+        // Malla de 200x200 nodos con tiempos distintos en cada sentido
+        int side = 200;
+        Random random = new Random(11);
+        RouteProperties properties = new RouteProperties();
+        properties.getCache().setMaxEntries(0);
+        properties.getSearch().setLandmarks(8);
+        routeService = new RouteService(properties);
+        LoadResponse load = routeService.loadData(GraphGenerator.grid(side, random.nextLong()).toMultipartFile());
+        System.out.printf("Landmarks: %d, preprocesamiento %d ms, %,d KB%n",
+                load.getLandmarks(), load.getPhaseMillis().get("landmarks"), load.getLandmarkBytes() / 1024);
+
+        long[] settled = new long[RouteAlgorithm.values().length];
+        long[] nanos = new long[RouteAlgorithm.values().length];
+        for (int q = 0; q < 100; q++) {
+            String origin = "N" + random.nextInt(side) + "_" + random.nextInt(side);
+            String destination = "N" + random.nextInt(side) + "_" + random.nextInt(side);
+            int expectedTime = -2;
+            for (RouteAlgorithm algorithm : RouteAlgorithm.values()) {
+                long start = System.nanoTime();
+                RouteResponse response = routeService.findFastestRoute(origin, destination, algorithm);
+                nanos[algorithm.ordinal()] += System.nanoTime() - start;
+                settled[algorithm.ordinal()] += response.getSettledNodes();
+                if (expectedTime == -2) {
+                    expectedTime = response.getTotalTime();
+                }
+                assertEquals(expectedTime, response.getTotalTime(), "Mismo tiempo total en " + algorithm);
+            }
+        }
+
+        System.out.printf("Algoritmo | Nodos asentados (100 consultas) | Latencia media%n");
+        for (RouteAlgorithm algorithm : RouteAlgorithm.values()) {
+            System.out.printf("%s | %,d | %.3f ms%n", algorithm, settled[algorithm.ordinal()], nanos[algorithm.ordinal()] / 100 / 1e6);
+        }
+        assertTrue(settled[RouteAlgorithm.BIDIRECTIONAL.ordinal()] < settled[RouteAlgorithm.DIJKSTRA.ordinal()],
+                "La búsqueda bidireccional debe asentar menos nodos");
+        assertTrue(settled[RouteAlgorithm.ALT.ordinal()] < settled[RouteAlgorithm.DIJKSTRA.ordinal()],
+                "La búsqueda ALT debe asentar menos nodos");
+    }
+
+    @Test
+    void testContractionHierarchyOnGeneratedData() throws IOException {
+        // Mismo patrón que data/generate_csv.py: filas entre pares aleatorios de ubicaciones
+        Random random = new Random(3);
+        int locations = 5_000;
+        MockMultipartFile file = GraphGenerator.random(locations, 12_500, 100, random.nextLong()).toMultipartFile();
+        RouteProperties properties = new RouteProperties();
+        properties.getCache().setMaxEntries(0);
+        properties.getSearch().setContractionHierarchies(true);
+        routeService = new RouteService(properties);
+
+        long startTime = System.nanoTime();
+        routeService.loadData(file);
+        ContractionHierarchy hierarchy = routeService.getSnapshot().getHierarchy().join();
+        long buildMillis = (System.nanoTime() - startTime) / 1_000_000;
+
+        String[] origins = new String[500];
+        String[] destinations = new String[500];
+        for (int q = 0; q < origins.length; q++) {
+            origins[q] = "LOC" + (1 + random.nextInt(locations));
+            destinations[q] = "LOC" + (1 + random.nextInt(locations));
+        }
+        long[] nanos = new long[2];
+        long[] settled = new long[2];
+        RouteAlgorithm[] algorithms = {RouteAlgorithm.DIJKSTRA, RouteAlgorithm.CH};
+        for (int q = 0; q < origins.length; q++) {
+            RouteResponse[] responses = new RouteResponse[algorithms.length];
+            for (int a = 0; a < algorithms.length; a++) {
+                long start = System.nanoTime();
+                responses[a] = routeService.findFastestRoute(origins[q], destinations[q], algorithms[a]);
+                nanos[a] += System.nanoTime() - start;
+                settled[a] += responses[a].getSettledNodes();
+            }
+            assertEquals(responses[0].getTotalTime(), responses[1].getTotalTime());
+        }
+
+        System.out.printf("Jerarquía de contracción: carga + contracción %d ms, %,d atajos, %,d KB%n",
+                buildMillis, hierarchy.shortcutCount(), hierarchy.estimatedBytes() / 1024);
+        for (int a = 0; a < algorithms.length; a++) {
+            System.out.printf("%s | %,d nodos asentados | %.3f ms por consulta%n",
+                    algorithms[a], settled[a], nanos[a] / origins.length / 1e6);
+        }
+        assertNotNull(hierarchy);
+        assertTrue(settled[1] < settled[0], "La jerarquía debe asentar menos nodos que Dijkstra");
+    }
+
+    @Test
+    void testHubLabelsVersusSearches() {
+        // Las latencias de cada consulta se miden en HubLabelBenchmark; aquí solo el trabajo
+        Random random = new Random(17);
+        CompactGraph[] graphs = {GraphGenerator.grid(100, random.nextLong()).toGraph(),
+                GraphGenerator.random(5_000, 12_500, 100, random.nextLong()).toGraph()};
+        String[] shapes = {"malla 100x100", "aleatorio 5.000 nodos"};
+        ExecutorService pool = Executors.newFixedThreadPool(2);
+        try {
+            System.out.println("Grafo | orden | hilos | entradas por etiqueta | máximo | KB");
+            for (int g = 0; g < graphs.length; g++) {
+                CompactGraph graph = graphs[g];
+                CompactGraph reverse = graph.transpose();
+                ContractionHierarchy hierarchy = ContractionHierarchy.build(graph);
+                HubLabels labels = null;
+                String[] orderNames = {"cobertura", "jerarquía"};
+                int[][] orders = {HubLabels.coverageOrder(graph, reverse, 16, 1),
+                        HubLabels.hierarchyOrder(hierarchy, graph.nodeCount())};
+                for (int o = 0; o < orders.length; o++) {
+                    for (int threads : new int[]{1, 2}) {
+                        HubLabels built = HubLabels.build(graph, reverse, orders[o], threads == 1 ? null : pool, threads, 0);
+                        System.out.printf("%s | %s | %d | %.1f | %d | %,d%n", shapes[g], orderNames[o],
+                                threads, built.averageLabelSize(), built.maxLabelSize(), built.estimatedBytes() / 1024);
+                        if (o == 1 && threads == 1) {
+                            labels = built;
+                        }
+                    }
+                }
+
+                int queries = 2_000;
+                long dijkstraSettled = 0;
+                long hierarchySettled = 0;
+                for (int q = 0; q < queries; q++) {
+                    int source = random.nextInt(graph.nodeCount());
+                    int target = random.nextInt(graph.nodeCount());
+                    PathResult dijkstra = Dijkstra.shortestPath(graph, source, target);
+                    PathResult ch = hierarchy.shortestPath(source, target);
+                    PathResult hl = labels.shortestPath(graph, source, target);
+                    dijkstraSettled += dijkstra.getSettledNodes();
+                    hierarchySettled += ch.getSettledNodes();
+                    assertEquals(dijkstra.getDistance(), ch.getDistance());
+                    assertEquals(dijkstra.getDistance(), hl.getDistance());
+                    assertEquals(dijkstra.isFound() ? dijkstra.getDistance() : Integer.MAX_VALUE,
+                            labels.distance(source, target));
+                }
+                System.out.printf("%s | Dijkstra %,d nodos | CH %,d nodos | HL %.1f entradas por consulta%n", shapes[g],
+                        dijkstraSettled / queries, hierarchySettled / queries, 2 * labels.averageLabelSize());
+                // Un cruce recorre las dos etiquetas, sin cola: menos que lo que asienta Dijkstra
+                assertTrue(2 * labels.averageLabelSize() < dijkstraSettled / (double) queries,
+                        "El cruce de etiquetas debe tocar menos entradas que los nodos que asienta Dijkstra");
+                assertTrue(hierarchySettled < dijkstraSettled, "La jerarquía debe asentar menos nodos que Dijkstra");
+            }
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    @Test
+    void testShortQueryCostIsIndependentOfGraphSize() {
+        // Una consulta de 10 aristas en un grafo de 10 nodos y en uno de 5 millones
+        CompactGraph small = chain(10);
+        CompactGraph large = chain(5_000_000);
+        com.sun.management.ThreadMXBean threads =
+                (com.sun.management.ThreadMXBean) java.lang.management.ManagementFactory.getThreadMXBean();
+
+        int queries = 20_000;
+        long[] nanos = new long[2];
+        long[] bytes = new long[2];
+        CompactGraph[] graphs = {small, large};
+        for (int round = 0; round < 2; round++) { // La primera ronda es de calentamiento
+            for (int g = 0; g < graphs.length; g++) {
+                long allocatedBefore = threads.getCurrentThreadAllocatedBytes();
+                long start = System.nanoTime();
+                for (int q = 0; q < queries; q++) {
+                    PathResult result = Dijkstra.shortestPath(graphs[g], 0, 9);
+                    assertEquals(9, result.getDistance());
+                }
+                nanos[g] = (System.nanoTime() - start) / queries;
+                bytes[g] = (threads.getCurrentThreadAllocatedBytes() - allocatedBefore) / queries;
+            }
+        }
+
+        System.out.printf("Grafo | Latencia por consulta | Bytes reservados por consulta%n");
+        System.out.printf("10 nodos | %,d ns | %,d%n", nanos[0], bytes[0]);
+        System.out.printf("5.000.000 nodos | %,d ns | %,d%n", nanos[1], bytes[1]);
+        // Solo el resultado (ruta y PathResult) se reserva; nada proporcional al grafo
+        assertTrue(bytes[1] < 512, "Bytes por consulta: " + bytes[1]);
+        assertEquals(bytes[0], bytes[1], 64);
+    }
+
+    @Test
+    void testAlternativeRoutesCostLessThanRepeatedQueries() throws IOException {
+        // Pares al azar en una malla de 200x200, sin caché: una ruta contra tres alternativas.
+        // Las latencias se miden en AlternativeRoutesBenchmark; aquí solo los nodos asentados
+        Random random = new Random(67);
+        int side = 200;
+        MockMultipartFile file = GraphGenerator.grid(side, random.nextLong()).toMultipartFile();
+        RouteProperties properties = new RouteProperties();
+        properties.getCache().setMaxEntries(0);
+        properties.getSearch().setComputeThreads(0);
+        RouteService service = new RouteService(properties);
+        service.loadData(file);
+        String[][] pairs = new String[100][];
+        for (int i = 0; i < pairs.length; i++) {
+            do {
+                pairs[i] = new String[]{"N" + random.nextInt(side) + "_" + random.nextInt(side),
+                        "N" + random.nextInt(side) + "_" + random.nextInt(side)};
+            } while (pairs[i][0].equals(pairs[i][1]));
+        }
+
+        long[] settled = new long[3];
+        for (String[] pair : pairs) {
+            settled[0] += service.findFastestRoute(pair[0], pair[1]).getSettledNodes();
+            AlternativeMode[] modes = AlternativeMode.values();
+            for (int m = 0; m < modes.length; m++) {
+                AlternativeRoutesResponse alternatives = service
+                        .findAlternativeRoutesAsync(pair[0], pair[1], 3, modes[m], null, null).join();
+                settled[m + 1] += alternatives.getSettledNodes();
+                assertEquals(3, alternatives.getRoutes().size());
+            }
+        }
+
+        System.out.printf("Consulta | Nodos asentados por consulta%n");
+        String[] names = {"Una ruta (Dijkstra)", "3 alternativas (YEN)", "3 alternativas (PENALTY)"};
+        for (int i = 0; i < names.length; i++) {
+            System.out.printf("%s | %,d%n", names[i], settled[i] / pairs.length);
+        }
+        assertTrue(settled[1] < 2 * settled[0], "YEN con K=3 debe asentar menos del doble que una consulta");
+        assertTrue(settled[2] < 3 * settled[0], "PENALTY con K=3 debe asentar menos que tres consultas");
+    }
+
+    @Test
+    void testMetricsOverheadPerQuery() throws IOException {
+        long[] overhead = metricsOverheadPerQuery();
+        assertTrue(overhead[1] < 64, "Bytes por registro: " + overhead[1]);
+    }
+
+    @Test
+    @Tag("performance")
+    void testMetricsCostLessThanAQuery() throws IOException {
+        long[] overhead = metricsOverheadPerQuery();
+        assertTrue(overhead[0] < overhead[2], "El registro debe costar menos que la consulta más corta");
+    }
+
+    /**
+     * Consultas cortas sobre una malla, con y sin registrar las métricas de cada una. Las
+     * métricas medidas van a un registro propio, aparte del que usa el servicio.
+     * @return Los nanosegundos y bytes reservados por registro, y los nanosegundos por consulta.
+     */
+    private long[] metricsOverheadPerQuery() throws IOException {
+        MockMultipartFile file = GraphGenerator.grid(200, 61).toMultipartFile();
+        RouteProperties properties = new RouteProperties();
+        properties.getCache().setMaxEntries(0);
+        properties.getSearch().setComputeThreads(0);
+        RouteService service = new RouteService(properties);
+        service.loadData(file);
+        RouteMetrics metrics = new RouteMetrics(new io.micrometer.core.instrument.simple.SimpleMeterRegistry(),
+                service::getSnapshot);
+        RouteResponse sample = service.findFastestRoute("N10_10", "N12_13");
+        com.sun.management.ThreadMXBean threads =
+                (com.sun.management.ThreadMXBean) java.lang.management.ManagementFactory.getThreadMXBean();
+
+        int queries = 200_000;
+        long recordNanos = 0;
+        long recordBytes = 0;
+        long queryNanos = 0;
+        for (int round = 0; round < 2; round++) { // La primera ronda es de calentamiento
+            long allocatedBefore = threads.getCurrentThreadAllocatedBytes();
+            long start = System.nanoTime();
+            for (int q = 0; q < queries; q++) {
+                metrics.recordFind(RouteAlgorithm.DIJKSTRA, 1000 + q, sample, null);
+            }
+            recordNanos = (System.nanoTime() - start) / queries;
+            recordBytes = (threads.getCurrentThreadAllocatedBytes() - allocatedBefore) / queries;
+
+            start = System.nanoTime();
+            for (int q = 0; q < queries / 20; q++) {
+                service.findFastestRoute("N10_10", "N12_13");
+            }
+            queryNanos = (System.nanoTime() - start) / (queries / 20);
+        }
+
+        System.out.printf("Consulta corta completa | Registro de métricas por consulta | Bytes reservados por registro%n");
+        System.out.printf("%,d ns | %,d ns | %,d%n", queryNanos, recordNanos, recordBytes);
+        return new long[]{recordNanos, recordBytes, queryNanos};
+    }
+
+    @Test
+    void testBatchVersusSingleQueries() throws IOException {
+        // 2.000 pares desde 20 orígenes sobre datos al estilo de data/generate_csv.py
+        Random random = new Random(21);
+        int locations = 20_000;
+        routeService.loadData(GraphGenerator.random(locations, 60_000, 100, random.nextLong()).toMultipartFile());
+        List<RoutePair> pairs = new ArrayList<>();
+        for (int i = 0; i < 2_000; i++) {
+            pairs.add(new RoutePair("LOC" + (1 + i % 20), "LOC" + (1 + random.nextInt(locations))));
+        }
+
+        long start = System.nanoTime();
+        int[] singleTimes = new int[pairs.size()];
+        for (int i = 0; i < pairs.size(); i++) {
+            singleTimes[i] = routeService.findFastestRoute(pairs.get(i).getOrigin(), pairs.get(i).getDestination()).getTotalTime();
+        }
+        long singleMillis = (System.nanoTime() - start) / 1_000_000;
+
+        start = System.nanoTime();
+        List<BatchRouteResult> results = routeService.findFastestRoutes(pairs).stream()
+                .map(CompletableFuture::join).toList();
+        long batchMillis = (System.nanoTime() - start) / 1_000_000;
+
+        for (int i = 0; i < pairs.size(); i++) {
+            assertEquals(singleTimes[i], results.get(i).getTotalTime());
+        }
+        // La comparación de tiempos está en BatchBenchmark (findBatch y findEachPair)
+        System.out.printf("2.000 pares: consultas individuales %d ms, lote %d ms%n", singleMillis, batchMillis);
+    }
+
+    @Test
+    void testTravelTimeMatrixOnMillionEdgeGrid() {
+        matrixOnMillionEdgeGrid();
+    }
+
+    @Test
+    @Tag("performance")
+    void testTravelTimeMatrixThroughput() {
+        // Con 100 ms por origen, 1.000 orígenes en 8 hilos toman menos de 15 s
+        long millisPerOrigin = matrixOnMillionEdgeGrid();
+        assertTrue(millisPerOrigin < 100, "Milisegundos por origen: " + millisPerOrigin);
+    }
+
+    /**
+     * Matriz de 50x1.000 sobre una malla de 500x500: 250.000 ubicaciones y casi 1.000.000 de
+     * conexiones. Compara la primera fila con Dijkstra.
+     * @return Los milisegundos por origen.
+     */
+    private long matrixOnMillionEdgeGrid() {
+        Random random = new Random(31);
+        CompactGraph graph = GraphGenerator.grid(500, random.nextLong()).toGraph();
+        routeService.publish(graph, graph.transpose(), Landmarks.compute(graph, graph, 0), ComponentIndex.compute(graph),
+                CompletableFuture.completedFuture(null));
+        List<String> origins = new ArrayList<>();
+        List<String> destinations = new ArrayList<>();
+        for (int i = 0; i < 50; i++) {
+            origins.add(graph.nameOf(random.nextInt(graph.nodeCount())));
+        }
+        for (int j = 0; j < 1_000; j++) {
+            destinations.add(graph.nameOf(random.nextInt(graph.nodeCount())));
+        }
+
+        long start = System.nanoTime();
+        TravelTimeMatrix matrix = routeService.computeMatrix(origins, destinations);
+        for (int i = 0; i < origins.size(); i++) {
+            matrix.row(i);
+        }
+        long millis = (System.nanoTime() - start) / 1_000_000;
+
+        int[] reference = Dijkstra.distancesFrom(graph, graph.idOf(origins.get(0)));
+        for (int j = 0; j < destinations.size(); j++) {
+            assertEquals(reference[graph.idOf(destinations.get(j))], matrix.row(0)[j]);
+        }
+        int threads = Runtime.getRuntime().availableProcessors();
+        System.out.printf("Matriz 50x1.000 sobre %,d conexiones: %d ms (%.1f ms por origen, %d hilos); "
+                        + "1.000x1.000 estimada en %.1f s%n",
+                graph.edgeCount(), millis, (double) millis / origins.size(), threads, millis * 20 / 1000.0);
+        return millis / origins.size();
+    }
+
+    @Test
+    void testBucketQueuesVersusBinaryHeap() {
+        Random random = new Random(17);
+        String[] labels = {"Malla 400x400", "Centros y periferia 400.000 conexiones", "Aleatorio 100.000 nodos"};
+        CompactGraph[] graphs = {GraphGenerator.grid(400, random.nextLong()).toGraph(),
+                new GraphGenerator(GraphGenerator.Shape.HUB_AND_SPOKE, 400_000, random.nextLong()).toGraph(),
+                GraphGenerator.random(100_000, 400_000, 100, random.nextLong()).toGraph()};
+        int queries = 30;
+
+        System.out.printf("Grafo | Cola | Latencia media de Dijkstra%n");
+        for (int g = 0; g < graphs.length; g++) {
+            CompactGraph graph = graphs[g];
+            int[] sources = new int[queries];
+            int[] targets = new int[queries];
+            for (int q = 0; q < queries; q++) {
+                sources[q] = random.nextInt(graph.nodeCount());
+                targets[q] = random.nextInt(graph.nodeCount());
+            }
+            long[] nanos = new long[QueueKind.values().length];
+            int[] expected = new int[queries];
+            for (int round = 0; round < 2; round++) { // La primera ronda es de calentamiento
+                for (QueueKind kind : QueueKind.values()) {
+                    long start = System.nanoTime();
+                    for (int q = 0; q < queries; q++) {
+                        int distance = Dijkstra.shortestPath(graph, sources[q], targets[q], kind).getDistance();
+                        if (kind == QueueKind.BINARY_HEAP) {
+                            expected[q] = distance;
+                        }
+                        assertEquals(expected[q], distance, labels[g] + " con " + kind);
+                    }
+                    nanos[kind.ordinal()] = System.nanoTime() - start;
+                }
+            }
+            for (QueueKind kind : QueueKind.values()) {
+                System.out.printf("%s | %s | %.3f ms%n", labels[g], kind, nanos[kind.ordinal()] / queries / 1e6);
+            }
+            System.out.printf("%s | cola elegida: %s%n", labels[g], QueueKind.forMaxWeight(graph.maxWeight()));
+        }
+    }
+
+    @Test
+    @Tag("performance")
+    void testNodeReorderingForCacheLocality() {
+        Random random = new Random(29);
+        // La malla se desordena como si sus filas vinieran en cualquier orden en el CSV
+        CompactGraph shuffledGrid = GraphGenerator.grid(700, random.nextLong()).toGraph();
+        shuffledGrid = shuffledGrid.renumber(shuffle(shuffledGrid.nodeCount(), random));
+        String[] labels = {"Malla 700x700 desordenada", "Aleatorio 300.000 nodos"};
+        CompactGraph[] graphs = {shuffledGrid,
+                GraphGenerator.random(300_000, 1_200_000, 100, random.nextLong()).toGraph()};
+        int queries = 12;
+
+        System.out.printf("Grafo | Orden | Consultas por segundo de Dijkstra%n");
+        for (int g = 0; g < graphs.length; g++) {
+            CompactGraph[] ordered = new CompactGraph[NodeOrder.values().length];
+            for (NodeOrder order : NodeOrder.values()) {
+                ordered[order.ordinal()] = order.apply(graphs[g]);
+            }
+            String[] sources = new String[queries];
+            String[] targets = new String[queries];
+            for (int q = 0; q < queries; q++) {
+                sources[q] = graphs[g].nameOf(random.nextInt(graphs[g].nodeCount()));
+                targets[q] = graphs[g].nameOf(random.nextInt(graphs[g].nodeCount()));
+            }
+            long[] nanos = new long[ordered.length];
+            int[] expected = new int[queries];
+            for (int round = 0; round < 2; round++) { // La primera ronda es de calentamiento
+                for (NodeOrder order : NodeOrder.values()) {
+                    CompactGraph graph = ordered[order.ordinal()];
+                    long start = System.nanoTime();
+                    for (int q = 0; q < queries; q++) {
+                        int distance = Dijkstra.shortestPath(graph, graph.idOf(sources[q]), graph.idOf(targets[q])).getDistance();
+                        if (order == NodeOrder.NONE) {
+                            expected[q] = distance;
+                        }
+                        assertEquals(expected[q], distance, labels[g] + " con " + order);
+                    }
+                    nanos[order.ordinal()] = System.nanoTime() - start;
+                }
+            }
+            for (NodeOrder order : NodeOrder.values()) {
+                System.out.printf("%s | %s | %.1f consultas/s%n", labels[g], order, queries / (nanos[order.ordinal()] / 1e9));
+            }
+            if (g == 0) {
+                assertTrue(nanos[NodeOrder.BFS.ordinal()] < nanos[NodeOrder.NONE.ordinal()],
+                        "La malla renumerada en anchura debe responder más rápido que la desordenada");
+            }
+        }
+    }
+
+    @Test
+    void testOffHeapStorageVersusHeap() throws IOException {
+        Random random = new Random(25);
+        int queries = 40;
+        System.out.printf("Malla | Almacenamiento | Heap retenido | Fuera del heap%n");
+        long[] offHeapRetained = new long[2];
+        int[] sides = {300, 700};
+        for (int s = 0; s < sides.length; s++) {
+            long baseline = usedHeapAfterGc();
+            CompactGraph heap = GraphGenerator.grid(sides[s], random.nextLong()).toGraph();
+            CompactGraph heapReverse = heap.transpose();
+            long heapRetained = usedHeapAfterGc() - baseline;
+            CompactGraph offHeap = heap.toOffHeap();
+            CompactGraph offHeapReverse = offHeap.transpose();
+            // Se mide antes de buscar: el estado de búsqueda por hilo vive en el heap en ambos casos
+            offHeapRetained[s] = usedHeapAfterGc() - baseline - heapRetained;
+            assertEquals(heapReverse.edgeCount(), offHeapReverse.edgeCount());
+            for (int q = 0; q < queries; q++) {
+                int source = random.nextInt(heap.nodeCount());
+                int target = random.nextInt(heap.nodeCount());
+                assertEquals(Dijkstra.shortestPath(heap, source, target).getDistance(),
+                        Dijkstra.shortestPath(offHeap, source, target).getDistance());
+            }
+
+            String label = sides[s] + "x" + sides[s];
+            System.out.printf("%s | HEAP | %,d KB | 0 KB%n", label, heapRetained / 1024);
+            System.out.printf("%s | OFF_HEAP | %,d KB | %,d KB%n", label, offHeapRetained[s] / 1024,
+                    offHeap.memory().byteSize() / 1024);
+            assertTrue(offHeapRetained[s] < heapRetained / 10, "El grafo fuera del heap no debe retener heap");
+            offHeap.memory().release();
+            assertFalse(offHeap.memory().isOpen());
+        }
+        // 5,4 veces más nodos, mismo heap retenido (solo los objetos que apuntan a los segmentos)
+        assertTrue(Math.abs(offHeapRetained[1] - offHeapRetained[0]) < 1024 * 1024,
+                "El heap retenido no debe crecer con el grafo fuera del heap");
+
+        // Cargas repetidas: cada versión reemplazada se libera al publicar la siguiente
+        RouteProperties properties = new RouteProperties();
+        properties.getLoad().setStorage(GraphStorage.OFF_HEAP);
+        RouteService offHeapService = new RouteService(properties);
+        MockMultipartFile file = GraphGenerator.grid(200, random.nextLong()).toMultipartFile();
+        int openBefore = GraphMemory.openCount();
+        for (int load = 0; load < 5; load++) {
+            offHeapService.loadData(file);
+        }
+        System.out.printf("Cargas 200x200 fuera del heap: %d memorias abiertas, %,d KB%n",
+                GraphMemory.openCount() - openBefore, offHeapService.getSnapshot().getMemory().byteSize() / 1024);
+        assertEquals(openBefore + 1, GraphMemory.openCount(), "Solo la versión vigente queda abierta");
+    }
+
+    private static long usedHeapAfterGc() {
+        Runtime runtime = Runtime.getRuntime();
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+        }
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+
+    @Test
+    @Tag("performance")
+    void testVirtualThreadsAndComputePoolUnderConcurrentUploads() throws Exception {
+        // Malla de 150x150 como CSV, para que las cargas concurrentes lean y construyan un grafo real
+        Random random = new Random(53);
+        int side = 150;
+        MockMultipartFile file = GraphGenerator.grid(side, random.nextLong()).toMultipartFile();
+        int clients = 64;
+        int queriesPerClient = 10;
+        int uploaders = 2;
+        int uploadsPerUploader = 3;
+        String[][] pairs = new String[clients * queriesPerClient][];
+        for (int q = 0; q < pairs.length; q++) {
+            pairs[q] = new String[]{"N" + random.nextInt(side) + "_" + random.nextInt(side),
+                    "N" + random.nextInt(side) + "_" + random.nextInt(side)};
+        }
+
+        System.out.printf("Modo | consultas p50 / p99 | cargas p50 / p99%n");
+        String[] labels = {"Antes: 200 hilos de plataforma, búsqueda en el hilo de la petición",
+                "Después: hilos virtuales y pool de cómputo de " + Runtime.getRuntime().availableProcessors() + " hilos"};
+        long[] uploadP99 = new long[2];
+        for (int round = 0; round < 2; round++) { // La primera ronda es de calentamiento
+            for (int mode = 0; mode < 2; mode++) {
+                long[][] latencies = concurrentUploadsAndQueries(file, pairs, clients, uploaders, uploadsPerUploader, mode == 1);
+                if (round == 1) {
+                    System.out.printf("%s | %.1f / %.1f ms | %.0f / %.0f ms%n", labels[mode],
+                            percentile(latencies[0], 0.50) / 1e6, percentile(latencies[0], 0.99) / 1e6,
+                            percentile(latencies[1], 0.50) / 1e6, percentile(latencies[1], 0.99) / 1e6);
+                    uploadP99[mode] = percentile(latencies[1], 0.99);
+                }
+            }
+        }
+        assertTrue(uploadP99[1] < uploadP99[0], "Las búsquedas acotadas no deben dejar sin CPU a las cargas");
+    }
+
+    /**
+     * Ejecuta consultas y cargas simultáneas como lo haría Tomcat: antes, en un pool de 200 hilos
+     * de plataforma que buscan en el hilo de la petición; después, con un hilo virtual por
+     * petición y las búsquedas en el pool de cómputo.
+     * @return Las latencias ordenadas de las consultas y de las cargas, en nanosegundos.
+     */
+    private static long[][] concurrentUploadsAndQueries(MockMultipartFile file, String[][] pairs, int clients,
+                                                        int uploaders, int uploadsPerUploader, boolean virtual)
+            throws Exception {
+        RouteProperties properties = new RouteProperties();
+        properties.getCache().setMaxEntries(0);
+        properties.getSearch().setComputeThreads(virtual ? Runtime.getRuntime().availableProcessors() : 0);
+        RouteService service = new RouteService(properties);
+        service.loadData(file);
+        int expected = service.findFastestRoute(pairs[0][0], pairs[0][1]).getTotalTime();
+        int queriesPerClient = pairs.length / clients;
+
+        long[] queryNanos = new long[pairs.length];
+        long[] uploadNanos = new long[uploaders * uploadsPerUploader];
+        List<Future<?>> tasks = new ArrayList<>();
+        try (ExecutorService requests = virtual ? Executors.newVirtualThreadPerTaskExecutor()
+                : Executors.newFixedThreadPool(200)) {
+            for (int u = 0; u < uploaders; u++) {
+                int uploader = u;
+                tasks.add(requests.submit(() -> {
+                    for (int k = 0; k < uploadsPerUploader; k++) {
+                        long start = System.nanoTime();
+                        service.loadData(file);
+                        uploadNanos[uploader * uploadsPerUploader + k] = System.nanoTime() - start;
+                    }
+                    return null;
+                }));
+            }
+            for (int c = 0; c < clients; c++) {
+                int client = c;
+                tasks.add(requests.submit(() -> {
+                    for (int k = 0; k < queriesPerClient; k++) {
+                        int q = client * queriesPerClient + k;
+                        long start = System.nanoTime();
+                        RouteResponse response = service.findFastestRoute(pairs[q][0], pairs[q][1]);
+                        queryNanos[q] = System.nanoTime() - start;
+                        if (q == 0) {
+                            assertEquals(expected, response.getTotalTime());
+                        }
+                    }
+                    return null;
+                }));
+            }
+            for (Future<?> task : tasks) {
+                task.get();
+            }
+        }
+        Arrays.sort(queryNanos);
+        Arrays.sort(uploadNanos);
+        return new long[][]{queryNanos, uploadNanos};
+    }
+
+    @Test
+    @Tag("performance")
+    void testAdmissionControlKeepsCheapQueriesFlat() throws Exception {
+        // Clientes con consultas cortas (vecinos cercanos) compiten con clientes que piden de
+        // esquina a esquina de una malla de 300x300
+        Random random = new Random(59);
+        int side = 300;
+        MockMultipartFile file = GraphGenerator.grid(side, random.nextLong()).toMultipartFile();
+        int cheapClients = 8;
+        int abusiveClients = 8;
+        int queriesPerClient = 25;
+        String[][] cheap = new String[cheapClients * queriesPerClient][];
+        for (int q = 0; q < cheap.length; q++) {
+            int i = random.nextInt(side - 3);
+            int j = random.nextInt(side - 3);
+            cheap[q] = new String[]{"N" + i + "_" + j, "N" + (i + 1 + random.nextInt(2)) + "_" + (j + 1 + random.nextInt(2))};
+        }
+
+        System.out.printf("Modo | consultas cortas p50 / p99 | consultas pesadas completas / rechazadas%n");
+        String[] labels = {"Sin control de admisión", "Con 1 búsqueda pesada (más de 5.000 nodos) a la vez"};
+        long[] cheapP99 = new long[2];
+        for (int round = 0; round < 2; round++) { // La primera ronda es de calentamiento
+            for (int mode = 0; mode < 2; mode++) {
+                RouteProperties properties = new RouteProperties();
+                properties.getCache().setMaxEntries(0);
+                properties.getSearch().setComputeThreads(4);
+                properties.getSearch().setHeavyAfterNodes(5_000);
+                properties.getSearch().setMaxHeavySearches(mode == 0 ? 0 : 1);
+                RouteService service = new RouteService(properties);
+                service.loadData(file);
+
+                long[] cheapNanos = new long[cheap.length];
+                AtomicInteger completed = new AtomicInteger();
+                AtomicInteger rejected = new AtomicInteger();
+                AtomicBoolean running = new AtomicBoolean(true);
+                List<Future<?>> tasks = new ArrayList<>();
+                try (ExecutorService requests = Executors.newVirtualThreadPerTaskExecutor()) {
+                    for (int c = 0; c < abusiveClients; c++) {
+                        tasks.add(requests.submit(() -> {
+                            while (running.get()) {
+                                try {
+                                    service.findFastestRoute("N0_0", "N" + (side - 1) + "_" + (side - 1));
+                                    completed.incrementAndGet();
+                                } catch (SearchAbortedException e) {
+                                    rejected.incrementAndGet();
+                                    Thread.sleep(5); // El cliente reintenta después de un 503
+                                }
+                            }
+                            return null;
+                        }));
+                    }
+                    List<Future<?>> cheapTasks = new ArrayList<>();
+                    for (int c = 0; c < cheapClients; c++) {
+                        int client = c;
+                        cheapTasks.add(requests.submit(() -> {
+                            for (int k = 0; k < queriesPerClient; k++) {
+                                int q = client * queriesPerClient + k;
+                                long start = System.nanoTime();
+                                assertTrue(service.findFastestRoute(cheap[q][0], cheap[q][1]).getTotalTime() > 0);
+                                cheapNanos[q] = System.nanoTime() - start;
+                            }
+                            return null;
+                        }));
+                    }
+                    for (Future<?> task : cheapTasks) {
+                        task.get();
+                    }
+                    running.set(false);
+                    for (Future<?> task : tasks) {
+                        task.get();
+                    }
+                }
+                Arrays.sort(cheapNanos);
+                if (round == 1) {
+                    System.out.printf("%s | %.1f / %.1f ms | %d / %d%n", labels[mode],
+                            percentile(cheapNanos, 0.50) / 1e6, percentile(cheapNanos, 0.99) / 1e6,
+                            completed.get(), rejected.get());
+                    cheapP99[mode] = percentile(cheapNanos, 0.99);
+                }
+            }
+        }
+        assertTrue(cheapP99[1] < cheapP99[0], "Las búsquedas pesadas no deben ocupar todo el pool de cómputo");
+    }
+
+    private static long percentile(long[] sorted, double fraction) {
+        return sorted[Math.min(sorted.length - 1, (int) (fraction * sorted.length))];
+    }
+
+    /** Permutación aleatoria de {@code [0, n)}. */
+    private static int[] shuffle(int n, Random random) {
+        int[] permutation = new int[n];
+        for (int i = 0; i < n; i++) {
+            permutation[i] = i;
+        }
+        for (int i = n - 1; i > 0; i--) {
+            int j = random.nextInt(i + 1);
+            int swap = permutation[i];
+            permutation[i] = permutation[j];
+            permutation[j] = swap;
+        }
+        return permutation;
+    }
+
+    @Test
+    void testImpossibleRoutesFailWithoutSearching() throws IOException {
+        // Malla de 300x300 más una región de 100 ubicaciones sin conexión de vuelta
+        Random random = new Random(41);
+        int side = 300;
+        StringBuilder csvContent = new StringBuilder(
+                new String(GraphGenerator.grid(side, random.nextLong()).toBytes(), StandardCharsets.UTF_8));
+        for (int k = 0; k < 100; k++) {
+            csvContent.append("ISLA_").append(k).append(";ISLA_").append((k + 1) % 100).append(";5\n");
+        }
+        csvContent.append("ISLA_0;N0_0;5\n"); // Desde la región se llega a la malla, pero no al revés
+        LoadResponse load = routeService.loadData(new MockMultipartFile("data", "grid.csv", "text/csv",
+                csvContent.toString().getBytes(StandardCharsets.UTF_8)));
+        CompactGraph graph = routeService.getSnapshot().getGraph();
+
+        int queries = 50;
+        long searchNanos = 0;
+        long indexNanos = 0;
+        for (int q = 0; q < queries; q++) {
+            String origin = "N" + random.nextInt(side) + "_" + random.nextInt(side);
+            String destination = "ISLA_" + random.nextInt(100);
+            long start = System.nanoTime();
+            assertFalse(Dijkstra.shortestPath(graph, graph.idOf(origin), graph.idOf(destination)).isFound());
+            searchNanos += System.nanoTime() - start;
+            start = System.nanoTime();
+            RouteResponse response = routeService.findFastestRoute(origin, destination);
+            indexNanos += System.nanoTime() - start;
+            assertEquals(-1, response.getTotalTime());
+            assertEquals(0, response.getSettledNodes());
+        }
+
+        System.out.printf("Componentes: %,d (mayor %,d), índice en %d ms%n",
+                load.getComponents(), load.getLargestComponent(), load.getPhaseMillis().get("components"));
+        System.out.printf("Consulta sin ruta: búsqueda completa %.3f ms, con índice %.4f ms%n",
+                searchNanos / queries / 1e6, indexNanos / queries / 1e6);
+        assertEquals(2, load.getComponents());
+    }
+
+    @Test
+    void testIncrementalUpdatesVersusRebuild() {
+        incrementalUpdatesOnMillionEdgeGrid();
+    }
+
+    @Test
+    @Tag("performance")
+    void testIncrementalUpdateLatency() {
+        long[] nanos = incrementalUpdatesOnMillionEdgeGrid();
+        assertTrue(nanos[0] * 10 < nanos[1], "Un lote pequeño no debe costar como una recarga");
+    }
+
+    /**
+     * Lotes de 10 cambios sobre una malla de 500x500: 250.000 ubicaciones y casi 1.000.000 de
+     * conexiones. Verifica que la capa de cambios solo guarda los nodos tocados y comparte el
+     * CSR base, y que las consultas sobre ella coinciden con el grafo compactado.
+     * @return Los nanosegundos por lote y los de la reconstrucción mínima del grafo.
+     */
+    private long[] incrementalUpdatesOnMillionEdgeGrid() {
+        Random random = new Random(43);
+        CompactGraph graph = GraphGenerator.grid(500, random.nextLong()).toGraph();
+        // Lo mínimo que repite una recarga, sin leer el CSV ni calcular landmarks
+        long start = System.nanoTime();
+        CompactGraph reverse = graph.transpose();
+        ComponentIndex components = ComponentIndex.compute(graph);
+        long rebuildNanos = System.nanoTime() - start;
+        routeService.publish(graph, reverse, Landmarks.compute(graph, reverse, 0), components,
+                CompletableFuture.completedFuture(null));
+
+        // Lotes de 10 conexiones que se hacen más lentas, como un reporte de tráfico
+        int batches = 200;
+        Set<Integer> touched = new HashSet<>();
+        start = System.nanoTime();
+        for (int b = 0; b < batches; b++) {
+            CompactGraph current = routeService.getSnapshot().getGraph();
+            List<ConnectionChange> changes = new ArrayList<>();
+            for (int k = 0; k < 10; k++) {
+                int node = random.nextInt(current.nodeCount());
+                touched.add(node);
+                int edge = current.edgeStart(node) + random.nextInt(current.edgeEnd(node) - current.edgeStart(node));
+                changes.add(new ConnectionChange(current.nameOf(node), current.nameOf(current.target(edge)),
+                        current.weight(edge) + 1 + random.nextInt(50)));
+            }
+            assertEquals(10, routeService.updateConnections(changes).getUpdated());
+        }
+        long updateNanos = System.nanoTime() - start;
+        CompactGraph updated = routeService.getSnapshot().getGraph();
+        CompactGraph compacted = updated.compact();
+
+        // Costo de las consultas sobre la capa de cambios frente al grafo compactado
+        long overlayNanos = 0;
+        long compactNanos = 0;
+        for (int round = 0; round < 2; round++) { // La primera ronda es de calentamiento
+            overlayNanos = 0;
+            compactNanos = 0;
+            for (int q = 0; q < 20; q++) {
+                int source = random.nextInt(graph.nodeCount());
+                int target = random.nextInt(graph.nodeCount());
+                start = System.nanoTime();
+                int overlayDistance = Dijkstra.shortestPath(updated, source, target).getDistance();
+                overlayNanos += System.nanoTime() - start;
+                start = System.nanoTime();
+                assertEquals(overlayDistance, Dijkstra.shortestPath(compacted, source, target).getDistance());
+                compactNanos += System.nanoTime() - start;
+            }
+        }
+
+        System.out.printf("Reconstrucción mínima del grafo: %d ms; lote de 10 cambios: %.3f ms (%,d aristas en la capa)%n",
+                rebuildNanos / 1_000_000, updateNanos / batches / 1e6, updated.overlayEdgeCount());
+        System.out.printf("Dijkstra con capa de cambios: %.3f ms; compactado: %.3f ms%n",
+                overlayNanos / 20 / 1e6, compactNanos / 20 / 1e6);
+        assertEquals(graph.edgeCount(), updated.edgeCount());
+        assertNotNull(routeService.getSnapshot().getLandmarks(), "Solo hubo conexiones más lentas");
+        // La capa guarda solo las aristas de los nodos tocados; el resto se lee del CSR original
+        int touchedEdges = 0;
+        for (int node : touched) {
+            touchedEdges += graph.edgeEnd(node) - graph.edgeStart(node);
+        }
+        assertEquals(touched.size(), updated.overlayNodeCount());
+        assertEquals(touchedEdges, updated.overlayEdgeCount());
+        assertTrue(updated.sharesEdgeArraysWith(graph), "Las actualizaciones no deben copiar el CSR base");
+        return new long[]{updateNanos / batches, rebuildNanos};
+    }
+
+    @Test
+    void testIsochroneStreamsWithoutCollecting() {
+        // Isócrona que cubre un grafo de 2 millones de ubicaciones; el hilo de isócronas del
+        // calentamiento ya existe cuando se cuentan las reservas y se reutiliza
+        RouteProperties properties = new RouteProperties();
+        properties.getSearch().setComputeThreads(1);
+        routeService = new RouteService(properties);
+        CompactGraph graph = chain(2_000_000);
+        routeService.publish(graph, graph.transpose(), Landmarks.compute(graph, graph, 0), ComponentIndex.compute(graph),
+                CompletableFuture.completedFuture(null));
+        com.sun.management.ThreadMXBean threads =
+                (com.sun.management.ThreadMXBean) java.lang.management.ManagementFactory.getThreadMXBean();
+        long[] timeSum = new long[1];
+        routeService.isochrone("0", 10, null).forEach((location, time) -> timeSum[0] += time); // Calentamiento
+
+        // La búsqueda corre en el pool de isócronas: se cuentan las reservas de todos los hilos
+        long[] ids = threads.getAllThreadIds();
+        long allocatedBefore = Arrays.stream(threads.getThreadAllocatedBytes(ids)).filter(bytes -> bytes > 0).sum();
+        long start = System.nanoTime();
+        int count = routeService.isochrone("0", Integer.MAX_VALUE, null).forEach((location, time) -> timeSum[0] += time);
+        long millis = (System.nanoTime() - start) / 1_000_000;
+        long allocated = Arrays.stream(threads.getThreadAllocatedBytes(ids)).filter(bytes -> bytes > 0).sum()
+                - allocatedBefore;
+
+        System.out.printf("Isócrona de %,d ubicaciones: %d ms, %,d bytes reservados%n", count, millis, allocated);
+        assertEquals(2_000_000, count);
+        // Las ubicaciones se entregan al asentarse y los bloques de la cola se reutilizan: reunir
+        // el resultado costaría decenas de MB
+        assertTrue(allocated < 1024 * 1024, "Bytes reservados: " + allocated);
+    }
+
+    /** Cadena 0 -> 1 -> ... -> n-1 con tiempo 1 en cada arista. */
+    private static CompactGraph chain(int nodeCount) {
+        String[] names = new String[nodeCount];
+        int[] offsets = new int[nodeCount + 1];
+        int[] targets = new int[nodeCount - 1];
+        int[] weights = new int[nodeCount - 1];
+        for (int i = 0; i < nodeCount; i++) {
+            names[i] = Integer.toString(i);
+            offsets[i + 1] = Math.min(i + 1, nodeCount - 1);
+        }
+        for (int i = 0; i + 1 < nodeCount; i++) {
+            targets[i] = i + 1;
+            weights[i] = 1;
+        }
+        return new CompactGraph(names, offsets, targets, weights);
+    }
+
+    @Test
+    void testCsvParserThroughput() throws IOException {
+        // Archivo al estilo de data/generate_csv.py: 500,000 filas entre 10,000 ubicaciones
+        Random random = new Random(7);
+        StringBuilder csvContent = new StringBuilder("loc_start;loc_end;time\r\n");
+        for (int i = 0; i < 500_000; i++) {
+            int start = 1 + random.nextInt(10_000);
+            int end = 1 + random.nextInt(10_000);
+            csvContent.append("LOC").append(start).append(";LOC").append(end).append(';')
+                    .append(1 + random.nextInt(100)).append("\r\n");
+        }
+        byte[] bytes = csvContent.toString().getBytes(StandardCharsets.UTF_8);
+
+        // Una pasada de calentamiento de cada lector
+        LegacyCsvReader.read(new ByteArrayInputStream(bytes));
+        new CsvEdgeParser().parse(new ByteArrayInputStream(bytes));
+
+        long startTime = System.nanoTime();
+        CompactGraph legacy = LegacyCsvReader.read(new ByteArrayInputStream(bytes)).freeze();
+        long legacyNanos = System.nanoTime() - startTime;
+
+        startTime = System.nanoTime();
+        CsvEdgeParser parser = new CsvEdgeParser();
+        parser.parse(new ByteArrayInputStream(bytes));
+        CompactGraph parsed = parser.toGraph();
+        long parserNanos = System.nanoTime() - startTime;
+
+        ForkJoinPool pool = new ForkJoinPool(Runtime.getRuntime().availableProcessors());
+        long parallelNanos;
+        CompactGraph parallel;
+        try {
+            new ParallelCsvLoader(pool, 1 << 20).load(new ByteArrayInputStream(bytes), new LoadTimings());
+            startTime = System.nanoTime();
+            parallel = new ParallelCsvLoader(pool, 1 << 20).load(new ByteArrayInputStream(bytes), new LoadTimings()).toGraph();
+            parallelNanos = System.nanoTime() - startTime;
+        } finally {
+            pool.shutdown();
+        }
+
+        double megabytes = bytes.length / (1024.0 * 1024.0);
+        System.out.printf("Lector original (split): %.1f MB/s (%d ms)%n", megabytes / (legacyNanos / 1e9), legacyNanos / 1_000_000);
+        System.out.printf("Lector por bytes: %.1f MB/s (%d ms)%n", megabytes / (parserNanos / 1e9), parserNanos / 1_000_000);
+        System.out.printf("Lector por bytes en paralelo (%d hilos): %.1f MB/s (%d ms)%n", pool.getParallelism(),
+                megabytes / (parallelNanos / 1e9), parallelNanos / 1_000_000);
+        assertEquals(parsed.edgeCount(), parallel.edgeCount());
+
+        assertEquals(legacy.nodeCount(), parsed.nodeCount());
+        assertEquals(legacy.edgeCount(), parsed.edgeCount());
+        assertEquals(1, parser.getStats().getInvalidRows(), "Solo la cabecera debe descartarse");
+    }
+
+    @Test
+    void testDuplicateHeavyInputCollapse() throws IOException {
+        // Como data/generate_csv.py con pocas ubicaciones: la mayoría de las filas repite un par
+        Random random = new Random(23);
+        StringBuilder csvContent = new StringBuilder("loc_start;loc_end;time\n");
+        for (int i = 0; i < 400_000; i++) {
+            int start = 1 + random.nextInt(300);
+            int end = 1 + random.nextInt(300);
+            csvContent.append("LOC").append(start).append(";LOC").append(end).append(';')
+                    .append(1 + random.nextInt(100)).append('\n');
+        }
+        byte[] bytes = csvContent.toString().getBytes(StandardCharsets.UTF_8);
+
+        CsvEdgeParser keepParser = new CsvEdgeParser();
+        keepParser.parse(new ByteArrayInputStream(bytes));
+        CompactGraph kept = keepParser.toGraph(DuplicatePolicy.KEEP);
+        CsvEdgeParser minParser = new CsvEdgeParser();
+        minParser.parse(new ByteArrayInputStream(bytes));
+        long startTime = System.nanoTime();
+        CompactGraph collapsed = minParser.toGraph(DuplicatePolicy.MIN);
+        long buildMillis = (System.nanoTime() - startTime) / 1_000_000;
+
+        assertEquals(kept.edgeCount() - minParser.getStats().getCollapsedEdges(), collapsed.edgeCount());
+        assertTrue(collapsed.edgeCount() * 2 < kept.edgeCount(), "Aristas: " + collapsed.edgeCount());
+
+        int queries = 200;
+        int[] sources = new int[queries];
+        int[] targets = new int[queries];
+        for (int q = 0; q < queries; q++) {
+            sources[q] = random.nextInt(kept.nodeCount());
+            targets[q] = random.nextInt(kept.nodeCount());
+        }
+        // Las aristas paralelas se relajan de nuevo sin mejorar la ruta: sin ellas se relajan menos
+        long keptRelaxed = 0;
+        long collapsedRelaxed = 0;
+        for (int q = 0; q < queries; q++) {
+            PathResult expected = Dijkstra.shortestPath(kept, sources[q], targets[q]);
+            PathResult actual = Dijkstra.shortestPath(collapsed, sources[q], targets[q]);
+            assertEquals(expected.getDistance(), actual.getDistance(), "Colapsar con MIN no debe cambiar los tiempos");
+            keptRelaxed += expected.getRelaxedEdges();
+            collapsedRelaxed += actual.getRelaxedEdges();
+        }
+
+        System.out.printf("Filas repetidas | aristas %d -> %d (%d colapsadas en %d ms) | bytes %d -> %d%n",
+                kept.edgeCount(), collapsed.edgeCount(), minParser.getStats().getCollapsedEdges(), buildMillis,
+                kept.estimatedBytes(), collapsed.estimatedBytes());
+        System.out.printf("Filas repetidas | aristas relajadas por consulta: %,d con KEEP, %,d con MIN%n",
+                keptRelaxed / queries, collapsedRelaxed / queries);
+        assertTrue(collapsed.estimatedBytes() < kept.estimatedBytes());
+        assertTrue(collapsedRelaxed < keptRelaxed, "Aristas relajadas: " + collapsedRelaxed + " con MIN, "
+                + keptRelaxed + " con KEEP");
+    }
+
+    @Test
+    void testSnapshotStartupVersusCsv(@TempDir Path tempDir) throws IOException {
+        // 1,000,000 conexiones entre 100,000 ubicaciones
+        Random random = new Random(13);
+        StringBuilder csvContent = new StringBuilder();
+        for (int i = 0; i < 1_000_000; i++) {
+            csvContent.append("LOC").append(random.nextInt(100_000)).append(";LOC").append(random.nextInt(100_000))
+                    .append(';').append(1 + random.nextInt(100)).append('\n');
+        }
+        Path csv = tempDir.resolve("grande.csv");
+        Path snapshotFile = tempDir.resolve("grande.snapshot");
+        Files.writeString(csv, csvContent);
+
+        long startTime = System.nanoTime();
+        LoadResponse fromCsv = routeService.loadFile(csv, null);
+        long csvMillis = (System.nanoTime() - startTime) / 1_000_000;
+
+        GraphSnapshotFile.write(routeService.getSnapshot().getGraph(), 1, snapshotFile);
+        RouteService restarted = new RouteService();
+        startTime = System.nanoTime();
+        LoadResponse fromSnapshot = restarted.loadFile(snapshotFile, null);
+        long snapshotMillis = (System.nanoTime() - startTime) / 1_000_000;
+
+        System.out.printf("Arranque desde CSV (%,d bytes): %d ms%n", Files.size(csv), csvMillis);
+        System.out.printf("Arranque desde snapshot (%,d bytes): %d ms%n", Files.size(snapshotFile), snapshotMillis);
+        assertEquals(fromCsv.getConnections(), fromSnapshot.getConnections());
+        assertEquals(fromCsv.getLocations(), fromSnapshot.getLocations());
+    }
 }
@@ -0,0 +1,84 @@
+package cl.cesar.ApiRoute.service;
+
+import cl.cesar.ApiRoute.api.RouteResponse;
+import cl.cesar.ApiRoute.model.Connection;
+import cl.cesar.ApiRoute.model.Graph;
+import cl.cesar.ApiRoute.model.Location;
+
+import java.util.*;
+
+/**
+ * Implementación original de Dijkstra sobre el grafo de objetos {@link Graph}.
+ * Solo la usan las pruebas, como referencia para comparar resultados, memoria y
+ * latencia con la representación compacta.
+ */
+final class ReferenceDijkstra {
+
+    private ReferenceDijkstra() {
+    }
+
+    /**
+     * Encuentra la ruta más rápida entre dos ubicaciones del grafo de objetos.
+     *
+     * @param graph El grafo mutable de ubicaciones.
+     * @param origin Nombre de la ubicación de origen.
+     * @param destination Nombre de la ubicación de destino.
+     * @return Un objeto RouteResponse con la ruta y el tiempo total. Si no hay ruta,
+     * el tiempo total será -1.
+     */
+    static RouteResponse findFastestRoute(Graph graph, String origin, String destination) {
+        Location originLocation = graph.getLocation(origin);
+        Location destinationLocation = graph.getLocation(destination);
+
+        if (originLocation == null || destinationLocation == null) {
+            return new RouteResponse(Collections.emptyList(), -1);
+        }
+
+        // Estructuras de datos para el algoritmo de Dijkstra
+        Map<Location, Integer> times = new HashMap<>(); // Tiempos más cortos desde el origen
+        Map<Location, Location> predecessors = new HashMap<>(); // Para reconstruir la ruta
+        PriorityQueue<NodeWithTime> priorityQueue = new PriorityQueue<>(Comparator.comparingInt(NodeWithTime::getTime));
+
+        // 1. Inicialización
+        graph.getLocationNames().forEach(name -> times.put(graph.getLocation(name), Integer.MAX_VALUE));
+        times.put(originLocation, 0);
+        priorityQueue.add(new NodeWithTime(originLocation, 0));
+
+        // 2. Ciclo principal de Dijkstra
+        while (!priorityQueue.isEmpty()) {
+            Location currentLocation = priorityQueue.poll().getLocation();
+
+            if (currentLocation.equals(destinationLocation)) {
+                break; // Se encontró la ruta más corta al destino
+            }
+
+            for (Connection connection : currentLocation.getConnections()) {
+                Location neighbor = connection.getDestination();
+                int newTime = times.get(currentLocation) + connection.getTime();
+
+                if (newTime < times.get(neighbor)) {
+                    times.put(neighbor, newTime);
+                    predecessors.put(neighbor, currentLocation);
+                    priorityQueue.add(new NodeWithTime(neighbor, newTime));
+                }
+            }
+        }
+
+        // 3. Reconstrucción de la ruta y preparación de la respuesta
+        List<String> fastestRoute = new ArrayList<>();
+        int totalTime = times.getOrDefault(destinationLocation, Integer.MAX_VALUE);
+
+        if (totalTime != Integer.MAX_VALUE) {
+            Location step = destinationLocation;
+            while (step != null) {
+                fastestRoute.add(step.getName());
+                step = predecessors.get(step);
+            }
+            Collections.reverse(fastestRoute);
+        } else {
+            totalTime = -1; // No se encontró una ruta
+        }
+
+        return new RouteResponse(fastestRoute, totalTime);
+    }
+}
@@ -0,0 +1,179 @@
+package cl.cesar.ApiRoute.service;
+
+import cl.cesar.ApiRoute.api.RouteResponse;
+import cl.cesar.ApiRoute.routing.RouteAlgorithm;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class RouteCacheTest {
+
+    private static RouteCache.Key key(String origin, long version) {
+        return new RouteCache.Key(origin, "R20", version, RouteAlgorithm.DIJKSTRA);
+    }
+
+    private static RouteResponse route(int totalTime) {
+        return new RouteResponse(List.of("CP1", "R20"), totalTime);
+    }
+
+    @Test
+    void testHitsAndMisses() {
+        RouteCache cache = new RouteCache(10);
+        AtomicInteger searches = new AtomicInteger();
+
+        RouteResponse first = cache.get(key("CP1", 1), () -> route(searches.incrementAndGet()));
+        RouteResponse second = cache.get(key("CP1", 1), () -> route(searches.incrementAndGet()));
+        RouteResponse otherVersion = cache.get(key("CP1", 2), () -> route(searches.incrementAndGet()));
+
+        assertSame(first, second);
+        assertEquals(2, otherVersion.getTotalTime());
+        assertEquals(2, searches.get());
+        assertEquals(1, cache.getHits());
+        assertEquals(2, cache.getMisses());
+        assertEquals(1.0 / 3, cache.stats().getHitRate(), 1e-9);
+    }
+
+    @Test
+    void testClockGivesReferencedEntriesASecondChance() {
+        RouteCache cache = new RouteCache(2);
+        cache.get(key("A", 1), () -> route(1));
+        cache.get(key("B", 1), () -> route(2));
+        cache.get(key("A", 1), () -> route(-99)); // A queda referenciada
+
+        cache.get(key("C", 1), () -> route(3));
+
+        assertEquals(1, cache.getEvictions());
+        assertEquals(1, cache.get(key("A", 1), () -> route(-99)).getTotalTime());
+        assertEquals(20, cache.get(key("B", 1), () -> route(20)).getTotalTime());
+    }
+
+    @Test
+    void testOldVersionsAreEvictedFirst() {
+        RouteCache cache = new RouteCache(2);
+        cache.get(key("A", 1), () -> route(1));
+        cache.get(key("B", 1), () -> route(2));
+        cache.get(key("A", 1), () -> route(-99));
+        cache.get(key("B", 1), () -> route(-99));
+
+        // Ambas entradas están referenciadas, pero pertenecen a una versión anterior
+        cache.get(key("A", 2), () -> route(10));
+        cache.get(key("B", 2), () -> route(20));
+
+        assertEquals(2, cache.getEvictions());
+        assertEquals(2, cache.size());
+        assertEquals(10, cache.get(key("A", 2), () -> route(-99)).getTotalTime());
+    }
+
+    @Test
+    void testCarryOverMovesValidEntriesToTheNewVersion() {
+        RouteCache cache = new RouteCache(2);
+        cache.get(key("A", 1), () -> route(1));
+        cache.get(key("B", 1), () -> route(2));
+
+        // Solo la ruta de A sigue siendo válida en la versión 2
+        assertEquals(1, cache.carryOver(1, 2, response -> response.getTotalTime() == 1));
+        assertEquals(1, cache.get(key("A", 2), () -> route(-99)).getTotalTime());
+        assertEquals(20, cache.get(key("B", 2), () -> route(20)).getTotalTime());
+
+        // B de la versión 1 era la entrada a desalojar, no la ruta traspasada
+        assertEquals(1, cache.getEvictions());
+        assertEquals(1, cache.get(key("A", 2), () -> route(-99)).getTotalTime());
+        assertEquals(-5, cache.get(key("A", 1), () -> route(-5)).getTotalTime());
+    }
+
+    @Test
+    void testConcurrentMissesRunOneSearch() throws Exception {
+        RouteCache cache = new RouteCache(10);
+        AtomicInteger searches = new AtomicInteger();
+        CountDownLatch release = new CountDownLatch(1);
+        int threads = 8;
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            List<Future<RouteResponse>> results = new ArrayList<>();
+            for (int i = 0; i < threads; i++) {
+                results.add(executor.submit(() -> cache.get(key("CP1", 1), () -> {
+                    searches.incrementAndGet();
+                    try {
+                        release.await();
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                    return route(74);
+                })));
+            }
+            // Se libera la búsqueda cuando las demás consultas ya esperan su resultado
+            long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+            while (cache.getSharedWaits() < threads - 1 && System.nanoTime() < deadline) {
+                Thread.sleep(1);
+            }
+            release.countDown();
+            for (Future<RouteResponse> result : results) {
+                assertEquals(74, result.get(10, TimeUnit.SECONDS).getTotalTime());
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        assertEquals(1, searches.get());
+        assertEquals(1, cache.getMisses());
+        assertEquals(threads - 1, cache.getSharedWaits());
+    }
+
+    @Test
+    void testFailedSearchIsNotCached() {
+        RouteCache cache = new RouteCache(10);
+
+        assertThrows(IllegalStateException.class, () -> cache.get(key("CP1", 1), () -> {
+            throw new IllegalStateException("falla");
+        }));
+
+        assertEquals(74, cache.get(key("CP1", 1), () -> route(74)).getTotalTime());
+        assertEquals(2, cache.getMisses());
+    }
+
+    @Test
+    void testAsyncLookupsShareThePendingSearch() {
+        RouteCache cache = new RouteCache(10);
+        CompletableFuture<RouteResponse> search = new CompletableFuture<>();
+        AtomicInteger searches = new AtomicInteger();
+
+        CompletableFuture<RouteResponse> first = cache.getAsync(key("CP1", 1), () -> {
+            searches.incrementAndGet();
+            return search;
+        });
+        CompletableFuture<RouteResponse> second = cache.getAsync(key("CP1", 1), () -> {
+            searches.incrementAndGet();
+            return new CompletableFuture<>();
+        });
+        assertFalse(first.isDone());
+        assertSame(first, second);
+        assertEquals(1, cache.getSharedWaits());
+
+        search.complete(route(74));
+        assertEquals(74, second.join().getTotalTime());
+        assertEquals(1, cache.size());
+        assertEquals(74, cache.get(key("CP1", 1), () -> route(-1)).getTotalTime());
+        assertEquals(1, searches.get());
+        assertEquals(1, cache.getHits());
+
+        // Un error asíncrono tampoco se guarda
+        CompletableFuture<RouteResponse> failed = cache.getAsync(key("CP2", 1),
+                () -> CompletableFuture.supplyAsync(() -> {
+                    throw new IllegalStateException("falla");
+                }));
+        CompletionException error = assertThrows(CompletionException.class, failed::join);
+        assertInstanceOf(IllegalStateException.class, error.getCause());
+        assertEquals(5, cache.get(key("CP2", 1), () -> route(5)).getTotalTime());
+    }
+}
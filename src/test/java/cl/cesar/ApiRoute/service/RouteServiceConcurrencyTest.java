@@ -0,0 +1,141 @@
+package cl.cesar.ApiRoute.service;
+
+import cl.cesar.ApiRoute.api.RouteResponse;
+import cl.cesar.ApiRoute.config.RouteProperties;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockMultipartFile;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Prueba de estrés: consultas concurrentes mientras se recarga el grafo una y otra vez.
+ * Ninguna consulta debe ver un grafo a medio construir. También se prueban muchas peticiones
+ * en hilos virtuales que comparten el pool de cómputo.
+ */
+public class RouteServiceConcurrencyTest {
+
+    private static final int CHAIN_LENGTH = 20_000;
+
+    /**
+     * Genera una cadena ORIGEN -> P_1 -> ... -> P_n -> DESTINO con peso fijo por tramo,
+     * de modo que cada grafo tiene una única respuesta conocida.
+     */
+    private static MockMultipartFile chain(String prefix, int weight) {
+        StringBuilder csv = new StringBuilder();
+        String previous = "ORIGEN";
+        for (int i = 1; i <= CHAIN_LENGTH; i++) {
+            String next = prefix + i;
+            csv.append(previous).append(';').append(next).append(';').append(weight).append('\n');
+            previous = next;
+        }
+        csv.append(previous).append(";DESTINO;").append(weight).append('\n');
+        return new MockMultipartFile("data", prefix + ".csv", "text/csv", csv.toString().getBytes(StandardCharsets.UTF_8));
+    }
+
+    @Test
+    void testQueriesNeverSeeHalfBuiltGraph() throws Exception {
+        RouteService routeService = new RouteService();
+        MockMultipartFile graphA = chain("A", 1);
+        MockMultipartFile graphB = chain("B", 2);
+        int expectedA = CHAIN_LENGTH + 1;
+        int expectedB = 2 * (CHAIN_LENGTH + 1);
+        routeService.loadData(graphA);
+
+        int readers = Math.max(2, Runtime.getRuntime().availableProcessors() - 1);
+        ExecutorService executor = Executors.newFixedThreadPool(readers);
+        AtomicBoolean running = new AtomicBoolean(true);
+        AtomicReference<Throwable> failure = new AtomicReference<>();
+        AtomicLong queries = new AtomicLong();
+        CountDownLatch started = new CountDownLatch(readers);
+
+        for (int r = 0; r < readers; r++) {
+            executor.submit(() -> {
+                started.countDown();
+                long lastVersion = 0;
+                try {
+                    while (running.get()) {
+                        long version = routeService.getSnapshot().getVersion();
+                        assertTrue(version >= lastVersion, "La versión publicada nunca debe retroceder");
+                        lastVersion = version;
+
+                        RouteResponse response = routeService.findFastestRoute("ORIGEN", "DESTINO");
+                        int time = response.getTotalTime();
+                        assertTrue(time == expectedA || time == expectedB, "Tiempo inesperado: " + time);
+                        List<String> route = response.getRoute();
+                        assertEquals(CHAIN_LENGTH + 2, route.size());
+                        assertEquals("ORIGEN", route.get(0));
+                        assertEquals("DESTINO", route.get(route.size() - 1));
+                        // Todos los nodos intermedios deben pertenecer al mismo grafo
+                        char prefix = time == expectedA ? 'A' : 'B';
+                        assertEquals(prefix, route.get(1).charAt(0));
+                        assertEquals(prefix, route.get(route.size() - 2).charAt(0));
+                        queries.incrementAndGet();
+                    }
+                } catch (Throwable t) {
+                    failure.compareAndSet(null, t);
+                }
+            });
+        }
+
+        started.await();
+        List<Long> versions = new ArrayList<>();
+        for (int i = 0; i < 30 && failure.get() == null; i++) {
+            routeService.loadData(i % 2 == 0 ? graphB : graphA);
+            versions.add(routeService.getSnapshot().getVersion());
+        }
+        running.set(false);
+        executor.shutdown();
+        assertTrue(executor.awaitTermination(30, TimeUnit.SECONDS));
+
+        if (failure.get() != null) {
+            fail("Una consulta observó un grafo inconsistente", failure.get());
+        }
+        for (int i = 1; i < versions.size(); i++) {
+            assertEquals(versions.get(i - 1) + 1, versions.get(i));
+        }
+        System.out.println("Consultas concurrentes completadas durante las recargas: " + queries.get());
+        assertTrue(queries.get() > 0);
+    }
+
+    @Test
+    void testVirtualThreadRequestsShareTheComputePool() throws Exception {
+        RouteProperties properties = new RouteProperties();
+        properties.getSearch().setComputeThreads(2);
+        properties.getCache().setMaxEntries(0);
+        RouteService routeService = new RouteService(properties);
+        routeService.loadData(chain("A", 1));
+        int expected = CHAIN_LENGTH + 1;
+
+        // Como Tomcat con hilos virtuales: un hilo por petición, muchos más que los de cómputo
+        List<Future<RouteResponse>> responses = new ArrayList<>();
+        try (ExecutorService requests = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (int i = 0; i < 200; i++) {
+                responses.add(requests.submit(() -> routeService.findFastestRoute("ORIGEN", "DESTINO")));
+            }
+        }
+        for (Future<RouteResponse> response : responses) {
+            assertEquals(expected, response.get().getTotalTime());
+        }
+
+        // Sin pool de cómputo, la búsqueda corre en el hilo que llama y el futuro ya está completo
+        properties.getSearch().setComputeThreads(0);
+        RouteService inline = new RouteService(properties);
+        inline.loadData(chain("A", 1));
+        CompletableFuture<RouteResponse> response = inline.findFastestRouteAsync("ORIGEN", "DESTINO", null);
+        assertTrue(response.isDone());
+        assertEquals(expected, response.join().getTotalTime());
+    }
+}
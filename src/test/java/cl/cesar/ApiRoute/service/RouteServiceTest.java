@@ -3,23 +3,57 @@ package cl.cesar.ApiRoute.service;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
-import org.mockito.InjectMocks;
-import org.mockito.Mock;
+import org.junit.jupiter.api.io.TempDir;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.EnumSource;
 import org.mockito.junit.jupiter.MockitoExtension;
 import org.springframework.mock.web.MockMultipartFile;
 
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+import cl.cesar.ApiRoute.api.AlternativeRoutesResponse;
+import cl.cesar.ApiRoute.api.BatchRouteResult;
+import cl.cesar.ApiRoute.api.ConnectionChange;
+import cl.cesar.ApiRoute.api.LoadResponse;
+import cl.cesar.ApiRoute.api.RoutePair;
 import cl.cesar.ApiRoute.api.RouteResponse;
+import cl.cesar.ApiRoute.api.TravelTimeResponse;
+import cl.cesar.ApiRoute.api.UpdateResponse;
+import cl.cesar.ApiRoute.config.RouteProperties;
+import cl.cesar.ApiRoute.loader.DuplicatePolicy;
+import cl.cesar.ApiRoute.loader.GraphSnapshotFile;
+import cl.cesar.ApiRoute.loader.LoadMode;
+import cl.cesar.ApiRoute.model.CompactGraph;
+import cl.cesar.ApiRoute.model.GraphMemory;
+import cl.cesar.ApiRoute.model.GraphStorage;
+import cl.cesar.ApiRoute.routing.AlternativeMode;
+import cl.cesar.ApiRoute.routing.IsochroneDirection;
+import cl.cesar.ApiRoute.routing.NodeOrder;
+import cl.cesar.ApiRoute.routing.QueueKind;
+import cl.cesar.ApiRoute.routing.RouteAlgorithm;
+import cl.cesar.ApiRoute.routing.SearchAbortedException;
 
 import java.io.IOException;
 import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
 
 import static org.junit.jupiter.api.Assertions.*;
 
 @ExtendWith(MockitoExtension.class)
 public class RouteServiceTest {
 
-    @InjectMocks
     private RouteService routeService;
 
     // Aquí no necesitamos mocks, ya que el Graph es una dependencia interna del servicio.
@@ -29,7 +63,17 @@ public class RouteServiceTest {
     void setUp() {
         // Inicializamos una nueva instancia del servicio antes de cada prueba.
         // Esto asegura que cada prueba tenga un grafo "limpio".
-        routeService = new RouteService();
+        RouteProperties properties = new RouteProperties();
+        properties.getSearch().setLandmarks(8);
+        properties.getSearch().setContractionHierarchies(true);
+        properties.getHubLabels().setEnabled(true);
+        routeService = new RouteService(properties);
+    }
+
+    // Espera a que termine la construcción en segundo plano de la jerarquía de contracción y de las etiquetas de hubs
+    private void awaitIndexes() {
+        routeService.getSnapshot().getHierarchy().join();
+        routeService.getSnapshot().getHubLabels().join();
     }
 
     // --- Pruebas para loadData ---
@@ -63,7 +107,293 @@ public class RouteServiceTest {
         assertEquals(104, response.getTotalTime());
     }
 
-    // --- Pruebas para findFastestRoute (Algoritmo de Dijkstra) ---
+    @Test
+    void testLoadDataReportsPhasesInBothModes() throws IOException {
+        String csvContent = "loc_start;loc_end;time\nCP1;R11;84\nR11;R12;20\nR12;R13;9";
+        MockMultipartFile file = new MockMultipartFile("data", "data.csv", "text/csv", csvContent.getBytes(StandardCharsets.UTF_8));
+
+        for (LoadMode mode : LoadMode.values()) {
+            LoadResponse load = routeService.loadData(file, mode);
+
+            assertEquals(mode.name(), load.getMode());
+            assertEquals(4, load.getLocations());
+            assertEquals(3, load.getConnections());
+            assertEquals(1, load.getInvalidRows());
+            assertEquals(QueueKind.DIAL, load.getQueue());
+            assertTrue(load.getPhaseMillis().containsKey("parse"));
+            assertTrue(load.getPhaseMillis().containsKey("build"));
+            assertEquals(113, routeService.findFastestRoute("CP1", "R13").getTotalTime());
+        }
+    }
+
+    @Test
+    void testLoadLocalFileAndSnapshot(@TempDir Path tempDir) throws IOException {
+        Path csv = tempDir.resolve("datos.csv");
+        Path snapshotFile = tempDir.resolve("datos.snapshot");
+        Files.writeString(csv, "loc_start;loc_end;time\r\nCP1;R11;84\r\nR11;R12;20\r\nR12;R13;9\r\n");
+        RouteProperties properties = new RouteProperties();
+        properties.getSnapshot().setPath(snapshotFile.toString());
+        routeService = new RouteService(properties);
+
+        LoadResponse fromCsv = routeService.loadFile(csv, null);
+        routeService.writeSnapshot();
+        RouteService restarted = new RouteService(properties);
+        LoadResponse fromSnapshot = restarted.loadFile(snapshotFile, null);
+
+        assertEquals("PARALLEL", fromCsv.getMode());
+        assertEquals("SNAPSHOT", fromSnapshot.getMode());
+        assertEquals(fromCsv.getConnections(), fromSnapshot.getConnections());
+        assertEquals(113, restarted.findFastestRoute("CP1", "R13").getTotalTime());
+        assertEquals(List.of("CP1", "R11", "R12", "R13"), restarted.findFastestRoute("CP1", "R13").getRoute());
+    }
+
+    @Test
+    void testMergeLoadAddsToTheCurrentGraph() throws IOException {
+        routeService.loadData(csv("CP1;R11;84\nR11;R12;20\nR12;R13;9"));
+        assertEquals(113, routeService.findFastestRoute("CP1", "R13").getTotalTime());
+
+        LoadResponse merged = routeService.loadData(csv("CP1;R12;50\nR11;R12;10\nR13;R20;3"), null,
+                true, DuplicatePolicy.LATEST);
+
+        assertTrue(merged.isMerged());
+        assertEquals(DuplicatePolicy.LATEST, merged.getDuplicatePolicy());
+        assertEquals(5, merged.getLocations());
+        assertEquals(5, merged.getConnections());
+        assertEquals(1, merged.getCollapsedEdges());
+        assertEquals(List.of("CP1", "R12", "R13", "R20"), routeService.findFastestRoute("CP1", "R20").getRoute());
+        assertEquals(62, routeService.findFastestRoute("CP1", "R20").getTotalTime());
+        assertEquals(10, routeService.findFastestRoute("R11", "R12").getTotalTime());
+    }
+
+    @Test
+    void testDuplicatePoliciesOnLoad() throws IOException {
+        MockMultipartFile file = csv("loc_start;loc_end;time\nCP1;R11;84\nCP1;R11;60\nCP1;R11;70\nR11;R12;20");
+
+        LoadResponse defaults = routeService.loadData(file);
+        assertEquals(DuplicatePolicy.MIN, defaults.getDuplicatePolicy());
+        assertEquals(2, defaults.getCollapsedEdges());
+        assertEquals(2, defaults.getConnections());
+        assertEquals(80, routeService.findFastestRoute("CP1", "R12").getTotalTime());
+
+        LoadResponse latest = routeService.loadData(file, null, false, DuplicatePolicy.LATEST);
+        assertEquals(2, latest.getConnections());
+        assertEquals(90, routeService.findFastestRoute("CP1", "R12").getTotalTime());
+
+        LoadResponse kept = routeService.loadData(file, null, false, DuplicatePolicy.KEEP);
+        assertEquals(0, kept.getCollapsedEdges());
+        assertEquals(4, kept.getConnections());
+
+        // Un rechazo deja publicado el grafo anterior
+        assertThrows(IllegalArgumentException.class,
+                () -> routeService.loadData(file, null, false, DuplicatePolicy.REJECT));
+        assertEquals(kept.getVersion(), routeService.getSnapshot().getVersion());
+        assertEquals(80, routeService.findFastestRoute("CP1", "R12").getTotalTime());
+    }
+
+    @Test
+    void testReorderedLoadAnswersByName() throws IOException {
+        RouteProperties properties = new RouteProperties();
+        properties.getLoad().setReorder(NodeOrder.BFS);
+        routeService = new RouteService(properties);
+
+        LoadResponse load = routeService.loadData(csv("R20;R13;11\nCP1;R11;84\nR11;R12;20\nR12;R13;9\nCP1;CP2;7\nCP2;R20;67"));
+
+        assertEquals(NodeOrder.BFS, load.getNodeOrder());
+        assertTrue(load.getPhaseMillis().containsKey("reorder"));
+        // El primer nodo del CSV conserva el id 0 y sus vecinos quedan a continuación
+        CompactGraph graph = routeService.getSnapshot().getGraph();
+        assertEquals("R20", graph.nameOf(0));
+        assertEquals("R13", graph.nameOf(1));
+        assertEquals(List.of("CP1", "CP2", "R20", "R13"), routeService.findFastestRoute("CP1", "R13").getRoute());
+        assertEquals(85, routeService.findFastestRoute("CP1", "R13").getTotalTime());
+        assertEquals(85, routeService.findFastestRoute("CP1", "R13", RouteAlgorithm.ALT).getTotalTime());
+    }
+
+    @Test
+    void testLandmarksAreOnlyComputedWhenConfigured() throws IOException {
+        routeService = new RouteService(new RouteProperties());
+        LoadResponse load = routeService.loadData(new MockMultipartFile("file", "rutas.csv", "text/csv",
+                "loc_start;loc_end;time\nCP1;CP2;7\nCP2;R20;67\n".getBytes(StandardCharsets.UTF_8)));
+
+        assertEquals(0, load.getLandmarks());
+        RouteResponse response = routeService.findFastestRoute("CP1", "R20", RouteAlgorithm.ALT);
+        assertEquals(RouteAlgorithm.DIJKSTRA, response.getAlgorithm());
+        assertEquals(74, response.getTotalTime());
+    }
+
+    @Test
+    void testSearchBudgetsStopLongSearches() throws IOException {
+        RouteProperties properties = new RouteProperties();
+        properties.getSearch().setMaxSettledNodes(150);
+        routeService = new RouteService(properties);
+        StringBuilder chain = new StringBuilder();
+        for (int i = 0; i < 199; i++) {
+            chain.append("N").append(i).append(";N").append(i + 1).append(";1\n");
+        }
+        routeService.loadData(csv(chain.toString()));
+
+        // El límite configurado vale aunque la consulta pida uno mayor
+        SearchAbortedException global = assertAborted(routeService.findFastestRouteAsync("N0", "N199", null, 1000, null));
+        assertEquals(SearchAbortedException.Reason.SETTLED_NODES, global.getReason());
+        assertEquals(151, global.getSettledNodes());
+        SearchAbortedException own = assertAborted(routeService.findFastestRouteAsync("N0", "N199", RouteAlgorithm.ALT, 20, null));
+        assertEquals(21, own.getSettledNodes());
+        SearchAbortedException late = assertAborted(routeService.findFastestRouteAsync("N0", "N100", null, null, Duration.ofNanos(1)));
+        assertEquals(SearchAbortedException.Reason.DEADLINE, late.getReason());
+        assertThrows(IllegalArgumentException.class,
+                () -> routeService.findFastestRouteAsync("N0", "N1", null, -1, null));
+
+        // Las búsquedas interrumpidas no quedan en el caché y las cortas no se ven afectadas
+        RouteResponse near = routeService.findFastestRoute("N0", "N100");
+        assertEquals(100, near.getTotalTime());
+        assertFalse(near.isCached());
+        assertThrows(SearchAbortedException.class, () -> routeService.findFastestRoute("N0", "N199"));
+
+        List<BatchRouteResult> batch = routeService.findFastestRoutes(List.of(new RoutePair("N5", "N199")))
+                .stream().map(CompletableFuture::join).toList();
+        assertEquals(BatchRouteResult.SEARCH_ABORTED, batch.get(0).getError());
+
+        // Los grupos de uno a muchos, las filas de la matriz y las isócronas usan el mismo presupuesto
+        List<BatchRouteResult> group = routeService.findFastestRoutes(List.of(new RoutePair("N5", "N199"),
+                new RoutePair("N5", "N6"))).stream().map(CompletableFuture::join).toList();
+        assertEquals(BatchRouteResult.SEARCH_ABORTED, group.get(0).getError());
+        assertEquals(BatchRouteResult.SEARCH_ABORTED, group.get(1).getError());
+        List<BatchRouteResult> nearGroup = routeService.findFastestRoutes(List.of(new RoutePair("N5", "N100"),
+                new RoutePair("N5", "N6"))).stream().map(CompletableFuture::join).toList();
+        assertEquals(95, nearGroup.get(0).getTotalTime());
+        assertNull(nearGroup.get(1).getError());
+
+        TravelTimeMatrix matrix = routeService.computeMatrix(List.of("N0", "N150"), List.of("N199"));
+        assertArrayEquals(new int[]{TravelTimeMatrix.NO_ROUTE}, matrix.row(0));
+        assertEquals(BatchRouteResult.SEARCH_ABORTED, matrix.error(0));
+        assertArrayEquals(new int[]{49}, matrix.row(1));
+        assertNull(matrix.error(1));
+
+        List<String> reached = new ArrayList<>();
+        Isochrone isochrone = routeService.isochrone("N0", 1000, null);
+        SearchAbortedException wide = assertThrows(SearchAbortedException.class,
+                () -> isochrone.forEach((location, time) -> reached.add(location)));
+        assertEquals(SearchAbortedException.Reason.SETTLED_NODES, wide.getReason());
+        assertEquals(151, reached.size());
+    }
+
+    @Test
+    void testHeavySearchPermitsAreReturned() throws IOException {
+        RouteProperties properties = new RouteProperties();
+        properties.getSearch().setHeavyAfterNodes(10);
+        properties.getSearch().setMaxHeavySearches(1);
+        properties.getCache().setMaxEntries(0);
+        routeService = new RouteService(properties);
+        StringBuilder chain = new StringBuilder();
+        for (int i = 0; i < 99; i++) {
+            chain.append("N").append(i).append(";N").append(i + 1).append(";1\n");
+        }
+        routeService.loadData(csv(chain.toString()));
+
+        // Con un solo cupo, cada búsqueda pesada devuelve el permiso al terminar, también al fallar
+        for (RouteAlgorithm algorithm : RouteAlgorithm.values()) {
+            assertEquals(99, routeService.findFastestRoute("N0", "N99", algorithm).getTotalTime());
+            assertAborted(routeService.findFastestRouteAsync("N0", "N99", algorithm, 50, null));
+        }
+        assertEquals(99, routeService.findFastestRoute("N0", "N99").getTotalTime());
+    }
+
+    @Test
+    void testMetricsRecordQueriesLoadsAndGraphSize() throws IOException {
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        RouteProperties properties = new RouteProperties();
+        properties.getSearch().setComputeThreads(0);
+        routeService = new RouteService(properties, registry);
+        setupGraphForDijkstra();
+
+        RouteResponse first = routeService.findFastestRoute("CP1", "R20");
+        assertTrue(first.getRelaxedEdges() >= first.getSettledNodes() - 1);
+        assertTrue(first.getQueuePushes() >= first.getSettledNodes());
+        assertTrue(first.getSearchNanos() > 0);
+        RouteResponse cached = routeService.findFastestRoute("CP1", "R20");
+        assertEquals(0, cached.getRelaxedEdges());
+        routeService.findFastestRoute("CP1", "X");
+        assertThrows(CompletionException.class,
+                () -> routeService.findFastestRouteAsync("CP1", "R13", RouteAlgorithm.BIDIRECTIONAL, 1, null).join());
+
+        assertEquals(1, registry.get("routes.find").tags("algorithm", "DIJKSTRA", "outcome", "found").timer().count());
+        assertEquals(1, registry.get("routes.find").tags("algorithm", "DIJKSTRA", "outcome", "cached").timer().count());
+        assertEquals(1, registry.get("routes.find").tags("outcome", "unknown_location").timer().count());
+        assertEquals(1, registry.get("routes.find").tags("algorithm", "BIDIRECTIONAL", "outcome", "aborted").timer().count());
+        assertEquals(1, registry.get("routes.search.aborted").tag("reason", "SETTLED_NODES").counter().count());
+        assertEquals(first.getSettledNodes(),
+                registry.get("routes.search.settled.nodes").tag("algorithm", "DIJKSTRA").summary().totalAmount());
+        assertEquals(first.getRelaxedEdges(),
+                registry.get("routes.search.relaxed.edges").tag("algorithm", "DIJKSTRA").summary().totalAmount());
+
+        assertEquals(1, registry.get("routes.load").timer().count());
+        assertEquals(1, registry.get("routes.load.phase").tag("phase", "build").timer().count());
+        CompactGraph graph = routeService.getSnapshot().getGraph();
+        assertEquals(graph.nodeCount(), registry.get("routes.graph.nodes").gauge().value());
+        assertEquals(graph.edgeCount(), registry.get("routes.graph.edges").gauge().value());
+        assertTrue(registry.get("routes.graph.memory").gauge().value() > graph.estimatedBytes());
+    }
+
+    @Test
+    void testTravelTimeAndMatrixUseHubLabels() throws IOException {
+        setupGraphForDijkstra();
+        assertNotNull(routeService.getSnapshot().getHubLabels().join());
+
+        TravelTimeResponse time = routeService.findTravelTimeAsync("CP1", "R20", null, null).join();
+        assertEquals(74, time.getTotalTime());
+        assertEquals(RouteAlgorithm.HL, time.getAlgorithm());
+        TravelTimeResponse unknown = routeService.findTravelTimeAsync("CP1", "X", null, null).join();
+        assertEquals(-1, unknown.getTotalTime());
+        assertNull(unknown.getAlgorithm());
+        assertEquals(0, routeService.getCacheStats().getMisses(), "Las etiquetas no buscan ni usan el caché");
+
+        List<String> locations = List.of("CP1", "CP2", "R11", "R12", "R13", "R20");
+        TravelTimeMatrix matrix = routeService.computeMatrix(locations, locations);
+        for (int i = 0; i < locations.size(); i++) {
+            for (int j = 0; j < locations.size(); j++) {
+                assertEquals(routeService.findFastestRoute(locations.get(i), locations.get(j), RouteAlgorithm.DIJKSTRA)
+                        .getTotalTime(), matrix.row(i)[j], locations.get(i) + " -> " + locations.get(j));
+            }
+        }
+
+        // Una actualización invalida las etiquetas; el mantenimiento (quizás ya en curso) las reconstruye
+        routeService.updateConnections(List.of(new ConnectionChange("CP1", "R20", 50)));
+        assertEquals(50, routeService.findTravelTimeAsync("CP1", "R20", null, null).join().getTotalTime());
+        routeService.maintain();
+        assertNotNull(routeService.getSnapshot().getHubLabels().join());
+        TravelTimeResponse rebuilt = routeService.findTravelTimeAsync("CP1", "R20", null, null).join();
+        assertEquals(RouteAlgorithm.HL, rebuilt.getAlgorithm());
+        assertEquals(50, rebuilt.getTotalTime());
+    }
+
+    @Test
+    void testHubLabelsOverTheMemoryCapAreDisabled() throws IOException {
+        RouteProperties properties = new RouteProperties();
+        properties.getHubLabels().setEnabled(true);
+        properties.getHubLabels().setMaxBytes(64);
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        routeService = new RouteService(properties, registry);
+        setupGraphForDijkstra();
+
+        assertNull(routeService.getSnapshot().getHubLabels().join());
+        RouteResponse route = routeService.findFastestRoute("CP1", "R20", RouteAlgorithm.HL);
+        assertEquals(RouteAlgorithm.DIJKSTRA, route.getAlgorithm());
+        assertEquals(74, route.getTotalTime());
+        assertEquals(RouteAlgorithm.DIJKSTRA, routeService.findTravelTimeAsync("CP1", "R20", null, null).join().getAlgorithm());
+        assertEquals(1, registry.get("routes.hub.labels.build").tag("outcome", "over_budget").timer().count());
+        assertEquals(0, registry.get("routes.hub.labels.memory").gauge().value());
+    }
+
+    private static SearchAbortedException assertAborted(CompletableFuture<?> response) {
+        CompletionException error = assertThrows(CompletionException.class, response::join);
+        return assertInstanceOf(SearchAbortedException.class, error.getCause());
+    }
+
+    private static MockMultipartFile csv(String content) {
+        return new MockMultipartFile("data", "data.csv", "text/csv", content.getBytes(StandardCharsets.UTF_8));
+    }
+
+    // --- Pruebas para findFastestRoute (Dijkstra y Dijkstra bidireccional) ---
 
     // Preparación de un escenario base para las siguientes pruebas
     private void setupGraphForDijkstra() throws IOException {
@@ -81,25 +411,85 @@ public class RouteServiceTest {
                 "R20;CP2;60";
         MockMultipartFile file = new MockMultipartFile("data", "data.csv", "text/csv", csvContent.getBytes(StandardCharsets.UTF_8));
         routeService.loadData(file);
+        awaitIndexes();
+    }
+
+    @ParameterizedTest
+    @EnumSource(AlternativeMode.class)
+    void testAlternativeRoutes(AlternativeMode mode) throws IOException {
+        setupGraphForDijkstra();
+
+        AlternativeRoutesResponse response = routeService.findAlternativeRoutesAsync("CP1", "R20", 3, mode, null, null).join();
+        assertEquals(mode, response.getMode());
+        // Solo hay dos rutas sin ciclos entre CP1 y R20
+        assertEquals(2, response.getRoutes().size());
+        assertEquals(List.of("CP1", "CP2", "R20"), response.getRoutes().get(0).getRoute());
+        assertEquals(74, response.getRoutes().get(0).getTotalTime());
+        assertEquals(List.of("CP1", "R11", "R12", "R13", "R20"), response.getRoutes().get(1).getRoute());
+        assertEquals(122, response.getRoutes().get(1).getTotalTime());
+        assertTrue(response.getSettledNodes() > 0);
+
+        assertEquals(1, routeService.findAlternativeRoutesAsync("CP1", "R20", 1, mode, null, null).join().getRoutes().size());
+        assertTrue(routeService.findAlternativeRoutesAsync("CP1", "X", 3, mode, null, null).join().getRoutes().isEmpty());
+        assertThrows(IllegalArgumentException.class,
+                () -> routeService.findAlternativeRoutesAsync("CP1", "R20", 0, mode, null, null));
+        assertThrows(IllegalArgumentException.class,
+                () -> routeService.findAlternativeRoutesAsync("CP1", "R20", 11, mode, null, null));
+    }
+
+    @Test
+    void testPenaltyMustBeGreaterThanOne() {
+        RouteProperties.Alternatives alternatives = new RouteProperties().getAlternatives();
+        assertThrows(IllegalArgumentException.class, () -> alternatives.setPenalty(1));
+        assertThrows(IllegalArgumentException.class, () -> alternatives.setPenalty(0.5));
+        assertThrows(IllegalArgumentException.class, () -> alternatives.setPenalty(Double.NaN));
+        alternatives.setPenalty(2);
+        assertEquals(2, alternatives.getPenalty());
     }
 
     @Test
-    void testFindFastestRouteExists() throws IOException {
+    void testAlternativeRoutesShareTheSearchBudget() throws IOException {
+        StringBuilder ladder = new StringBuilder();
+        for (int i = 0; i < 199; i++) {
+            ladder.append("A").append(i).append(";A").append(i + 1).append(";1\n");
+            ladder.append("B").append(i).append(";B").append(i + 1).append(";1\n");
+            ladder.append("A").append(i).append(";B").append(i).append(";1\n");
+            ladder.append("B").append(i).append(";A").append(i).append(";1\n");
+        }
+        routeService.loadData(csv(ladder.toString()));
+
+        AlternativeRoutesResponse response = routeService.findAlternativeRoutesAsync("A0", "A199", 5, null, null, null).join();
+        assertEquals(5, response.getRoutes().size());
+        assertEquals(199, response.getRoutes().get(0).getTotalTime());
+        for (int i = 1; i < 5; i++) {
+            assertTrue(response.getRoutes().get(i).getTotalTime() >= response.getRoutes().get(i - 1).getTotalTime());
+        }
+        SearchAbortedException aborted = assertAborted(routeService.findAlternativeRoutesAsync("A0", "A199", 10, null,
+                response.getSettledNodes() / 2, null));
+        assertEquals(SearchAbortedException.Reason.SETTLED_NODES, aborted.getReason());
+    }
+
+    @ParameterizedTest
+    @EnumSource(RouteAlgorithm.class)
+    void testFindFastestRouteExists(RouteAlgorithm algorithm) throws IOException {
         setupGraphForDijkstra();
 
-        RouteResponse response = routeService.findFastestRoute("CP1", "R20");
+        RouteResponse response = routeService.findFastestRoute("CP1", "R20", algorithm);
 
         assertNotNull(response);
         assertEquals(74, response.getTotalTime());
         assertEquals(List.of("CP1", "CP2", "R20"), response.getRoute());
+        assertEquals(algorithm, response.getAlgorithm());
+        assertTrue(response.getSettledNodes() > 0);
     }
 
-    @Test
-    void testFindFastestRouteWithCycle() throws IOException {
+    @ParameterizedTest
+    @EnumSource(RouteAlgorithm.class)
+    void testFindFastestRouteWithCycle(RouteAlgorithm algorithm) throws IOException {
         setupGraphForDijkstra();
 
         // Probamos una ruta que pasa por un ciclo, pero Dijkstra debería encontrar la más corta.
-        RouteResponse response = routeService.findFastestRoute("CP1", "R13");
+        RouteResponse response = routeService.findFastestRoute("CP1", "R13", algorithm);
 
         assertNotNull(response);
         // CP1 -> CP2 (7) -> R20 (67) -> R13 (11) = 85
@@ -108,41 +498,621 @@ public class RouteServiceTest {
         assertEquals(List.of("CP1", "CP2", "R20", "R13"), response.getRoute());
     }
 
-    @Test
-    void testFindFastestRouteToSelf() throws IOException {
+    @ParameterizedTest
+    @EnumSource(RouteAlgorithm.class)
+    void testFindFastestRouteToSelf(RouteAlgorithm algorithm) throws IOException {
         setupGraphForDijkstra();
 
-        RouteResponse response = routeService.findFastestRoute("CP1", "CP1");
+        RouteResponse response = routeService.findFastestRoute("CP1", "CP1", algorithm);
 
         assertNotNull(response);
         assertEquals(0, response.getTotalTime());
         assertEquals(List.of("CP1"), response.getRoute());
     }
 
-    @Test
-    void testFindFastestRouteNotExists() throws IOException {
+    @ParameterizedTest
+    @EnumSource(RouteAlgorithm.class)
+    void testFindFastestRouteNotExists(RouteAlgorithm algorithm) throws IOException {
         setupGraphForDijkstra();
 
         // 'NonExistent' no existe en el grafo.
-        RouteResponse response = routeService.findFastestRoute("CP1", "NonExistent");
+        RouteResponse response = routeService.findFastestRoute("CP1", "NonExistent", algorithm);
 
         assertNotNull(response);
         assertEquals(-1, response.getTotalTime());
         assertTrue(response.getRoute().isEmpty());
     }
 
-    @Test
-    void testFindFastestRouteNoPathExists() throws IOException {
+    @ParameterizedTest
+    @EnumSource(RouteAlgorithm.class)
+    void testFindFastestRouteNoPathExists(RouteAlgorithm algorithm) throws IOException {
         // Creamos un grafo desconectado
         String csvContent = "loc_start;loc_end;time\nA;B;10\nC;D;20";
         MockMultipartFile file = new MockMultipartFile("data", "data.csv", "text/csv", csvContent.getBytes(StandardCharsets.UTF_8));
         routeService.loadData(file);
+        awaitIndexes();
 
         // No hay camino entre A y C
-        RouteResponse response = routeService.findFastestRoute("A", "C");
+        RouteResponse response = routeService.findFastestRoute("A", "C", algorithm);
 
         assertNotNull(response);
         assertEquals(-1, response.getTotalTime());
         assertTrue(response.getRoute().isEmpty());
     }
-}
\ No newline at end of file
+
+    @Test
+    void testComponentsRejectImpossibleRoutesWithoutSearching() throws IOException {
+        // A <-> B y C -> D, con una sola arista B -> C entre ambas partes
+        String csvContent = "loc_start;loc_end;time\nA;B;10\nB;A;10\nB;C;5\nC;D;20";
+        LoadResponse load = routeService.loadData(new MockMultipartFile("data", "data.csv", "text/csv",
+                csvContent.getBytes(StandardCharsets.UTF_8)));
+
+        assertEquals(3, load.getComponents());
+        assertEquals(2, load.getLargestComponent());
+        assertEquals(2, load.getComponentDagEdges());
+        assertTrue(load.getPhaseMillis().containsKey("components"));
+
+        RouteResponse impossible = routeService.findFastestRoute("D", "A", RouteAlgorithm.DIJKSTRA);
+        assertEquals(-1, impossible.getTotalTime());
+        assertEquals(0, impossible.getSettledNodes());
+        assertEquals(35, routeService.findFastestRoute("A", "D", RouteAlgorithm.DIJKSTRA).getTotalTime());
+        assertEquals(1, routeService.getCacheStats().getMisses(), "Solo la ruta posible pasa por el caché");
+    }
+
+    @Test
+    void testAlgorithmFromConfiguration() throws IOException {
+        RouteProperties properties = new RouteProperties();
+        properties.getSearch().setAlgorithm(RouteAlgorithm.BIDIRECTIONAL);
+        routeService = new RouteService(properties);
+        setupGraphForDijkstra();
+
+        RouteResponse response = routeService.findFastestRoute("CP1", "R13");
+
+        assertEquals(RouteAlgorithm.BIDIRECTIONAL, response.getAlgorithm());
+        assertEquals(85, response.getTotalTime());
+        assertEquals(RouteAlgorithm.DIJKSTRA, routeService.findFastestRoute("CP1", "R13", RouteAlgorithm.DIJKSTRA).getAlgorithm());
+    }
+
+    @Test
+    void testHierarchyFallsBackToDijkstraWhenDisabled() throws IOException {
+        routeService = new RouteService();
+        setupGraphForDijkstra();
+
+        RouteResponse response = routeService.findFastestRoute("CP1", "R13", RouteAlgorithm.CH);
+
+        assertNull(routeService.getSnapshot().getHierarchy().join());
+        assertEquals(RouteAlgorithm.DIJKSTRA, response.getAlgorithm());
+        assertEquals(85, response.getTotalTime());
+    }
+
+    @Test
+    void testRepeatedQueryHitsCacheUntilReload() throws IOException {
+        setupGraphForDijkstra();
+
+        RouteResponse first = routeService.findFastestRoute("CP1", "R20");
+        RouteResponse second = routeService.findFastestRoute("CP1", "R20");
+        setupGraphForDijkstra();
+        RouteResponse afterReload = routeService.findFastestRoute("CP1", "R20");
+
+        assertFalse(first.isCached());
+        assertTrue(second.isCached());
+        assertEquals(0, second.getSettledNodes());
+        assertEquals(first.getRoute(), second.getRoute());
+        assertFalse(afterReload.isCached());
+        assertEquals(1, routeService.getCacheStats().getHits());
+        assertEquals(2, routeService.getCacheStats().getMisses());
+    }
+
+    // --- Pruebas para updateConnections ---
+
+    @Test
+    void testIncrementalUpdatesChangeRoutesWithoutReload() throws IOException {
+        setupGraphForDijkstra();
+        long version = routeService.getSnapshot().getVersion();
+        assertEquals(74, routeService.findFastestRoute("CP1", "R20").getTotalTime());
+        assertEquals(20, routeService.findFastestRoute("R11", "R12").getTotalTime());
+
+        // Una conexión más lenta solo invalida las rutas guardadas que la usan
+        UpdateResponse slower = routeService.updateConnections(List.of(new ConnectionChange("CP2", "R20", 100)));
+        assertEquals(version + 1, slower.getVersion());
+        assertEquals(1, slower.getUpdated());
+        assertEquals(1, slower.getKeptRoutes());
+        assertTrue(routeService.findFastestRoute("R11", "R12").isCached());
+        RouteResponse detour = routeService.findFastestRoute("CP1", "R20");
+        assertFalse(detour.isCached());
+        assertEquals(107, detour.getTotalTime());
+        assertNotNull(routeService.getSnapshot().getLandmarks(), "Los landmarks siguen siendo válidos");
+
+        // Una conexión nueva puede acortar cualquier ruta: todos los algoritmos deben verla
+        UpdateResponse added = routeService.updateConnections(List.of(new ConnectionChange("CP1", "R20", 50)));
+        assertEquals(1, added.getAdded());
+        assertEquals(0, added.getKeptRoutes());
+        assertEquals(12, added.getConnections());
+        for (RouteAlgorithm algorithm : RouteAlgorithm.values()) {
+            assertEquals(50, routeService.findFastestRoute("CP1", "R20", algorithm).getTotalTime(), algorithm.name());
+        }
+
+        // El mantenimiento reconstruye los índices invalidados, también la jerarquía
+        routeService.maintain();
+        GraphSnapshot maintained = routeService.getSnapshot();
+        assertNotNull(maintained.getLandmarks());
+        assertNotNull(maintained.getComponents());
+        assertNotNull(maintained.getHierarchy().join());
+        assertNotNull(maintained.getHubLabels().join());
+        for (RouteAlgorithm algorithm : RouteAlgorithm.values()) {
+            // Un par no consultado antes, para que la respuesta no venga del caché
+            RouteResponse response = routeService.findFastestRoute("CP1", "R13", algorithm);
+            assertEquals(algorithm, response.getAlgorithm());
+            assertEquals(61, response.getTotalTime(), algorithm.name());
+        }
+
+        UpdateResponse removed = routeService.updateConnections(List.of(
+                new ConnectionChange("CP1", "R20", null),
+                new ConnectionChange("R12", "CP1", null)));
+        assertEquals(1, removed.getRemoved());
+        assertEquals(1, removed.getNotFound());
+        assertEquals(107, routeService.findFastestRoute("CP1", "R20").getTotalTime());
+        assertEquals(List.of("CP1", "CP2", "R20"), routeService.findFastestRoute("CP1", "R20").getRoute());
+    }
+
+    @Test
+    void testUpdateWithoutEffectKeepsTheVersion() throws IOException {
+        setupGraphForDijkstra();
+        long version = routeService.getSnapshot().getVersion();
+
+        UpdateResponse response = routeService.updateConnections(List.of(
+                new ConnectionChange("CP1", "CP2", 7),
+                new ConnectionChange("CP1", "R13", null)));
+
+        assertEquals(version, response.getVersion());
+        assertEquals(1, response.getUnchanged());
+        assertEquals(1, response.getNotFound());
+        assertEquals(version, routeService.getSnapshot().getVersion());
+    }
+
+    @Test
+    void testUpdateRejectsInvalidChanges() throws IOException {
+        setupGraphForDijkstra();
+        long version = routeService.getSnapshot().getVersion();
+
+        assertThrows(IllegalArgumentException.class,
+                () -> routeService.updateConnections(List.of(new ConnectionChange("CP1", "NUEVA", 5))));
+        assertThrows(IllegalArgumentException.class,
+                () -> routeService.updateConnections(List.of(new ConnectionChange("CP1", "R20", -5))));
+        assertThrows(IllegalArgumentException.class,
+                () -> routeService.updateConnections(List.of(new ConnectionChange(null, "R20", 5))));
+        assertEquals(version, routeService.getSnapshot().getVersion());
+    }
+
+    @Test
+    void testNewConnectionRebuildsComponents() throws IOException {
+        String csvContent = "loc_start;loc_end;time\nA;B;10\nB;C;5";
+        routeService.loadData(new MockMultipartFile("data", "data.csv", "text/csv", csvContent.getBytes(StandardCharsets.UTF_8)));
+        assertEquals(-1, routeService.findFastestRoute("C", "A").getTotalTime());
+
+        routeService.updateConnections(List.of(new ConnectionChange("C", "A", 1)));
+        assertEquals(1, routeService.findFastestRoute("C", "A").getTotalTime());
+
+        routeService.maintain();
+        assertEquals(1, routeService.getSnapshot().getComponents().count());
+        assertEquals(6, routeService.findFastestRoute("B", "A").getTotalTime());
+    }
+
+    @Test
+    void testCompactionFoldsTheOverlayAndKeepsCachedRoutes() throws IOException {
+        RouteProperties properties = new RouteProperties();
+        properties.getUpdates().setCompactionThreshold(1);
+        routeService = new RouteService(properties);
+        setupGraphForDijkstra();
+        assertEquals(74, routeService.findFastestRoute("CP1", "R20").getTotalTime());
+
+        UpdateResponse response = routeService.updateConnections(List.of(new ConnectionChange("R11", "R12", 25)));
+        assertEquals(2, response.getOverlayEdges(), "Las dos aristas de R11");
+
+        routeService.maintain();
+        GraphSnapshot compacted = routeService.getSnapshot();
+        assertEquals(0, compacted.getGraph().overlayEdgeCount());
+        assertEquals(0, compacted.getReverse().overlayEdgeCount());
+        assertEquals(11, compacted.getGraph().edgeCount());
+        assertTrue(routeService.findFastestRoute("CP1", "R20").isCached(), "Compactar no cambia las distancias");
+        assertEquals(25, routeService.findFastestRoute("R11", "R12").getTotalTime());
+    }
+
+    // --- Pruebas del almacenamiento fuera del heap ---
+
+    private static RouteProperties offHeapProperties() {
+        RouteProperties properties = new RouteProperties();
+        properties.getLoad().setStorage(GraphStorage.OFF_HEAP);
+        return properties;
+    }
+
+    @Test
+    void testOffHeapLoadAnswersLikeTheHeapGraph() throws IOException {
+        RouteProperties properties = offHeapProperties();
+        properties.getSearch().setContractionHierarchies(true);
+        properties.getHubLabels().setEnabled(true);
+        String data = "loc_start;loc_end;time\nR11;R12;20\nR12;R13;9\nR13;R12;11\nR13;R20;9\nR20;R13;11\n"
+                + "CP1;R11;84\nR11;CP1;92\nCP1;CP2;7\nCP2;CP1;10\nCP2;R20;67\nR20;CP2;60";
+        RouteService heap = routeService;
+        heap.loadData(csv(data));
+        routeService = new RouteService(properties);
+        LoadResponse load = routeService.loadData(csv(data));
+        awaitIndexes();
+
+        assertEquals(GraphStorage.OFF_HEAP, load.getStorage());
+        assertTrue(load.getOffHeapBytes() > 0);
+        assertTrue(load.getPhaseMillis().containsKey("off-heap"));
+        GraphSnapshot current = routeService.getSnapshot();
+        assertTrue(current.getGraph().isOffHeap());
+        assertSame(current.getMemory(), current.getReverse().memory());
+        List<String> locations = List.of("CP1", "CP2", "R11", "R12", "R13", "R20");
+        TravelTimeMatrix matrix = routeService.computeMatrix(locations, locations);
+        for (int i = 0; i < locations.size(); i++) {
+            for (int j = 0; j < locations.size(); j++) {
+                RouteResponse expected = heap.findFastestRoute(locations.get(i), locations.get(j), RouteAlgorithm.DIJKSTRA);
+                for (RouteAlgorithm algorithm : RouteAlgorithm.values()) {
+                    RouteResponse actual = routeService.findFastestRoute(locations.get(i), locations.get(j), algorithm);
+                    assertEquals(expected.getTotalTime(), actual.getTotalTime(), algorithm.name());
+                }
+                assertEquals(expected.getTotalTime(), matrix.row(i)[j]);
+                assertEquals(expected.getTotalTime(),
+                        routeService.findTravelTimeAsync(locations.get(i), locations.get(j), null, null).join().getTotalTime());
+            }
+        }
+        assertEquals(List.of("CP1", "CP2", "R20"), routeService.findFastestRoute("CP1", "R20").getRoute());
+        assertEquals(74, routeService.findFastestRoutes(List.of(new RoutePair("CP1", "R20"))).get(0).join().getTotalTime());
+        Map<String, Integer> isochrone = new LinkedHashMap<>();
+        routeService.isochrone("CP1", 80, null).forEach(isochrone::put);
+        assertEquals(Map.of("CP1", 0, "CP2", 7, "R20", 74), isochrone);
+    }
+
+    @Test
+    void testReloadFreesTheReplacedGraphWhenItsLastReaderFinishes() throws IOException {
+        routeService = new RouteService(offHeapProperties());
+        setupGraphForDijkstra();
+        GraphSnapshot first = routeService.getSnapshot();
+        assertTrue(first.retain(), "Una consulta en curso retiene la versión");
+
+        setupGraphForDijkstra();
+        GraphSnapshot second = routeService.getSnapshot();
+        assertTrue(first.getMemory().isOpen(), "La consulta en curso sigue leyendo la versión anterior");
+        assertEquals(84, first.getGraph().weight(first.getGraph().edgeStart(first.getGraph().idOf("CP1"))));
+        long openBytes = GraphMemory.openBytes();
+        first.release();
+
+        assertFalse(first.getMemory().isOpen());
+        assertEquals(openBytes - first.getMemory().byteSize(), GraphMemory.openBytes());
+        assertFalse(first.retain());
+
+        // Sin lectores, la versión reemplazada se libera al publicar la siguiente
+        setupGraphForDijkstra();
+        assertFalse(second.getMemory().isOpen());
+        assertTrue(routeService.getSnapshot().getMemory().isOpen());
+        assertEquals(74, routeService.findFastestRoute("CP1", "R20").getTotalTime());
+    }
+
+    @Test
+    void testIsochroneKeepsItsVersionAcrossAReload() throws IOException {
+        routeService = new RouteService(offHeapProperties());
+        setupGraphForDijkstra();
+        GraphMemory first = routeService.getSnapshot().getMemory();
+        Isochrone isochrone = routeService.isochrone("CP1", 80, null);
+
+        // Una carga entre preparar la isócrona y recorrerla no libera la versión que usa
+        setupGraphForDijkstra();
+        assertTrue(first.isOpen());
+        Map<String, Integer> reached = new LinkedHashMap<>();
+        assertEquals(3, isochrone.forEach(reached::put));
+        assertEquals(Map.of("CP1", 0, "CP2", 7, "R20", 74), reached);
+        assertFalse(first.isOpen(), "Recorrerla suelta la referencia");
+        assertThrows(IllegalStateException.class, () -> isochrone.forEach((name, time) -> { }));
+
+        // Una isócrona que nunca se recorre se cierra sin buscar
+        GraphMemory second = routeService.getSnapshot().getMemory();
+        Isochrone unused = routeService.isochrone("CP1", 80, IsochroneDirection.REVERSE);
+        setupGraphForDijkstra();
+        assertTrue(second.isOpen());
+        unused.close();
+        unused.close();
+        assertFalse(second.isOpen());
+        assertNull(routeService.isochrone("X", 80, null));
+        assertTrue(routeService.getSnapshot().getMemory().isOpen());
+    }
+
+    @Test
+    void testOffHeapSnapshotIsMappedOnLoad(@TempDir Path tempDir) throws IOException {
+        Path snapshotFile = tempDir.resolve("datos.snapshot");
+        RouteProperties properties = offHeapProperties();
+        properties.getSnapshot().setPath(snapshotFile.toString());
+        routeService = new RouteService(properties);
+        setupGraphForDijkstra();
+        routeService.writeSnapshot();
+        RouteService restarted = new RouteService(properties);
+
+        LoadResponse load = restarted.loadFile(snapshotFile, null);
+
+        assertEquals("SNAPSHOT", load.getMode());
+        assertEquals(GraphStorage.OFF_HEAP, load.getStorage());
+        assertTrue(restarted.getSnapshot().getMemory().isMapped());
+        assertEquals(List.of("CP1", "CP2", "R20"), restarted.findFastestRoute("CP1", "R20").getRoute());
+        assertEquals(74, restarted.findFastestRoute("CP1", "R20").getTotalTime());
+    }
+
+    @Test
+    void testWriteOnLoadRetainsThePublishedGraph(@TempDir Path tempDir) throws IOException {
+        Path snapshotFile = tempDir.resolve("datos.snapshot");
+        RouteProperties properties = offHeapProperties();
+        properties.getSnapshot().setPath(snapshotFile.toString());
+        properties.getSnapshot().setWriteOnLoad(true);
+        routeService = new RouteService(properties);
+
+        setupGraphForDijkstra();
+        GraphMemory written = routeService.getSnapshot().getMemory();
+        assertEquals(11, GraphSnapshotFile.read(snapshotFile).getGraph().edgeCount());
+        setupGraphForDijkstra();
+
+        // La escritura soltó su referencia: la versión reemplazada se libera al publicar la siguiente
+        assertFalse(written.isOpen());
+        assertTrue(routeService.getSnapshot().getMemory().isOpen());
+    }
+
+    @Test
+    void testWriteOnLoadFailureKeepsTheLoad(@TempDir Path tempDir) throws IOException {
+        // El directorio del snapshot es un archivo: la escritura falla después de publicar
+        Path notADirectory = Files.createFile(tempDir.resolve("archivo"));
+        RouteProperties properties = new RouteProperties();
+        properties.getSnapshot().setPath(notADirectory.resolve("datos.snapshot").toString());
+        properties.getSnapshot().setWriteOnLoad(true);
+        routeService = new RouteService(properties);
+
+        LoadResponse load = routeService.loadData(new MockMultipartFile("file", "rutas.csv", "text/csv",
+                "loc_start;loc_end;time\nCP1;CP2;7\n".getBytes(StandardCharsets.UTF_8)));
+
+        assertNotNull(load.getSnapshotError());
+        assertEquals(1, load.getConnections());
+        assertEquals(7, routeService.findFastestRoute("CP1", "CP2").getTotalTime());
+    }
+
+    @Test
+    void testOffHeapUpdatesShareTheMemoryUntilCompaction() throws IOException {
+        RouteProperties properties = offHeapProperties();
+        // Sin umbral alcanzado no se programa el mantenimiento en segundo plano
+        properties.getUpdates().setCompactionThreshold(100);
+        routeService = new RouteService(properties);
+        setupGraphForDijkstra();
+        GraphMemory loaded = routeService.getSnapshot().getMemory();
+
+        routeService.updateConnections(List.of(new ConnectionChange("R11", "R12", 25)));
+        assertSame(loaded, routeService.getSnapshot().getMemory(), "La capa de actualizaciones no copia el grafo");
+        properties.getUpdates().setCompactionThreshold(0);
+        routeService.maintain();
+
+        GraphSnapshot compacted = routeService.getSnapshot();
+        assertNotSame(loaded, compacted.getMemory());
+        assertFalse(loaded.isOpen(), "La versión anterior a la compactación se libera");
+        assertTrue(compacted.getGraph().isOffHeap());
+        assertSame(compacted.getMemory(), compacted.getReverse().memory());
+        assertEquals(0, compacted.getGraph().overlayEdgeCount());
+        assertEquals(25, routeService.findFastestRoute("R11", "R12").getTotalTime());
+        assertEquals(List.of("R20", "CP2", "CP1"), routeService.findFastestRoute("R20", "CP1", RouteAlgorithm.BIDIRECTIONAL).getRoute());
+    }
+
+    // --- Pruebas para findFastestRoutes ---
+
+    @Test
+    void testBatchMatchesSingleQueriesInRequestOrder() throws IOException {
+        setupGraphForDijkstra();
+        List<RoutePair> pairs = List.of(
+                new RoutePair("CP1", "R13"),
+                new RoutePair("R11", "R20"),
+                new RoutePair("CP1", "R20"),
+                new RoutePair("CP1", "CP1"),
+                new RoutePair("CP1", "R13"));
+
+        List<BatchRouteResult> results = routeService.findFastestRoutes(pairs).stream()
+                .map(CompletableFuture::join).toList();
+
+        assertEquals(pairs.size(), results.size());
+        for (int i = 0; i < pairs.size(); i++) {
+            RouteResponse single = routeService.findFastestRoute(pairs.get(i).getOrigin(), pairs.get(i).getDestination());
+            assertEquals(pairs.get(i).getOrigin(), results.get(i).getOrigin());
+            assertEquals(pairs.get(i).getDestination(), results.get(i).getDestination());
+            assertEquals(single.getTotalTime(), results.get(i).getTotalTime());
+            assertEquals(single.getRoute(), results.get(i).getRoute());
+            assertNull(results.get(i).getError());
+        }
+        // Los cuatro pares desde CP1 comparten un solo árbol de búsqueda
+        assertEquals(results.get(0).getSettledNodes(), results.get(2).getSettledNodes());
+    }
+
+    @Test
+    void testBatchReportsErrorsPerItem() throws IOException {
+        String csvContent = "loc_start;loc_end;time\nA;B;10\nC;D;20";
+        routeService.loadData(new MockMultipartFile("data", "data.csv", "text/csv", csvContent.getBytes(StandardCharsets.UTF_8)));
+
+        List<BatchRouteResult> results = routeService.findFastestRoutes(List.of(
+                        new RoutePair("A", "B"),
+                        new RoutePair("A", "C"),
+                        new RoutePair("A", "X"),
+                        new RoutePair("Y", "B"))).stream()
+                .map(CompletableFuture::join).toList();
+
+        assertEquals(10, results.get(0).getTotalTime());
+        assertNull(results.get(0).getError());
+        assertEquals(-1, results.get(1).getTotalTime());
+        assertEquals(BatchRouteResult.NO_ROUTE, results.get(1).getError());
+        assertEquals(BatchRouteResult.UNKNOWN_LOCATION, results.get(2).getError());
+        assertEquals(BatchRouteResult.UNKNOWN_LOCATION, results.get(3).getError());
+        assertTrue(results.get(3).getRoute().isEmpty());
+    }
+
+    @Test
+    void testBatchRejectsTooManyPairs() {
+        RouteProperties properties = new RouteProperties();
+        properties.getBatch().setMaxPairs(2);
+        routeService = new RouteService(properties);
+
+        List<RoutePair> pairs = Collections.nCopies(3, new RoutePair("A", "B"));
+        assertThrows(IllegalArgumentException.class, () -> routeService.findFastestRoutes(pairs));
+    }
+
+    // --- Pruebas para computeMatrix ---
+
+    @Test
+    void testMatrixMatchesSingleQueries() throws IOException {
+        setupGraphForDijkstra();
+        List<String> origins = List.of("CP1", "R20", "X", "CP1");
+        List<String> destinations = List.of("R13", "CP1", "Y", "R11", "CP1");
+
+        TravelTimeMatrix matrix = routeService.computeMatrix(origins, destinations);
+
+        for (int i = 0; i < origins.size(); i++) {
+            int[] row = matrix.row(i);
+            assertEquals(destinations.size(), row.length);
+            for (int j = 0; j < destinations.size(); j++) {
+                assertEquals(routeService.findFastestRoute(origins.get(i), destinations.get(j)).getTotalTime(), row[j],
+                        origins.get(i) + " -> " + destinations.get(j));
+            }
+        }
+        assertEquals(List.of("Y", "X"), matrix.getUnknown());
+        // Los orígenes repetidos comparten la misma búsqueda
+        assertSame(matrix.row(0), matrix.row(3));
+    }
+
+    @Test
+    void testMatrixRejectsTooManyCells() {
+        RouteProperties properties = new RouteProperties();
+        properties.getBatch().setMaxMatrixCells(3);
+        routeService = new RouteService(properties);
+
+        assertThrows(IllegalArgumentException.class,
+                () -> routeService.computeMatrix(List.of("A", "B"), List.of("C", "D")));
+    }
+
+    // --- Pruebas para isochrone ---
+
+    @Test
+    void testIsochroneInBothDirections() throws IOException {
+        setupGraphForDijkstra();
+        Map<String, Integer> forward = new LinkedHashMap<>();
+        Map<String, Integer> reverse = new LinkedHashMap<>();
+
+        int forwardCount = routeService.isochrone("CP1", 80, IsochroneDirection.FORWARD).forEach(forward::put);
+        int reverseCount = routeService.isochrone("CP1", 80, IsochroneDirection.REVERSE).forEach(reverse::put);
+
+        // CP1 -> CP2 (7) -> R20 (74); R11 está a 84
+        assertEquals(Map.of("CP1", 0, "CP2", 7, "R20", 74), forward);
+        assertEquals(List.of("CP1", "CP2", "R20"), List.copyOf(forward.keySet()));
+        assertEquals(3, forwardCount);
+        // CP2 -> CP1 (10), R20 -> CP2 -> CP1 (70), R13 -> R20 -> ... (79); R11 -> CP1 está a 92
+        assertEquals(Map.of("CP1", 0, "CP2", 10, "R20", 70, "R13", 79), reverse);
+        assertEquals(4, reverseCount);
+    }
+
+    @Test
+    void testIsochroneStreamsFromItsOwnPoolInOrder() throws IOException {
+        RouteProperties properties = new RouteProperties();
+        properties.getSearch().setComputeThreads(1);
+        routeService = new RouteService(properties);
+        StringBuilder chain = new StringBuilder();
+        for (int i = 0; i < 9_999; i++) {
+            chain.append("N").append(i).append(";N").append(i + 1).append(";1\n");
+        }
+        routeService.loadData(csv(chain.toString()));
+
+        // Más nodos que los que caben en la cola: la búsqueda espera a quien los entrega
+        List<String> reached = new ArrayList<>();
+        int count = routeService.isochrone("N0", 20_000, null).forEach((location, time) -> {
+            assertEquals("N" + time, location);
+            assertEquals(reached.size(), time);
+            reached.add(location);
+        });
+        assertEquals(10_000, count);
+        assertEquals(10_000, reached.size());
+
+        // Si la entrega falla, la búsqueda se abandona y libera el único hilo de cómputo
+        Isochrone failing = routeService.isochrone("N0", 20_000, null);
+        int[] delivered = {0};
+        assertThrows(IllegalStateException.class, () -> failing.forEach((location, time) -> {
+            if (++delivered[0] == 10) {
+                throw new IllegalStateException("El cliente cerró la conexión");
+            }
+        }));
+        assertEquals(10, delivered[0]);
+        assertEquals(5, routeService.isochrone("N0", 4, null).forEach((location, time) -> { }));
+        assertEquals(1, routeService.findFastestRoute("N0", "N1").getTotalTime());
+    }
+
+    @Test
+    void testStalledIsochroneLeavesTheComputePoolAndHeavyPermitFree() throws Exception {
+        RouteProperties properties = new RouteProperties();
+        properties.getSearch().setComputeThreads(1);
+        properties.getSearch().setHeavyAfterNodes(10);
+        properties.getSearch().setMaxHeavySearches(1);
+        properties.getCache().setMaxEntries(0);
+        routeService = new RouteService(properties);
+        StringBuilder chain = new StringBuilder();
+        for (int i = 0; i < 9_999; i++) {
+            chain.append("N").append(i).append(";N").append(i + 1).append(";1\n");
+        }
+        routeService.loadData(csv(chain.toString()));
+
+        // Un cliente que nunca lee: la búsqueda llena la cola y queda esperando
+        CountDownLatch reading = new CountDownLatch(1);
+        CountDownLatch stalled = new CountDownLatch(1);
+        Thread client = Thread.ofVirtual().start(() -> {
+            try {
+                routeService.isochrone("N0", 20_000, null).forEach((location, time) -> {
+                    reading.countDown();
+                    try {
+                        stalled.await();
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                    throw new IllegalStateException("El cliente cerró la conexión");
+                });
+            } catch (IllegalStateException expected) {
+            }
+        });
+        assertTrue(reading.await(5, TimeUnit.SECONDS));
+
+        // El único hilo de cómputo sigue libre, y el permiso de búsqueda pesada vuelve al cupo
+        // apenas la isócrona se pone a esperar al cliente
+        assertTimeoutPreemptively(Duration.ofSeconds(10), () -> {
+            assertEquals(1, routeService.findFastestRoute("N0", "N1").getTotalTime());
+            while (true) {
+                try {
+                    assertEquals(9_999, routeService.findFastestRoute("N0", "N9999", RouteAlgorithm.DIJKSTRA)
+                            .getTotalTime());
+                    break;
+                } catch (SearchAbortedException e) {
+                    assertEquals(SearchAbortedException.Reason.OVERLOADED, e.getReason());
+                    Thread.sleep(10);
+                }
+            }
+        });
+
+        stalled.countDown();
+        client.join();
+    }
+
+    @Test
+    void testIsochroneUnknownLocationOrNegativeTime() throws IOException {
+        setupGraphForDijkstra();
+
+        assertNull(routeService.isochrone("X", 10, null));
+        assertThrows(IllegalArgumentException.class, () -> routeService.isochrone("CP1", -1, null));
+        assertEquals(IsochroneDirection.FORWARD, routeService.isochrone("CP1", 0, null).getDirection());
+    }
+
+    @Test
+    void testShutdownStopsTheServicePools() throws IOException {
+        setupGraphForDijkstra();
+        List<RoutePair> pairs = List.of(new RoutePair("CP1", "R20"));
+        assertNull(routeService.findFastestRoutes(pairs).get(0).join().getError());
+
+        routeService.shutdown();
+
+        assertThrows(RejectedExecutionException.class, () -> routeService.findFastestRoutes(pairs));
+    }
+}